@@ -249,18 +249,90 @@ public final class FFT {
     }
 
 
+    /**
+     * Forward FFT of a real sequence. The sequence is packed into a complex
+     * one of half the length (even elements as the real parts, odd ones as
+     * the imaginary parts), which is transformed and then split into the
+     * spectrum, taking about half the work of a complex FFT.
+     *
+     * @param re the real input data, length a power of 2; on output the
+     *           real part of the bins 0..n/2 (the rest is left as is)
+     * @param im the imaginary part of the bins 0..n/2 on output; at least
+     *           n/2 + 1 long
+     * @throws IllegalArgumentException if the length of the input data is
+     *                                  not a power of 2
+     */
+    private void realFFT(double[] re, double[] im) {
+        int n = re.length;
+
+        if (n < 2) {
+            fft(re, im, FFT_FORWARD);
+            return;
+        }
+
+        int half = n / 2;
+        double[] zr = new double[half];
+        double[] zi = new double[half];
+
+        for (int i = 0; i < half; i++) {
+            zr[i] = re[2 * i];
+            zi[i] = re[2 * i + 1];
+        }
+
+        fft(zr, zi, FFT_FORWARD);
+
+        // X[k] = E[k] + W^k O[k], E[k] = (Z[k] + conj(Z[half - k])) / 2,
+        // O[k] = (Z[k] - conj(Z[half - k])) / 2i
+        double theta = twoPI / n;
+        double Wj_r = Math.cos(theta);
+        double Wj_i = FFT_FORWARD * Math.sin(theta);
+        double Wk_r = 1;
+        double Wk_i = 0;
+
+        for (int k = 0; k <= half; k++) {
+            int a = k % half;
+            int b = (half - k) % half;
+            double er = (zr[a] + zr[b]) / 2;
+            double ei = (zi[a] - zi[b]) / 2;
+            double or = (zi[a] + zi[b]) / 2;
+            double oi = (zr[b] - zr[a]) / 2;
+
+            re[k] = er + Wk_r * or - Wk_i * oi;
+            im[k] = ei + Wk_r * oi + Wk_i * or;
+
+            double wtemp = Wk_r;
+            Wk_r = Wj_r * Wk_r - Wj_i * Wk_i;
+            Wk_i = Wj_r * Wk_i + Wj_i * wtemp;
+        }
+    }
+
+
     /**
      * Computes the power spectrum of a real sequence (in place).
      *
      * @param re the real input and output data; length must be a power of 2
      */
     private void powerFFT(double[] re) {
-        double[] im = new double[re.length];
+        double[] im = new double[re.length / 2 + 1];
 
-        fft(re, im, FFT_FORWARD);
+        realFFT(re, im);
 
-        for (int i = 0; i < re.length; i++)
+        for (int i = 0; i <= re.length / 2; i++)
             re[i] = re[i] * re[i] + im[i] * im[i];
+
+        mirror(re);
+    }
+
+
+    /**
+     * Fills the upper half of a spectrum of a real sequence from the lower
+     * half, which it is symmetric to in magnitude and power.
+     *
+     * @param re spectrum whose bins 0..n/2 are set
+     */
+    private void mirror(double[] re) {
+        for (int i = 1; i < re.length / 2; i++)
+            re[re.length - i] = re[i];
     }
 
 
@@ -270,12 +342,14 @@ public final class FFT {
      * @param re the real input and output data; length must be a power of 2
      */
     private void magnitudeFFT(double[] re) {
-        double[] im = new double[re.length];
+        double[] im = new double[re.length / 2 + 1];
 
-        fft(re, im, FFT_FORWARD);
+        realFFT(re, im);
 
-        for (int i = 0; i < re.length; i++)
+        for (int i = 0; i <= re.length / 2; i++)
             re[i] = Math.sqrt(re[i] * re[i] + im[i] * im[i]);
+
+        mirror(re);
     }
 
 
@@ -285,16 +359,18 @@ public final class FFT {
      * @param re the real input and output data; length must be a power of 2
      */
     private void normalizedPowerFFT(double[] re) {
-        double[] im = new double[re.length];
+        double[] im = new double[re.length / 2 + 1];
         double r, i;
 
-        fft(re, im, FFT_FORWARD);
+        realFFT(re, im);
 
-        for (int j = 0; j < re.length; j++) {
+        for (int j = 0; j <= re.length / 2; j++) {
             r = re[j] / windowFunctionSum * 2;
             i = im[j] / windowFunctionSum * 2;
             re[j] = r * r + i * i;
         }
+
+        mirror(re);
     }
 
 
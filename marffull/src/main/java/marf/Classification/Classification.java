@@ -7,7 +7,9 @@ import marf.MARF;
 import marf.Storage.ResultSet;
 import marf.Storage.StorageException;
 import marf.Storage.StorageManager;
+import marf.Storage.TrainingBatch;
 import marf.Storage.TrainingSet;
+import marf.Storage.TrainingSetCache;
 import marf.util.Debug;
 
 
@@ -86,11 +88,15 @@ public abstract class Classification
      * mean vectors in the training set.
      * Can be overridden, and if the overriding classifier is using
      * <code>TrainingSet</code>, it should call <code>super.train();</code>
+     * As of 0.3.0.6, if the pipeline has a training batch open, the feature
+     * vector is only added to the batch's in-memory training set, which
+     * is dumped on the batch's checkpoint or commit.
      *
      * @return <code>true</code> if training was successful
      * (i.e. mean vector was updated); <code>false</code> otherwise
      * @throws ClassificationException if there was a problem while training
      * @see TrainingSet
+     * @see TrainingBatch
      */
     public boolean train()
             throws ClassificationException {
@@ -118,8 +124,30 @@ public abstract class Classification
                 }
             }
 
+            // Within a batch, only update the in-memory set; it's dumped on commit
+            TrainingBatch oBatch = MARF.getTrainingBatch();
+
+            if (oBatch != null) {
+                strPhase = "[restoring batch training set]";
+                this.oTrainingSet = oBatch.getTrainingSet(getTrainingSetFilename(), this.iCurrentDumpMode);
+
+                strPhase = "[adding feature vector to batch]";
+                oBatch.addFeatureVector
+                        (
+                                this.oTrainingSet,
+                                this.oFeatureExtraction.getFeaturesArray(),
+                                MARF.getSampleFile(),
+                                MARF.getCurrentSubject(),
+                                MARF.getPreprocessingMethod(),
+                                MARF.getFeatureExtractionMethod(),
+                                keepsCovariance()
+                        );
+
+                return true;
+            }
+
             strPhase = "[restoring training set]";
-            loadTrainingSet();
+            loadTrainingSetForUpdate();
 
             // Add the new feature vector.
             strPhase = "[adding feature vector]";
@@ -130,7 +158,8 @@ public abstract class Classification
                             MARF.getSampleFile(),
                             MARF.getCurrentSubject(),
                             MARF.getPreprocessingMethod(),
-                            MARF.getFeatureExtractionMethod()
+                            MARF.getFeatureExtractionMethod(),
+                            keepsCovariance()
                     );
 
             // No point of doing I/O if we didn't add anything.
@@ -195,6 +224,10 @@ public abstract class Classification
                 this.oTrainingSet.setDumpMode(this.iCurrentDumpMode);
                 this.oTrainingSet.setFilename(getTrainingSetFilename());
                 this.oTrainingSet.dump();
+
+                // Let the other classifiers see the new data without re-reading it;
+                // the set is shared from now on, and train() takes a new copy
+                TrainingSetCache.update(this.oTrainingSet);
             }
 
             // TODO: if TrainingSet is null
@@ -214,18 +247,19 @@ public abstract class Classification
 
     /**
      * Loads TrainingSet from a file. Called by <code>restore()</code>.
+     * As of 0.3.0.6 the training set comes from the process-wide
+     * <code>TrainingSetCache</code>, so it is only read from disk once
+     * and is shared read-only among classifiers.
      *
      * @throws StorageException if there is a problem loading the training set from disk
+     * @see TrainingSetCache#getTrainingSet(String, int)
      * @since 0.2.0
      */
     private final void loadTrainingSet()
             throws StorageException {
         try {
             if (this.oTrainingSet == null) {
-                this.oTrainingSet = new TrainingSet();
-                this.oTrainingSet.setDumpMode(this.iCurrentDumpMode);
-                this.oTrainingSet.setFilename(getTrainingSetFilename());
-                this.oTrainingSet.restore();
+                this.oTrainingSet = TrainingSetCache.getTrainingSet(getTrainingSetFilename(), this.iCurrentDumpMode);
             }
 
             //TODO: if TrainingSet is not null
@@ -243,6 +277,25 @@ public abstract class Classification
         }
     }
 
+    /**
+     * Loads a private copy of the TrainingSet to be updated by training,
+     * replacing a shared one possibly loaded by <code>restore()</code>.
+     *
+     * @throws StorageException if there is a problem loading the training set from disk
+     * @see TrainingSetCache#getTrainingSetForUpdate(String, int)
+     * @since 0.3.0.6
+     */
+    private final void loadTrainingSetForUpdate()
+            throws StorageException {
+        try {
+            this.oTrainingSet = TrainingSetCache.getTrainingSetForUpdate(getTrainingSetFilename(), this.iCurrentDumpMode);
+        } catch (StorageException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new StorageException(e);
+        }
+    }
+
     /**
      * Retrieves the enclosed result set.
      *
@@ -253,6 +306,20 @@ public abstract class Classification
         return this.oResultSet;
     }
 
+    /**
+     * Tells whether training is to keep the pooled covariance of the
+     * feature vectors in the training set. Only the classifiers that
+     * use it should, as it costs a square of the vector length
+     * in time and storage per vector.
+     *
+     * @return <code>false</code>; may be overridden by the derivatives
+     * @see TrainingSet#getCovariance()
+     * @since 0.3.0.6
+     */
+    protected boolean keepsCovariance() {
+        return false;
+    }
+
     /**
      * Constructs a global cluster file name for the TrainingSet.
      * <p>
@@ -270,7 +337,7 @@ public abstract class Classification
     protected String getTrainingSetFilename() {
         return
                 // Fully-qualified class name
-                this.oTrainingSet.getClass().getName() + "." +
+                TrainingSet.class.getName() + "." +
 
                         // Global cluster: <PR>.<FE>.<FVS>
                         // For the same FE method we may have different feature vector sizes
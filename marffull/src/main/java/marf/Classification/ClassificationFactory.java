@@ -6,6 +6,7 @@ import marf.Classification.Distance.EuclideanDistance;
 import marf.Classification.Distance.MahalanobisDistance;
 import marf.Classification.Distance.MinkowskiDistance;
 import marf.Classification.Markov.Markov;
+import marf.Classification.NeuralNetwork.DenseNeuralNetwork;
 import marf.Classification.NeuralNetwork.NeuralNetwork;
 import marf.Classification.RandomClassification.RandomClassification;
 import marf.Classification.Stochastic.Stochastic;
@@ -49,6 +50,7 @@ public final class ClassificationFactory {
      * @see MARF#RANDOM_CLASSIFICATION
      * @see MARF#DIFF_DISTANCE
      * @see MARF#CLASSIFICATION_PLUGIN
+     * @see MARF#DENSE_NEURAL_NETWORK
      * @see NeuralNetwork
      * @see Stochastic
      * @see Markov
@@ -58,6 +60,7 @@ public final class ClassificationFactory {
      * @see MahalanobisDistance
      * @see RandomClassification
      * @see DiffDistance
+     * @see DenseNeuralNetwork
      */
     public static final IClassification create(final Integer poClassificationMethod, IFeatureExtraction poFeatureExtraction)
             throws ClassificationException {
@@ -84,6 +87,7 @@ public final class ClassificationFactory {
      * @see MARF#RANDOM_CLASSIFICATION
      * @see MARF#DIFF_DISTANCE
      * @see MARF#CLASSIFICATION_PLUGIN
+     * @see MARF#DENSE_NEURAL_NETWORK
      * @see NeuralNetwork
      * @see Stochastic
      * @see Markov
@@ -93,6 +97,7 @@ public final class ClassificationFactory {
      * @see MahalanobisDistance
      * @see RandomClassification
      * @see DiffDistance
+     * @see DenseNeuralNetwork
      */
     public static final IClassification create(final int piClassificationMethod, IFeatureExtraction poFeatureExtraction)
             throws ClassificationException {
@@ -135,6 +140,10 @@ public final class ClassificationFactory {
                 oClassification = new DiffDistance(poFeatureExtraction);
                 break;
 
+            case MARF.DENSE_NEURAL_NETWORK:
+                oClassification = new DenseNeuralNetwork(poFeatureExtraction);
+                break;
+
             case MARF.CLASSIFICATION_PLUGIN: {
                 try {
                     oClassification = (IClassification) MARF.getClassificationPluginClass().newInstance();
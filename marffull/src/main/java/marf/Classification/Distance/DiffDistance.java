@@ -86,6 +86,49 @@ public class DiffDistance
         return dDistance;
     }
 
+    /**
+     * Computes the diff-distances to all the mean vectors in one pass.
+     *
+     * @param padMeans     row-major mean vectors
+     * @param piRows       number of mean vectors
+     * @param piDimension  length of every mean vector and of the features
+     * @param padFeatures  incoming feature vector
+     * @param padDistances receives the distances
+     * @return <code>true</code>
+     * @see Distance#distances(double[], int, int, double[], double[])
+     * @since 0.3.0.6
+     */
+    protected boolean distances
+    (
+            final double[] padMeans,
+            final int piRows,
+            final int piDimension,
+            final double[] padFeatures,
+            double[] padDistances
+    ) {
+        // As distance() does, the last feature is not compared
+        int iCompared = piDimension - 1;
+
+        for (int i = 0, iOffset = 0; i < piRows; i++, iOffset += piDimension) {
+            double dDistance = 0;
+
+            for (int f = 0; f < iCompared; f++) {
+                double dDiff = Math.abs(padMeans[iOffset + f] - padFeatures[f]);
+
+                if (dDiff > DEFAULT_ALLOWED_ERROR) {
+                    // Penalty
+                    dDistance += dDiff + DISTANCE_FACTOR;
+                } else {
+                    // Bonus
+                    dDistance -= DEFAULT_ALLOWED_ERROR;
+                }
+            }
+
+            padDistances[i] = dDistance;
+        }
+        return true;
+    }
+
     /**
      * Retrieves class' revision.
      *
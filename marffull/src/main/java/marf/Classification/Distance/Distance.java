@@ -5,10 +5,14 @@ import java.util.Vector;
 import marf.Classification.Classification;
 import marf.Classification.ClassificationException;
 import marf.FeatureExtraction.IFeatureExtraction;
+import marf.MARF;
+import marf.MARFPipeline;
 import marf.Storage.Cluster;
+import marf.Storage.MeanMatrix;
 import marf.Storage.Result;
 import marf.Storage.StorageException;
 import marf.util.Debug;
+import marf.util.SortComparator;
 
 
 /**
@@ -41,15 +45,28 @@ public abstract class Distance
         super(poFeatureExtraction);
     }
 
+    /**
+     * Distances of the latest classification, kept to be reused.
+     *
+     * @since 0.3.0.6
+     */
+    private transient double[] adDistances = null;
+
     /**
      * Classify the feature vector based on whatever
      * <code>distance()</code> derivatives implement.
+     * As of 0.3.0.6, the distances to all the subjects are computed in one
+     * pass over the training set's <code>MeanMatrix</code> when the derivative
+     * implements <code>distances()</code>, and if the pipeline has a result
+     * limit, only that many closest subjects are retained in the result set.
      *
      * @return true if classification successful whatever that means
      * @throws ClassificationException if sanity checks fail. The checks include
      *                                 verifying nullness of the mean vector and its length compared to the
      *                                 feature vector or encapsulation of StorageException when dumping/restoring.
      * @see #distance(double[], double[])
+     * @see #distances(double[], int, int, double[], double[])
+     * @see MARF#getResultLimit()
      */
     public final boolean classify()
             throws ClassificationException {
@@ -62,15 +79,27 @@ public abstract class Distance
 
             // Features in the training set
             Vector oTrainingSamples = this.oTrainingSet.getClusters();
+            MeanMatrix oMeans = this.oTrainingSet.getMeanMatrix();
+
+            int iRows = oTrainingSamples.size();
+
+            if (this.adDistances == null || this.adDistances.length < iRows) {
+                this.adDistances = new double[iRows];
+            }
+
+            double[] adDistances = this.adDistances;
 
-            // Our minimum distance.
-            double dMinDistance = Double.MAX_VALUE;
+            boolean bComputed =
+                    oMeans != null
+                            && oMeans.getRows() == iRows
+                            && (iRows == 0 || oMeans.getDimension() == adIncomingFeatures.length)
+                            && distances(oMeans.getMeans(), iRows, oMeans.getDimension(), adIncomingFeatures, adDistances);
 
 			/*
-             * Run through the stored training samples set (mean vetors)
-			 * and determine the two closest subjects to the incoming features sample
+             * Otherwise run through the stored training samples set (mean vetors)
+			 * one by one.
 			 */
-            for (int i = 0; i < oTrainingSamples.size(); i++) {
+            for (int i = 0; !bComputed && i < iRows; i++) {
                 Cluster oTrainingSample = (Cluster) oTrainingSamples.get(i);
 
                 double[] adMeanVector = oTrainingSample.getMeanVector();
@@ -98,26 +127,35 @@ public abstract class Distance
                  * We have a mean vector of the samples for this iCurrentSubjectID
 				 * Compare using whatever distance classifier it is...
 				 */
-                double dCurrentDistance = distance(adMeanVector, adIncomingFeatures);
+                adDistances[i] = distance(adMeanVector, adIncomingFeatures);
+            }
 
-                Debug.debug("Distance for subject " + oTrainingSample.getSubjectID() + " = " + dCurrentDistance);
+            if (Debug.isDebugOn()) {
+                // Our minimum distance.
+                double dMinDistance = Double.MAX_VALUE;
 
-                // XXX: What should we do in this (very rare and subtle) case?
-                if (dCurrentDistance == dMinDistance) {
-                    Debug.debug("This distance had happened before!");
-                }
+                for (int i = 0; i < iRows; i++) {
+                    Debug.debug("Distance for subject " + getSubjectID(oTrainingSamples, i) + " = " + adDistances[i]);
+
+                    // XXX: What should we do in this (very rare and subtle) case?
+                    if (adDistances[i] == dMinDistance) {
+                        Debug.debug("This distance had happened before!");
+                    }
 
-                if (dCurrentDistance < dMinDistance) {
-                    dMinDistance = dCurrentDistance;
+                    if (adDistances[i] < dMinDistance) {
+                        dMinDistance = adDistances[i];
+                    }
                 }
+            }
 
-                // Collect for stats
-                // XXX: Move to StatsCollector
-                this.oResultSet.addResult
-                        (
-                                oTrainingSample.getSubjectID(),
-                                dCurrentDistance
-                        );
+            // Collect for stats
+            // XXX: Move to StatsCollector
+            if (MARF.getResultLimit() != MARFPipeline.ALL_RESULTS) {
+                this.oResultSet.setLimit(MARF.getResultLimit(), SortComparator.ASCENDING);
+            }
+
+            for (int i = 0; i < iRows; i++) {
+                this.oResultSet.addResult(getSubjectID(oTrainingSamples, i), adDistances[i]);
             }
 
             return true;
@@ -126,6 +164,45 @@ public abstract class Distance
         }
     }
 
+    /**
+     * Computes the distances from a feature vector to all the mean vectors
+     * of a training set at once. To be overridden by the derivatives able
+     * to do so faster than calling <code>distance()</code> per subject;
+     * the default does nothing and returns <code>false</code>.
+     *
+     * @param padMeans       row-major mean vectors, as in <code>MeanMatrix.getMeans()</code>
+     * @param piRows         number of mean vectors
+     * @param piDimension    length of every mean vector and of the features
+     * @param padFeatures    incoming feature vector
+     * @param padDistances   receives the distance to row <code>i</code> at index <code>i</code>;
+     *                       each must equal what <code>distance(mean, features)</code> returns,
+     *                       up to rounding
+     * @return <code>true</code> if the distances were computed
+     * @see MeanMatrix
+     * @since 0.3.0.6
+     */
+    protected boolean distances
+    (
+            final double[] padMeans,
+            final int piRows,
+            final int piDimension,
+            final double[] padFeatures,
+            double[] padDistances
+    ) {
+        return false;
+    }
+
+    /**
+     * Retrieves subject ID of the i-th cluster.
+     *
+     * @param poClusters Vector of Clusters
+     * @param piIndex    cluster index
+     * @return the subject ID
+     */
+    private static int getSubjectID(final Vector poClusters, final int piIndex) {
+        return ((Cluster) poClusters.get(piIndex)).getSubjectID();
+    }
+
     /**
      * Generic distance routine. To be overridden.
      *
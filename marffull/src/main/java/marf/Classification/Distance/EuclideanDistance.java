@@ -50,6 +50,39 @@ public class EuclideanDistance
         return dDistance;
     }
 
+    /**
+     * Computes the Euclidean distances to all the mean vectors in one pass.
+     *
+     * @param padMeans     row-major mean vectors
+     * @param piRows       number of mean vectors
+     * @param piDimension  length of every mean vector and of the features
+     * @param padFeatures  incoming feature vector
+     * @param padDistances receives the distances
+     * @return <code>true</code>
+     * @see Distance#distances(double[], int, int, double[], double[])
+     * @since 0.3.0.6
+     */
+    protected boolean distances
+    (
+            final double[] padMeans,
+            final int piRows,
+            final int piDimension,
+            final double[] padFeatures,
+            double[] padDistances
+    ) {
+        for (int i = 0, iOffset = 0; i < piRows; i++, iOffset += piDimension) {
+            double dDistance = 0;
+
+            for (int f = 0; f < piDimension; f++) {
+                double dDiff = padMeans[iOffset + f] - padFeatures[f];
+                dDistance += dDiff * dDiff;
+            }
+
+            padDistances[i] = dDistance;
+        }
+        return true;
+    }
+
     /**
      * Retrieves class' revision.
      *
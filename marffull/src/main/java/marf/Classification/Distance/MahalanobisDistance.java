@@ -1,20 +1,32 @@
 package marf.Classification.Distance;
 
 import marf.FeatureExtraction.IFeatureExtraction;
-import marf.math.Matrix;
-import marf.util.Debug;
+import marf.Storage.MeanMatrix;
+import marf.Storage.PooledCovariance;
 
 
 /**
  * <p>Mahalanobis Distance Classification Module.</p>
  * <p>
- * <p><b>NOTE</b>: Implemented as equivalent to Euclidean Distance in 0.2.0, i.e.
- * the Covariance matrix is always an Indentity one.</p>
+ * <p>As of 0.3.0.6, the covariance matrix is the pooled within-subject
+ * covariance learned by the training set, shrunk towards the identity
+ * and factorized with Cholesky once per training set state. The distance
+ * <code>sqrt((x - m)<sup>T</sup> C<sup>-1</sup> (x - m))</code> is then
+ * the Euclidean distance between <code>L<sup>-1</sup>x</code> and
+ * <code>L<sup>-1</sup>m</code>: the mean vectors are whitened once and
+ * cached with the covariance, and the incoming vector once per classification,
+ * into a buffer reused across calls. Until the training set has some spread
+ * to learn from, i.e. while every subject has a single sample, the covariance
+ * is the identity, and the distance is equivalent to Euclidean Distance.
+ * The training set only keeps the covariance when trained with this
+ * classifier from the start; one that isn't is reported, and the identity
+ * is used instead until it's trained anew.</p>
  * <p>
  * <p>$Id: MahalanobisDistance.java,v 1.21 2005/08/12 20:02:56 susan_fan Exp $</p>
  *
  * @author Serguei Mokhov
  * @version $Revision: 1.21 $
+ * @see PooledCovariance
  * @since 0.2.0
  */
 public class MahalanobisDistance
@@ -30,9 +42,18 @@ public class MahalanobisDistance
     private static final long serialVersionUID = -6720267386878796592L;
 
     /**
-     * Covariance Matrix.
+     * Whitened vector buffer, reused across calls.
+     *
+     * @since 0.3.0.6
      */
-    private Matrix oC = null;
+    private transient double[] adWhitened = null;
+
+    /**
+     * Whether a training set without the covariance has been reported.
+     *
+     * @since 0.3.0.6
+     */
+    private transient boolean bMissingCovarianceReported = false;
 
     /**
      * MahalanobisDistance Constructor.
@@ -41,47 +62,160 @@ public class MahalanobisDistance
      */
     public MahalanobisDistance(IFeatureExtraction poFeatureExtraction) {
         super(poFeatureExtraction);
-
-        int iD = this.oFeatureExtraction.getFeaturesArray().length;
-
-        this.oC = new Matrix(iD, iD);
-
-		/*
-         * Make the default an indetity matrix rendering it at least
-		 * equivalent to Euclidean distance. Will be fixed in 0.3.*
-		 */
-        this.oC.makeIdentity();
     }
 
     /**
-     * Partial MahalanobisDistance implementation.
+     * Mahalanobis distance with the covariance of the training set.
      *
      * @param paVector1 first vector to compare
      * @param paVector2 second vector to compare
      * @return Mahalanobis distance between two feature vectors
      */
     public final double distance(final double[] paVector1, final double[] paVector2) {
-        Debug.debug
-                (
-                        "MahalanobisDistance.distance() - WARNING:  Mahalanobis distance is equivalent " +
-                                "to Euclidean as there is no learning of the co-variance matrix."
-                );
+        double[] adLower = getCholeskyFactor(paVector1.length);
+
+        if (adLower == null) {
+            double dDistance = 0.0;
+
+            for (int i = 0; i < paVector1.length; i++) {
+                double dDifference = paVector1[i] - paVector2[i];
+                dDistance += dDifference * dDifference;
+            }
+
+            return Math.sqrt(dDistance);
+        }
+
+        double[] adDifference = getBuffer(paVector1.length);
+
+        for (int i = 0; i < paVector1.length; i++) {
+            adDifference[i] = paVector1[i] - paVector2[i];
+        }
+
+        PooledCovariance.whiten(adLower, adDifference, 0, adDifference, 0, paVector1.length);
 
         double dDistance = 0.0;
 
-        Matrix oVector1 = new Matrix(paVector1);
-        Matrix oVector2 = new Matrix(paVector2);
+        for (int i = 0; i < paVector1.length; i++) {
+            dDistance += adDifference[i] * adDifference[i];
+        }
+
+        return Math.sqrt(dDistance);
+    }
+
+    /**
+     * Computes the distances to all the mean vectors as Euclidean
+     * distances between the whitened means and the whitened features.
+     * The results equal those of <code>distance()</code> up to rounding.
+     *
+     * @see Distance#distances(double[], int, int, double[], double[])
+     * @since 0.3.0.6
+     */
+    protected boolean distances
+    (
+            final double[] padMeans,
+            final int piRows,
+            final int piDimension,
+            final double[] padFeatures,
+            double[] padDistances
+    ) {
+        MeanMatrix oMeans = this.oTrainingSet.getMeanMatrix();
+        PooledCovariance oCovariance = getCovariance(piDimension);
+
+        if (oCovariance == null || oMeans == null || oMeans.getMeans() != padMeans) {
+            return false;
+        }
+
+        double[] adWhitenedMeans = oCovariance.getWhitenedMeans(oMeans);
+
+        if (adWhitenedMeans == null) {
+            return false;
+        }
+
+        double[] adWhitenedFeatures = getBuffer(piDimension);
+
+        PooledCovariance.whiten(oCovariance.getCholeskyFactor(), padFeatures, 0, adWhitenedFeatures, 0, piDimension);
 
-        Matrix oDifferenceVector = oVector1.minus(oVector2);
+        for (int r = 0; r < piRows; r++) {
+            int iRow = r * piDimension;
+            double dDistance = 0.0;
 
-        Matrix oTransposedVector = (Matrix) oDifferenceVector.clone();
-        oTransposedVector.transpose();
+            for (int i = 0; i < piDimension; i++) {
+                double dDifference = adWhitenedMeans[iRow + i] - adWhitenedFeatures[i];
+                dDistance += dDifference * dDifference;
+            }
 
-        this.oC.inverse();
+            padDistances[r] = Math.sqrt(dDistance);
+        }
 
-        dDistance = Math.sqrt(oDifferenceVector.multiply(this.oC).multiply(oTransposedVector).getElement(0, 0));
+        return true;
+    }
+
+    /**
+     * Retrieves the factor of the training set's covariance.
+     *
+     * @param piDimension length of the vectors compared
+     * @return packed Cholesky factor, or <code>null</code> for the identity
+     */
+    private double[] getCholeskyFactor(final int piDimension) {
+        PooledCovariance oCovariance = getCovariance(piDimension);
+        return oCovariance == null ? null : oCovariance.getCholeskyFactor();
+    }
+
+    /**
+     * Retrieves the training set's covariance, reporting once
+     * if the training set doesn't keep it.
+     *
+     * @param piDimension length of the vectors compared
+     * @return the covariance, or <code>null</code> for the identity
+     */
+    private PooledCovariance getCovariance(final int piDimension) {
+        if (this.oTrainingSet == null) {
+            return null;
+        }
+
+        PooledCovariance oCovariance = this.oTrainingSet.getCovariance();
+
+        if (oCovariance == null) {
+            if (!this.bMissingCovarianceReported && this.oTrainingSet.size() > 0) {
+                this.bMissingCovarianceReported = true;
+
+                System.err.println
+                        (
+                                "WARNING: MahalanobisDistance -- training set \"" + this.oTrainingSet.getFilename() + "\"\n" +
+                                        "         keeps no covariance, as it wasn't trained with Mahalanobis distance\n" +
+                                        "         from the start. Using the identity; retrain it to learn one."
+                        );
+            }
+
+            return null;
+        }
+
+        return oCovariance.getDimension() == piDimension ? oCovariance : null;
+    }
+
+    /**
+     * Tells training to keep the covariance in the training set.
+     *
+     * @return <code>true</code>
+     * @see marf.Classification.Classification#keepsCovariance()
+     * @since 0.3.0.6
+     */
+    protected boolean keepsCovariance() {
+        return true;
+    }
+
+    /**
+     * Retrieves the reusable buffer.
+     *
+     * @param piLength minimum length
+     * @return the buffer
+     */
+    private double[] getBuffer(final int piLength) {
+        if (this.adWhitened == null || this.adWhitened.length < piLength) {
+            this.adWhitened = new double[piLength];
+        }
 
-        return dDistance;
+        return this.adWhitened;
     }
 
     /**
@@ -0,0 +1,795 @@
+package marf.Classification.NeuralNetwork;
+
+import java.util.Random;
+import java.util.Vector;
+
+import marf.Classification.Classification;
+import marf.Classification.ClassificationException;
+import marf.FeatureExtraction.IFeatureExtraction;
+import marf.MARF;
+import marf.Storage.Result;
+import marf.Storage.StorageException;
+import marf.util.Debug;
+
+
+/**
+ * <p>Artificial Neural Network-based Classifier backed by dense matrices.</p>
+ *
+ * <p>Computes exactly what <code>NeuralNetwork</code> does -- a layered
+ * feed-forward net of sigmoid neurons with thresholds, trained by
+ * backpropagation, and outputting the subject ID in binary -- but instead
+ * of a graph of <code>Neuron</code> objects with boxed weights, every
+ * layer is a row-major <code>double[]</code> matrix of the weights of
+ * its neurons' inputs along with a vector of thresholds. Evaluation and
+ * training then are matrix-vector products over contiguous memory,
+ * done a block of rows at a time so that each input element loaded
+ * serves several neurons.</p>
+ *
+ * <p>The net is stored in the same binary or XML format as <code>NeuralNetwork</code>'s,
+ * and if there is no net of its own yet, the one trained by
+ * <code>NeuralNetwork</code> with the same preprocessing and feature
+ * extraction methods is imported. A link absent from an imported
+ * net is taken as a link of zero weight, which training may change.</p>
+ *
+ * <p>$Id$</p>
+ *
+ * @author The MARF Research and Development Group
+ * @version $Revision$
+ * @see NeuralNetwork
+ * @since 0.3.0.6
+ */
+public class DenseNeuralNetwork
+        extends Classification {
+    /**
+     * Number of rows processed together in the matrix-vector kernels.
+     */
+    private static final int BLOCK_ROWS = 4;
+
+    /**
+     * Number of neurons in each layer, the input layer first.
+     */
+    private int[] aiLayerSizes = null;
+
+    /**
+     * Weights of each layer but the input one: element
+     * <code>[l][j * aiLayerSizes[l - 1] + i]</code> is the weight of
+     * the input from neuron <code>i</code> of layer <code>l - 1</code>
+     * into neuron <code>j</code> of layer <code>l</code>.
+     * The element for the input layer is <code>null</code>.
+     */
+    private double[][] aadWeights = null;
+
+    /**
+     * Activation thresholds of the neurons of each layer.
+     */
+    private double[][] aadThresholds = null;
+
+    /**
+     * Names of the neurons of each layer, as referred to in the XML.
+     */
+    private String[][] aastrNames = null;
+
+    /**
+     * Results of the neurons of each layer in the latest evaluation;
+     * the first layer's are the inputs.
+     */
+    private transient double[][] aadResults = null;
+
+    /**
+     * Error terms of the neurons of each layer computed by
+     * <code>train()</code> and applied by <code>commit()</code>.
+     */
+    private transient double[][] aadDeltas = null;
+
+    /**
+     * Training constant of the pending changes; 0 if there are none.
+     */
+    private transient double dPendingTrainConst = 0.0;
+
+    /**
+     * Statistics of the epochs of the latest <code>train()</code>.
+     */
+    private transient Vector oEpochStatistics = new Vector();
+
+    /**
+     * For serialization versioning.
+     * When adding new members or make other structural
+     * changes regenerate this number with the
+     * <code>serialver</code> tool that comes with JDK.
+     */
+    private static final long serialVersionUID = -2790326815449138215L;
+
+    /**
+     * DenseNeuralNetwork Constructor.
+     *
+     * @param poFeatureExtraction FeatureExtraction module reference
+     */
+    public DenseNeuralNetwork(IFeatureExtraction poFeatureExtraction) {
+        super(poFeatureExtraction);
+    }
+
+	/* Classification API */
+
+    /**
+     * Implements training of the net, with the same parameters,
+     * defaults, and stopping criterion as <code>NeuralNetwork.train()</code>.
+     * The statistics of the epochs are available from <code>getEpochStatistics()</code>
+     * afterwards.
+     *
+     * @return <code>true</code>
+     * @throws ClassificationException if there are any errors
+     * @see NeuralNetwork#train()
+     */
+    public final boolean train()
+            throws ClassificationException {
+        Vector oTrainingSamples = null;
+        Vector oParams = null;
+
+        try {
+			/*
+			 * Get newly coming feature vector into the TrainingSet cluster
+			 * in case it's not there.
+			 */
+            super.train();
+
+            // Defaults
+            double dTrainConst = NeuralNetwork.DEFAULT_TRAINING_CONSTANT;
+            int iEpochNum = NeuralNetwork.DEFAULT_EPOCH_NUMBER;
+            double dMinErr = NeuralNetwork.DEFAULT_MIN_ERROR;
+            int iBatchSize = NeuralNetworkTrainer.DEFAULT_BATCH_SIZE;
+            int iThreads = NeuralNetworkTrainer.DEFAULT_THREADS;
+
+            // Defaults can be overridden by an app
+            if (MARF.getModuleParams() != null) {
+                oParams = MARF.getModuleParams().getClassificationParams();
+
+                if (oParams.size() > 1) {
+                    // May throw NullPointerException
+                    dTrainConst = ((Double) oParams.elementAt(1)).doubleValue();
+                    iEpochNum = ((Integer) oParams.elementAt(2)).intValue();
+                    dMinErr = ((Double) oParams.elementAt(3)).doubleValue();
+                }
+
+                if (oParams.size() > 4) {
+                    iBatchSize = ((Integer) oParams.elementAt(4)).intValue();
+                }
+
+                if (oParams.size() > 5) {
+                    iThreads = ((Integer) oParams.elementAt(5)).intValue();
+                }
+            }
+
+            // Reload the net from the disk if there was any
+            restore();
+
+            oTrainingSamples = this.oTrainingSet.getClusters();
+
+            NeuralNetworkTrainer oTrainer = new NeuralNetworkTrainer(getModel());
+
+            oTrainer.setBatchSize(iBatchSize);
+            oTrainer.setThreads(iThreads);
+
+            this.oEpochStatistics = oTrainer.train(oTrainingSamples, dTrainConst, iEpochNum, dMinErr);
+            this.dPendingTrainConst = 0.0;
+
+            dump();
+
+            return true;
+        } catch (StorageException e) {
+            throw new ClassificationException
+                    (
+                            "StorageException while dumping/restoring neural net: " +
+                                    e.getMessage(), e
+                    );
+        } catch (NullPointerException e) {
+            throw new ClassificationException
+                    (
+                            "DenseNeuralNetwork.train(): Missing required ModuleParam (" + oParams +
+                                    ") or TrainingSample (" + oTrainingSamples + ")"
+                    );
+        }
+    }
+
+    /**
+     * Classifies the incoming features by evaluating the net.
+     *
+     * @return <code>true</code> upon successful classification
+     * @throws ClassificationException when input feature vector
+     *                                 length does not match the size of the input layer or
+     *                                 if there was a StorageException during dump/restore.
+     */
+    public final boolean classify()
+            throws ClassificationException {
+        try {
+            double[] adFeatures = this.oFeatureExtraction.getFeaturesArray();
+
+            // Reload trained net
+            restore();
+
+            setInputs(adFeatures);
+            eval();
+
+            // Same result layout as NeuralNetwork's
+            int iID = interpretAsBinary();
+
+            this.oResultSet.addResult(new Result(iID));
+            this.oResultSet.addResult(new Result(iID + 1));
+
+            return true;
+        } catch (StorageException e) {
+            throw new ClassificationException(e);
+        }
+    }
+
+    /**
+     * Retrieves the statistics of the epochs of the latest training.
+     *
+     * @return Vector of <code>EpochStatistics</code>, in order
+     * @since 0.3.0.6
+     */
+    public Vector getEpochStatistics() {
+        return this.oEpochStatistics;
+    }
+
+    /**
+     * Retrieves the minimum-error classification result.
+     *
+     * @return Result object
+     */
+    public Result getResult() {
+        return this.oResultSet.getMinimumResult();
+    }
+
+    //----------- Methods for Running the NNet -----------------
+
+    /**
+     * Sets inputs.
+     *
+     * @param padInputs double array of input features
+     * @throws ClassificationException if the input array's length isn't
+     *                                 equal to the size of the input layer
+     */
+    public final void setInputs(final double[] padInputs)
+            throws ClassificationException {
+        if (padInputs.length != this.aiLayerSizes[0]) {
+            throw new ClassificationException
+                    (
+                            "Input array size (" + padInputs.length +
+                                    ") not consistent with input layer (" + this.aiLayerSizes[0] + ")"
+                    );
+        }
+
+        System.arraycopy(padInputs, 0, this.aadResults[0], 0, padInputs.length);
+    }
+
+    /**
+     * Evaluates the entire neural network.
+     */
+    public final void eval() {
+        for (int l = 1; l < this.aiLayerSizes.length; l++) {
+            forward
+                    (
+                            this.aadWeights[l],
+                            this.aadThresholds[l],
+                            this.aadResults[l - 1],
+                            this.aiLayerSizes[l - 1],
+                            this.aadResults[l],
+                            this.aiLayerSizes[l]
+                    );
+        }
+    }
+
+    /**
+     * Computes the results of a layer, <code>sigmoid(W * x - thresholds)</code>.
+     *
+     * @param padWeights    row-major weights of the layer
+     * @param padThresholds thresholds of the layer
+     * @param padInputs     results of the previous layer
+     * @param piInputs      size of the previous layer
+     * @param padOutputs    receives the results
+     * @param piOutputs     size of the layer
+     */
+    static void forward
+    (
+            final double[] padWeights,
+            final double[] padThresholds,
+            final double[] padInputs,
+            final int piInputs,
+            double[] padOutputs,
+            final int piOutputs
+    ) {
+        int j = 0;
+
+        for (; j + BLOCK_ROWS <= piOutputs; j += BLOCK_ROWS) {
+            int iRow0 = j * piInputs;
+            int iRow1 = iRow0 + piInputs;
+            int iRow2 = iRow1 + piInputs;
+            int iRow3 = iRow2 + piInputs;
+
+            double dSum0 = 0, dSum1 = 0, dSum2 = 0, dSum3 = 0;
+
+            for (int i = 0; i < piInputs; i++) {
+                double dInput = padInputs[i];
+
+                dSum0 += dInput * padWeights[iRow0 + i];
+                dSum1 += dInput * padWeights[iRow1 + i];
+                dSum2 += dInput * padWeights[iRow2 + i];
+                dSum3 += dInput * padWeights[iRow3 + i];
+            }
+
+            padOutputs[j] = sigmoid(dSum0 - padThresholds[j]);
+            padOutputs[j + 1] = sigmoid(dSum1 - padThresholds[j + 1]);
+            padOutputs[j + 2] = sigmoid(dSum2 - padThresholds[j + 2]);
+            padOutputs[j + 3] = sigmoid(dSum3 - padThresholds[j + 3]);
+        }
+
+        for (; j < piOutputs; j++) {
+            int iRow = j * piInputs;
+            double dSum = 0;
+
+            for (int i = 0; i < piInputs; i++) {
+                dSum += padInputs[i] * padWeights[iRow + i];
+            }
+
+            padOutputs[j] = sigmoid(dSum - padThresholds[j]);
+        }
+    }
+
+    /**
+     * The logistic activation function.
+     *
+     * @param pdValue argument
+     * @return <code>1 / (1 + e^(-pdValue))</code>
+     */
+    private static double sigmoid(final double pdValue) {
+        return 1.0 / (1.0 + Math.exp(-pdValue));
+    }
+
+    /**
+     * Gets outputs of a neural network run.
+     *
+     * @return array of doubles read off the output layer's neurons
+     */
+    public double[] getOutputResults() {
+        return this.aadResults[this.aiLayerSizes.length - 1].clone();
+    }
+
+    /**
+     * Interprets net's binary output as an ID for the final classification result.
+     *
+     * @return ID, integer
+     */
+    private final int interpretAsBinary() {
+        int iID = interpretAsBinary(this.aadResults[this.aiLayerSizes.length - 1]);
+
+        if (Debug.isDebugOn()) {
+            Debug.debug("Interpreted binary result (ID) = " + iID);
+        }
+
+        return iID;
+    }
+
+    /**
+     * Reads an ID off output neuron results, the highest bit first.
+     *
+     * @param padOutputs results of the output layer
+     * @return ID, integer
+     */
+    static int interpretAsBinary(final double[] padOutputs) {
+        int iID = 0;
+
+        for (int i = 0; i < padOutputs.length; i++) {
+            iID *= 2;
+
+            // Add 1 if the resulting weight is more than 0.5
+            if (padOutputs[i] > 0.5) {
+                iID += 1;
+            }
+        }
+
+        return iID;
+    }
+
+    //----------- Methods for Training the NNet -----------------
+
+    /**
+     * Evaluates the net on a training sample and computes the error terms
+     * of all the neurons by backpropagation. The weights are changed by
+     * <code>commit()</code>.
+     *
+     * @param padInput     the input feature vector
+     * @param piExpectedID subject ID expected in binary on the output layer
+     * @param pdTrainConst training constant
+     * @throws ClassificationException if the training constant less than zero or
+     *                                 sizes of the inputs do not match
+     * @see NeuralNetwork#train(double[], int, double)
+     */
+    public final void train(final double[] padInput, int piExpectedID, final double pdTrainConst)
+            throws ClassificationException {
+        if (pdTrainConst <= 0.0) {
+            throw new ClassificationException
+                    (
+                            "DenseNeuralNetwork.train(): Training constant must be > 0.0, supplied: " +
+                                    pdTrainConst
+                    );
+        }
+
+        setInputs(padInput);
+        eval();
+
+        int iLast = this.aiLayerSizes.length - 1;
+
+        outputDeltas(this.aadResults[iLast], piExpectedID, this.aadDeltas[iLast]);
+
+        // Hidden layers; the input layer has no error terms
+        for (int l = iLast - 1; l > 0; l--) {
+            backward
+                    (
+                            this.aadWeights[l + 1],
+                            this.aadDeltas[l + 1],
+                            this.aiLayerSizes[l + 1],
+                            this.aadResults[l],
+                            this.aadDeltas[l],
+                            this.aiLayerSizes[l]
+                    );
+        }
+
+        this.dPendingTrainConst = pdTrainConst;
+    }
+
+    /**
+     * Computes the error terms of the output layer, <code>(t - y) * y * (1 - y)</code>,
+     * where the expected outputs <code>t</code> are the bits of the subject ID.
+     *
+     * @param padOutputs   results of the output layer
+     * @param piExpectedID subject ID expected in binary, the lowest bit on the last neuron
+     * @param padDeltas    receives the error terms
+     */
+    static void outputDeltas(final double[] padOutputs, int piExpectedID, double[] padDeltas) {
+        for (int k = padOutputs.length - 1; k >= 0; k--) {
+            int iExpected = piExpectedID % 2;
+            piExpectedID /= 2;
+
+            padDeltas[k] = (iExpected - padOutputs[k]) * padOutputs[k] * (1.0 - padOutputs[k]);
+        }
+    }
+
+    /**
+     * Computes the error terms of a hidden layer from those of the next one,
+     * <code>y * (1 - y) * (W<sup>T</sup> * delta)</code>, going over the
+     * weights row by row.
+     *
+     * @param padWeights    row-major weights of the next layer
+     * @param padNextDeltas error terms of the next layer
+     * @param piNextSize    size of the next layer
+     * @param padResults    results of the layer
+     * @param padDeltas     receives the error terms of the layer
+     * @param piSize        size of the layer
+     */
+    static void backward
+    (
+            final double[] padWeights,
+            final double[] padNextDeltas,
+            final int piNextSize,
+            final double[] padResults,
+            double[] padDeltas,
+            final int piSize
+    ) {
+        java.util.Arrays.fill(padDeltas, 0, piSize, 0.0);
+
+        int j = 0;
+
+        for (; j + BLOCK_ROWS <= piNextSize; j += BLOCK_ROWS) {
+            int iRow0 = j * piSize;
+            int iRow1 = iRow0 + piSize;
+            int iRow2 = iRow1 + piSize;
+            int iRow3 = iRow2 + piSize;
+
+            double dDelta0 = padNextDeltas[j];
+            double dDelta1 = padNextDeltas[j + 1];
+            double dDelta2 = padNextDeltas[j + 2];
+            double dDelta3 = padNextDeltas[j + 3];
+
+            for (int i = 0; i < piSize; i++) {
+                // Summed in the order of the rows, as one row at a time would
+                double dSum = padDeltas[i];
+
+                dSum += dDelta0 * padWeights[iRow0 + i];
+                dSum += dDelta1 * padWeights[iRow1 + i];
+                dSum += dDelta2 * padWeights[iRow2 + i];
+                dSum += dDelta3 * padWeights[iRow3 + i];
+
+                padDeltas[i] = dSum;
+            }
+        }
+
+        for (; j < piNextSize; j++) {
+            int iRow = j * piSize;
+            double dDelta = padNextDeltas[j];
+
+            for (int i = 0; i < piSize; i++) {
+                padDeltas[i] += dDelta * padWeights[iRow + i];
+            }
+        }
+
+        for (int i = 0; i < piSize; i++) {
+            padDeltas[i] = padResults[i] * (1.0 - padResults[i]) * padDeltas[i];
+        }
+    }
+
+    /**
+     * Applies the weight changes computed by the latest <code>train()</code>,
+     * <code>W += trainConst * delta * x<sup>T</sup></code>.
+     */
+    public final void commit() {
+        if (this.dPendingTrainConst == 0.0) {
+            return;
+        }
+
+        for (int l = 1; l < this.aiLayerSizes.length; l++) {
+            double[] adWeights = this.aadWeights[l];
+            double[] adDeltas = this.aadDeltas[l];
+            double[] adInputs = this.aadResults[l - 1];
+            int iInputs = this.aiLayerSizes[l - 1];
+
+            for (int j = 0; j < this.aiLayerSizes[l]; j++) {
+                double dStep = this.dPendingTrainConst * adDeltas[j];
+                int iRow = j * iInputs;
+
+                for (int i = 0; i < iInputs; i++) {
+                    adWeights[iRow + i] = adWeights[iRow + i] + dStep * adInputs[i];
+                }
+            }
+        }
+
+        this.dPendingTrainConst = 0.0;
+    }
+
+    //----------- Methods for Creating the NNet -----------------
+
+    /**
+     * Generates a virgin fully connected net with random weights in [-1, 1)
+     * and thresholds of 1, as <code>NeuralNetwork.generate()</code> does.
+     *
+     * @param piNumOfInputs   number of neurons in the input layer
+     * @param paiHiddenLayers numbers of neurons in the hidden layers
+     * @param piNumOfOutputs  number of neurons in the output layer
+     * @throws ClassificationException if the hidden layers array has nothing or is null
+     * @see NeuralNetwork#generate(int, int[], int)
+     */
+    public final void generate(int piNumOfInputs, int[] paiHiddenLayers, int piNumOfOutputs)
+            throws ClassificationException {
+        if (paiHiddenLayers == null || paiHiddenLayers.length == 0) {
+            throw new ClassificationException
+                    (
+                            "Number of hidden layers may not be null or of 0 length."
+                    );
+        }
+
+        int[] aiLayerSizes = new int[paiHiddenLayers.length + 2];
+
+        aiLayerSizes[0] = piNumOfInputs;
+        System.arraycopy(paiHiddenLayers, 0, aiLayerSizes, 1, paiHiddenLayers.length);
+        aiLayerSizes[aiLayerSizes.length - 1] = piNumOfOutputs;
+
+        double[][] aadWeights = new double[aiLayerSizes.length][];
+        double[][] aadThresholds = new double[aiLayerSizes.length][];
+        String[][] aastrNames = new String[aiLayerSizes.length][];
+
+        Random oRandom = new Random();
+
+        for (int l = 0; l < aiLayerSizes.length; l++) {
+            aadThresholds[l] = new double[aiLayerSizes[l]];
+            aastrNames[l] = new String[aiLayerSizes[l]];
+
+            for (int j = 0; j < aiLayerSizes[l]; j++) {
+                aadThresholds[l][j] = 1.0;
+                aastrNames[l][j] = Integer.toString(j + 1);
+            }
+
+            if (l > 0) {
+                aadWeights[l] = new double[aiLayerSizes[l] * aiLayerSizes[l - 1]];
+
+                for (int w = 0; w < aadWeights[l].length; w++) {
+                    aadWeights[l][w] = oRandom.nextDouble() * 2.0 - 1.0;
+                }
+            }
+        }
+
+        setNet(aiLayerSizes, aadWeights, aadThresholds, aastrNames);
+    }
+
+    /**
+     * Installs a net and allocates the buffers for running it.
+     *
+     * @param paiLayerSizes   layer sizes
+     * @param paadWeights     weights of each layer
+     * @param paadThresholds  thresholds of each layer
+     * @param paastrNames     neuron names of each layer
+     */
+    private void setNet(int[] paiLayerSizes, double[][] paadWeights, double[][] paadThresholds, String[][] paastrNames) {
+        this.aiLayerSizes = paiLayerSizes;
+        this.aadWeights = paadWeights;
+        this.aadThresholds = paadThresholds;
+        this.aastrNames = paastrNames;
+
+        this.aadResults = new double[paiLayerSizes.length][];
+        this.aadDeltas = new double[paiLayerSizes.length][];
+
+        for (int l = 0; l < paiLayerSizes.length; l++) {
+            this.aadResults[l] = new double[paiLayerSizes[l]];
+            this.aadDeltas[l] = new double[paiLayerSizes[l]];
+        }
+
+        this.dPendingTrainConst = 0.0;
+    }
+
+    /**
+     * Retrieves number of neurons in each layer, the input layer first.
+     *
+     * @return array of layer sizes; <code>null</code> if there is no net yet
+     */
+    public final int[] getLayerSizes() {
+        return this.aiLayerSizes == null ? null : this.aiLayerSizes.clone();
+    }
+
+    //----------- Import and Export -----------------
+
+    /**
+     * Installs a net read from a file or built elsewhere.
+     * The model's arrays are taken over, not copied.
+     *
+     * @param poModel the net
+     */
+    public final void setModel(final NeuralNetworkModel poModel) {
+        setNet(poModel.getLayerSizes(), poModel.getWeights(), poModel.getThresholds(), poModel.getNames());
+    }
+
+    /**
+     * Retrieves the current net as a model sharing this classifier's arrays.
+     *
+     * @return the model; <code>null</code> if there is no net yet
+     */
+    public final NeuralNetworkModel getModel() {
+        if (this.aiLayerSizes == null) {
+            return null;
+        }
+
+        return new NeuralNetworkModel(this.aiLayerSizes, this.aadWeights, this.aadThresholds, this.aastrNames);
+    }
+
+    /**
+     * Loads a net from a file in the XML format of <code>NeuralNetwork</code>.
+     * The layers must be in order, the input one first and the output one last.
+     *
+     * @param pstrFilename XML file name
+     * @throws StorageException if the file cannot be read or does not describe a layered net
+     * @see NeuralNetworkModel#readXML(String)
+     */
+    public final void importXML(final String pstrFilename)
+            throws StorageException {
+        setModel(NeuralNetworkModel.readXML(pstrFilename));
+    }
+
+    /**
+     * Writes the net to a file in the XML format of <code>NeuralNetwork</code>.
+     *
+     * @param pstrFilename XML file name to write to
+     * @throws StorageException in case of an I/O error
+     * @see NeuralNetworkModel#writeXML(String)
+     */
+    public final void exportXML(final String pstrFilename)
+            throws StorageException {
+        getModel().writeXML(pstrFilename);
+    }
+
+    /**
+     * Loads a net from a file in the binary format of <code>NeuralNetworkModel</code>.
+     *
+     * @param pstrFilename binary file name
+     * @throws StorageException if the file cannot be read or is not a valid net
+     * @see NeuralNetworkModel#readBinary(String)
+     */
+    public final void importBinary(final String pstrFilename)
+            throws StorageException {
+        setModel(NeuralNetworkModel.readBinary(pstrFilename));
+    }
+
+    /**
+     * Writes the net to a file in the binary format of <code>NeuralNetworkModel</code>.
+     *
+     * @param pstrFilename binary file name to write to
+     * @throws StorageException in case of an I/O error
+     * @see NeuralNetworkModel#writeBinary(String)
+     */
+    public final void exportBinary(final String pstrFilename)
+            throws StorageException {
+        getModel().writeBinary(pstrFilename);
+    }
+
+	/* From Storage Manager */
+
+    /**
+     * Dumps the net to a binary file in the <code>DUMP_GZIP_BINARY</code>
+     * and <code>DUMP_BINARY</code> dump modes, and to an XML file otherwise,
+     * removing a stale binary file like <code>NeuralNetwork</code> does.
+     *
+     * @throws StorageException in case of an I/O error
+     */
+    public void dump()
+            throws StorageException {
+        if (NeuralNetwork.isBinaryDumpMode(this.iCurrentDumpMode)) {
+            exportBinary(NeuralNetwork.getNetFilename(getClass(), NeuralNetwork.BINARY_NET_EXTENSION));
+        } else {
+            exportXML(NeuralNetwork.getNetFilename(getClass(), NeuralNetwork.XML_NET_EXTENSION));
+            NeuralNetwork.deleteStaleBinary(getClass());
+        }
+    }
+
+    /**
+     * Restores the net from its binary or XML file, whichever was
+     * dumped last. If there is neither, imports the net of <code>NeuralNetwork</code>,
+     * or failing that generates a new one the way <code>NeuralNetwork</code> does.
+     *
+     * @throws StorageException if the net cannot be loaded
+     */
+    public void restore()
+            throws StorageException {
+        NeuralNetworkModel oModel = NeuralNetwork.readNet(getClass());
+
+        if (oModel == null) {
+            oModel = NeuralNetwork.readNet(NeuralNetwork.class);
+
+            if (oModel == null) {
+                generateDefault();
+                return;
+            }
+
+            Debug.debug("Importing the net of NeuralNetwork...");
+        }
+
+        setModel(oModel);
+    }
+
+    /**
+     * Generates and dumps a net of the default topology
+     * for the current feature vector size.
+     *
+     * @throws StorageException if the net cannot be generated or dumped
+     */
+    private void generateDefault()
+            throws StorageException {
+        try {
+            Debug.debug("Generating new net...");
+
+            int iFeaturesNum = this.oFeatureExtraction.getFeaturesArray().length;
+            int iLastHiddenNeurons = Math.abs(iFeaturesNum - NeuralNetwork.DEFAULT_OUTPUT_NEURON_BITS) / 2;
+
+            if (iLastHiddenNeurons == 0) {
+                iLastHiddenNeurons = iFeaturesNum / 2;
+            }
+
+            generate
+                    (
+                            iFeaturesNum,
+                            new int[]{iFeaturesNum * 2, iFeaturesNum, iLastHiddenNeurons},
+                            NeuralNetwork.DEFAULT_OUTPUT_NEURON_BITS
+                    );
+
+            dump();
+        } catch (ClassificationException e) {
+            throw new StorageException(e);
+        }
+    }
+
+    /**
+     * Retrieves class' revision.
+     *
+     * @return revision string
+     */
+    public static String getMARFSourceCodeRevision() {
+        return "$Revision$";
+    }
+}
+
+// EOF
@@ -0,0 +1,189 @@
+package marf.Classification.NeuralNetwork;
+
+import java.io.Serializable;
+
+
+/**
+ * <p>Convergence and error statistics of a training epoch of a neural net.</p>
+ *
+ * <p>The error is the one the training loop stops on, i.e. the mean over
+ * the training samples of the minimum error times the distance between
+ * the expected and the recognized subject IDs. The mean squared error is
+ * that of the output neurons against the expected bits, which keeps
+ * decreasing while the recognized IDs are already right, and so tells
+ * how far a net is from converging.</p>
+ *
+ * <p>$Id$</p>
+ *
+ * @author The MARF Research and Development Group
+ * @version $Revision$
+ * @see NeuralNetwork#getEpochStatistics()
+ * @see DenseNeuralNetwork#getEpochStatistics()
+ * @since 0.3.0.6
+ */
+public class EpochStatistics
+        implements Serializable {
+    /**
+     * Epoch number, starting from 1.
+     */
+    private final int iEpoch;
+
+    /**
+     * Stopping criterion error after the epoch.
+     */
+    private final double dError;
+
+    /**
+     * Mean squared error of the output neurons after the epoch.
+     */
+    private final double dMeanSquaredError;
+
+    /**
+     * Number of samples recognized as another subject after the epoch.
+     */
+    private final int iMisclassified;
+
+    /**
+     * Number of training samples.
+     */
+    private final int iSamples;
+
+    /**
+     * Wall-clock time of the epoch, including the evaluation, in milliseconds.
+     */
+    private final long lMilliseconds;
+
+    /**
+     * Whether the error reached the minimum error.
+     */
+    private final boolean bConverged;
+
+    /**
+     * For serialization versioning.
+     * When adding new members or make other structural
+     * changes regenerate this number with the
+     * <code>serialver</code> tool that comes with JDK.
+     */
+    private static final long serialVersionUID = 3260432591785162411L;
+
+    /**
+     * Constructs the statistics of an epoch.
+     *
+     * @param piEpoch            epoch number
+     * @param pdError            stopping criterion error
+     * @param pdMeanSquaredError mean squared error of the output neurons
+     * @param piMisclassified    number of misrecognized samples
+     * @param piSamples          number of samples
+     * @param plMilliseconds     duration of the epoch
+     * @param pbConverged        whether the error reached the minimum
+     */
+    public EpochStatistics
+    (
+            final int piEpoch,
+            final double pdError,
+            final double pdMeanSquaredError,
+            final int piMisclassified,
+            final int piSamples,
+            final long plMilliseconds,
+            final boolean pbConverged
+    ) {
+        this.iEpoch = piEpoch;
+        this.dError = pdError;
+        this.dMeanSquaredError = pdMeanSquaredError;
+        this.iMisclassified = piMisclassified;
+        this.iSamples = piSamples;
+        this.lMilliseconds = plMilliseconds;
+        this.bConverged = pbConverged;
+    }
+
+    /**
+     * Retrieves the epoch number.
+     *
+     * @return number starting from 1
+     */
+    public int getEpoch() {
+        return this.iEpoch;
+    }
+
+    /**
+     * Retrieves the stopping criterion error.
+     *
+     * @return the error
+     */
+    public double getError() {
+        return this.dError;
+    }
+
+    /**
+     * Retrieves the mean squared error of the output neurons.
+     *
+     * @return the error
+     */
+    public double getMeanSquaredError() {
+        return this.dMeanSquaredError;
+    }
+
+    /**
+     * Retrieves number of samples recognized as another subject.
+     *
+     * @return the count
+     */
+    public int getMisclassified() {
+        return this.iMisclassified;
+    }
+
+    /**
+     * Retrieves number of training samples.
+     *
+     * @return the count
+     */
+    public int getSamples() {
+        return this.iSamples;
+    }
+
+    /**
+     * Retrieves the duration of the epoch.
+     *
+     * @return milliseconds
+     */
+    public long getMilliseconds() {
+        return this.lMilliseconds;
+    }
+
+    /**
+     * Tells whether the error reached the minimum error,
+     * ending the training.
+     *
+     * @return <code>true</code> if so
+     */
+    public boolean isConverged() {
+        return this.bConverged;
+    }
+
+    /**
+     * Formats the statistics in one line.
+     *
+     * @return the string
+     */
+    public String toString() {
+        return new StringBuffer()
+                .append("Epoch ").append(this.iEpoch)
+                .append(": error = ").append(this.dError)
+                .append(", MSE = ").append(this.dMeanSquaredError)
+                .append(", misclassified = ").append(this.iMisclassified).append("/").append(this.iSamples)
+                .append(", time = ").append(this.lMilliseconds).append("ms")
+                .append(this.bConverged ? ", converged" : "")
+                .toString();
+    }
+
+    /**
+     * Returns source code revision information.
+     *
+     * @return revision string
+     */
+    public static String getMARFSourceCodeRevision() {
+        return "$Revision$";
+    }
+}
+
+// EOF
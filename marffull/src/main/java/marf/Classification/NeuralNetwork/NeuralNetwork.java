@@ -15,6 +15,7 @@ import java.io.IOException;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.Random;
 import java.util.Vector;
 
@@ -78,6 +79,20 @@ public class NeuralNetwork
      */
     public static final double DEFAULT_MIN_ERROR = 0.1;
 
+    /**
+     * File name extension of nets in the binary format of <code>NeuralNetworkModel</code>.
+     *
+     * @since 0.3.0.6
+     */
+    public static final String BINARY_NET_EXTENSION = "bin";
+
+    /**
+     * File name extension of nets in the XML format.
+     *
+     * @since 0.3.0.6
+     */
+    public static final String XML_NET_EXTENSION = "xml";
+
 
 	/*
      * ----------------------
@@ -125,6 +140,13 @@ public class NeuralNetwork
      */
     private Layer oOutputs = new Layer();
 
+    /**
+     * Statistics of the epochs of the latest <code>train()</code>.
+     *
+     * @since 0.3.0.6
+     */
+    private transient Vector oEpochStatistics = new Vector();
+
 	/* Constants used for JAXP 1.2 */
 
     /**
@@ -181,6 +203,16 @@ public class NeuralNetwork
     /**
      * Implementes training of Neural Net.
      *
+     * <p>Beside the training constant, number of epochs, and minimum error,
+     * the classification parameters may have the batch size as the
+     * fifth element and number of training threads as the sixth one,
+     * both Integers. With the defaults of 1 and 1, the neurons are
+     * trained in place one sample at a time. Otherwise the net is trained
+     * in its matrix form by a <code>NeuralNetworkTrainer</code>, and every
+     * neuron then has an input from each neuron of the previous layer.
+     * The statistics of the epochs are available from <code>getEpochStatistics()</code>
+     * afterwards.</p>
+     *
      * @return <code>true</code>
      * @throws ClassificationException if there are any errors
      * @throws NullPointerException    if module parameters are incorrectly set
@@ -201,6 +233,8 @@ public class NeuralNetwork
             double dTrainConst = DEFAULT_TRAINING_CONSTANT;
             int iEpochNum = DEFAULT_EPOCH_NUMBER;
             double dMinErr = DEFAULT_MIN_ERROR;
+            int iBatchSize = NeuralNetworkTrainer.DEFAULT_BATCH_SIZE;
+            int iThreads = NeuralNetworkTrainer.DEFAULT_THREADS;
 
             // Defaults can be overridden by an app
             if (MARF.getModuleParams() != null) {
@@ -212,6 +246,14 @@ public class NeuralNetwork
                     iEpochNum = ((Integer) oParams.elementAt(2)).intValue();
                     dMinErr = ((Double) oParams.elementAt(3)).doubleValue();
                 }
+
+                if (oParams.size() > 4) {
+                    iBatchSize = ((Integer) oParams.elementAt(4)).intValue();
+                }
+
+                if (oParams.size() > 5) {
+                    iThreads = ((Integer) oParams.elementAt(5)).intValue();
+                }
             }
 
             // Reload training data from the disk if there was any
@@ -220,12 +262,32 @@ public class NeuralNetwork
             // Get the Training set...
             oTrainingSamples = this.oTrainingSet.getClusters();
 
+            // Batches and threads need the matrix form of the net
+            if (iBatchSize != 1 || iThreads != 1) {
+                NeuralNetworkModel oModel = getModel();
+                NeuralNetworkTrainer oTrainer = new NeuralNetworkTrainer(oModel);
+
+                oTrainer.setBatchSize(iBatchSize);
+                oTrainer.setThreads(iThreads);
+
+                this.oEpochStatistics = oTrainer.train(oTrainingSamples, dTrainConst, iEpochNum, dMinErr);
+
+                setModel(oModel);
+                dump();
+
+                return true;
+            }
+
+            this.oEpochStatistics = new Vector();
+
             // Set initial values to always enter the epoch training loop
             int iLimit = 0;
             double dError = dMinErr + 1;
 
             // Epoch training
             while (dError > dMinErr && iLimit < iEpochNum) {
+                long lStart = System.currentTimeMillis();
+
                 // Execute the training for each training cluster of utterances
                 for (int i = 0; i < oTrainingSamples.size(); i++) {
                     Cluster oCluster = (Cluster) oTrainingSamples.get(i);
@@ -238,6 +300,8 @@ public class NeuralNetwork
                 // Test new values and calc error...
                 // TODO: Testing is done with the same training samples :-(
                 int iCount = 0;
+                int iMisclassified = 0;
+                double dSquaredError = 0.0;
                 dError = 0.0;
 
                 for (iCount = 0; iCount < oTrainingSamples.size(); iCount++) {
@@ -250,8 +314,15 @@ public class NeuralNetwork
 
 //					dError += Math.abs(oCluster.getSubjectID() - iID);
                     dError += dMinErr * Math.abs(oCluster.getSubjectID() - iID);
+                    dSquaredError += NeuralNetworkTrainer.squaredError(getOutputResults(), oCluster.getSubjectID());
+
+                    if (iID != oCluster.getSubjectID()) {
+                        iMisclassified++;
+                    }
 
-                    Debug.debug("Expected: " + oCluster.getSubjectID() + ", Got: " + iID + ", Error: " + dError);
+                    if (Debug.isDebugOn()) {
+                        Debug.debug("Expected: " + oCluster.getSubjectID() + ", Got: " + iID + ", Error: " + dError);
+                    }
                 }
 
                 if (iCount == 0) {
@@ -261,7 +332,20 @@ public class NeuralNetwork
                 dError /= iCount;
                 iLimit++;
 
-                Debug.debug("Epoch: error = " + dError + ", limit = " + iLimit);
+                EpochStatistics oStatistics = new EpochStatistics
+                        (
+                                iLimit,
+                                dError,
+                                dSquaredError / (iCount * this.oOutputs.size()),
+                                iMisclassified,
+                                iCount,
+                                System.currentTimeMillis() - lStart,
+                                dError <= dMinErr
+                        );
+
+                this.oEpochStatistics.add(oStatistics);
+
+                Debug.debug(oStatistics);
             }
 
             dump();
@@ -860,6 +944,167 @@ public class NeuralNetwork
         }
     }
 
+    /**
+     * Removes all the layers, so that a net can be loaded anew.
+     *
+     * @since 0.3.0.6
+     */
+    private final void clear() {
+        this.oLayers.clear();
+        this.oInputs = new Layer();
+        this.oOutputs = new Layer();
+    }
+
+    /**
+     * Builds the net of a model, replacing the current one.
+     * Every neuron gets an input from each neuron of the previous
+     * layer with the weight in the model, zero or not.
+     *
+     * @param poModel the net
+     * @since 0.3.0.6
+     */
+    public final void setModel(final NeuralNetworkModel poModel) {
+        clear();
+
+        int iLayers = poModel.getLayerCount();
+
+        for (int l = 0; l < iLayers; l++) {
+            Layer oLayer;
+            int iType;
+
+            if (l == 0) {
+                oLayer = this.oInputs;
+                iType = Neuron.INPUT;
+            } else if (l == iLayers - 1) {
+                oLayer = this.oOutputs;
+                iType = Neuron.OUTPUT;
+            } else {
+                oLayer = new Layer();
+                iType = Neuron.HIDDEN;
+            }
+
+            double[] adThresholds = poModel.getThresholds()[l];
+
+            for (int j = 0; j < poModel.getLayerSize(l); j++) {
+                Neuron oNeuron = new Neuron(poModel.getName(l, j), iType);
+                oNeuron.dThreshold = adThresholds[j];
+                oLayer.add(oNeuron);
+            }
+
+            this.oLayers.add(oLayer);
+        }
+
+        for (int l = 1; l < iLayers; l++) {
+            Layer oPreviousLayer = (Layer) this.oLayers.get(l - 1);
+            Layer oLayer = (Layer) this.oLayers.get(l);
+            double[] adWeights = poModel.getWeights()[l];
+            int iInputs = oPreviousLayer.size();
+
+            for (int j = 0; j < oLayer.size(); j++) {
+                Neuron oNeuron = oLayer.get(j);
+
+                for (int i = 0; i < iInputs; i++) {
+                    Neuron oInput = oPreviousLayer.get(i);
+                    oInput.addOutput(oNeuron);
+                    oNeuron.addInput(oInput, adWeights[j * iInputs + i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Captures the current net as a model of dense weight matrices.
+     * An absent link is stored as a zero weight.
+     *
+     * @return the model
+     * @throws StorageException if there is no net or some neuron has
+     *                          an input from other than the previous layer
+     * @since 0.3.0.6
+     */
+    public final NeuralNetworkModel getModel()
+            throws StorageException {
+        int iLayers = this.oLayers.size();
+
+        if (iLayers < 2) {
+            throw new StorageException("There is no net to store.");
+        }
+
+        int[] aiLayerSizes = new int[iLayers];
+        double[][] adWeights = new double[iLayers][];
+        double[][] adThresholds = new double[iLayers][];
+        String[][] astrNames = new String[iLayers][];
+
+        IdentityHashMap oPreviousIndices = null;
+
+        for (int l = 0; l < iLayers; l++) {
+            Layer oLayer = (Layer) this.oLayers.get(l);
+            int iSize = oLayer.size();
+            IdentityHashMap oIndices = new IdentityHashMap();
+
+            aiLayerSizes[l] = iSize;
+            adThresholds[l] = new double[iSize];
+            astrNames[l] = new String[iSize];
+
+            if (l > 0) {
+                adWeights[l] = new double[iSize * aiLayerSizes[l - 1]];
+            }
+
+            for (int j = 0; j < iSize; j++) {
+                Neuron oNeuron = oLayer.get(j);
+
+                adThresholds[l][j] = oNeuron.dThreshold;
+                astrNames[l][j] = oNeuron.strName;
+                oIndices.put(oNeuron, Integer.valueOf(j));
+
+                if (l == 0) {
+                    continue;
+                }
+
+                for (int i = 0; i < oNeuron.getInputCount(); i++) {
+                    Integer oIndex = (Integer) oPreviousIndices.get(oNeuron.getInput(i));
+
+                    if (oIndex == null) {
+                        throw new StorageException
+                                (
+                                        "Neuron " + oNeuron.strName + " of layer " + l +
+                                                " has an input from other than the previous layer."
+                                );
+                    }
+
+                    adWeights[l][j * aiLayerSizes[l - 1] + oIndex.intValue()] += oNeuron.getInputWeight(i);
+                }
+            }
+
+            oPreviousIndices = oIndices;
+        }
+
+        return new NeuralNetworkModel(aiLayerSizes, adWeights, adThresholds, astrNames);
+    }
+
+    /**
+     * Loads the net from a file in the binary format of <code>NeuralNetworkModel</code>.
+     *
+     * @param pstrFilename binary file name
+     * @throws StorageException if the file cannot be read or is not a valid net
+     * @since 0.3.0.6
+     */
+    public final void initializeBinary(final String pstrFilename)
+            throws StorageException {
+        setModel(NeuralNetworkModel.readBinary(pstrFilename));
+    }
+
+    /**
+     * Dumps the net to a file in the binary format of <code>NeuralNetworkModel</code>.
+     *
+     * @param pstrFilename binary file name to write to
+     * @throws StorageException if the net is not layered or in case of an I/O error
+     * @since 0.3.0.6
+     */
+    public final void dumpBinary(final String pstrFilename)
+            throws StorageException {
+        getModel().writeBinary(pstrFilename);
+    }
+
     //----------- Method for Training the NNet -----------------
 
     /**
@@ -943,10 +1188,14 @@ public class NeuralNetwork
                 iID += 1;
             }
 
-            Debug.debug(this.oOutputs.get(i).dResult + ",");
+            if (Debug.isDebugOn()) {
+                Debug.debug(this.oOutputs.get(i).dResult + ",");
+            }
         }
 
-        Debug.debug("Interpreted binary result (ID) = " + iID);
+        if (Debug.isDebugOn()) {
+            Debug.debug("Interpreted binary result (ID) = " + iID);
+        }
 
         return iID;
     }
@@ -954,39 +1203,146 @@ public class NeuralNetwork
     /* From Storage Manager */
 
     /**
-     * Dumps Neural Net to an XML file.
+     * Dumps Neural Net to a binary file in the <code>DUMP_GZIP_BINARY</code>
+     * and <code>DUMP_BINARY</code> dump modes, and to an XML file otherwise.
+     * An XML dump removes the binary file of an earlier binary dump,
+     * which would otherwise be restored instead.
      *
      * @throws StorageException
      */
     public void dump()
             throws StorageException {
-        dumpXML
-                (
-                        new StringBuffer()
-                                .append(getClass().getName()).append(".")
-                                .append(MARF.getPreprocessingMethod()).append(".")
-                                .append(MARF.getFeatureExtractionMethod()).append(".xml")
-                                .toString()
-                );
+        if (isBinaryDumpMode(this.iCurrentDumpMode)) {
+            dumpBinary(getNetFilename(getClass(), BINARY_NET_EXTENSION));
+        } else {
+            dumpXML(getNetFilename(getClass(), XML_NET_EXTENSION));
+            deleteStaleBinary(getClass());
+        }
     }
 
     /**
-     * Restores Neural Net from an XML file.
+     * Restores Neural Net from its binary or XML file,
+     * whichever was dumped last.
      *
      * @throws StorageException
      */
     public void restore()
             throws StorageException {
-        initialize
-                (
-                        new StringBuffer()
-                                .append(getClass().getName()).append(".")
-                                .append(MARF.getPreprocessingMethod()).append(".")
-                                .append(MARF.getFeatureExtractionMethod()).append(".xml")
-                                .toString(),
-
-                        false
-                );
+        String strFilename = getStoredNetFilename(getClass());
+
+        clear();
+
+        if (strFilename != null && strFilename.endsWith(BINARY_NET_EXTENSION)) {
+            initializeBinary(strFilename);
+        } else {
+            initialize(getNetFilename(getClass(), XML_NET_EXTENSION), false);
+        }
+    }
+
+    /**
+     * Constructs the file name of a classifier's net for the
+     * current preprocessing and feature extraction methods.
+     *
+     * @param poClass      classifier class the net belongs to
+     * @param pstrExtension one of the <code>*_NET_EXTENSION</code> constants
+     * @return the file name
+     * @since 0.3.0.6
+     */
+    static String getNetFilename(final Class poClass, final String pstrExtension) {
+        return new StringBuffer()
+                .append(poClass.getName()).append(".")
+                .append(MARF.getPreprocessingMethod()).append(".")
+                .append(MARF.getFeatureExtractionMethod()).append(".")
+                .append(pstrExtension)
+                .toString();
+    }
+
+    /**
+     * Reads the stored net of a classifier from its binary or XML file,
+     * whichever was dumped last.
+     *
+     * @param poClass classifier class the net belongs to
+     * @return the net, or <code>null</code> if there is no file of either format
+     * @throws StorageException if the file cannot be read
+     * @see #getStoredNetFilename(Class)
+     * @since 0.3.0.6
+     */
+    static NeuralNetworkModel readNet(final Class poClass)
+            throws StorageException {
+        String strFilename = getStoredNetFilename(poClass);
+
+        if (strFilename == null) {
+            return null;
+        }
+
+        if (strFilename.endsWith(BINARY_NET_EXTENSION)) {
+            return NeuralNetworkModel.readBinary(strFilename);
+        }
+
+        return NeuralNetworkModel.readXML(strFilename);
+    }
+
+    /**
+     * Picks the file a classifier's net is to be restored from: the
+     * newer of its binary and XML files, so that a net dumped after
+     * a change of the dump mode is not shadowed by an older file of
+     * the other format. The binary file wins a tie.
+     *
+     * @param poClass classifier class the net belongs to
+     * @return the file name, or <code>null</code> if there is no file of either format
+     * @since 0.3.0.6
+     */
+    static String getStoredNetFilename(final Class poClass) {
+        File oBinary = new File(getNetFilename(poClass, BINARY_NET_EXTENSION));
+        File oXML = new File(getNetFilename(poClass, XML_NET_EXTENSION));
+
+        if (!oXML.exists()) {
+            return oBinary.exists() ? oBinary.getPath() : null;
+        }
+
+        if (oBinary.exists() && oBinary.lastModified() >= oXML.lastModified()) {
+            return oBinary.getPath();
+        }
+
+        return oXML.getPath();
+    }
+
+    /**
+     * Deletes the binary file of a classifier's net after its XML dump,
+     * as it no longer holds the current net.
+     *
+     * @param poClass classifier class the net belongs to
+     * @throws StorageException if the file exists but cannot be deleted
+     * @since 0.3.0.6
+     */
+    static void deleteStaleBinary(final Class poClass)
+            throws StorageException {
+        File oBinary = new File(getNetFilename(poClass, BINARY_NET_EXTENSION));
+
+        if (oBinary.exists() && !oBinary.delete()) {
+            throw new StorageException("Cannot delete stale binary net " + oBinary.getPath());
+        }
+    }
+
+    /**
+     * Tells whether a dump mode calls for the binary net format.
+     *
+     * @param piDumpMode one of the <code>DUMP_*</code> modes
+     * @return <code>true</code> for <code>DUMP_GZIP_BINARY</code> and <code>DUMP_BINARY</code>
+     * @since 0.3.0.6
+     */
+    static boolean isBinaryDumpMode(final int piDumpMode) {
+        return piDumpMode == DUMP_GZIP_BINARY || piDumpMode == DUMP_BINARY;
+    }
+
+    /**
+     * Retrieves the statistics of the epochs of the latest training.
+     *
+     * @return Vector of <code>EpochStatistics</code>, in order
+     * @since 0.3.0.6
+     */
+    public Vector getEpochStatistics() {
+        return this.oEpochStatistics;
     }
 
     /**
@@ -0,0 +1,865 @@
+package marf.Classification.NeuralNetwork;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+import javax.xml.parsers.SAXParser;
+import javax.xml.parsers.SAXParserFactory;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+import marf.Storage.StorageException;
+
+
+/**
+ * <p>Topology and weights of a layered neural net, and their storage.</p>
+ *
+ * <p>The layers are stored as dense matrices: the weights of the inputs of
+ * the neurons of layer <code>l</code> are a row-major array of
+ * <code>getLayerSize(l)</code> rows of <code>getLayerSize(l - 1)</code>
+ * elements, with a zero for each absent link. A model can be read from and
+ * written to the XML format of <code>NeuralNetwork</code> as well as a compact
+ * binary format, and converted between the two.</p>
+ *
+ * <p>The binary format, version 1, is little-endian throughout:</p>
+ * <ul>
+ *   <li>the 8 bytes of <code>MAGIC</code>, i.e. "MARFNNET";</li>
+ *   <li>the version, flags, and number of layers <i>L</i>, as 32-bit integers;</li>
+ *   <li>the <i>L</i> layer sizes, as 32-bit integers, padded with zeros to a multiple of 8 bytes;</li>
+ *   <li>the thresholds of every layer, then the weight matrices of
+ *   the layers but the input one, as blocks of 64-bit IEEE 754 doubles;</li>
+ *   <li>if the flag <code>FLAG_NAMES</code> is set, the neuron names of every layer,
+ *   each as a 32-bit byte count followed by UTF-8 bytes; otherwise the neurons
+ *   of each layer are named "1", "2", and so on.</li>
+ * </ul>
+ * <p>A file is read with a single bulk read and the blocks are
+ * decoded straight into the arrays.</p>
+ *
+ * <p>$Id$</p>
+ *
+ * @author The MARF Research and Development Group
+ * @version $Revision$
+ * @see NeuralNetwork
+ * @see DenseNeuralNetwork
+ * @since 0.3.0.6
+ */
+public class NeuralNetworkModel {
+    /**
+     * First bytes of a binary model file, "MARFNNET".
+     */
+    public static final byte[] MAGIC = {'M', 'A', 'R', 'F', 'N', 'N', 'E', 'T'};
+
+    /**
+     * Version of the binary format written.
+     */
+    public static final int FORMAT_VERSION = 1;
+
+    /**
+     * Flag indicating the binary file has a name table.
+     */
+    public static final int FLAG_NAMES = 1;
+
+    /**
+     * Size of the buffer binary files are written through.
+     */
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Number of neurons in each layer, the input layer first.
+     */
+    private final int[] aiLayerSizes;
+
+    /**
+     * Weights of each layer but the input one; the first element is <code>null</code>.
+     */
+    private final double[][] aadWeights;
+
+    /**
+     * Activation thresholds of the neurons of each layer.
+     */
+    private final double[][] aadThresholds;
+
+    /**
+     * Names of the neurons of each layer; <code>null</code> for the default names.
+     */
+    private final String[][] aastrNames;
+
+    /**
+     * Constructs a model of the given arrays, which are not copied.
+     *
+     * @param paiLayerSizes  number of neurons in each layer, the input layer first
+     * @param paadWeights    weights of each layer as described above; the first element is ignored
+     * @param paadThresholds thresholds of the neurons of each layer
+     * @param paastrNames    names of the neurons of each layer; <code>null</code>
+     *                       for "1", "2", etc. in each layer
+     * @throws IllegalArgumentException if there are less than two layers
+     *                                  or the arrays are not of the matching sizes
+     */
+    public NeuralNetworkModel(int[] paiLayerSizes, double[][] paadWeights, double[][] paadThresholds, String[][] paastrNames) {
+        int iLayers = paiLayerSizes.length;
+
+        if (iLayers < 2) {
+            throw new IllegalArgumentException("Net has less than two layers.");
+        }
+
+        if (paadWeights.length != iLayers || paadThresholds.length != iLayers
+                || (paastrNames != null && paastrNames.length != iLayers)) {
+            throw new IllegalArgumentException("Number of layers is inconsistent.");
+        }
+
+        for (int l = 0; l < iLayers; l++) {
+            if (paadThresholds[l].length != paiLayerSizes[l]
+                    || (l > 0 && paadWeights[l].length != paiLayerSizes[l] * paiLayerSizes[l - 1])
+                    || (paastrNames != null && paastrNames[l].length != paiLayerSizes[l])) {
+                throw new IllegalArgumentException("Arrays of layer " + l + " are inconsistent with its size.");
+            }
+        }
+
+        this.aiLayerSizes = paiLayerSizes;
+        this.aadWeights = paadWeights;
+        this.aadThresholds = paadThresholds;
+        this.aastrNames = paastrNames;
+    }
+
+    /**
+     * Retrieves number of layers.
+     *
+     * @return layer count, including the input and output ones
+     */
+    public int getLayerCount() {
+        return this.aiLayerSizes.length;
+    }
+
+    /**
+     * Retrieves number of neurons in a layer.
+     *
+     * @param piLayer layer index; 0 for the input layer
+     * @return the size
+     */
+    public int getLayerSize(final int piLayer) {
+        return this.aiLayerSizes[piLayer];
+    }
+
+    /**
+     * Retrieves the layer sizes array; not a copy.
+     *
+     * @return number of neurons in each layer
+     */
+    public int[] getLayerSizes() {
+        return this.aiLayerSizes;
+    }
+
+    /**
+     * Retrieves the weight matrices; not a copy.
+     *
+     * @return weights of each layer
+     */
+    public double[][] getWeights() {
+        return this.aadWeights;
+    }
+
+    /**
+     * Retrieves the thresholds; not a copy.
+     *
+     * @return thresholds of each layer
+     */
+    public double[][] getThresholds() {
+        return this.aadThresholds;
+    }
+
+    /**
+     * Retrieves the neuron names; not a copy.
+     *
+     * @return names of each layer, or <code>null</code> if all are default
+     */
+    public String[][] getNames() {
+        return this.aastrNames;
+    }
+
+    /**
+     * Retrieves name of a neuron.
+     *
+     * @param piLayer  layer index
+     * @param piNeuron neuron index within the layer
+     * @return the name
+     */
+    public String getName(final int piLayer, final int piNeuron) {
+        return this.aastrNames == null ? Integer.toString(piNeuron + 1) : this.aastrNames[piLayer][piNeuron];
+    }
+
+    //----------- XML Format -----------------
+
+    /**
+     * Reads a net from a file in the XML format of <code>NeuralNetwork</code>.
+     * The layers must be in order, the input one first and the output one last,
+     * and the neurons may only have inputs from the previous layer.
+     *
+     * @param pstrFilename XML file name
+     * @return the model
+     * @throws StorageException if the file cannot be read or does not describe a layered net
+     * @see NeuralNetwork#initialize(String, boolean)
+     */
+    public static NeuralNetworkModel readXML(final String pstrFilename)
+            throws StorageException {
+        try {
+            SAXParserFactory oFactory = SAXParserFactory.newInstance();
+            SAXParser oParser = oFactory.newSAXParser();
+            XMLTopologyHandler oHandler = new XMLTopologyHandler();
+
+            oParser.parse(new File(pstrFilename), oHandler);
+
+            int iLayers = oHandler.oLayerSizes.size();
+            int[] aiLayerSizes = new int[iLayers];
+
+            for (int l = 0; l < iLayers; l++) {
+                aiLayerSizes[l] = ((Integer) oHandler.oLayerSizes.get(l)).intValue();
+            }
+
+            return new NeuralNetworkModel
+                    (
+                            aiLayerSizes,
+                            (double[][]) oHandler.oWeights.toArray(new double[iLayers][]),
+                            (double[][]) oHandler.oThresholds.toArray(new double[iLayers][]),
+                            (String[][]) oHandler.oNames.toArray(new String[iLayers][])
+                    );
+        } catch (SAXException e) {
+            throw new StorageException("Cannot read net from " + pstrFilename + ": " + e.getMessage());
+        } catch (IllegalArgumentException e) {
+            throw new StorageException("Cannot read net from " + pstrFilename + ": " + e.getMessage());
+        } catch (Exception e) {
+            throw new StorageException(e);
+        }
+    }
+
+    /**
+     * Writes the net to a file in the XML format of <code>NeuralNetwork.dumpXML()</code>.
+     *
+     * @param pstrFilename XML file name to write to
+     * @throws StorageException in case of an I/O error
+     * @see NeuralNetwork#dumpXML(String)
+     */
+    public void writeXML(final String pstrFilename)
+            throws StorageException {
+        try {
+            BufferedWriter oWriter = new BufferedWriter(new FileWriter(pstrFilename));
+
+            oWriter.write("<?xml version=\"1.0\"?>");
+            oWriter.newLine();
+            oWriter.write("<net>");
+            oWriter.newLine();
+
+            int iLayers = this.aiLayerSizes.length;
+
+            for (int l = 0; l < iLayers; l++) {
+                NeuralNetwork.indent(oWriter, 1);
+                oWriter.write("<layer type=\"");
+
+                if (l == 0) {
+                    oWriter.write("input");
+                } else if (l == iLayers - 1) {
+                    oWriter.write("output");
+                } else {
+                    oWriter.write("hidden");
+                }
+
+                oWriter.write("\" index=\"" + l + "\">");
+                oWriter.newLine();
+
+                for (int j = 0; j < this.aiLayerSizes[l]; j++) {
+                    NeuralNetwork.indent(oWriter, 2);
+                    oWriter.write
+                            (
+                                    new StringBuffer()
+                                            .append("<neuron index=\"").append(getName(l, j))
+                                            .append("\" thresh=\"").append(this.aadThresholds[l][j])
+                                            .append("\">")
+                                            .toString()
+                            );
+                    oWriter.newLine();
+
+                    if (l > 0) {
+                        int iRow = j * this.aiLayerSizes[l - 1];
+
+                        for (int i = 0; i < this.aiLayerSizes[l - 1]; i++) {
+                            NeuralNetwork.indent(oWriter, 3);
+                            oWriter.write
+                                    (
+                                            new StringBuffer()
+                                                    .append("<input ref=\"").append(getName(l - 1, i))
+                                                    .append("\" weight=\"").append(this.aadWeights[l][iRow + i])
+                                                    .append("\"/>")
+                                                    .toString()
+                                    );
+                            oWriter.newLine();
+                        }
+                    }
+
+                    if (l < iLayers - 1) {
+                        for (int k = 0; k < this.aiLayerSizes[l + 1]; k++) {
+                            NeuralNetwork.indent(oWriter, 3);
+                            oWriter.write("<output ref=\"" + getName(l + 1, k) + "\"/>");
+                            oWriter.newLine();
+                        }
+                    }
+
+                    NeuralNetwork.indent(oWriter, 2);
+                    oWriter.write("</neuron>");
+                    oWriter.newLine();
+                }
+
+                NeuralNetwork.indent(oWriter, 1);
+                oWriter.write("</layer>");
+                oWriter.newLine();
+            }
+
+            oWriter.write("</net>");
+            oWriter.newLine();
+
+            oWriter.close();
+        } catch (Exception e) {
+            throw new StorageException(e);
+        }
+    }
+
+    //----------- Binary Format -----------------
+
+    /**
+     * Reads a net from a file in the binary format.
+     *
+     * @param pstrFilename binary file name
+     * @return the model
+     * @throws StorageException if the file cannot be read, is not a binary
+     *                          model, is of an unsupported version, or is truncated
+     */
+    public static NeuralNetworkModel readBinary(final String pstrFilename)
+            throws StorageException {
+        FileInputStream oFIS = null;
+
+        try {
+            oFIS = new FileInputStream(pstrFilename);
+            FileChannel oChannel = oFIS.getChannel();
+
+            long lLength = oChannel.size();
+
+            if (lLength > Integer.MAX_VALUE) {
+                throw new StorageException("Net file " + pstrFilename + " is too large.");
+            }
+
+            ByteBuffer oBuffer = ByteBuffer.allocate((int) lLength);
+
+            while (oBuffer.hasRemaining()) {
+                if (oChannel.read(oBuffer) < 0) {
+                    throw new StorageException("Net file " + pstrFilename + " is truncated.");
+                }
+            }
+
+            oBuffer.flip();
+            oBuffer.order(ByteOrder.LITTLE_ENDIAN);
+
+            return decode(oBuffer, pstrFilename);
+        } catch (StorageException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new StorageException(e);
+        } finally {
+            if (oFIS != null) {
+                try {
+                    oFIS.close();
+                } catch (IOException e) {
+                    // Whatever was read is fine
+                }
+            }
+        }
+    }
+
+    /**
+     * Decodes a binary model.
+     *
+     * @param poBuffer     contents of the file, little-endian
+     * @param pstrFilename file name for the error messages
+     * @return the model
+     * @throws StorageException if the contents are not a valid model
+     */
+    private static NeuralNetworkModel decode(ByteBuffer poBuffer, final String pstrFilename)
+            throws StorageException {
+        try {
+            byte[] atMagic = new byte[MAGIC.length];
+            poBuffer.get(atMagic);
+
+            if (!java.util.Arrays.equals(atMagic, MAGIC)) {
+                throw new StorageException(pstrFilename + " is not a binary neural net file.");
+            }
+
+            int iVersion = poBuffer.getInt();
+
+            if (iVersion != FORMAT_VERSION) {
+                throw new StorageException
+                        (
+                                "Unsupported neural net file version " + iVersion +
+                                        " of " + pstrFilename + "; expected " + FORMAT_VERSION + "."
+                        );
+            }
+
+            int iFlags = poBuffer.getInt();
+            int iLayers = poBuffer.getInt();
+
+            if (iLayers < 2 || iLayers > poBuffer.remaining() / 4) {
+                throw new StorageException("Invalid layer count " + iLayers + " in " + pstrFilename + ".");
+            }
+
+            int[] aiLayerSizes = new int[iLayers];
+            long lDoubles = 0;
+
+            for (int l = 0; l < iLayers; l++) {
+                aiLayerSizes[l] = poBuffer.getInt();
+
+                if (aiLayerSizes[l] < 0) {
+                    throw new StorageException("Invalid size of layer " + l + " in " + pstrFilename + ".");
+                }
+
+                lDoubles += aiLayerSizes[l];
+
+                if (l > 0) {
+                    lDoubles += (long) aiLayerSizes[l] * aiLayerSizes[l - 1];
+                }
+            }
+
+            poBuffer.position(align(poBuffer.position()));
+
+            if (lDoubles > poBuffer.remaining() / 8) {
+                throw new StorageException("Neural net file " + pstrFilename + " is truncated.");
+            }
+
+            double[][] aadThresholds = new double[iLayers][];
+            double[][] aadWeights = new double[iLayers][];
+
+            for (int l = 0; l < iLayers; l++) {
+                aadThresholds[l] = getDoubles(poBuffer, aiLayerSizes[l]);
+            }
+
+            for (int l = 1; l < iLayers; l++) {
+                aadWeights[l] = getDoubles(poBuffer, aiLayerSizes[l] * aiLayerSizes[l - 1]);
+            }
+
+            String[][] aastrNames = null;
+
+            if ((iFlags & FLAG_NAMES) != 0) {
+                aastrNames = new String[iLayers][];
+
+                for (int l = 0; l < iLayers; l++) {
+                    aastrNames[l] = new String[aiLayerSizes[l]];
+
+                    for (int j = 0; j < aiLayerSizes[l]; j++) {
+                        byte[] atName = new byte[poBuffer.getInt()];
+                        poBuffer.get(atName);
+                        aastrNames[l][j] = new String(atName, "UTF-8");
+                    }
+                }
+            }
+
+            return new NeuralNetworkModel(aiLayerSizes, aadWeights, aadThresholds, aastrNames);
+        } catch (java.nio.BufferUnderflowException e) {
+            throw new StorageException("Neural net file " + pstrFilename + " is truncated.");
+        } catch (NegativeArraySizeException e) {
+            throw new StorageException("Neural net file " + pstrFilename + " is corrupt.");
+        } catch (UnsupportedEncodingException e) {
+            throw new StorageException(e);
+        }
+    }
+
+    /**
+     * Bulk-reads a block of doubles.
+     *
+     * @param poBuffer buffer positioned at the block
+     * @param piCount  number of doubles
+     * @return the doubles
+     */
+    private static double[] getDoubles(ByteBuffer poBuffer, final int piCount) {
+        double[] adValues = new double[piCount];
+
+        poBuffer.asDoubleBuffer().get(adValues);
+        poBuffer.position(poBuffer.position() + piCount * 8);
+
+        return adValues;
+    }
+
+    /**
+     * Rounds a file offset up to a multiple of 8.
+     *
+     * @param piOffset the offset
+     * @return aligned offset
+     */
+    private static int align(final int piOffset) {
+        return (piOffset + 7) & ~7;
+    }
+
+    /**
+     * Writes the net to a file in the binary format. The name table
+     * is only written if some name differs from the default.
+     *
+     * @param pstrFilename binary file name to write to
+     * @throws StorageException in case of an I/O error
+     */
+    public void writeBinary(final String pstrFilename)
+            throws StorageException {
+        FileOutputStream oFOS = null;
+
+        try {
+            oFOS = new FileOutputStream(pstrFilename);
+            FileChannel oChannel = oFOS.getChannel();
+
+            int iLayers = this.aiLayerSizes.length;
+            boolean bNames = hasCustomNames();
+
+            ByteBuffer oBuffer = ByteBuffer.allocate(Math.max(WRITE_BUFFER_SIZE, align(MAGIC.length + 12 + 4 * iLayers)));
+            oBuffer.order(ByteOrder.LITTLE_ENDIAN);
+
+            oBuffer.put(MAGIC);
+            oBuffer.putInt(FORMAT_VERSION);
+            oBuffer.putInt(bNames ? FLAG_NAMES : 0);
+            oBuffer.putInt(iLayers);
+
+            for (int l = 0; l < iLayers; l++) {
+                oBuffer.putInt(this.aiLayerSizes[l]);
+            }
+
+            while (oBuffer.position() != align(oBuffer.position())) {
+                oBuffer.put((byte) 0);
+            }
+
+            for (int l = 0; l < iLayers; l++) {
+                putDoubles(oChannel, oBuffer, this.aadThresholds[l]);
+            }
+
+            for (int l = 1; l < iLayers; l++) {
+                putDoubles(oChannel, oBuffer, this.aadWeights[l]);
+            }
+
+            if (bNames) {
+                for (int l = 0; l < iLayers; l++) {
+                    for (int j = 0; j < this.aiLayerSizes[l]; j++) {
+                        byte[] atName = this.aastrNames[l][j].getBytes("UTF-8");
+
+                        if (oBuffer.remaining() < 4 + atName.length) {
+                            flush(oChannel, oBuffer);
+
+                            if (oBuffer.remaining() < 4 + atName.length) {
+                                throw new StorageException("Neuron name is too long: " + this.aastrNames[l][j]);
+                            }
+                        }
+
+                        oBuffer.putInt(atName.length);
+                        oBuffer.put(atName);
+                    }
+                }
+            }
+
+            flush(oChannel, oBuffer);
+        } catch (StorageException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new StorageException(e);
+        } finally {
+            if (oFOS != null) {
+                try {
+                    oFOS.close();
+                } catch (IOException e) {
+                    // Reported by the writes if it matters
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes a block of doubles through the buffer.
+     *
+     * @param poChannel where to write
+     * @param poBuffer  write buffer
+     * @param padValues the doubles
+     * @throws IOException if writing fails
+     */
+    private static void putDoubles(FileChannel poChannel, ByteBuffer poBuffer, final double[] padValues)
+            throws IOException {
+        int iDone = 0;
+
+        while (iDone < padValues.length) {
+            if (poBuffer.remaining() < 8) {
+                flush(poChannel, poBuffer);
+            }
+
+            int iCount = Math.min(padValues.length - iDone, poBuffer.remaining() / 8);
+
+            poBuffer.asDoubleBuffer().put(padValues, iDone, iCount);
+            poBuffer.position(poBuffer.position() + iCount * 8);
+
+            iDone += iCount;
+        }
+    }
+
+    /**
+     * Writes out and clears the buffer.
+     *
+     * @param poChannel where to write
+     * @param poBuffer  write buffer
+     * @throws IOException if writing fails
+     */
+    private static void flush(FileChannel poChannel, ByteBuffer poBuffer)
+            throws IOException {
+        poBuffer.flip();
+
+        while (poBuffer.hasRemaining()) {
+            poChannel.write(poBuffer);
+        }
+
+        poBuffer.clear();
+    }
+
+    /**
+     * Tells whether some neuron has a name other than the default.
+     *
+     * @return <code>true</code> if so
+     */
+    private boolean hasCustomNames() {
+        if (this.aastrNames == null) {
+            return false;
+        }
+
+        for (int l = 0; l < this.aastrNames.length; l++) {
+            for (int j = 0; j < this.aastrNames[l].length; j++) {
+                if (!this.aastrNames[l][j].equals(Integer.toString(j + 1))) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    //----------- Conversion -----------------
+
+    /**
+     * Converts a net from the XML format to the binary one.
+     *
+     * @param pstrXMLFilename    XML file to read
+     * @param pstrBinaryFilename binary file to write
+     * @throws StorageException if reading or writing fails
+     */
+    public static void convertXMLToBinary(final String pstrXMLFilename, final String pstrBinaryFilename)
+            throws StorageException {
+        readXML(pstrXMLFilename).writeBinary(pstrBinaryFilename);
+    }
+
+    /**
+     * Converts a net from the binary format to the XML one.
+     *
+     * @param pstrBinaryFilename binary file to read
+     * @param pstrXMLFilename    XML file to write
+     * @throws StorageException if reading or writing fails
+     */
+    public static void convertBinaryToXML(final String pstrBinaryFilename, final String pstrXMLFilename)
+            throws StorageException {
+        readBinary(pstrBinaryFilename).writeXML(pstrXMLFilename);
+    }
+
+    /**
+     * SAX handler reading the net straight into the matrices,
+     * one layer at a time, so that the document is never held in memory.
+     */
+    private static class XMLTopologyHandler
+            extends DefaultHandler {
+        /**
+         * Sizes of the layers read so far, as Integers.
+         */
+        ArrayList oLayerSizes = new ArrayList();
+
+        /**
+         * Weight matrices of the layers read so far.
+         */
+        ArrayList oWeights = new ArrayList();
+
+        /**
+         * Thresholds of the layers read so far.
+         */
+        ArrayList oThresholds = new ArrayList();
+
+        /**
+         * Neuron names of the layers read so far.
+         */
+        ArrayList oNames = new ArrayList();
+
+        /**
+         * Indices of the previous layer's neurons by name.
+         */
+        private HashMap oPreviousIndices = null;
+
+        /**
+         * Size of the previous layer.
+         */
+        private int iPreviousSize = 0;
+
+        /**
+         * Type of the latest layer.
+         */
+        private String strPreviousType = null;
+
+        /**
+         * Input weight rows of the current layer's neurons.
+         */
+        private ArrayList oRows = null;
+
+        /**
+         * Thresholds of the current layer's neurons, as Doubles.
+         */
+        private ArrayList oLayerThresholds = null;
+
+        /**
+         * Names of the current layer's neurons.
+         */
+        private ArrayList oLayerNames = null;
+
+        /**
+         * Input weights of the current neuron.
+         */
+        private double[] adRow = null;
+
+        /**
+         * Handles the opening tags.
+         *
+         * @see org.xml.sax.helpers.DefaultHandler#startElement(String, String, String, Attributes)
+         */
+        public void startElement(String pstrURI, String pstrLocalName, String pstrQName, Attributes poAttributes)
+                throws SAXException {
+            if (pstrQName.equals("layer")) {
+                if (this.oRows != null) {
+                    throw new SAXException("Nested layer.");
+                }
+
+                if (this.oLayerSizes.isEmpty() != "input".equals(poAttributes.getValue("type"))) {
+                    throw new SAXException("Input layer must come first and only once.");
+                }
+
+                if ("output".equals(this.strPreviousType)) {
+                    throw new SAXException("Output layer must come last.");
+                }
+
+                this.strPreviousType = poAttributes.getValue("type");
+
+                this.oRows = new ArrayList();
+                this.oLayerThresholds = new ArrayList();
+                this.oLayerNames = new ArrayList();
+            } else if (pstrQName.equals("neuron")) {
+                if (this.oRows == null) {
+                    throw new SAXException("Neuron outside of a layer.");
+                }
+
+                String strThreshold = poAttributes.getValue("thresh");
+
+                try {
+                    this.oLayerThresholds.add(Double.valueOf(strThreshold == null ? 0.0 : Double.parseDouble(strThreshold.trim())));
+                } catch (NumberFormatException e) {
+                    throw new SAXException("Bad threshold: " + strThreshold);
+                }
+
+                String strName = poAttributes.getValue("index");
+                this.oLayerNames.add(strName == null ? "" : strName);
+
+                this.adRow = this.oLayerSizes.isEmpty() ? null : new double[this.iPreviousSize];
+                this.oRows.add(this.adRow);
+            } else if (pstrQName.equals("input")) {
+                if (this.adRow == null) {
+                    throw new SAXException("Input element not allowed in input layer");
+                }
+
+                String strRef = poAttributes.getValue("ref");
+                Integer oIndex = strRef == null ? null : (Integer) this.oPreviousIndices.get(strRef);
+
+                if (oIndex == null) {
+                    throw new SAXException("Cannot find neuron " + strRef + " in the previous layer");
+                }
+
+                String strWeight = poAttributes.getValue("weight");
+
+                try {
+                    // Repeated links add up, as separate inputs would
+                    this.adRow[oIndex.intValue()] += strWeight == null ? -1.0 : Double.parseDouble(strWeight.trim());
+                } catch (NumberFormatException e) {
+                    throw new SAXException("Bad weight: " + strWeight);
+                }
+            }
+
+            // <net> and <output> links, which mirror the inputs, need nothing
+        }
+
+        /**
+         * Completes a layer on its closing tag.
+         *
+         * @see org.xml.sax.helpers.DefaultHandler#endElement(String, String, String)
+         */
+        public void endElement(String pstrURI, String pstrLocalName, String pstrQName)
+                throws SAXException {
+            if (!pstrQName.equals("layer")) {
+                return;
+            }
+
+            int iSize = this.oRows.size();
+            double[] adThresholds = new double[iSize];
+            String[] astrNames = (String[]) this.oLayerNames.toArray(new String[iSize]);
+            double[] adWeights = this.oLayerSizes.isEmpty() ? null : new double[iSize * this.iPreviousSize];
+
+            this.oPreviousIndices = new HashMap();
+
+            for (int j = 0; j < iSize; j++) {
+                adThresholds[j] = ((Double) this.oLayerThresholds.get(j)).doubleValue();
+                this.oPreviousIndices.put(astrNames[j], Integer.valueOf(j));
+
+                if (adWeights != null) {
+                    System.arraycopy((double[]) this.oRows.get(j), 0, adWeights, j * this.iPreviousSize, this.iPreviousSize);
+                }
+            }
+
+            this.oLayerSizes.add(Integer.valueOf(iSize));
+            this.oWeights.add(adWeights);
+            this.oThresholds.add(adThresholds);
+            this.oNames.add(astrNames);
+
+            this.iPreviousSize = iSize;
+            this.oRows = null;
+            this.adRow = null;
+        }
+
+        /**
+         * Ensures the last layer read was the output one.
+         *
+         * @see org.xml.sax.helpers.DefaultHandler#endDocument()
+         */
+        public void endDocument()
+                throws SAXException {
+            if (!"output".equals(this.strPreviousType)) {
+                throw new SAXException("Output layer is missing.");
+            }
+        }
+    }
+
+    /**
+     * Returns source code revision information.
+     *
+     * @return revision string
+     */
+    public static String getMARFSourceCodeRevision() {
+        return "$Revision$";
+    }
+}
+
+// EOF
@@ -0,0 +1,598 @@
+package marf.Classification.NeuralNetwork;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Vector;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import marf.Classification.ClassificationException;
+import marf.Storage.Cluster;
+import marf.util.Debug;
+import marf.util.ExecutionService;
+
+
+/**
+ * <p>Backpropagation trainer of a layered net in its matrix form.</p>
+ *
+ * <p>With the default batch size of 1, the trainer does what the classifiers
+ * always did: the weights are updated after every training sample. With a
+ * larger batch size, the weight changes of the samples of a batch are all
+ * computed against the weights at the start of the batch, and their mean
+ * is applied at the end of the batch. The samples of a batch can then be
+ * processed by several threads at once: each thread accumulates the changes
+ * of its own shard of the batch into its own buffers, and the shards' sums
+ * are then added up in shard order, so that the result does not depend on
+ * the threads' timing. The evaluation of the net on the training samples
+ * after each epoch is spread across the threads as well.</p>
+ *
+ * <p>The stopping criterion is that of <code>NeuralNetwork.train()</code>,
+ * and the statistics of every epoch are recorded and logged.</p>
+ *
+ * <p>$Id$</p>
+ *
+ * @author The MARF Research and Development Group
+ * @version $Revision$
+ * @see EpochStatistics
+ * @see NeuralNetwork#train()
+ * @see DenseNeuralNetwork#train()
+ * @since 0.3.0.6
+ */
+public class NeuralNetworkTrainer {
+    /**
+     * Default batch size of <code>1</code>, i.e. a weight update per sample.
+     */
+    public static final int DEFAULT_BATCH_SIZE = 1;
+
+    /**
+     * Default number of training threads of <code>1</code>.
+     */
+    public static final int DEFAULT_THREADS = 1;
+
+    /**
+     * The net being trained; its weights are changed in place.
+     */
+    private final NeuralNetworkModel oModel;
+
+    /**
+     * Number of samples per weight update.
+     */
+    private int iBatchSize = DEFAULT_BATCH_SIZE;
+
+    /**
+     * Number of threads to process a batch and evaluate the net with.
+     */
+    private int iThreads = DEFAULT_THREADS;
+
+    /**
+     * Statistics of the epochs of the latest training.
+     */
+    private Vector oEpochStatistics = new Vector();
+
+    /**
+     * Constructs a trainer of a net.
+     *
+     * @param poModel the net, whose weights training changes in place
+     */
+    public NeuralNetworkTrainer(NeuralNetworkModel poModel) {
+        this.oModel = poModel;
+    }
+
+    /**
+     * Sets number of samples per weight update.
+     *
+     * @param piBatchSize the batch size; 1 for an update after every sample
+     * @throws IllegalArgumentException if the size is less than 1
+     */
+    public void setBatchSize(final int piBatchSize) {
+        if (piBatchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be at least 1, supplied: " + piBatchSize);
+        }
+
+        this.iBatchSize = piBatchSize;
+    }
+
+    /**
+     * Retrieves number of samples per weight update.
+     *
+     * @return the batch size
+     */
+    public int getBatchSize() {
+        return this.iBatchSize;
+    }
+
+    /**
+     * Sets number of threads training uses.
+     *
+     * @param piThreads the thread count; 1 to train on the calling thread only
+     * @throws IllegalArgumentException if the count is less than 1
+     */
+    public void setThreads(final int piThreads) {
+        if (piThreads < 1) {
+            throw new IllegalArgumentException("Number of threads must be at least 1, supplied: " + piThreads);
+        }
+
+        this.iThreads = piThreads;
+    }
+
+    /**
+     * Retrieves number of threads training uses.
+     *
+     * @return the thread count
+     */
+    public int getThreads() {
+        return this.iThreads;
+    }
+
+    /**
+     * Retrieves the statistics of the epochs of the latest training.
+     *
+     * @return Vector of <code>EpochStatistics</code>, in order
+     */
+    public Vector getEpochStatistics() {
+        return this.oEpochStatistics;
+    }
+
+    /**
+     * Trains the net on the mean vectors of clusters.
+     *
+     * @param poClusters   Vector of <code>Cluster</code>s
+     * @param pdTrainConst training constant
+     * @param piEpochs     maximum number of epochs
+     * @param pdMinError   error at which training stops
+     * @return Vector of <code>EpochStatistics</code>, in order
+     * @throws ClassificationException if there are no samples, the training constant
+     *                                 is not positive, or some sample's size does not match the input layer
+     * @see #train(double[][], int[], double, int, double)
+     */
+    public Vector train(Vector poClusters, final double pdTrainConst, final int piEpochs, final double pdMinError)
+            throws ClassificationException {
+        double[][] aadInputs = new double[poClusters.size()][];
+        int[] aiIDs = new int[poClusters.size()];
+
+        for (int i = 0; i < aadInputs.length; i++) {
+            Cluster oCluster = (Cluster) poClusters.get(i);
+
+            aadInputs[i] = oCluster.getMeanVector();
+            aiIDs[i] = oCluster.getSubjectID();
+        }
+
+        return train(aadInputs, aiIDs, pdTrainConst, piEpochs, pdMinError);
+    }
+
+    /**
+     * Trains the net until the error gets to the minimum
+     * or the maximum number of epochs has been run.
+     *
+     * @param paadInputs   input vectors of the training samples
+     * @param paiIDs       subject IDs of the training samples
+     * @param pdTrainConst training constant
+     * @param piEpochs     maximum number of epochs
+     * @param pdMinError   error at which training stops
+     * @return Vector of <code>EpochStatistics</code>, in order
+     * @throws ClassificationException if there are no samples, the training constant
+     *                                 is not positive, or some sample's size does not match the input layer
+     */
+    public Vector train(final double[][] paadInputs, final int[] paiIDs, final double pdTrainConst, final int piEpochs, final double pdMinError)
+            throws ClassificationException {
+        int iSamples = paadInputs.length;
+
+        if (iSamples == 0) {
+            throw new ClassificationException("NeuralNetworkTrainer.train() --- There are no training samples!");
+        }
+
+        if (pdTrainConst <= 0.0) {
+            throw new ClassificationException
+                    (
+                            "NeuralNetworkTrainer.train(): Training constant must be > 0.0, supplied: " +
+                                    pdTrainConst
+                    );
+        }
+
+        for (int i = 0; i < iSamples; i++) {
+            if (paadInputs[i] == null || paadInputs[i].length != this.oModel.getLayerSize(0)) {
+                throw new ClassificationException
+                        (
+                                "Input array size (" + (paadInputs[i] == null ? 0 : paadInputs[i].length) +
+                                        ") not consistent with input layer (" + this.oModel.getLayerSize(0) + ")"
+                        );
+            }
+        }
+
+        this.oEpochStatistics = new Vector();
+
+        Worker[] aoWorkers = new Worker[Math.min(this.iThreads, iSamples)];
+
+        for (int w = 0; w < aoWorkers.length; w++) {
+            aoWorkers[w] = new Worker(this.oModel, this.iBatchSize > 1);
+        }
+
+        int[] aiRecognizedIDs = new int[iSamples];
+        double[] adSquaredErrors = new double[iSamples];
+
+        // Set initial values to always enter the epoch training loop
+        int iLimit = 0;
+        double dError = pdMinError + 1;
+
+        while (dError > pdMinError && iLimit < piEpochs) {
+            long lStart = System.currentTimeMillis();
+
+            if (this.iBatchSize == 1) {
+                for (int i = 0; i < iSamples; i++) {
+                    aoWorkers[0].step(paadInputs[i], paiIDs[i], pdTrainConst);
+                }
+            } else {
+                for (int iFrom = 0; iFrom < iSamples; iFrom += this.iBatchSize) {
+                    int iTo = Math.min(iSamples, iFrom + this.iBatchSize);
+
+                    runShards(aoWorkers, true, paadInputs, paiIDs, iFrom, iTo, null, null);
+                    applyBatch(aoWorkers, Math.min(aoWorkers.length, iTo - iFrom), pdTrainConst / (iTo - iFrom));
+                }
+            }
+
+            // TODO: Testing is done with the same training samples :-(
+            runShards(aoWorkers, false, paadInputs, paiIDs, 0, iSamples, aiRecognizedIDs, adSquaredErrors);
+
+            double dSquaredError = 0.0;
+            int iMisclassified = 0;
+
+            dError = 0.0;
+
+            for (int i = 0; i < iSamples; i++) {
+                dError += pdMinError * Math.abs(paiIDs[i] - aiRecognizedIDs[i]);
+                dSquaredError += adSquaredErrors[i];
+
+                if (paiIDs[i] != aiRecognizedIDs[i]) {
+                    iMisclassified++;
+                }
+            }
+
+            dError /= iSamples;
+            iLimit++;
+
+            EpochStatistics oStatistics = new EpochStatistics
+                    (
+                            iLimit,
+                            dError,
+                            dSquaredError / (iSamples * this.oModel.getLayerSize(this.oModel.getLayerCount() - 1)),
+                            iMisclassified,
+                            iSamples,
+                            System.currentTimeMillis() - lStart,
+                            dError <= pdMinError
+                    );
+
+            this.oEpochStatistics.add(oStatistics);
+
+            Debug.debug(oStatistics);
+        }
+
+        return this.oEpochStatistics;
+    }
+
+    /**
+     * Splits the samples in a range into contiguous shards, one per
+     * worker, and has each worker process its shard, on the training
+     * queue if there is more than one shard.
+     *
+     * @param paoWorkers         the workers
+     * @param pbAccumulate       <code>true</code> to accumulate weight changes,
+     *                           <code>false</code> to evaluate the net
+     * @param paadInputs         input vectors of the samples
+     * @param paiIDs             subject IDs of the samples
+     * @param piFrom             first sample of the range
+     * @param piTo               sample after the last one of the range
+     * @param paiRecognizedIDs   receives the recognized IDs when evaluating
+     * @param padSquaredErrors   receives the squared errors of the outputs when evaluating
+     * @throws ClassificationException if a worker fails or the waiting is interrupted
+     */
+    private static void runShards
+    (
+            final Worker[] paoWorkers,
+            final boolean pbAccumulate,
+            final double[][] paadInputs,
+            final int[] paiIDs,
+            final int piFrom,
+            final int piTo,
+            final int[] paiRecognizedIDs,
+            final double[] padSquaredErrors
+    ) throws ClassificationException {
+        int iShards = Math.min(paoWorkers.length, piTo - piFrom);
+
+        if (iShards == 1) {
+            paoWorkers[0].process(pbAccumulate, paadInputs, paiIDs, piFrom, piTo, paiRecognizedIDs, padSquaredErrors);
+            return;
+        }
+
+        List oFutures = new ArrayList(iShards);
+
+        for (int s = 0; s < iShards; s++) {
+            final Worker oWorker = paoWorkers[s];
+            final int iShardFrom = piFrom + (int) ((long) (piTo - piFrom) * s / iShards);
+            final int iShardTo = piFrom + (int) ((long) (piTo - piFrom) * (s + 1) / iShards);
+
+            oFutures.add(ExecutionService.submit(ExecutionService.QUEUE_TRAINING, new Callable() {
+                public Object call() {
+                    oWorker.process(pbAccumulate, paadInputs, paiIDs, iShardFrom, iShardTo, paiRecognizedIDs, padSquaredErrors);
+                    return null;
+                }
+            }));
+        }
+
+        try {
+            for (int s = 0; s < iShards; s++) {
+                ((Future) oFutures.get(s)).get();
+            }
+        } catch (ExecutionException e) {
+            Throwable oCause = e.getCause();
+
+            if (oCause instanceof Error) {
+                throw (Error) oCause;
+            }
+
+            throw new ClassificationException("Training worker failed: " + oCause.getMessage(), (Exception) oCause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ClassificationException("Interrupted while waiting for the training workers.", e);
+        } finally {
+            // The pool is shared; do not leave shards of a failed batch behind
+            for (int s = 0; s < iShards; s++) {
+                ((Future) oFutures.get(s)).cancel(true);
+            }
+        }
+    }
+
+    /**
+     * Adds up the weight changes accumulated by the workers, in worker
+     * order, and applies them, <code>W += step * sum</code>.
+     *
+     * @param paoWorkers the workers
+     * @param piShards   number of workers that processed a shard of the batch
+     * @param pdStep     training constant divided by the batch size
+     */
+    private void applyBatch(final Worker[] paoWorkers, final int piShards, final double pdStep) {
+        double[][] aadWeights = this.oModel.getWeights();
+        double[][] aadSums = paoWorkers[0].aadGradients;
+
+        for (int l = 1; l < aadWeights.length; l++) {
+            double[] adSum = aadSums[l];
+
+            for (int s = 1; s < piShards; s++) {
+                double[] adGradient = paoWorkers[s].aadGradients[l];
+
+                for (int k = 0; k < adSum.length; k++) {
+                    adSum[k] += adGradient[k];
+                }
+            }
+
+            double[] adWeights = aadWeights[l];
+
+            for (int k = 0; k < adWeights.length; k++) {
+                adWeights[k] = adWeights[k] + pdStep * adSum[k];
+            }
+        }
+    }
+
+    /**
+     * Computes the squared error of output neuron results
+     * against the bits of the expected subject ID.
+     *
+     * @param padOutputs   results of the output layer
+     * @param piExpectedID subject ID expected in binary, the lowest bit on the last neuron
+     * @return sum of the squared errors of the outputs
+     */
+    static double squaredError(final double[] padOutputs, int piExpectedID) {
+        double dSum = 0.0;
+
+        for (int k = padOutputs.length - 1; k >= 0; k--) {
+            int iExpected = piExpectedID % 2;
+            piExpectedID /= 2;
+
+            dSum += (iExpected - padOutputs[k]) * (iExpected - padOutputs[k]);
+        }
+
+        return dSum;
+    }
+
+    /**
+     * Buffers of a training thread.
+     */
+    private static final class Worker {
+        /**
+         * The net.
+         */
+        private final NeuralNetworkModel oModel;
+
+        /**
+         * Results of the neurons of each layer for the current sample.
+         */
+        private final double[][] aadResults;
+
+        /**
+         * Error terms of the neurons of each layer for the current sample.
+         */
+        private final double[][] aadDeltas;
+
+        /**
+         * Weight changes accumulated over the shard, shaped as the weights;
+         * <code>null</code> unless training in batches.
+         */
+        final double[][] aadGradients;
+
+        /**
+         * Allocates the buffers for a net.
+         *
+         * @param poModel     the net
+         * @param pbGradients whether to allocate the batch accumulators
+         */
+        Worker(final NeuralNetworkModel poModel, final boolean pbGradients) {
+            int iLayers = poModel.getLayerCount();
+
+            this.oModel = poModel;
+            this.aadResults = new double[iLayers][];
+            this.aadDeltas = new double[iLayers][];
+            this.aadGradients = pbGradients ? new double[iLayers][] : null;
+
+            for (int l = 0; l < iLayers; l++) {
+                this.aadResults[l] = new double[poModel.getLayerSize(l)];
+                this.aadDeltas[l] = new double[poModel.getLayerSize(l)];
+
+                if (pbGradients && l > 0) {
+                    this.aadGradients[l] = new double[poModel.getWeights()[l].length];
+                }
+            }
+        }
+
+        /**
+         * Evaluates the net on an input.
+         *
+         * @param padInput the input vector
+         */
+        private void eval(final double[] padInput) {
+            int[] aiSizes = this.oModel.getLayerSizes();
+
+            System.arraycopy(padInput, 0, this.aadResults[0], 0, aiSizes[0]);
+
+            for (int l = 1; l < aiSizes.length; l++) {
+                DenseNeuralNetwork.forward
+                        (
+                                this.oModel.getWeights()[l],
+                                this.oModel.getThresholds()[l],
+                                this.aadResults[l - 1],
+                                aiSizes[l - 1],
+                                this.aadResults[l],
+                                aiSizes[l]
+                        );
+            }
+        }
+
+        /**
+         * Evaluates the net on a sample and computes the error terms of all the neurons.
+         *
+         * @param padInput the input vector
+         * @param piID     the expected subject ID
+         */
+        private void propagate(final double[] padInput, final int piID) {
+            int[] aiSizes = this.oModel.getLayerSizes();
+            int iLast = aiSizes.length - 1;
+
+            eval(padInput);
+            DenseNeuralNetwork.outputDeltas(this.aadResults[iLast], piID, this.aadDeltas[iLast]);
+
+            for (int l = iLast - 1; l > 0; l--) {
+                DenseNeuralNetwork.backward
+                        (
+                                this.oModel.getWeights()[l + 1],
+                                this.aadDeltas[l + 1],
+                                aiSizes[l + 1],
+                                this.aadResults[l],
+                                this.aadDeltas[l],
+                                aiSizes[l]
+                        );
+            }
+        }
+
+        /**
+         * Trains the net on a sample and updates the weights right away,
+         * as <code>DenseNeuralNetwork.train()</code> and <code>commit()</code> do.
+         *
+         * @param padInput     the input vector
+         * @param piID         the expected subject ID
+         * @param pdTrainConst training constant
+         */
+        void step(final double[] padInput, final int piID, final double pdTrainConst) {
+            int[] aiSizes = this.oModel.getLayerSizes();
+
+            propagate(padInput, piID);
+
+            for (int l = 1; l < aiSizes.length; l++) {
+                double[] adWeights = this.oModel.getWeights()[l];
+                double[] adDeltas = this.aadDeltas[l];
+                double[] adInputs = this.aadResults[l - 1];
+                int iInputs = aiSizes[l - 1];
+
+                for (int j = 0; j < aiSizes[l]; j++) {
+                    double dStep = pdTrainConst * adDeltas[j];
+                    int iRow = j * iInputs;
+
+                    for (int i = 0; i < iInputs; i++) {
+                        adWeights[iRow + i] = adWeights[iRow + i] + dStep * adInputs[i];
+                    }
+                }
+            }
+        }
+
+        /**
+         * Processes a shard of samples.
+         *
+         * @param pbAccumulate     <code>true</code> to sum up the weight changes of the samples,
+         *                         <code>false</code> to evaluate the net on them
+         * @param paadInputs       input vectors of the samples
+         * @param paiIDs           subject IDs of the samples
+         * @param piFrom           first sample of the shard
+         * @param piTo             sample after the last one of the shard
+         * @param paiRecognizedIDs receives the recognized IDs when evaluating
+         * @param padSquaredErrors receives the squared errors of the outputs when evaluating
+         */
+        void process
+        (
+                final boolean pbAccumulate,
+                final double[][] paadInputs,
+                final int[] paiIDs,
+                final int piFrom,
+                final int piTo,
+                int[] paiRecognizedIDs,
+                double[] padSquaredErrors
+        ) {
+            int[] aiSizes = this.oModel.getLayerSizes();
+            int iLast = aiSizes.length - 1;
+
+            if (!pbAccumulate) {
+                for (int s = piFrom; s < piTo; s++) {
+                    eval(paadInputs[s]);
+
+                    paiRecognizedIDs[s] = DenseNeuralNetwork.interpretAsBinary(this.aadResults[iLast]);
+                    padSquaredErrors[s] = squaredError(this.aadResults[iLast], paiIDs[s]);
+                }
+
+                return;
+            }
+
+            for (int l = 1; l < aiSizes.length; l++) {
+                Arrays.fill(this.aadGradients[l], 0.0);
+            }
+
+            for (int s = piFrom; s < piTo; s++) {
+                propagate(paadInputs[s], paiIDs[s]);
+
+                for (int l = 1; l < aiSizes.length; l++) {
+                    double[] adGradient = this.aadGradients[l];
+                    double[] adDeltas = this.aadDeltas[l];
+                    double[] adInputs = this.aadResults[l - 1];
+                    int iInputs = aiSizes[l - 1];
+
+                    for (int j = 0; j < aiSizes[l]; j++) {
+                        double dDelta = adDeltas[j];
+                        int iRow = j * iInputs;
+
+                        for (int i = 0; i < iInputs; i++) {
+                            adGradient[iRow + i] += dDelta * adInputs[i];
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns source code revision information.
+     *
+     * @return revision string
+     */
+    public static String getMARFSourceCodeRevision() {
+        return "$Revision$";
+    }
+}
+
+// EOF
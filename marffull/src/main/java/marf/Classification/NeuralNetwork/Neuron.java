@@ -263,6 +263,38 @@ public class Neuron
         }
     }
 
+    /**
+     * Retrieves number of inputs.
+     *
+     * @return input count
+     * @since 0.3.0.6
+     */
+    final int getInputCount() {
+        return this.oInputs.size();
+    }
+
+    /**
+     * Retrieves an input neuron.
+     *
+     * @param piIndex input index
+     * @return the neuron
+     * @since 0.3.0.6
+     */
+    final Neuron getInput(final int piIndex) {
+        return (Neuron) this.oInputs.get(piIndex);
+    }
+
+    /**
+     * Retrieves weight of an input.
+     *
+     * @param piIndex input index
+     * @return the weight
+     * @since 0.3.0.6
+     */
+    final double getInputWeight(final int piIndex) {
+        return ((Double) this.oWeights.get(piIndex)).doubleValue();
+    }
+
     /**
      * Dumps XML of the current Neuron.
      *
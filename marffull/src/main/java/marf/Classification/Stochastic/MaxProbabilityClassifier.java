@@ -1,15 +1,21 @@
 package marf.Classification.Stochastic;
 
+import java.util.Map;
 import java.util.Vector;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import marf.Classification.ClassificationException;
 import marf.FeatureExtraction.IFeatureExtraction;
 import marf.MARF;
 import marf.MARF.NLP;
+import marf.Stats.ProbabilityTable;
 import marf.Stats.StatisticalEstimators.StatisticalEstimator;
 import marf.Storage.Result;
 import marf.Storage.StorageException;
 import marf.util.Debug;
+import marf.util.ExecutionService;
 
 
 /**
@@ -19,6 +25,13 @@ import marf.util.Debug;
  * of Serguei Mokhov.
  * </p>
  * <p>
+ * <p>As of 0.3.0.6, the language models and the list of the available
+ * languages stay resident once loaded, shared by all the classifiers,
+ * and are only replaced when a language is trained again. The input is
+ * tokenized once into n-grams, which are scored against all the
+ * languages in a single pass, or against every language in a task of
+ * its own with <code>enableParallelScoring(true)</code>.</p>
+ * <p>
  * $Id: MaxProbabilityClassifier.java,v 1.24 2006/02/12 23:57:58 mokhov Exp $
  *
  * @author Serguei Mokhov
@@ -38,6 +51,29 @@ public class MaxProbabilityClassifier
      */
     protected Vector oAvailLanguages = null;
 
+    /**
+     * Whether to score the languages on parallel tasks.
+     *
+     * @since 0.3.0.6
+     */
+    protected boolean bParallelScoring = false;
+
+    /**
+     * Resident language models (<code>ProbabilityTable</code>s)
+     * keyed by their estimators' dump filenames.
+     *
+     * @since 0.3.0.6
+     */
+    private static final ConcurrentMap soLanguageModels = new ConcurrentHashMap();
+
+    /**
+     * Resident available languages (<code>Vector</code>s of
+     * language names) keyed by the classifiers' dump filenames.
+     *
+     * @since 0.3.0.6
+     */
+    private static final Map soAvailLanguages = new ConcurrentHashMap();
+
     /**
      * For serialization versioning.
      * When adding new members or make other structural
@@ -108,20 +144,34 @@ public class MaxProbabilityClassifier
     public boolean train()
             throws ClassificationException {
         try {
-            this.oStatisticalEstimator.train();
+            String strModel = this.oStatisticalEstimator.getFilename();
+            boolean bTrained;
+
+            synchronized (this.oStatisticalEstimator) {
+                bTrained = this.oStatisticalEstimator.train();
+            }
+
+            if (bTrained) {
+                // What was just dumped, not the table the estimator goes on with
+                soLanguageModels.put(strModel, restoreLanguageModel(strModel));
+            } else {
+                soLanguageModels.remove(strModel);
+            }
 
             restore();
 
-            Debug.debug("tr.before.oAvailLanguages=" + this.oAvailLanguages);
+            Debug.debug("tr.before.oAvailLanguages={}", this.oAvailLanguages);
             System.out.println("Adding language [" + NLP.getLanguage() + "] ---- ");
 
             if (this.oAvailLanguages.contains(NLP.getLanguage()) == false) {
                 this.oAvailLanguages.add(NLP.getLanguage());
-                Debug.debug("tr.after.oAvailLanguages=" + this.oAvailLanguages);
+                Debug.debug("tr.after.oAvailLanguages={}", this.oAvailLanguages);
 
                 dump();
             }
 
+            soAvailLanguages.put(this.strFilename, new Vector(this.oAvailLanguages));
+
             return true;
         } catch (StorageException e) {
             e.printStackTrace(System.err);
@@ -140,34 +190,184 @@ public class MaxProbabilityClassifier
     public boolean classify()
             throws ClassificationException {
         try {
-            restore();
+            this.oAvailLanguages = getAvailLanguages();
 
-            Debug.debug("oAvailLanguages=" + this.oAvailLanguages);
+            Debug.debug("oAvailLanguages={}", this.oAvailLanguages);
 
             if (this.oAvailLanguages.size() == 0) {
                 throw new ClassificationException("MaxProbabilityClassifier: there are no languages available.");
             }
 
-            for (int i = 0; i < this.oAvailLanguages.size(); i++) {
-                String strLang = (String) oAvailLanguages.elementAt(i);
-                //oStatisticalEstimator.setLang(strLang);
+            ProbabilityTable[] aoModels = new ProbabilityTable[this.oAvailLanguages.size()];
 
-                NLP.setLanguage(strLang);
-                this.oStatisticalEstimator.resetFilename();
+            for (int i = 0; i < aoModels.length; i++) {
+                aoModels[i] = getLanguageModel((String) this.oAvailLanguages.elementAt(i));
+            }
+
+            Vector oNgrams = this.oStatisticalEstimator.getNgrams();
+            this.oStatisticalEstimator.getStreamTokenizer().reset();
+
+            double[] adProbabilities = score(aoModels, oNgrams);
 
-                double dProbability = this.oStatisticalEstimator.p();
-                this.oStatisticalEstimator.getStreamTokenizer().reset();
+            for (int i = 0; i < aoModels.length; i++) {
+                String strLang = (String) this.oAvailLanguages.elementAt(i);
 
-                System.out.println("lang=" + strLang + ", P=" + dProbability);
-                this.oResultSet.addResult(new Result(dProbability, strLang));
+                System.out.println("lang=" + strLang + ", P=" + adProbabilities[i]);
+                this.oResultSet.addResult(new Result(adProbabilities[i], strLang));
             }
 
             return true;
+        } catch (ClassificationException e) {
+            throw e;
         } catch (Exception e) {
             throw new ClassificationException(e);
         }
     }
 
+    /**
+     * Computes the log probabilities of n-grams with language models,
+     * as <code>StatisticalEstimator.p()</code> would with each of them.
+     *
+     * @param paoModels the models
+     * @param poNgrams  the n-grams
+     * @return log probabilities by model
+     * @throws Exception if a parallel task fails
+     * @see StatisticalEstimator#p(ProbabilityTable, Vector)
+     * @since 0.3.0.6
+     */
+    protected double[] score(final ProbabilityTable[] paoModels, final Vector poNgrams)
+            throws Exception {
+        double[] adProbabilities = new double[paoModels.length];
+
+        if (this.bParallelScoring && paoModels.length > 1) {
+            Vector oTasks = new Vector(paoModels.length);
+
+            for (int i = 0; i < paoModels.length; i++) {
+                final ProbabilityTable oModel = paoModels[i];
+
+                oTasks.add(new Callable() {
+                    public Object call() {
+                        return Double.valueOf(StatisticalEstimator.p(oModel, poNgrams));
+                    }
+                });
+            }
+
+            Object[] aoResults = ExecutionService.invokeAll(ExecutionService.QUEUE_CLASSIFICATION, oTasks, paoModels.length);
+
+            for (int i = 0; i < paoModels.length; i++) {
+                adProbabilities[i] = ((Double) aoResults[i]).doubleValue();
+            }
+        } else {
+            // One pass over the n-grams for all the languages
+            for (int n = 0; n < poNgrams.size(); n++) {
+                Vector oNgram = (Vector) poNgrams.elementAt(n);
+
+                for (int i = 0; i < paoModels.length; i++) {
+                    adProbabilities[i] += Math.log(paoModels[i].p(oNgram));
+                }
+            }
+        }
+
+        return adProbabilities;
+    }
+
+    /**
+     * Retrieves the resident list of the available languages,
+     * restoring it on first use.
+     *
+     * @return the shared list; must not be modified
+     * @throws StorageException if the list cannot be restored
+     * @since 0.3.0.6
+     */
+    protected Vector getAvailLanguages()
+            throws StorageException {
+        Vector oLanguages = (Vector) soAvailLanguages.get(this.strFilename);
+
+        if (oLanguages == null) {
+            restore();
+            oLanguages = new Vector(this.oAvailLanguages);
+            soAvailLanguages.put(this.strFilename, oLanguages);
+        }
+
+        return oLanguages;
+    }
+
+    /**
+     * Retrieves the resident model of a language, restoring it with
+     * the statistical estimator on first use.
+     *
+     * @param pstrLang the language
+     * @return the shared model; must not be modified
+     * @throws StorageException if the model cannot be restored
+     * @since 0.3.0.6
+     */
+    protected ProbabilityTable getLanguageModel(final String pstrLang)
+            throws StorageException {
+        String strKey = this.oStatisticalEstimator.getFilename(pstrLang);
+        ProbabilityTable oModel = (ProbabilityTable) soLanguageModels.get(strKey);
+
+        if (oModel == null) {
+            oModel = restoreLanguageModel(strKey);
+
+            // Whoever restored it first wins
+            ProbabilityTable oResident = (ProbabilityTable) soLanguageModels.putIfAbsent(strKey, oModel);
+
+            if (oResident != null) {
+                oModel = oResident;
+            }
+        }
+
+        return oModel;
+    }
+
+    /**
+     * Restores a language model from its dump file with the statistical
+     * estimator. The estimator's own table is replaced by the restored one,
+     * which it doesn't modify afterwards, since its training restores the
+     * table anew first.
+     *
+     * @param pstrFilename the estimator's dump filename of the language
+     * @return the restored model
+     * @throws StorageException if the model cannot be restored
+     * @since 0.3.0.6
+     */
+    private ProbabilityTable restoreLanguageModel(final String pstrFilename)
+            throws StorageException {
+        synchronized (this.oStatisticalEstimator) {
+            try {
+                this.oStatisticalEstimator.setFilename(pstrFilename);
+                this.oStatisticalEstimator.restore();
+                return this.oStatisticalEstimator.getProbabilityTable();
+            } finally {
+                this.oStatisticalEstimator.resetFilename();
+            }
+        }
+    }
+
+    /**
+     * Drops the resident language models and lists of languages, so
+     * that they are restored anew, e.g. after another process trained.
+     *
+     * @since 0.3.0.6
+     */
+    public static void invalidateLanguageModels() {
+        soLanguageModels.clear();
+        soAvailLanguages.clear();
+    }
+
+    /**
+     * Enables or disables scoring every language on a parallel task.
+     *
+     * @param pbEnable <code>true</code> to score in parallel
+     * @return the previous setting
+     * @since 0.3.0.6
+     */
+    public synchronized boolean enableParallelScoring(boolean pbEnable) {
+        boolean bOldValue = this.bParallelScoring;
+        this.bParallelScoring = pbEnable;
+        return bOldValue;
+    }
+
     /**
      * Add a piece of general StorageManager contract.
      * Resets available languages vector from the
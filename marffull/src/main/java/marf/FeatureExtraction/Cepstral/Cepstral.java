@@ -1,13 +1,35 @@
 package marf.FeatureExtraction.Cepstral;
 
+import java.util.Vector;
+
 import marf.FeatureExtraction.FeatureExtraction;
 import marf.FeatureExtraction.FeatureExtractionException;
+import marf.MARF;
 import marf.Preprocessing.IPreprocessing;
-import marf.util.NotImplementedException;
+import marf.Storage.ModuleParams;
+import marf.Storage.SampleLoader;
+import marf.math.Algorithms;
+import marf.math.FFTPlan;
+import marf.math.Workspace;
+import marf.util.Arrays;
+import marf.util.Debug;
 
 
 /**
- * <p>Class Cepstral.</p>
+ * <p>Class Cepstral implements Mel-Frequency Cepstral Coefficients (MFCC).</p>
+ *
+ * <p>The sample is cut into Hamming-windowed frames overlapping by half,
+ * as in the FFT module, unless an aggregator shares the frames. The power
+ * spectrum of every frame is passed through a bank of triangular filters
+ * equidistant on the mel scale, and the DCT of the logarithm of the filter
+ * energies gives the frame's coefficients, which are averaged over the
+ * frames into the feature vector. The filter bank and the DCT matrix are
+ * computed once per configuration and shared, and the scratch arrays are
+ * kept across frames and calls.</p>
+ *
+ * <p>The optional feature extraction module parameters are, in order, the
+ * window size (a power of 2), the number of coefficients, and the number
+ * of filters.</p>
  * <p>
  * <p>$Id: Cepstral.java,v 1.13 2005/08/13 23:46:43 susan_fan Exp $</p>
  *
@@ -17,6 +39,27 @@ import marf.util.NotImplementedException;
  */
 public class Cepstral
         extends FeatureExtraction {
+    /**
+     * Default window size of 256 samples, i.e. 32 ms at 8 kHz.
+     *
+     * @since 0.3.0.6
+     */
+    public static final int DEFAULT_WINDOW_SIZE = 256;
+
+    /**
+     * Default number of coefficients, 13.
+     *
+     * @since 0.3.0.6
+     */
+    public static final int DEFAULT_COEFFICIENTS = 13;
+
+    /**
+     * Default number of mel filters, 26.
+     *
+     * @since 0.3.0.6
+     */
+    public static final int DEFAULT_FILTERS = 26;
+
     /**
      * For serialization versioning.
      * When adding new members or make other structural
@@ -27,25 +70,196 @@ public class Cepstral
      */
     private static final long serialVersionUID = -1963503086097237420L;
 
+    /**
+     * Analysis window size.
+     *
+     * @since 0.3.0.6
+     */
+    private int iWindowSize = DEFAULT_WINDOW_SIZE;
+
+    /**
+     * Number of coefficients.
+     *
+     * @since 0.3.0.6
+     */
+    private int iCoefficients = DEFAULT_COEFFICIENTS;
+
+    /**
+     * Number of mel filters.
+     *
+     * @since 0.3.0.6
+     */
+    private int iFilters = DEFAULT_FILTERS;
+
+    /**
+     * Scratch arrays: windowed frame, real and imaginary parts of its spectrum,
+     * log filter energies, and the frame's coefficients.
+     *
+     * @since 0.3.0.6
+     */
+    private transient double[] adFrame = null, adReal = null, adImag = null, adLogEnergies = null, adCepstrum = null;
+
     /**
      * Cepstral Constructor.
      *
      * @param poPreprocessing Preprocessing module reference
+     * @throws ClassCastException       if a feature extraction module parameter
+     *                                  supplied and is not of type Integer
+     * @throws IllegalArgumentException if the parameters do not make
+     *                                  a valid filter bank
      */
     public Cepstral(IPreprocessing poPreprocessing) {
         super(poPreprocessing);
+
+        ModuleParams oModuleParams = MARF.getModuleParams();
+
+        if (oModuleParams != null) {
+            Vector oParams = oModuleParams.getFeatureExtractionParams();
+
+            if (oParams != null && oParams.size() > 0) {
+                this.iWindowSize = ((Integer) oParams.elementAt(0)).intValue();
+
+                if (oParams.size() > 1) {
+                    this.iCoefficients = ((Integer) oParams.elementAt(1)).intValue();
+                }
+
+                if (oParams.size() > 2) {
+                    this.iFilters = ((Integer) oParams.elementAt(2)).intValue();
+                }
+            }
+        }
+
+        // Validate early
+        getFilterBank();
     }
 
     /**
-     * Not Implemented.
+     * Cepstral Implementation of <code>extractFeatures()</code>.
      *
-     * @return nothing
-     * @throws NotImplementedException
-     * @throws FeatureExtractionException never thrown
+     * @return <code>true</code> if features were extracted, <code>false</code> otherwise
+     * @throws FeatureExtractionException in case of any errors while doing stuff
+     * @since 0.3.0.6
      */
-    public final boolean extractFeatures()
+    public final synchronized boolean extractFeatures()
             throws FeatureExtractionException {
-        throw new NotImplementedException("Cepstral.extractFeatures()");
+        try {
+            Debug.debug("Cepstral.extractFeatures() has begun...");
+
+            MelFilterBank oBank = getFilterBank();
+            FFTPlan oPlan = FFTPlan.getPlan(this.iWindowSize, 1, FFTPlan.WINDOW_HAMMING);
+            Workspace oWorkspace = Workspace.getCurrent();
+
+            allocateBuffers();
+
+            double[] adSample = this.oPreprocessing.getSample().getSampleArray();
+            int iHalfWindow = this.iWindowSize / 2;
+            int iBins = iHalfWindow + 1;
+            int iFrames = 0;
+
+            // Framed and windowed already if shared
+            double[] adFrames = getSharedFrames(this.iWindowSize, iHalfWindow, FFTPlan.WINDOW_HAMMING, true);
+
+            this.adFeatures = new double[this.iCoefficients];
+
+            for (int iStart = 0; iStart < adSample.length; iStart += iHalfWindow) {
+                if (adFrames == null) {
+                    int iLength = Math.min(this.iWindowSize, adSample.length - iStart);
+
+                    // Padding to ^2 for the last frame
+                    System.arraycopy(adSample, iStart, this.adFrame, 0, iLength);
+                    Arrays.fill(this.adFrame, iLength, this.iWindowSize, 0);
+
+                    oPlan.applyWindow(this.adFrame);
+                } else {
+                    System.arraycopy(adFrames, iFrames * this.iWindowSize, this.adFrame, 0, this.iWindowSize);
+                }
+
+                Algorithms.FFT.realFFT(this.adFrame, this.adReal, this.adImag, oWorkspace);
+
+                for (int k = 0; k < iBins; k++) {
+                    this.adReal[k] = this.adReal[k] * this.adReal[k] + this.adImag[k] * this.adImag[k];
+                }
+
+                oBank.cepstrum(this.adReal, this.adLogEnergies, this.adCepstrum);
+
+                for (int i = 0; i < this.iCoefficients; i++) {
+                    this.adFeatures[i] += this.adCepstrum[i];
+                }
+
+                iFrames++;
+
+                if (iStart + this.iWindowSize >= adSample.length) {
+                    break;
+                }
+            }
+
+            if (iFrames > 1) {
+                for (int i = 0; i < this.iCoefficients; i++) {
+                    this.adFeatures[i] /= iFrames;
+                }
+            }
+
+            if (Debug.isDebugOn()) {
+                Debug.debug("Cepstral.extractFeatures() - number of frames = " + iFrames);
+            }
+            Debug.debug("Cepstral.extractFeatures() has finished.");
+
+            return (this.adFeatures.length > 0);
+        } catch (Exception e) {
+            throw new FeatureExtractionException(e.toString(), e);
+        }
+    }
+
+    /**
+     * Retrieves the shared filter bank of the current configuration.
+     *
+     * @return the bank
+     * @throws IllegalArgumentException if the configuration is not valid
+     * @since 0.3.0.6
+     */
+    private MelFilterBank getFilterBank() {
+        return MelFilterBank.getBank(Math.round(SampleLoader.DEFAULT_FREQUENCY), this.iWindowSize, this.iFilters, this.iCoefficients);
+    }
+
+    /**
+     * Allocates the scratch arrays unless those of a previous call fit.
+     *
+     * @since 0.3.0.6
+     */
+    private void allocateBuffers() {
+        if (this.adFrame == null || this.adFrame.length != this.iWindowSize) {
+            this.adFrame = new double[this.iWindowSize];
+            this.adReal = new double[this.iWindowSize / 2 + 1];
+            this.adImag = new double[this.iWindowSize / 2 + 1];
+        }
+
+        if (this.adLogEnergies == null || this.adLogEnergies.length != this.iFilters) {
+            this.adLogEnergies = new double[this.iFilters];
+        }
+
+        if (this.adCepstrum == null || this.adCepstrum.length != this.iCoefficients) {
+            this.adCepstrum = new double[this.iCoefficients];
+        }
+    }
+
+    /**
+     * Retrieves the analysis window size.
+     *
+     * @return the size in samples
+     * @since 0.3.0.6
+     */
+    public synchronized int getWindowSize() {
+        return this.iWindowSize;
+    }
+
+    /**
+     * Retrieves the number of coefficients, i.e. the feature vector length.
+     *
+     * @return the count
+     * @since 0.3.0.6
+     */
+    public synchronized int getCoefficients() {
+        return this.iCoefficients;
     }
 
     /**
@@ -0,0 +1,277 @@
+package marf.FeatureExtraction.Cepstral;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+
+/**
+ * <p>Mel filter bank and DCT matrix of a mel-frequency cepstrum configuration.</p>
+ *
+ * <p>The triangular filters are placed equidistantly on the mel scale
+ * between <code>MIN_FREQUENCY</code> and the Nyquist frequency, each with an
+ * area of 1 on the linear scale, as in <code>lib.comirva.MFCC</code>. As a
+ * filter only covers a few FFT bins, it is kept as its first bin and
+ * the weights from there on, so applying the bank costs a pass over the
+ * spectrum rather than a full matrix product. Both the bank and the DCT
+ * are computed once per (sample rate, window size, filters, coefficients)
+ * and shared: instances are immutable and may be used by many threads.</p>
+ *
+ * <p>$Id$</p>
+ *
+ * @author The MARF Research and Development Group
+ * @version $Revision$
+ * @see Cepstral
+ * @since 0.3.0.6
+ */
+public final class MelFilterBank {
+    /**
+     * Frequency of the left boundary of the first filter, 20 Hz.
+     */
+    public static final double MIN_FREQUENCY = 20.0;
+
+    /**
+     * Floor of the filter energies before the logarithm is taken,
+     * so that silent frames do not produce infinities.
+     */
+    public static final double MIN_ENERGY = 1.0E-12;
+
+    /**
+     * Banks built so far, keyed by their configuration.
+     */
+    private static final Map soBanks = new ConcurrentHashMap();
+
+    /**
+     * FFT window size.
+     */
+    private final int iWindowSize;
+
+    /**
+     * Number of cepstral coefficients produced.
+     */
+    private final int iCoefficients;
+
+    /**
+     * First FFT bin of every filter.
+     */
+    private final int[] aiStartBins;
+
+    /**
+     * Weights of every filter, from its first bin on.
+     */
+    private final double[][] aadWeights;
+
+    /**
+     * DCT matrix, <code>iCoefficients</code> rows of as many
+     * columns as filters, row by row.
+     */
+    private final double[] adDCT;
+
+    /**
+     * Builds a bank.
+     *
+     * @param piSampleRate   sampling frequency in Hz
+     * @param piWindowSize   FFT window size
+     * @param piFilters      number of filters
+     * @param piCoefficients number of coefficients
+     */
+    private MelFilterBank(final int piSampleRate, final int piWindowSize, final int piFilters, final int piCoefficients) {
+        double dMaxFrequency = piSampleRate / 2.0;
+        double dMinMel = linearToMel(MIN_FREQUENCY);
+        double dDeltaMel = (linearToMel(dMaxFrequency) - dMinMel) / (piFilters + 1);
+
+        double[] adBoundaries = new double[piFilters + 2];
+
+        for (int i = 0; i < adBoundaries.length; i++) {
+            adBoundaries[i] = melToLinear(dMinMel + i * dDeltaMel);
+        }
+
+        adBoundaries[0] = MIN_FREQUENCY;
+        adBoundaries[piFilters + 1] = dMaxFrequency;
+
+        int iBins = piWindowSize / 2 + 1;
+        double dBinFrequency = (double) piSampleRate / piWindowSize;
+
+        this.iWindowSize = piWindowSize;
+        this.aiStartBins = new int[piFilters];
+        this.aadWeights = new double[piFilters][];
+
+        for (int f = 0; f < piFilters; f++) {
+            double dStart = adBoundaries[f];
+            double dCenter = adBoundaries[f + 1];
+            double dEnd = adBoundaries[f + 2];
+            double dHeight = 2.0 / (dEnd - dStart);
+
+            int iFirst = (int) Math.ceil(dStart / dBinFrequency);
+            int iLast = Math.min((int) Math.floor(dEnd / dBinFrequency), iBins - 1);
+
+            if (iLast < iFirst) {
+                iLast = iFirst - 1;
+            }
+
+            double[] adWeights = new double[iLast - iFirst + 1];
+
+            for (int k = iFirst; k <= iLast; k++) {
+                double dFrequency = k * dBinFrequency;
+
+                if (dFrequency < dCenter) {
+                    adWeights[k - iFirst] = (dFrequency - dStart) * (dHeight / (dCenter - dStart));
+                } else {
+                    adWeights[k - iFirst] = dHeight - (dFrequency - dCenter) * (dHeight / (dEnd - dCenter));
+                }
+            }
+
+            this.aiStartBins[f] = iFirst;
+            this.aadWeights[f] = adWeights;
+        }
+
+        this.iCoefficients = piCoefficients;
+        this.adDCT = new double[this.iCoefficients * piFilters];
+
+        double dAngle = Math.PI / piFilters;
+        double dFirstScale = 1.0 / Math.sqrt(piFilters);
+        double dScale = Math.sqrt(2.0 / piFilters);
+
+        for (int i = 0; i < this.iCoefficients; i++) {
+            for (int j = 0; j < piFilters; j++) {
+                this.adDCT[i * piFilters + j] = (i == 0 ? dFirstScale : dScale) * Math.cos(dAngle * i * (j + 0.5));
+            }
+        }
+    }
+
+    /**
+     * Retrieves the bank of a configuration, building it on first use.
+     *
+     * @param piSampleRate   sampling frequency in Hz
+     * @param piWindowSize   FFT window size; a power of 2
+     * @param piFilters      number of filters
+     * @param piCoefficients number of coefficients; no more than the filters
+     * @return the shared bank
+     * @throws IllegalArgumentException if the configuration is not valid
+     */
+    public static MelFilterBank getBank(final int piSampleRate, final int piWindowSize, final int piFilters, final int piCoefficients) {
+        if (piSampleRate < 2 * MIN_FREQUENCY) {
+            throw new IllegalArgumentException("Sample rate (" + piSampleRate + ") is too low.");
+        }
+
+        if ((piWindowSize < 2) | ((piWindowSize & (piWindowSize - 1)) != 0)) {
+            throw new IllegalArgumentException("Window size (" + piWindowSize + ") is not a power of 2.");
+        }
+
+        if (piFilters < 2 || piFilters > piWindowSize / 2 + 1) {
+            throw new IllegalArgumentException
+                    (
+                            "Number of filters (" + piFilters + ") is not between 2 and " + (piWindowSize / 2 + 1) + "."
+                    );
+        }
+
+        if (piCoefficients < 1 || piCoefficients > piFilters) {
+            throw new IllegalArgumentException
+                    (
+                            "Number of coefficients (" + piCoefficients + ") is not between 1 and " + piFilters + "."
+                    );
+        }
+
+        String strKey = piSampleRate + ":" + piWindowSize + ":" + piFilters + ":" + piCoefficients;
+        MelFilterBank oBank = (MelFilterBank) soBanks.get(strKey);
+
+        if (oBank == null) {
+            // Racing builders produce equal banks; either one will do
+            oBank = new MelFilterBank(piSampleRate, piWindowSize, piFilters, piCoefficients);
+            soBanks.put(strKey, oBank);
+        }
+
+        return oBank;
+    }
+
+    /**
+     * Computes the cepstral coefficients of a frame from its power spectrum.
+     *
+     * @param padPower       power of the FFT bins <code>0..N/2</code> of the frame
+     * @param padLogEnergies scratch array of at least as many elements as filters
+     * @param padCepstrum    receives the coefficients, at least <code>getCoefficients()</code> long
+     */
+    public void cepstrum(final double[] padPower, double[] padLogEnergies, double[] padCepstrum) {
+        int iFilters = this.aiStartBins.length;
+
+        for (int f = 0; f < iFilters; f++) {
+            double[] adWeights = this.aadWeights[f];
+            int iStart = this.aiStartBins[f];
+            double dEnergy = 0.0;
+
+            for (int k = 0; k < adWeights.length; k++) {
+                dEnergy += adWeights[k] * padPower[iStart + k];
+            }
+
+            padLogEnergies[f] = Math.log(Math.max(dEnergy, MIN_ENERGY));
+        }
+
+        for (int i = 0; i < this.iCoefficients; i++) {
+            int iRow = i * iFilters;
+            double dSum = 0.0;
+
+            for (int j = 0; j < iFilters; j++) {
+                dSum += this.adDCT[iRow + j] * padLogEnergies[j];
+            }
+
+            padCepstrum[i] = dSum;
+        }
+    }
+
+    /**
+     * Mel frequency of a linear frequency.
+     *
+     * @param pdFrequency frequency in Hz
+     * @return frequency in mels
+     */
+    public static double linearToMel(final double pdFrequency) {
+        return 2595.0 * Math.log(1.0 + pdFrequency / 700.0) / Math.log(10.0);
+    }
+
+    /**
+     * Linear frequency of a mel frequency.
+     *
+     * @param pdMel frequency in mels
+     * @return frequency in Hz
+     */
+    public static double melToLinear(final double pdMel) {
+        return 700.0 * (Math.pow(10.0, pdMel / 2595.0) - 1.0);
+    }
+
+    /**
+     * Retrieves the FFT window size.
+     *
+     * @return the size
+     */
+    public int getWindowSize() {
+        return this.iWindowSize;
+    }
+
+    /**
+     * Retrieves the number of filters.
+     *
+     * @return the count
+     */
+    public int getFilters() {
+        return this.aiStartBins.length;
+    }
+
+    /**
+     * Retrieves the number of coefficients produced.
+     *
+     * @return the count
+     */
+    public int getCoefficients() {
+        return this.iCoefficients;
+    }
+
+    /**
+     * Returns source code revision information.
+     *
+     * @return revision string
+     */
+    public static String getMARFSourceCodeRevision() {
+        return "$Revision$";
+    }
+}
+
+// EOF
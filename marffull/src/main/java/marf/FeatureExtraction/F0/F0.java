@@ -1,13 +1,44 @@
 package marf.FeatureExtraction.F0;
 
+import java.util.Vector;
+
 import marf.FeatureExtraction.FeatureExtraction;
 import marf.FeatureExtraction.FeatureExtractionException;
+import marf.FeatureExtraction.IStreamingFeatureExtraction;
+import marf.MARF;
 import marf.Preprocessing.IPreprocessing;
-import marf.util.NotImplementedException;
+import marf.Storage.ModuleParams;
+import marf.Storage.SampleLoader;
+import marf.math.Algorithms;
+import marf.math.MathException;
+import marf.math.Workspace;
+import marf.util.Arrays;
+import marf.util.Debug;
 
 
 /**
  * <p>Class F0 - the Fundamental Frequency Extraction.</p>
+ *
+ * <p>The pitch is tracked frame by frame with the YIN estimator: the
+ * difference function of a frame, <code>d(tau) = sum (x[j] - x[j + tau])<sup>2</sup></code>
+ * over an integration window as long as the longest period, is normalized
+ * by its cumulative mean, and the first dip below <code>THRESHOLD</code> within
+ * the allowed lags, refined by parabolic interpolation, gives the period.
+ * The cross terms of <code>d(tau)</code> are computed for all the lags at once as
+ * a correlation with <code>Algorithms.FFT</code>, and the energy terms
+ * from running sums, so a frame costs three real FFTs of twice the longest
+ * period. Frames with no dip below the threshold, or much quieter than
+ * the loudest frame, are unvoiced.</p>
+ *
+ * <p>The per-frame pitch contour, 0 in the unvoiced frames, is available
+ * through <code>getPitchContour()</code>. The feature vector summarizes the
+ * voiced frames: mean, standard deviation, minimum, maximum, and median
+ * F0 in Hz, followed by the fraction of the frames that are voiced.
+ * The module streams, and <code>extractFeatures()</code> streams the
+ * whole sample, so both modes give the same results.</p>
+ *
+ * <p>The optional feature extraction module parameters are, in order,
+ * the lowest and the highest F0 to detect in Hz.</p>
  * <p>
  * <p>$Id: F0.java,v 1.16 2005/08/14 01:15:55 mokhov Exp $</p>
  *
@@ -16,7 +47,52 @@ import marf.util.NotImplementedException;
  * @since 0.0.1
  */
 public class F0
-        extends FeatureExtraction {
+        extends FeatureExtraction
+        implements IStreamingFeatureExtraction {
+    /**
+     * Default lowest F0 to detect, 60 Hz.
+     *
+     * @since 0.3.0.6
+     */
+    public static final int DEFAULT_MIN_FREQUENCY = 60;
+
+    /**
+     * Default highest F0 to detect, 400 Hz.
+     *
+     * @since 0.3.0.6
+     */
+    public static final int DEFAULT_MAX_FREQUENCY = 400;
+
+    /**
+     * Threshold of the normalized difference function below which
+     * a lag is taken as the period, 0.15.
+     *
+     * @since 0.3.0.6
+     */
+    public static final double THRESHOLD = 0.15;
+
+    /**
+     * Energy of a frame relative to the loudest one below which
+     * the frame is unvoiced, 1e-4 (-40 dB).
+     *
+     * @since 0.3.0.6
+     */
+    public static final double SILENCE_RATIO = 1.0E-4;
+
+    /**
+     * Number of frames per second, 100.
+     *
+     * @since 0.3.0.6
+     */
+    public static final int FRAMES_PER_SECOND = 100;
+
+    /**
+     * Length of the feature vector.
+     *
+     * @since 0.3.0.6
+     */
+    public static final int FEATURES = 6;
+
     /**
      * For serialization versioning.
      * When adding new members or make other structural
@@ -27,25 +103,453 @@ public class F0
      */
     private static final long serialVersionUID = -3839525282289019623L;
 
+    /**
+     * Sampling frequency.
+     *
+     * @since 0.3.0.6
+     */
+    private final int iSampleRate = Math.round(SampleLoader.DEFAULT_FREQUENCY);
+
+    /**
+     * Shortest and longest period in samples.
+     *
+     * @since 0.3.0.6
+     */
+    private int iMinLag, iMaxLag;
+
+    /**
+     * Number of samples between the starts of consecutive frames.
+     *
+     * @since 0.3.0.6
+     */
+    private int iHopSize;
+
+    /**
+     * Pitch of the frames so far in Hz, 0 if unvoiced; only the
+     * first <code>iFrames</code> elements are valid.
+     *
+     * @since 0.3.0.6
+     */
+    private double[] adContour = new double[0];
+
+    /**
+     * Mean energy of the frames so far.
+     *
+     * @since 0.3.0.6
+     */
+    private transient double[] adEnergies = null;
+
+    /**
+     * Number of frames so far.
+     *
+     * @since 0.3.0.6
+     */
+    private int iFrames = 0;
+
+    /**
+     * Current frame in the streamed mode; <code>null</code> when not streaming.
+     *
+     * @since 0.3.0.6
+     */
+    private transient double[] adStreamFrame = null;
+
+    /**
+     * Number of samples in the current frame.
+     *
+     * @since 0.3.0.6
+     */
+    private transient int iStreamFramePos = 0;
+
+    /**
+     * Scratch arrays: FFT input of the integration window and of the whole frame,
+     * their spectra, the correlation, the running sum of squares, and the
+     * normalized difference function.
+     *
+     * @since 0.3.0.6
+     */
+    private transient double[]
+            adWindow = null, adFrame = null,
+            adWindowReal = null, adWindowImag = null, adFrameReal = null, adFrameImag = null,
+            adCorrelation = null, adSquares = null, adDifference = null;
+
     /**
      * F0 Constructor.
      *
      * @param poPreprocessing Preprocessing module reference
+     * @throws ClassCastException       if a feature extraction module parameter
+     *                                  supplied and is not of type Integer
+     * @throws IllegalArgumentException if the frequency range is not valid
      */
     public F0(IPreprocessing poPreprocessing) {
         super(poPreprocessing);
+
+        int iMinFrequency = DEFAULT_MIN_FREQUENCY;
+        int iMaxFrequency = DEFAULT_MAX_FREQUENCY;
+
+        ModuleParams oModuleParams = MARF.getModuleParams();
+
+        if (oModuleParams != null) {
+            Vector oParams = oModuleParams.getFeatureExtractionParams();
+
+            if (oParams != null && oParams.size() > 1) {
+                iMinFrequency = ((Integer) oParams.elementAt(0)).intValue();
+                iMaxFrequency = ((Integer) oParams.elementAt(1)).intValue();
+            }
+        }
+
+        setFrequencyRange(iMinFrequency, iMaxFrequency);
+    }
+
+    /**
+     * F0 Implementation of <code>extractFeatures()</code>: streams
+     * the whole preprocessed sample.
+     *
+     * @return <code>true</code> if features were extracted, <code>false</code> otherwise
+     * @throws FeatureExtractionException in case of any errors while doing stuff
+     * @since 0.3.0.6
+     */
+    public final synchronized boolean extractFeatures()
+            throws FeatureExtractionException {
+        Debug.debug("F0.extractFeatures() has begun...");
+
+        double[] adSample = this.oPreprocessing.getSample().getSampleArray();
+
+        beginStream();
+        extractChunk(adSample, adSample.length);
+        boolean bExtracted = endStream(1.0);
+
+        Debug.debug("F0.extractFeatures() has finished.");
+
+        return bExtracted;
     }
 
     /**
-     * Not Implemented.
+     * Starts a new stream, clearing the contour.
      *
-     * @return nothing
-     * @throws NotImplementedException
      * @throws FeatureExtractionException never thrown
+     * @since 0.3.0.6
+     */
+    public synchronized void beginStream()
+            throws FeatureExtractionException {
+        int iFrameLength = 2 * this.iMaxLag;
+        int iFFTLength = 1;
+
+        while (iFFTLength < iFrameLength) {
+            iFFTLength <<= 1;
+        }
+
+        if (this.adWindow == null || this.adWindow.length != iFFTLength || this.adDifference.length != this.iMaxLag + 2) {
+            this.adWindow = new double[iFFTLength];
+            this.adFrame = new double[iFFTLength];
+            this.adWindowReal = new double[iFFTLength / 2 + 1];
+            this.adWindowImag = new double[iFFTLength / 2 + 1];
+            this.adFrameReal = new double[iFFTLength / 2 + 1];
+            this.adFrameImag = new double[iFFTLength / 2 + 1];
+            this.adCorrelation = new double[iFFTLength];
+            this.adSquares = new double[iFrameLength + 1];
+            this.adDifference = new double[this.iMaxLag + 2];
+        }
+
+        this.adStreamFrame = new double[iFrameLength];
+        this.iStreamFramePos = 0;
+
+        this.adContour = new double[64];
+        this.adEnergies = new double[64];
+        this.iFrames = 0;
+    }
+
+    /**
+     * Tracks the pitch of the frames completed by the chunk.
+     *
+     * @param padChunk chunk of preprocessed audio data
+     * @param piLength number of valid elements in the chunk
+     * @throws FeatureExtractionException if the stream has not been begun
+     *                                    or the FFT fails
+     * @since 0.3.0.6
      */
-    public final boolean extractFeatures()
+    public synchronized void extractChunk(double[] padChunk, int piLength)
             throws FeatureExtractionException {
-        throw new NotImplementedException("F0.extractFeatures()");
+        if (this.adStreamFrame == null) {
+            throw new FeatureExtractionException("F0.extractChunk() - beginStream() has not been called.");
+        }
+
+        int iFrameLength = this.adStreamFrame.length;
+        int iOffset = 0;
+
+        while (iOffset < piLength) {
+            int iCount = Math.min(piLength - iOffset, iFrameLength - this.iStreamFramePos);
+
+            System.arraycopy(padChunk, iOffset, this.adStreamFrame, this.iStreamFramePos, iCount);
+
+            iOffset += iCount;
+            this.iStreamFramePos += iCount;
+
+            if (this.iStreamFramePos == iFrameLength) {
+                trackFrame();
+
+                // Keep the overlap with the next frame
+                System.arraycopy(this.adStreamFrame, this.iHopSize, this.adStreamFrame, 0, iFrameLength - this.iHopSize);
+                this.iStreamFramePos = iFrameLength - this.iHopSize;
+            }
+        }
+    }
+
+    /**
+     * Tracks a zero-padded frame if the stream was shorter than one,
+     * unvoices the quiet frames, and summarizes the contour. The pitch
+     * does not depend on the gain, which is thus ignored.
+     *
+     * @param pdGain deferred preprocessing gain of the whole stream
+     * @return <code>true</code> if there were features extracted, <code>false</code> otherwise
+     * @throws FeatureExtractionException if the stream has not been begun
+     *                                    or the FFT fails
+     * @since 0.3.0.6
+     */
+    public synchronized boolean endStream(double pdGain)
+            throws FeatureExtractionException {
+        if (this.adStreamFrame == null) {
+            throw new FeatureExtractionException("F0.endStream() - beginStream() has not been called.");
+        }
+
+        if (this.iFrames == 0 && this.iStreamFramePos > 0) {
+            Arrays.fill(this.adStreamFrame, this.iStreamFramePos, this.adStreamFrame.length, 0);
+            trackFrame();
+        }
+
+        double dMaxEnergy = 0.0;
+
+        for (int i = 0; i < this.iFrames; i++) {
+            dMaxEnergy = Math.max(dMaxEnergy, this.adEnergies[i]);
+        }
+
+        int iVoiced = 0;
+
+        for (int i = 0; i < this.iFrames; i++) {
+            if (this.adEnergies[i] <= dMaxEnergy * SILENCE_RATIO) {
+                this.adContour[i] = 0.0;
+            } else if (this.adContour[i] > 0.0) {
+                iVoiced++;
+            }
+        }
+
+        this.adFeatures = summarize(iVoiced);
+
+        if (Debug.isDebugOn()) {
+            Debug.debug("F0.endStream() - number of frames = " + this.iFrames + ", voiced = " + iVoiced);
+        }
+
+        this.adStreamFrame = null;
+        this.adEnergies = null;
+
+        return (this.adFeatures.length > 0);
+    }
+
+    /**
+     * Computes the summary features of the contour.
+     *
+     * @param piVoiced number of voiced frames
+     * @return the feature vector
+     * @since 0.3.0.6
+     */
+    private double[] summarize(final int piVoiced) {
+        double[] adSummary = new double[FEATURES];
+
+        if (piVoiced == 0) {
+            return adSummary;
+        }
+
+        double[] adVoiced = new double[piVoiced];
+        double dSum = 0.0;
+        int j = 0;
+
+        for (int i = 0; i < this.iFrames; i++) {
+            if (this.adContour[i] > 0.0) {
+                adVoiced[j++] = this.adContour[i];
+                dSum += this.adContour[i];
+            }
+        }
+
+        java.util.Arrays.sort(adVoiced);
+
+        double dMean = dSum / piVoiced;
+        double dVariance = 0.0;
+
+        for (int i = 0; i < piVoiced; i++) {
+            dVariance += (adVoiced[i] - dMean) * (adVoiced[i] - dMean);
+        }
+
+        adSummary[0] = dMean;
+        adSummary[1] = Math.sqrt(dVariance / piVoiced);
+        adSummary[2] = adVoiced[0];
+        adSummary[3] = adVoiced[piVoiced - 1];
+        adSummary[4] = (piVoiced % 2 == 1)
+                ? adVoiced[piVoiced / 2]
+                : (adVoiced[piVoiced / 2 - 1] + adVoiced[piVoiced / 2]) / 2;
+        adSummary[5] = (double) piVoiced / this.iFrames;
+
+        return adSummary;
+    }
+
+    /**
+     * Estimates the pitch of the current stream frame and appends it to the contour.
+     *
+     * @throws FeatureExtractionException if the FFT fails
+     * @since 0.3.0.6
+     */
+    private void trackFrame()
+            throws FeatureExtractionException {
+        int iWindowLength = this.iMaxLag;
+        int iFrameLength = this.adStreamFrame.length;
+        int iFFTLength = this.adFrame.length;
+
+        System.arraycopy(this.adStreamFrame, 0, this.adWindow, 0, iWindowLength);
+        Arrays.fill(this.adWindow, iWindowLength, iFFTLength, 0);
+        System.arraycopy(this.adStreamFrame, 0, this.adFrame, 0, iFrameLength);
+        Arrays.fill(this.adFrame, iFrameLength, iFFTLength, 0);
+
+        // r(tau) = sum x[j] * x[j + tau] over the window, for all lags at once
+        try {
+            Workspace oWorkspace = Workspace.getCurrent();
+
+            Algorithms.FFT.realFFT(this.adWindow, this.adWindowReal, this.adWindowImag, oWorkspace);
+            Algorithms.FFT.realFFT(this.adFrame, this.adFrameReal, this.adFrameImag, oWorkspace);
+
+            for (int k = 0; k <= iFFTLength / 2; k++) {
+                double dReal = this.adWindowReal[k] * this.adFrameReal[k] + this.adWindowImag[k] * this.adFrameImag[k];
+                double dImag = this.adWindowReal[k] * this.adFrameImag[k] - this.adWindowImag[k] * this.adFrameReal[k];
+
+                this.adFrameReal[k] = dReal;
+                this.adFrameImag[k] = dImag;
+            }
+
+            Algorithms.FFT.inverseRealFFT(this.adFrameReal, this.adFrameImag, this.adCorrelation, oWorkspace);
+        } catch (MathException e) {
+            throw new FeatureExtractionException(e);
+        }
+
+        this.adSquares[0] = 0.0;
+
+        for (int i = 0; i < iFrameLength; i++) {
+            this.adSquares[i + 1] = this.adSquares[i] + this.adStreamFrame[i] * this.adStreamFrame[i];
+        }
+
+        // Cumulative mean normalized difference function
+        double dEnergy = this.adSquares[iWindowLength];
+        double dScale = 1.0 / iFFTLength;
+        double dRunningSum = 0.0;
+
+        this.adDifference[0] = 1.0;
+
+        for (int iLag = 1; iLag <= this.iMaxLag; iLag++) {
+            double dDifference = dEnergy
+                    + (this.adSquares[iLag + iWindowLength] - this.adSquares[iLag])
+                    - 2.0 * dScale * this.adCorrelation[iLag];
+
+            dRunningSum += dDifference;
+
+            this.adDifference[iLag] = dRunningSum > 0.0 ? dDifference * iLag / dRunningSum : 1.0;
+        }
+
+        appendFrame(estimatePitch(), dEnergy / iWindowLength);
+    }
+
+    /**
+     * Picks the period from the normalized difference function.
+     *
+     * @return F0 in Hz, or 0 if there is no period
+     * @since 0.3.0.6
+     */
+    private double estimatePitch() {
+        double[] adD = this.adDifference;
+
+        for (int iLag = this.iMinLag; iLag < this.iMaxLag; iLag++) {
+            if (adD[iLag] < THRESHOLD) {
+                while (iLag + 1 < this.iMaxLag && adD[iLag + 1] < adD[iLag]) {
+                    iLag++;
+                }
+
+                double dPeriod = iLag;
+                double dCurvature = adD[iLag - 1] - 2.0 * adD[iLag] + adD[iLag + 1];
+
+                if (dCurvature > 0.0) {
+                    dPeriod += 0.5 * (adD[iLag - 1] - adD[iLag + 1]) / dCurvature;
+                }
+
+                return this.iSampleRate / dPeriod;
+            }
+        }
+
+        return 0.0;
+    }
+
+    /**
+     * Appends a frame to the contour, growing it as needed.
+     *
+     * @param pdPitch  F0 of the frame
+     * @param pdEnergy mean energy of the frame
+     * @since 0.3.0.6
+     */
+    private void appendFrame(final double pdPitch, final double pdEnergy) {
+        if (this.iFrames == this.adContour.length) {
+            double[] adContour = new double[this.iFrames * 2];
+            double[] adEnergies = new double[this.iFrames * 2];
+
+            System.arraycopy(this.adContour, 0, adContour, 0, this.iFrames);
+            System.arraycopy(this.adEnergies, 0, adEnergies, 0, this.iFrames);
+
+            this.adContour = adContour;
+            this.adEnergies = adEnergies;
+        }
+
+        this.adContour[this.iFrames] = pdPitch;
+        this.adEnergies[this.iFrames] = pdEnergy;
+        this.iFrames++;
+    }
+
+    /**
+     * Sets the range of F0 to detect.
+     *
+     * @param piMinFrequency lowest F0 in Hz
+     * @param piMaxFrequency highest F0 in Hz
+     * @throws IllegalArgumentException if the range is empty or
+     *                                  does not fit the sampling frequency
+     * @since 0.3.0.6
+     */
+    public synchronized void setFrequencyRange(final int piMinFrequency, final int piMaxFrequency) {
+        if (piMinFrequency < 1 || piMaxFrequency <= piMinFrequency || piMaxFrequency > this.iSampleRate / 4) {
+            throw new IllegalArgumentException
+                    (
+                            "F0 range [" + piMinFrequency + ", " + piMaxFrequency + "] Hz is not valid at "
+                                    + this.iSampleRate + " Hz."
+                    );
+        }
+
+        this.iMinLag = Math.max(2, this.iSampleRate / piMaxFrequency);
+        this.iMaxLag = (this.iSampleRate + piMinFrequency - 1) / piMinFrequency + 1;
+        this.iHopSize = Math.min(this.iSampleRate / FRAMES_PER_SECOND, 2 * this.iMaxLag);
+    }
+
+    /**
+     * Retrieves the pitch contour of the last sample or stream.
+     *
+     * @return F0 in Hz of every frame, 0 in the unvoiced ones
+     * @since 0.3.0.6
+     */
+    public synchronized double[] getPitchContour() {
+        double[] adCopy = new double[this.iFrames];
+        System.arraycopy(this.adContour, 0, adCopy, 0, this.iFrames);
+        return adCopy;
+    }
+
+    /**
+     * Retrieves the number of samples between the starts of consecutive
+     * frames of the contour.
+     *
+     * @return the hop size
+     * @since 0.3.0.6
+     */
+    public synchronized int getHopSize() {
+        return this.iHopSize;
     }
 
     /**
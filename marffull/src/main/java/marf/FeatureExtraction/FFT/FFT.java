@@ -4,6 +4,7 @@ import java.util.Vector;
 
 import marf.FeatureExtraction.FeatureExtraction;
 import marf.FeatureExtraction.FeatureExtractionException;
+import marf.FeatureExtraction.IStreamingFeatureExtraction;
 import marf.MARF;
 import marf.Preprocessing.IPreprocessing;
 import marf.Storage.ModuleParams;
@@ -11,6 +12,9 @@ import marf.Storage.SampleLoader;
 import marf.gui.Spectrogram;
 import marf.gui.WaveGrapher;
 import marf.math.Algorithms;
+import marf.math.FFTPlan;
+import marf.math.MathException;
+import marf.math.Workspace;
 import marf.util.Arrays;
 import marf.util.Debug;
 
@@ -26,7 +30,8 @@ import marf.util.Debug;
  * @since 0.0.1
  */
 public class FFT
-        extends FeatureExtraction {
+        extends FeatureExtraction
+        implements IStreamingFeatureExtraction {
     /**
      * Default number (1024) of doubles per chunk in the window.
      * Feature vector will be half of the chunk size.
@@ -51,6 +56,51 @@ public class FFT
      */
     private static final long serialVersionUID = 4400274959804693096L;
 
+    /**
+     * Current analysis frame in the streamed mode.
+     *
+     * @since 0.3.0.6
+     */
+    private transient double[] adStreamFrame = null;
+
+    /**
+     * Number of samples in the current frame in the streamed mode.
+     *
+     * @since 0.3.0.6
+     */
+    private transient int iStreamFramePos = 0;
+
+    /**
+     * Whether, in the streamed mode, the window position of
+     * <code>extractFeatures()</code> is half a chunk in, so that
+     * the chunk read next is not processed.
+     *
+     * @since 0.3.0.6
+     */
+    private transient boolean bStreamHalfWindow = false;
+
+    /**
+     * Whether, in the streamed mode, the next chunk is read while
+     * filling the window, replacing the unprocessed one.
+     *
+     * @since 0.3.0.6
+     */
+    private transient boolean bStreamFillRead = false;
+
+    /**
+     * Number of frames processed in the streamed mode.
+     *
+     * @since 0.3.0.6
+     */
+    private transient int iStreamFrameCount = 0;
+
+    /**
+     * Scratch arrays of the streamed mode: windowed frame, magnitude, and phase angle.
+     *
+     * @since 0.3.0.6
+     */
+    private transient double[] adStreamWindowed = null, adStreamMagnitude = null, adStreamPhaseAngle = null;
+
     /**
      * FFT Constructor.
      *
@@ -93,8 +143,14 @@ public class FFT
 
             int iHalfChunkSize = this.iChunkSize / 2;
 
-            double[] adSampleChunk = new double[this.iChunkSize];
-            double[] adSampleArray = null;
+            FFTPlan oPlan = FFTPlan.getPlan(this.iChunkSize, 1, FFTPlan.WINDOW_HAMMING);
+            Workspace oWorkspace = Workspace.getCurrent();
+
+            // Frame buffers are reused between calls; only the chunk has to start out clean
+            double[] adSampleChunk = oWorkspace.getFrame(Workspace.FRAME_CHUNK, this.iChunkSize);
+            double[] adSampleArray = oWorkspace.getFrame(Workspace.FRAME_WINDOWED, this.iChunkSize);
+
+            Arrays.fill(adSampleChunk, 0);
 
             int iNbrDataRecv = 0;
             int iWindowPos = 0;
@@ -106,8 +162,8 @@ public class FFT
 
             this.adFeatures = new double[iHalfChunkSize];
 
-            double[] adMagnitude = new double[iHalfChunkSize];
-            double[] adPhaseAngle = new double[iHalfChunkSize];
+            double[] adMagnitude = oWorkspace.getFrame(Workspace.FRAME_MAGNITUDE, iHalfChunkSize);
+            double[] adPhaseAngle = oWorkspace.getFrame(Workspace.FRAME_PHASE_ANGLE, iHalfChunkSize);
 
             // For the case when we want intermediate spectrogram
             if (MARF.getDumpSpectrogram() == true) {
@@ -136,8 +192,8 @@ public class FFT
                 }
 
                 //XXX: hamming(adSampleChunk);
-                adSampleArray = (double[]) adSampleChunk.clone();
-                Algorithms.Hamming.hamming(adSampleArray);
+                System.arraycopy(adSampleChunk, 0, adSampleArray, 0, this.iChunkSize);
+                oPlan.applyWindow(adSampleArray);
 
                 // overlap windows
                 iWindowPos = (iWindowPos - iHalfChunkSize) % this.iChunkSize;
@@ -147,7 +203,7 @@ public class FFT
                 }
 
                 //XXX: normalFFT(adSampleChunk, adMagnitude, adPhaseAngle);
-                Algorithms.FFT.normalFFT(adSampleArray, adMagnitude, adPhaseAngle);
+                Algorithms.FFT.normalFFT(adSampleArray, adMagnitude, adPhaseAngle, oWorkspace);
 
                 iCount++;
 
@@ -193,6 +249,173 @@ public class FFT
         }
     }
 
+    /**
+     * Starts a new stream. The stream is cut into chunks and framed exactly
+     * as <code>extractFeatures()</code> frames the whole sample, skipping
+     * and padding the same chunks, so that the features of the two are
+     * the same, to rounding, and may go into the same training set.
+     *
+     * @throws FeatureExtractionException never thrown
+     * @since 0.3.0.6
+     */
+    public synchronized void beginStream()
+            throws FeatureExtractionException {
+        int iHalfChunkSize = this.iChunkSize / 2;
+
+        this.adStreamFrame = new double[this.iChunkSize];
+        this.adStreamWindowed = new double[this.iChunkSize];
+        this.adStreamMagnitude = new double[iHalfChunkSize];
+        this.adStreamPhaseAngle = new double[iHalfChunkSize];
+        this.adFeatures = new double[iHalfChunkSize];
+
+        this.iStreamFramePos = 0;
+        this.iStreamFrameCount = 0;
+        this.bStreamHalfWindow = false;
+        this.bStreamFillRead = false;
+    }
+
+    /**
+     * Accumulates the magnitude spectra of the frames completed by the chunk.
+     * The samples are read into the frame as <code>extractFeatures()</code>
+     * reads them into its chunk array, the frame keeping the samples of
+     * the previous chunk past a short one.
+     *
+     * @param padChunk chunk of preprocessed audio data
+     * @param piLength number of valid elements in the chunk
+     * @throws FeatureExtractionException if the stream has not been begun
+     * @since 0.3.0.6
+     */
+    public synchronized void extractChunk(double[] padChunk, int piLength)
+            throws FeatureExtractionException {
+        if (this.adStreamFrame == null) {
+            throw new FeatureExtractionException("FFT.extractChunk() - beginStream() has not been called.");
+        }
+
+        int iOffset = 0;
+
+        while (iOffset < piLength) {
+            int iCount = Math.min(piLength - iOffset, this.iChunkSize - this.iStreamFramePos);
+
+            System.arraycopy(padChunk, iOffset, this.adStreamFrame, this.iStreamFramePos, iCount);
+
+            iOffset += iCount;
+            this.iStreamFramePos += iCount;
+
+            if (this.iStreamFramePos == this.iChunkSize) {
+                readStreamChunk(this.iChunkSize);
+                this.iStreamFramePos = 0;
+            }
+        }
+    }
+
+    /**
+     * Processes the zero-padded last frame, if any, and averages the
+     * accumulated spectra. The FFT magnitude is linear in the amplitude,
+     * so the deferred preprocessing gain is applied to the average.
+     *
+     * @param pdGain deferred preprocessing gain of the whole stream
+     * @return <code>true</code> if there were features extracted, <code>false</code> otherwise
+     * @throws FeatureExtractionException if the stream has not been begun
+     * @since 0.3.0.6
+     */
+    public synchronized boolean endStream(double pdGain)
+            throws FeatureExtractionException {
+        if (this.adStreamFrame == null) {
+            throw new FeatureExtractionException("FFT.endStream() - beginStream() has not been called.");
+        }
+
+        // The short last chunk, if any, then reads past the end
+        boolean bMore = this.iStreamFramePos == 0 || readStreamChunk(this.iStreamFramePos);
+
+        while (bMore) {
+            bMore = readStreamChunk(0);
+        }
+
+        double dScale = pdGain;
+
+        if (this.iStreamFrameCount > 1) {
+            dScale /= this.iStreamFrameCount;
+        }
+
+        for (int i = 0; i < this.adFeatures.length; i++) {
+            this.adFeatures[i] *= dScale;
+        }
+
+        if (Debug.isDebugOn()) {
+            Debug.debug("FFT.endStream() - number of frames = " + this.iStreamFrameCount);
+        }
+
+        this.adStreamFrame = null;
+        this.adStreamWindowed = null;
+        this.adStreamMagnitude = null;
+        this.adStreamPhaseAngle = null;
+
+        return (this.adFeatures.length > 0);
+    }
+
+    /**
+     * Goes through a chunk read of the loop of <code>extractFeatures()</code>.
+     * Every other iteration of the loop starts half a window in, and reads
+     * a chunk while filling the window, which replaces the chunk read at
+     * the end of the previous iteration unprocessed, and is padded with
+     * zeros but for its last element if short.
+     *
+     * @param piLength number of samples read into the frame; 0 past the end
+     * @return <code>false</code> once the loop ends
+     * @throws FeatureExtractionException if the FFT fails
+     * @since 0.3.0.6
+     */
+    private boolean readStreamChunk(final int piLength)
+            throws FeatureExtractionException {
+        if (this.bStreamFillRead) {
+            if (piLength > 0 && piLength < this.iChunkSize) {
+                Arrays.fill(this.adStreamFrame, piLength, this.iChunkSize - 1, 0);
+            }
+
+            this.bStreamFillRead = false;
+            this.bStreamHalfWindow = false;
+            accumulateStreamFrame();
+            return true;
+        }
+
+        if (piLength <= 0) {
+            return false;
+        }
+
+        if (this.bStreamHalfWindow) {
+            this.bStreamFillRead = true;
+        } else {
+            accumulateStreamFrame();
+            this.bStreamHalfWindow = this.iChunkSize > 1;
+        }
+
+        return true;
+    }
+
+    /**
+     * Windows the current stream frame and adds its magnitude spectrum to the features.
+     *
+     * @throws FeatureExtractionException if the FFT fails
+     * @since 0.3.0.6
+     */
+    private void accumulateStreamFrame()
+            throws FeatureExtractionException {
+        System.arraycopy(this.adStreamFrame, 0, this.adStreamWindowed, 0, this.iChunkSize);
+
+        try {
+            FFTPlan.getPlan(this.iChunkSize, 1, FFTPlan.WINDOW_HAMMING).applyWindow(this.adStreamWindowed);
+            Algorithms.FFT.normalFFT(this.adStreamWindowed, this.adStreamMagnitude, this.adStreamPhaseAngle);
+        } catch (MathException e) {
+            throw new FeatureExtractionException(e);
+        }
+
+        for (int i = 0; i < this.adFeatures.length; i++) {
+            this.adFeatures[i] += this.adStreamMagnitude[i];
+        }
+
+        this.iStreamFrameCount++;
+    }
+
     /**
      * Allows setting a non-default chunk size.
      * Must be a power of 2.
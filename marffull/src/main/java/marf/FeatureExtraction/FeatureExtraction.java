@@ -29,6 +29,13 @@ public abstract class FeatureExtraction
      */
     protected double[] adFeatures = null;
 
+    /**
+     * Frames shared with other feature extractors of the same sample, if any.
+     *
+     * @since 0.3.0.6
+     */
+    protected transient SharedFrames oSharedFrames = null;
+
     /**
      * For serialization versioning.
      * When adding new members or make other structural
@@ -88,6 +95,43 @@ public abstract class FeatureExtraction
         this.adFeatures = (double[]) this.oObjectToSerialize;
     }
 
+    /**
+     * Allows sharing the frames of the sample with other feature extractors.
+     *
+     * @param poSharedFrames the frames of the sample of the preprocessing
+     *                       module, or <code>null</code> to frame it alone
+     * @see FeatureExtractionAggregator
+     * @since 0.3.0.6
+     */
+    public void setSharedFrames(SharedFrames poSharedFrames) {
+        this.oSharedFrames = poSharedFrames;
+    }
+
+    /**
+     * Retrieves the windowed frames of the preprocessed sample from the
+     * shared frames, if they were set for this very sample. A module
+     * framing the sample alone goes on framing it into its own buffer,
+     * one frame at a time.
+     *
+     * @param piSize    frame size
+     * @param piHop     number of samples between the starts of consecutive frames
+     * @param piWindow  one of the <code>FFTPlan.WINDOW_*</code> constants
+     * @param pbPadTail whether the last frame may run past the end of the sample, zero-padded
+     * @return the frames one after another, <code>piSize</code> elements each; read-only;
+     * or <code>null</code> if there are no shared frames of the sample
+     * @see SharedFrames#getFrames(int, int, int, boolean)
+     * @since 0.3.0.6
+     */
+    protected double[] getSharedFrames(final int piSize, final int piHop, final int piWindow, final boolean pbPadTail) {
+        SharedFrames oFrames = this.oSharedFrames;
+
+        if (oFrames == null || !oFrames.isOf(this.oPreprocessing.getSample().getSampleArray())) {
+            return null;
+        }
+
+        return oFrames.getFrames(piSize, piHop, piWindow, pbPadTail);
+    }
+
     /**
      * Implementes Cloneable interface for the FeatureExtraction object.
      * The contained Preprocessing isn't cloned at this point,
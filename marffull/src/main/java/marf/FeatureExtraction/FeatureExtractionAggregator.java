@@ -1,13 +1,20 @@
 package marf.FeatureExtraction;
 
 import java.util.Vector;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 import marf.MARF;
 import marf.Preprocessing.IPreprocessing;
+import marf.Preprocessing.Preprocessing;
+import marf.Preprocessing.PreprocessingException;
 import marf.Storage.ModuleParams;
+import marf.Storage.Sample;
 import marf.util.Arrays;
 import marf.util.BaseThread;
 import marf.util.Debug;
+import marf.util.ExecutionService;
 import marf.util.ExpandedThreadGroup;
 
 
@@ -37,6 +44,16 @@ import marf.util.ExpandedThreadGroup;
  * as a concatenated feature vector. Some meta-information is available
  * if needed.</p>
  * <p>
+ * <p>As of 0.3.0.6, by default, the aggregator runs in the <i>shared-frame</i>
+ * mode instead: the modules do not get a clone of the preprocessed sample,
+ * but read-only views of it, along with <code>SharedFrames</code>, so the
+ * modules that frame the sample alike get the same windowed frames, cut
+ * once. The modules must thus not modify the sample data, which none of
+ * MARF's do; the cloning mode is still available through
+ * <code>enableSharedFrames(false)</code> for those that would. In either
+ * mode, the modules run as tasks of the <code>ExecutionService</code>'s
+ * aggregator queue rather than in threads of their own.</p>
+ * <p>
  * $Id: FeatureExtractionAggregator.java,v 1.5 2005/12/31 01:23:54 mokhov Exp $
  *
  * @author Serguei Mokhov
@@ -79,9 +96,18 @@ public class FeatureExtractionAggregator
 
     /**
      * A collection of the feature extraction threads.
+     * As of 0.3.0.6, no longer used: the modules run on the
+     * <code>ExecutionService</code>.
      */
     protected transient ExpandedThreadGroup oFeatureExtractors = null;
 
+    /**
+     * Whether the modules share the sample and its frames.
+     *
+     * @since 0.3.0.6
+     */
+    protected boolean bSharedFrames = true;
+
     /**
      * For serialization versioning.
      * When adding new members or make other structural
@@ -92,14 +118,11 @@ public class FeatureExtractionAggregator
 
     /**
      * Implementation of the feature extraction interface.
-     * Internally also instantiates the thread group for feature
-     * extractors.
      *
      * @param poPreprocessing the preprocessing module to suck the data from
      */
     public FeatureExtractionAggregator(IPreprocessing poPreprocessing) {
         super(poPreprocessing);
-        this.oFeatureExtractors = new ExpandedThreadGroup("MARF FeatureExtractionAggregator");
     }
 
     /**
@@ -142,7 +165,14 @@ public class FeatureExtractionAggregator
         }
 
         try {
-            // Create modules and threads
+            Vector oModules = new Vector();
+            SharedFrames oSharedFrames = null;
+
+            if (this.bSharedFrames) {
+                oSharedFrames = new SharedFrames(this.oPreprocessing.getSample().getSampleArray());
+            }
+
+            // Create modules
             for (int i = 0; i < oParams.size(); i += 2) {
                 Integer oFeatureExtractionMethod = (Integer) oParams.elementAt(i);
 
@@ -168,42 +198,36 @@ public class FeatureExtractionAggregator
                     }
                 }
 
-                Debug.debug("Specific module params got: " + oAggrModuleParams);
+                Debug.debug("Specific module params got: {}", oAggrModuleParams);
 
-                IFeatureExtraction oModule = FeatureExtractionFactory.create
-                        (
-                                oFeatureExtractionMethod,
-                                (IPreprocessing) this.oPreprocessing.clone()
-                        );
+                IFeatureExtraction oModule;
 
-                new FeatureExtractionThread(oModule, this.oFeatureExtractors);
-            }
+                if (this.bSharedFrames) {
+                    oModule = FeatureExtractionFactory.create
+                            (
+                                    oFeatureExtractionMethod,
+                                    new SampleView(this.oPreprocessing.getSample())
+                            );
 
-            // Run all the threads and wait for all of them
-            this.oFeatureExtractors.start();
-            this.oFeatureExtractors.join();
+                    if (oModule instanceof FeatureExtraction) {
+                        ((FeatureExtraction) oModule).setSharedFrames(oSharedFrames);
+                    }
+                } else {
+                    oModule = FeatureExtractionFactory.create
+                            (
+                                    oFeatureExtractionMethod,
+                                    (IPreprocessing) this.oPreprocessing.clone()
+                            );
+                }
 
-            // Get all the threads
-            Thread[] aoFeatureExtractors = this.oFeatureExtractors.enumerate(false);
+                oModules.add(oModule);
+            }
 
             // Collect all the data and/or errors.
-            int iTotalFEVectorSize = 0;
-
             Vector oData = new Vector();
             Vector oErrors = new Vector();
 
-            for (int i = 0; i < aoFeatureExtractors.length; i++) {
-                FeatureExtractionThread oFEThread = (FeatureExtractionThread) aoFeatureExtractors[i];
-
-                if (oFEThread.getLastException() == null) {
-                    double[] adFeatureVector = oFEThread.getFeatureExtraction().getFeaturesArray();
-                    assert adFeatureVector != null;
-                    oData.add(adFeatureVector);
-                    iTotalFEVectorSize += adFeatureVector.length;
-                } else {
-                    oErrors.add(oFEThread.getLastException());
-                }
-            }
+            int iTotalFEVectorSize = runTasks(oModules, oData, oErrors);
 
             if (oErrors.size() > 0) {
                 throw new FeatureExtractionException
@@ -227,9 +251,6 @@ public class FeatureExtractionAggregator
                 iDestinationOffset += adFeatureVector.length;
             }
 
-            // Restore
-            MARF.getModuleParams().setFeatureExtractionParams(oParams);
-
             // Done
             return true;
         } catch (FeatureExtractionException e) {
@@ -237,6 +258,113 @@ public class FeatureExtractionAggregator
         } catch (Exception e) {
             e.printStackTrace(System.err);
             throw new FeatureExtractionException(e.getMessage(), e);
+        } finally {
+            // Restore
+            MARF.getModuleParams().setFeatureExtractionParams(oParams);
+        }
+    }
+
+    /**
+     * Runs the modules as tasks of the aggregator queue and collects
+     * their features in order.
+     *
+     * @param poModules the modules
+     * @param poData    receives the feature vectors
+     * @param poErrors  receives the errors
+     * @return total number of features
+     * @throws InterruptedException if interrupted while waiting for the modules
+     * @since 0.3.0.6
+     */
+    private int runTasks(Vector poModules, Vector poData, Vector poErrors)
+            throws InterruptedException {
+        Future[] aoResults = new Future[poModules.size()];
+
+        for (int i = 0; i < aoResults.length; i++) {
+            final IFeatureExtraction oModule = (IFeatureExtraction) poModules.elementAt(i);
+
+            aoResults[i] = ExecutionService.submit(ExecutionService.QUEUE_AGGREGATOR, new Callable() {
+                public Object call()
+                        throws Exception {
+                    oModule.extractFeatures();
+                    return oModule.getFeaturesArray();
+                }
+            });
+        }
+
+        int iTotalFEVectorSize = 0;
+
+        for (int i = 0; i < aoResults.length; i++) {
+            try {
+                double[] adFeatureVector = (double[]) aoResults[i].get();
+                assert adFeatureVector != null;
+                poData.add(adFeatureVector);
+                iTotalFEVectorSize += adFeatureVector.length;
+            } catch (ExecutionException e) {
+                poErrors.add(e.getCause());
+            }
+        }
+
+        return iTotalFEVectorSize;
+    }
+
+    /**
+     * Enables or disables the shared-frame mode.
+     *
+     * @param pbEnable <code>true</code> to share the sample and its frames
+     *                 among the modules; <code>false</code> to give every module its
+     *                 own copy of the preprocessing module
+     * @return the previous setting
+     * @since 0.3.0.6
+     */
+    public synchronized boolean enableSharedFrames(boolean pbEnable) {
+        boolean bOldValue = this.bSharedFrames;
+        this.bSharedFrames = pbEnable;
+        return bOldValue;
+    }
+
+    /**
+     * Tells whether the shared-frame mode is on.
+     *
+     * @return <code>true</code> if so
+     * @since 0.3.0.6
+     */
+    public synchronized boolean isSharedFrames() {
+        return this.bSharedFrames;
+    }
+
+    /**
+     * <p>A read-only view of a preprocessed sample for a module of the
+     * shared-frame mode: the data array is the same, but the module
+     * gets a read position of its own.</p>
+     *
+     * @since 0.3.0.6
+     */
+    private static class SampleView
+            extends Preprocessing {
+        /**
+         * For serialization versioning.
+         */
+        private static final long serialVersionUID = -2216043734431911823L;
+
+        /**
+         * Constructs a view.
+         *
+         * @param poSample the shared sample
+         */
+        SampleView(Sample poSample) {
+            super();
+            this.oSample = new Sample(poSample.getSampleArray());
+        }
+
+        /**
+         * Does nothing, the sample is already preprocessed.
+         *
+         * @return <code>false</code>
+         * @throws PreprocessingException never thrown
+         */
+        public boolean preprocess()
+                throws PreprocessingException {
+            return false;
         }
     }
 
@@ -0,0 +1,61 @@
+package marf.FeatureExtraction;
+
+
+/**
+ * <p>Chunk-wise feature extraction of samples too large to be held in memory.</p>
+ *
+ * <p>A module implementing this interface in addition to
+ * <code>IFeatureExtraction</code> accepts the preprocessed audio data
+ * in consecutive chunks of arbitrary size and keeps only a constant
+ * amount of state, namely its current analysis window and the running
+ * feature accumulation. Once <code>endStream()</code> returns, the
+ * features are available through <code>getFeaturesArray()</code> as
+ * though <code>extractFeatures()</code> had been called on the
+ * whole sample.</p>
+ *
+ * <p>$Id$</p>
+ *
+ * @author The MARF Research and Development Group
+ * @version $Revision$
+ * @see marf.Preprocessing.IStreamingPreprocessing
+ * @since 0.3.0.6
+ */
+public interface IStreamingFeatureExtraction {
+    /**
+     * Interface source code revision.
+     */
+    String MARF_INTERFACE_CODE_REVISION = "$Revision$";
+
+    /**
+     * Resets the running state before the first chunk of a new stream.
+     *
+     * @throws FeatureExtractionException if the module cannot stream
+     *                                    with its current settings
+     */
+    void beginStream()
+            throws FeatureExtractionException;
+
+    /**
+     * Accumulates features of one chunk of preprocessed audio data.
+     * The chunk is not retained, so the caller may reuse it.
+     *
+     * @param padChunk chunk of audio data
+     * @param piLength number of valid elements in the chunk
+     * @throws FeatureExtractionException if there was an error while extracting features
+     */
+    void extractChunk(double[] padChunk, int piLength)
+            throws FeatureExtractionException;
+
+    /**
+     * Finishes the stream and computes the features.
+     *
+     * @param pdGain deferred preprocessing gain of the whole stream
+     * @return <code>true</code> if there were features extracted, <code>false</code> otherwise
+     * @throws FeatureExtractionException if there was an error while extracting features
+     * @see marf.Preprocessing.IStreamingPreprocessing#endStream()
+     */
+    boolean endStream(double pdGain)
+            throws FeatureExtractionException;
+}
+
+// EOF
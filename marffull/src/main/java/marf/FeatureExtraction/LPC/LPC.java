@@ -4,11 +4,14 @@ import java.util.Vector;
 
 import marf.FeatureExtraction.FeatureExtraction;
 import marf.FeatureExtraction.FeatureExtractionException;
+import marf.FeatureExtraction.IStreamingFeatureExtraction;
 import marf.MARF;
 import marf.Preprocessing.IPreprocessing;
 import marf.Storage.ModuleParams;
 import marf.gui.Spectrogram;
 import marf.math.Algorithms;
+import marf.math.FFTPlan;
+import marf.math.MathException;
 import marf.util.Debug;
 
 
@@ -23,7 +26,8 @@ import marf.util.Debug;
  * @since 0.0.1
  */
 public class LPC
-        extends FeatureExtraction {
+        extends FeatureExtraction
+        implements IStreamingFeatureExtraction {
     /**
      * Default window length of 128 elements.
      *
@@ -60,6 +64,34 @@ public class LPC
      */
     private static final long serialVersionUID = 7960314467497310447L;
 
+    /**
+     * Current analysis window in the streamed mode.
+     *
+     * @since 0.3.0.6
+     */
+    private transient double[] adStreamWindow = null;
+
+    /**
+     * Number of samples in the current window in the streamed mode.
+     *
+     * @since 0.3.0.6
+     */
+    private transient int iStreamWindowPos = 0;
+
+    /**
+     * Window counter of the streamed mode, starting at 1 as in <code>extractFeatures()</code>.
+     *
+     * @since 0.3.0.6
+     */
+    private transient int iStreamWindowsNum = 1;
+
+    /**
+     * Scratch arrays of the streamed mode: windowed input, LPC coefficients, and error.
+     *
+     * @since 0.3.0.6
+     */
+    private transient double[] adStreamWindowed = null, adStreamLPCCoeffs = null, adStreamLPCError = null;
+
     /**
      * LPC Constructor.
      *
@@ -104,9 +136,11 @@ public class LPC
 
             double[] adSample = this.oPreprocessing.getSample().getSampleArray();
 
-            Debug.debug("sample length: " + adSample.length);
-            Debug.debug("poles: " + this.iPoles);
-            Debug.debug("window length: " + this.iWindowLen);
+            if (Debug.isDebugOn()) {
+                Debug.debug("sample length: " + adSample.length);
+                Debug.debug("poles: " + this.iPoles);
+                Debug.debug("window length: " + this.iWindowLen);
+            }
 
             Spectrogram oSpectrogram = null;
 
@@ -126,15 +160,20 @@ public class LPC
 
             int iHalfWindow = this.iWindowLen / 2;
 
-            for (int iCount = iHalfWindow; (iCount + iHalfWindow) <= adSample.length; iCount += iHalfWindow) {
-                // Window the input.
-                for (int j = 0; j < this.iWindowLen; j++) {
-                    adWindowed[j] = adSample[iCount - iHalfWindow + j];
-                    //windowed[j] = adSample[count - iHalfWindow + j] * hamming(j, this.windowLen);
-                    //Debug.debug("window: " + windowed[j]);
+            // Hamming-windowed and half-overlapping already if shared
+            double[] adFrames = getSharedFrames(this.iWindowLen, iHalfWindow, FFTPlan.WINDOW_HAMMING, false);
+            double[] adWindow = FFTPlan.getWindow(this.iWindowLen, FFTPlan.WINDOW_HAMMING);
+
+            for (int iStart = 0, iOffset = 0; iStart + this.iWindowLen <= adSample.length; iStart += iHalfWindow, iOffset += this.iWindowLen) {
+                if (adFrames == null) {
+                    // Window the input.
+                    for (int j = 0; j < this.iWindowLen; j++) {
+                        adWindowed[j] = adSample[iStart + j] * adWindow[j];
+                    }
+                } else {
+                    System.arraycopy(adFrames, iOffset, adWindowed, 0, this.iWindowLen);
                 }
 
-                Algorithms.Hamming.hamming(adWindowed);
                 Algorithms.LPC.doLPC(adWindowed, adLPCCoeffs, adLPCError, this.iPoles);
 
                 if (MARF.getDumpSpectrogram() == true) {
@@ -157,7 +196,9 @@ public class LPC
                 }
             }
 
-            Debug.debug("LPC.extractFeatures() - number of windows = " + iWindowsNum);
+            if (Debug.isDebugOn()) {
+                Debug.debug("LPC.extractFeatures() - number of windows = " + iWindowsNum);
+            }
 
             // For the case when we want intermediate spectrogram
             if (MARF.getDumpSpectrogram() == true) {
@@ -172,6 +213,111 @@ public class LPC
         }
     }
 
+    /**
+     * Starts a new stream. The windows are half-overlapping,
+     * the same way <code>extractFeatures()</code> takes them.
+     *
+     * @throws FeatureExtractionException if the window length is less than 2
+     * @since 0.3.0.6
+     */
+    public synchronized void beginStream()
+            throws FeatureExtractionException {
+        if (this.iWindowLen < 2) {
+            throw new FeatureExtractionException("LPC.beginStream() - window length is too small: " + this.iWindowLen);
+        }
+
+        this.adStreamWindow = new double[this.iWindowLen];
+        this.adStreamWindowed = new double[this.iWindowLen];
+        this.adStreamLPCCoeffs = new double[this.iPoles];
+        this.adStreamLPCError = new double[this.iPoles];
+        this.adFeatures = new double[this.iPoles];
+
+        this.iStreamWindowPos = 0;
+        this.iStreamWindowsNum = 1;
+    }
+
+    /**
+     * Accumulates the LPC coefficients of the windows completed by the chunk.
+     *
+     * @param padChunk chunk of preprocessed audio data
+     * @param piLength number of valid elements in the chunk
+     * @throws FeatureExtractionException if the stream has not been begun
+     * @since 0.3.0.6
+     */
+    public synchronized void extractChunk(double[] padChunk, int piLength)
+            throws FeatureExtractionException {
+        if (this.adStreamWindow == null) {
+            throw new FeatureExtractionException("LPC.extractChunk() - beginStream() has not been called.");
+        }
+
+        int iHalfWindow = this.iWindowLen / 2;
+        int iOffset = 0;
+
+        while (iOffset < piLength) {
+            int iCount = Math.min(piLength - iOffset, this.iWindowLen - this.iStreamWindowPos);
+
+            System.arraycopy(padChunk, iOffset, this.adStreamWindow, this.iStreamWindowPos, iCount);
+
+            iOffset += iCount;
+            this.iStreamWindowPos += iCount;
+
+            if (this.iStreamWindowPos == this.iWindowLen) {
+                System.arraycopy(this.adStreamWindow, 0, this.adStreamWindowed, 0, this.iWindowLen);
+
+                Algorithms.Hamming.hamming(this.adStreamWindowed);
+
+                try {
+                    Algorithms.LPC.doLPC(this.adStreamWindowed, this.adStreamLPCCoeffs, this.adStreamLPCError, this.iPoles);
+                } catch (MathException e) {
+                    throw new FeatureExtractionException(e);
+                }
+
+                for (int j = 0; j < this.iPoles; j++) {
+                    this.adFeatures[j] += this.adStreamLPCCoeffs[j];
+                }
+
+                this.iStreamWindowsNum++;
+
+                // Slide by half a window
+                System.arraycopy(this.adStreamWindow, iHalfWindow, this.adStreamWindow, 0, this.iWindowLen - iHalfWindow);
+                this.iStreamWindowPos = this.iWindowLen - iHalfWindow;
+            }
+        }
+    }
+
+    /**
+     * Averages the accumulated coefficients. LPC coefficients do not
+     * depend on the amplitude, so the preprocessing gain is ignored.
+     *
+     * @param pdGain deferred preprocessing gain of the whole stream; unused
+     * @return <code>true</code> if there were features extracted, <code>false</code> otherwise
+     * @throws FeatureExtractionException if the stream has not been begun
+     * @since 0.3.0.6
+     */
+    public synchronized boolean endStream(double pdGain)
+            throws FeatureExtractionException {
+        if (this.adStreamWindow == null) {
+            throw new FeatureExtractionException("LPC.endStream() - beginStream() has not been called.");
+        }
+
+        if (this.iStreamWindowsNum > 1) {
+            for (int j = 0; j < this.iPoles; j++) {
+                this.adFeatures[j] /= this.iStreamWindowsNum;
+            }
+        }
+
+        if (Debug.isDebugOn()) {
+            Debug.debug("LPC.endStream() - number of windows = " + this.iStreamWindowsNum);
+        }
+
+        this.adStreamWindow = null;
+        this.adStreamWindowed = null;
+        this.adStreamLPCCoeffs = null;
+        this.adStreamLPCError = null;
+
+        return (this.adFeatures.length > 0);
+    }
+
     /**
      * Retrieves the number of poles.
      *
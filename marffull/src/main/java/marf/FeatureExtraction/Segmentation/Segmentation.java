@@ -3,11 +3,21 @@ package marf.FeatureExtraction.Segmentation;
 import marf.FeatureExtraction.FeatureExtraction;
 import marf.FeatureExtraction.FeatureExtractionException;
 import marf.Preprocessing.IPreprocessing;
-import marf.util.NotImplementedException;
+import marf.Preprocessing.SpeechSegmenter;
+import marf.Storage.SampleLoader;
+import marf.util.Debug;
 
 
 /**
- * <p>Class Segmentation.</p>
+ * <p>Class Segmentation implements voice activity segmentation.</p>
+ *
+ * <p>The sample is split into speech and non-speech with the energy and
+ * zero-crossing <code>SpeechSegmenter</code>. The speech segments are
+ * available as sample index ranges through <code>getSegments()</code>,
+ * and the feature vector describes the speaking pattern: the fraction of
+ * the sample that is speech, the number of speech segments per second,
+ * the mean and the standard deviation of their durations in seconds,
+ * and the signal-to-noise ratio in dB of the speech to the rest.</p>
  * <p>
  * <p>$Id: Segmentation.java,v 1.15 2005/08/13 23:09:37 susan_fan Exp $</p>
  *
@@ -17,6 +27,13 @@ import marf.util.NotImplementedException;
  */
 public class Segmentation
         extends FeatureExtraction {
+    /**
+     * Length of the feature vector.
+     *
+     * @since 0.3.0.6
+     */
+    public static final int FEATURES = 5;
+
     /**
      * For serialization versioning.
      * When adding new members or make other structural
@@ -27,6 +44,13 @@ public class Segmentation
      */
     private static final long serialVersionUID = -8113388768153118543L;
 
+    /**
+     * Speech segments of the last sample.
+     *
+     * @since 0.3.0.6
+     */
+    private int[][] aaiSegments = new int[0][];
+
     /**
      * Segmentation Constructor.
      *
@@ -37,15 +61,92 @@ public class Segmentation
     }
 
     /**
-     * Not Implemented.
+     * Segmentation implementation of <code>extractFeatures()</code>.
      *
-     * @return nothing
-     * @throws NotImplementedException
-     * @throws FeatureExtractionException never thrown
+     * @return <code>true</code> if features were extracted, <code>false</code> otherwise
+     * @throws FeatureExtractionException in case of any errors while doing stuff
+     * @since 0.3.0.6
      */
-    public final boolean extractFeatures()
+    public final synchronized boolean extractFeatures()
             throws FeatureExtractionException {
-        throw new NotImplementedException("Segmentation.extractFeatures()");
+        try {
+            Debug.debug("Segmentation.extractFeatures() has begun...");
+
+            double[] adSample = this.oPreprocessing.getSample().getSampleArray();
+            double dSampleRate = SampleLoader.DEFAULT_FREQUENCY;
+
+            this.aaiSegments = new SpeechSegmenter().segment(adSample);
+            this.adFeatures = new double[FEATURES];
+
+            int iSegments = this.aaiSegments.length;
+
+            if (adSample.length == 0 || iSegments == 0) {
+                return true;
+            }
+
+            double dSpeechEnergy = 0.0;
+            double dNoiseEnergy = 0.0;
+            double dDurations = 0.0;
+            double dSquaredDurations = 0.0;
+            int iPos = 0;
+
+            for (int s = 0; s < iSegments; s++) {
+                int iStart = this.aaiSegments[s][0];
+                int iEnd = this.aaiSegments[s][1];
+                double dDuration = (iEnd - iStart) / dSampleRate;
+
+                dDurations += dDuration;
+                dSquaredDurations += dDuration * dDuration;
+
+                for (int i = iPos; i < iStart; i++) {
+                    dNoiseEnergy += adSample[i] * adSample[i];
+                }
+
+                for (int i = iStart; i < iEnd; i++) {
+                    dSpeechEnergy += adSample[i] * adSample[i];
+                }
+
+                iPos = iEnd;
+            }
+
+            for (int i = iPos; i < adSample.length; i++) {
+                dNoiseEnergy += adSample[i] * adSample[i];
+            }
+
+            int iSpeech = SpeechSegmenter.getLength(this.aaiSegments);
+            double dMeanDuration = dDurations / iSegments;
+
+            this.adFeatures[0] = (double) iSpeech / adSample.length;
+            this.adFeatures[1] = iSegments / (adSample.length / dSampleRate);
+            this.adFeatures[2] = dMeanDuration;
+            this.adFeatures[3] = Math.sqrt(Math.max(0.0, dSquaredDurations / iSegments - dMeanDuration * dMeanDuration));
+
+            if (iSpeech < adSample.length && dNoiseEnergy > 0.0) {
+                this.adFeatures[4] = 10.0 * Math.log
+                        (
+                                (dSpeechEnergy / iSpeech) / (dNoiseEnergy / (adSample.length - iSpeech))
+                        ) / Math.log(10.0);
+            }
+
+            if (Debug.isDebugOn()) {
+                Debug.debug("Segmentation.extractFeatures() - speech segments = " + iSegments);
+            }
+            Debug.debug("Segmentation.extractFeatures() has finished.");
+
+            return true;
+        } catch (Exception e) {
+            throw new FeatureExtractionException(e.toString(), e);
+        }
+    }
+
+    /**
+     * Retrieves the speech segments of the last sample.
+     *
+     * @return <code>{start, end}</code> sample index pairs, end exclusive
+     * @since 0.3.0.6
+     */
+    public synchronized int[][] getSegments() {
+        return this.aaiSegments;
     }
 
     /**
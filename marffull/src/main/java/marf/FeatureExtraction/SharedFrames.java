@@ -0,0 +1,174 @@
+package marf.FeatureExtraction;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import marf.math.FFTPlan;
+
+
+/**
+ * <p>Windowed analysis frames of a sample, computed once and shared by
+ * the feature extractors that frame the sample the same way.</p>
+ *
+ * <p>The frames of a given size, hop, and window are cut and windowed on
+ * the first request and handed to all the later ones; concurrent requests
+ * for the same framing wait for the first one rather than doing it again.
+ * The frames are laid out one after another in a single array, which the
+ * extractors must not modify. The sample itself is not copied, and must
+ * not change while the frames are in use.</p>
+ *
+ * <p>$Id$</p>
+ *
+ * @author The MARF Research and Development Group
+ * @version $Revision$
+ * @see FeatureExtractionAggregator
+ * @see FeatureExtraction#getSharedFrames(int, int, int, boolean)
+ * @since 0.3.0.6
+ */
+public class SharedFrames {
+    /**
+     * The framed sample.
+     */
+    private final double[] adSample;
+
+    /**
+     * Framings done or in progress, keyed by their parameters.
+     */
+    private final Map oFramings = new ConcurrentHashMap();
+
+    /**
+     * Constructs the frames of a sample, none of which is computed yet.
+     *
+     * @param padSample the sample, not copied
+     */
+    public SharedFrames(final double[] padSample) {
+        this.adSample = padSample;
+    }
+
+    /**
+     * Retrieves the frames of the sample, framing it on first request.
+     *
+     * @param piSize    frame size
+     * @param piHop     number of samples between the starts of consecutive frames
+     * @param piWindow  one of the <code>FFTPlan.WINDOW_*</code> constants
+     * @param pbPadTail whether the last frame may run past the end of the
+     *                  sample, zero-padded; otherwise only the whole frames are taken
+     * @return the frames one after another, <code>piSize</code> elements each; read-only
+     * @throws IllegalArgumentException if the size or the hop is less than 1,
+     *                                  or the window type is unknown
+     * @see #frame(double[], int, int, int, boolean)
+     */
+    public double[] getFrames(final int piSize, final int piHop, final int piWindow, final boolean pbPadTail) {
+        String strKey = piSize + ":" + piHop + ":" + piWindow + ":" + pbPadTail;
+        Framing oFraming = (Framing) this.oFramings.get(strKey);
+
+        if (oFraming == null) {
+            Framing oNew = new Framing();
+
+            synchronized (this.oFramings) {
+                oFraming = (Framing) this.oFramings.get(strKey);
+
+                if (oFraming == null) {
+                    this.oFramings.put(strKey, oNew);
+                    oFraming = oNew;
+                }
+            }
+        }
+
+        synchronized (oFraming) {
+            if (oFraming.adFrames == null) {
+                oFraming.adFrames = frame(this.adSample, piSize, piHop, piWindow, pbPadTail);
+            }
+
+            return oFraming.adFrames;
+        }
+    }
+
+    /**
+     * Tells whether these are the frames of a given sample.
+     *
+     * @param padSample sample array
+     * @return <code>true</code> if it is the very array framed
+     */
+    public final boolean isOf(final double[] padSample) {
+        return this.adSample == padSample;
+    }
+
+    /**
+     * Cuts a sample into frames and windows them. The frames start every
+     * <code>piHop</code> samples from the beginning of the sample. With tail
+     * padding, they go on until one reaches the end of the sample, and
+     * there is at least one frame if the sample is not empty.
+     *
+     * @param padSample the sample
+     * @param piSize    frame size
+     * @param piHop     number of samples between the starts of consecutive frames
+     * @param piWindow  one of the <code>FFTPlan.WINDOW_*</code> constants
+     * @param pbPadTail whether the last frame may run past the end of the
+     *                  sample, zero-padded
+     * @return a new array of the frames one after another
+     * @throws IllegalArgumentException if the size or the hop is less than 1,
+     *                                  or the window type is unknown
+     */
+    public static double[] frame
+    (
+            final double[] padSample,
+            final int piSize,
+            final int piHop,
+            final int piWindow,
+            final boolean pbPadTail
+    ) {
+        if (piSize < 1 || piHop < 1) {
+            throw new IllegalArgumentException("Frame size (" + piSize + ") or hop (" + piHop + ") is less than 1.");
+        }
+
+        int iFrames;
+
+        if (pbPadTail) {
+            iFrames = padSample.length <= piSize ? Math.min(padSample.length, 1) : (padSample.length - piSize + piHop - 1) / piHop + 1;
+        } else {
+            iFrames = padSample.length < piSize ? 0 : (padSample.length - piSize) / piHop + 1;
+        }
+
+        double[] adWindow = piWindow == FFTPlan.WINDOW_NONE ? null : FFTPlan.getWindow(piSize, piWindow);
+        double[] adFrames = new double[iFrames * piSize];
+
+        for (int f = 0; f < iFrames; f++) {
+            int iStart = f * piHop;
+            int iOffset = f * piSize;
+            int iLength = Math.min(piSize, padSample.length - iStart);
+
+            // The rest of a padded frame is already 0
+            System.arraycopy(padSample, iStart, adFrames, iOffset, iLength);
+
+            if (adWindow != null) {
+                for (int i = 0; i < iLength; i++) {
+                    adFrames[iOffset + i] *= adWindow[i];
+                }
+            }
+        }
+
+        return adFrames;
+    }
+
+    /**
+     * Frames of a framing, once computed.
+     */
+    private static final class Framing {
+        /**
+         * The frames; <code>null</code> until computed.
+         */
+        double[] adFrames = null;
+    }
+
+    /**
+     * Returns source code revision information.
+     *
+     * @return revision string
+     */
+    public static String getMARFSourceCodeRevision() {
+        return "$Revision$";
+    }
+}
+
+// EOF
@@ -4,30 +4,31 @@
 
 package marf;
 
-import marf.Classification.ClassificationException;
-import marf.Classification.ClassificationFactory;
+import java.util.Collection;
+import java.util.Map;
+
 import marf.Classification.IClassification;
-import marf.FeatureExtraction.FeatureExtractionFactory;
 import marf.FeatureExtraction.IFeatureExtraction;
 import marf.Preprocessing.IPreprocessing;
-import marf.Preprocessing.PreprocessingFactory;
 import marf.Storage.ISampleLoader;
 import marf.Storage.MARFAudioFileFormat;
 import marf.Storage.ModuleParams;
 import marf.Storage.Result;
 import marf.Storage.ResultSet;
 import marf.Storage.Sample;
-import marf.Storage.SampleLoaderFactory;
-import marf.gui.WaveGrapher;
+import marf.Storage.TrainingBatch;
 import marf.nlp.NLPException;
-import marf.util.Debug;
 import marf.util.MARFException;
-import marf.util.NotImplementedException;
 
 
 /**
  * <p>Provides basic recognition pipeline and its configuration.</p>
  * <p>Implements a so-called MARF server.</p>
+ * <p>As of 0.3.0.6 the configuration and the pipeline state live in
+ * <code>MARFPipeline</code> instances; the static API here operates on
+ * the pipeline running in the calling thread, or on a default one.
+ * Applications recognizing several samples in parallel should create
+ * a <code>MARFPipeline</code> per worker instead.</p>
  * <p>
  * <p>$Id: MARF.java,v 1.98 2006/02/06 12:00:33 mokhov Exp $</p>
  *
@@ -289,13 +290,20 @@ public class MARF {
      */
     public static final int CLASSIFICATION_PLUGIN = 509;
 
+    /**
+     * Indicates to use Neural Network backed by dense matrices for classification.
+     *
+     * @since 0.3.0.6
+     */
+    public static final int DENSE_NEURAL_NETWORK = 510;
+
     /**
      * Upper boundary for classificantion methods enumeration.
      * Used in error checks. *Update it when add more methods.*
      *
      * @since 0.3.0.1
      */
-    public static final int MAX_CLASSIFICATION_METHOD = CLASSIFICATION_PLUGIN;
+    public static final int MAX_CLASSIFICATION_METHOD = DENSE_NEURAL_NETWORK;
 
     /**
      * Lower boundary for classificantion methods enumeration.
@@ -377,48 +385,6 @@ public class MARF {
     public static final int CUSTOM = MARFAudioFileFormat.CUSTOM;
 
 	
-	/*
-	 * --------------------------------------------------------
-	 * Module Instance References
-	 * --------------------------------------------------------
-	 */
-
-    /**
-     * Internal <code>Sample</code> reference.
-     *
-     * @since 0.2.0
-     */
-    private static Sample soSample = null;
-
-    /**
-     * Internal <code>SampleLoader</code> reference.
-     *
-     * @since 0.2.0
-     */
-    private static ISampleLoader soSampleLoader = null;
-
-    /**
-     * Internal <code>Preprocessing</code> reference.
-     *
-     * @since 0.2.0
-     */
-    private static IPreprocessing soPreprocessing = null;
-
-    /**
-     * Internal <code>FeatureExtraction</code> reference.
-     *
-     * @since 0.2.0
-     */
-    private static IFeatureExtraction soFeatureExtraction = null;
-
-    /**
-     * Internal <code>Classification</code> reference.
-     *
-     * @since 0.2.0
-     */
-    private static IClassification soClassification = null;
-
-
 	/*
 	 * --------------------------------------------------------
 	 * Versioning
@@ -473,82 +439,15 @@ public class MARF {
 	 */
 
     /**
-     * Indicates what preprocessing method to use in the pipeline.
-     */
-    private static int siPreprocessingMethod = UNSET;
-
-    /**
-     * Indicates what feature extraction method to use in the pipeline.
-     */
-    private static int siFeatureExtractionMethod = UNSET;
-
-    /**
-     * Indicates what classification method to use in the pipeline.
-     */
-    private static int siClassificationMethod = UNSET;
-
-    /**
-     * Indicates what sample format is in use.
-     */
-    private static int siSampleFormat = UNSET;
-
-    /**
-     * ID of the currently trained speaker.
-     */
-    private static int siCurrentSubject = UNSET;
-
-    /**
-     * Indicates current incoming sample filename.
-     */
-    private static String sstrFileName = "";
-
-    /**
-     * Indicates directory name with training samples.
-     */
-    private static String sstrSamplesDir = "";
-
-    /**
-     * Stores module-specific parameters in an independent way.
-     */
-    private static ModuleParams soModuleParams = null;
-
-    /**
-     * Indicates whether or not to dump a spectrogram at the end of feature extraction.
-     */
-    private static boolean sbDumpSpectrogram = false;
-
-    /**
-     * Indicates whether or not to dump a wave graph.
-     */
-    private static boolean sbDumpWaveGraph = false;
-
-    /**
-     * Class of a sample loader plugin.
-     *
-     * @since 0.3.0.5
-     */
-    private static Class soSampleLoaderPluginClass = null;
-
-    /**
-     * Class of a preprocessing plugin.
-     *
-     * @since 0.3.0.4
-     */
-    private static Class soPreprocessingPluginClass = null;
-
-    /**
-     * Class of a feature extraction plugin.
-     *
-     * @since 0.3.0.4
-     */
-    private static Class soFeatureExtractionPluginClass = null;
-
-    /**
-     * Class of a classification plugin.
+     * Default pipeline the static API operates on when the calling
+     * thread is not running any other pipeline. As of 0.3.0.6
+     * holds all the configuration and module references that used
+     * to be static fields of this class.
      *
-     * @since 0.3.0.4
+     * @see #getCurrentPipeline()
+     * @since 0.3.0.6
      */
-    private static Class soClassificationPluginClass = null;
+    private static final MARFPipeline soDefaultPipeline = new MARFPipeline();
 
 
 	/*
@@ -578,17 +477,9 @@ public class MARF {
      * @param piPreprocessingMethod one of the allowed preprocessing methods
      * @throws MARFException if the parameter outside of the valid range
      */
-    public static synchronized final void setPreprocessingMethod(final int piPreprocessingMethod)
+    public static final void setPreprocessingMethod(final int piPreprocessingMethod)
             throws MARFException {
-        if (piPreprocessingMethod < MIN_PREPROCESSING_METHOD || piPreprocessingMethod > MAX_PREPROCESSING_METHOD) {
-            throw new MARFException
-                    (
-                            "Preprocessing method (" + piPreprocessingMethod +
-                                    ") is out of range [" + MIN_PREPROCESSING_METHOD + "," + MAX_PREPROCESSING_METHOD + "]."
-                    );
-        }
-
-        siPreprocessingMethod = piPreprocessingMethod;
+        getCurrentPipeline().setPreprocessingMethod(piPreprocessingMethod);
     }
 
     /**
@@ -596,8 +487,8 @@ public class MARF {
      *
      * @return one of the preprocessing methods
      */
-    public static synchronized final int getPreprocessingMethod() {
-        return siPreprocessingMethod;
+    public static final int getPreprocessingMethod() {
+        return getCurrentPipeline().getPreprocessingMethod();
     }
 
     /**
@@ -606,17 +497,9 @@ public class MARF {
      * @param piFeatureExtractionMethod one of the allowed feature extraction methods
      * @throws MARFException if the parameter outside of the valid range
      */
-    public static synchronized final void setFeatureExtractionMethod(final int piFeatureExtractionMethod)
+    public static final void setFeatureExtractionMethod(final int piFeatureExtractionMethod)
             throws MARFException {
-        if (piFeatureExtractionMethod < MIN_FEATUREEXTRACTION_METHOD || piFeatureExtractionMethod > MAX_FEATUREEXTRACTION_METHOD) {
-            throw new MARFException
-                    (
-                            "Feature extraction method (" + piFeatureExtractionMethod +
-                                    ") is out of range [" + MIN_FEATUREEXTRACTION_METHOD + "," + MAX_FEATUREEXTRACTION_METHOD + "]."
-                    );
-        }
-
-        siFeatureExtractionMethod = piFeatureExtractionMethod;
+        getCurrentPipeline().setFeatureExtractionMethod(piFeatureExtractionMethod);
     }
 
     /**
@@ -624,8 +507,8 @@ public class MARF {
      *
      * @return current feature extraction method
      */
-    public static synchronized final int getFeatureExtractionMethod() {
-        return siFeatureExtractionMethod;
+    public static final int getFeatureExtractionMethod() {
+        return getCurrentPipeline().getFeatureExtractionMethod();
     }
 
     /**
@@ -634,17 +517,9 @@ public class MARF {
      * @param piClassificationMethod one of the allowed classification methods
      * @throws MARFException if the parameter outside of the valid range
      */
-    public static synchronized final void setClassificationMethod(final int piClassificationMethod)
+    public static final void setClassificationMethod(final int piClassificationMethod)
             throws MARFException {
-        if (piClassificationMethod < MIN_CLASSIFICATION_METHOD || piClassificationMethod > MAX_CLASSIFICATION_METHOD) {
-            throw new MARFException
-                    (
-                            "Classification method (" + piClassificationMethod +
-                                    ") is out of range [" + MIN_CLASSIFICATION_METHOD + "," + MAX_CLASSIFICATION_METHOD + "]."
-                    );
-        }
-
-        siClassificationMethod = piClassificationMethod;
+        getCurrentPipeline().setClassificationMethod(piClassificationMethod);
     }
 
     /**
@@ -652,8 +527,8 @@ public class MARF {
      *
      * @return current classification method
      */
-    public static synchronized final int getClassificationMethod() {
-        return siClassificationMethod;
+    public static final int getClassificationMethod() {
+        return getCurrentPipeline().getClassificationMethod();
     }
 
     /**
@@ -661,8 +536,8 @@ public class MARF {
      *
      * @param piSampleFormat one of the allowed sample formats
      */
-    public static synchronized final void setSampleFormat(final int piSampleFormat) {
-        siSampleFormat = piSampleFormat;
+    public static final void setSampleFormat(final int piSampleFormat) {
+        getCurrentPipeline().setSampleFormat(piSampleFormat);
     }
 
     /**
@@ -670,8 +545,8 @@ public class MARF {
      *
      * @return current sample format
      */
-    public static synchronized final int getSampleFormat() {
-        return siSampleFormat;
+    public static final int getSampleFormat() {
+        return getCurrentPipeline().getSampleFormat();
     }
 
     /**
@@ -679,8 +554,8 @@ public class MARF {
      *
      * @param pstrFileName string representing sample file to be read
      */
-    public static synchronized final void setSampleFile(final String pstrFileName) {
-        sstrFileName = pstrFileName;
+    public static final void setSampleFile(final String pstrFileName) {
+        getCurrentPipeline().setSampleFile(pstrFileName);
     }
 
     /**
@@ -688,8 +563,8 @@ public class MARF {
      *
      * @return file name of a string representing sample file
      */
-    public static synchronized final String getSampleFile() {
-        return sstrFileName;
+    public static final String getSampleFile() {
+        return getCurrentPipeline().getSampleFile();
     }
 
     /**
@@ -697,8 +572,18 @@ public class MARF {
      *
      * @param pstrSamplesDir string representing directory name
      */
-    public static synchronized final void setSamplesDir(final String pstrSamplesDir) {
-        sstrSamplesDir = pstrSamplesDir;
+    public static final void setSamplesDir(final String pstrSamplesDir) {
+        getCurrentPipeline().setSamplesDir(pstrSamplesDir);
+    }
+
+    /**
+     * Gets directory with sample files to be read from.
+     *
+     * @return directory name
+     * @since 0.3.0.6
+     */
+    public static final String getSamplesDir() {
+        return getCurrentPipeline().getSamplesDir();
     }
 
     /**
@@ -706,8 +591,8 @@ public class MARF {
      *
      * @param poModuleParams parameters' instance
      */
-    public static synchronized final void setModuleParams(final ModuleParams poModuleParams) {
-        soModuleParams = poModuleParams;
+    public static final void setModuleParams(final ModuleParams poModuleParams) {
+        getCurrentPipeline().setModuleParams(poModuleParams);
     }
 
     /**
@@ -715,8 +600,8 @@ public class MARF {
      *
      * @return ModuleParams object reference
      */
-    public static synchronized final ModuleParams getModuleParams() {
-        return soModuleParams;
+    public static final ModuleParams getModuleParams() {
+        return getCurrentPipeline().getModuleParams();
     }
 
     /**
@@ -724,8 +609,8 @@ public class MARF {
      *
      * @param pbDump <code>true</code> if wanted, <code>false</code> if not
      */
-    public static synchronized final void setDumpSpectrogram(final boolean pbDump) {
-        sbDumpSpectrogram = pbDump;
+    public static final void setDumpSpectrogram(final boolean pbDump) {
+        getCurrentPipeline().setDumpSpectrogram(pbDump);
     }
 
     /**
@@ -733,8 +618,8 @@ public class MARF {
      *
      * @return <code>true</code> if spectrogram being dumped, <code>false</code> otherwise
      */
-    public static synchronized final boolean getDumpSpectrogram() {
-        return sbDumpSpectrogram;
+    public static final boolean getDumpSpectrogram() {
+        return getCurrentPipeline().getDumpSpectrogram();
     }
 
     /**
@@ -742,8 +627,8 @@ public class MARF {
      *
      * @param pbDump <code>true</code> if wanted, <code>false</code> if not
      */
-    public static synchronized final void setDumpWaveGraph(final boolean pbDump) {
-        sbDumpWaveGraph = pbDump;
+    public static final void setDumpWaveGraph(final boolean pbDump) {
+        getCurrentPipeline().setDumpWaveGraph(pbDump);
     }
 
     /**
@@ -751,8 +636,8 @@ public class MARF {
      *
      * @return <code>true</code> if graph wanted being dumped, <code>false</code> otherwise
      */
-    public static synchronized final boolean getDumpWaveGraph() {
-        return sbDumpWaveGraph;
+    public static final boolean getDumpWaveGraph() {
+        return getCurrentPipeline().getDumpWaveGraph();
     }
 
     /**
@@ -760,8 +645,8 @@ public class MARF {
      *
      * @param piSubjectID integer ID of the subject
      */
-    public static synchronized final void setCurrentSubject(final int piSubjectID) {
-        siCurrentSubject = piSubjectID;
+    public static final void setCurrentSubject(final int piSubjectID) {
+        getCurrentPipeline().setCurrentSubject(piSubjectID);
     }
 
     /**
@@ -770,8 +655,8 @@ public class MARF {
      * @return integer ID of the subject
      * @since 0.2.0
      */
-    public static synchronized final int getCurrentSubject() {
-        return siCurrentSubject;
+    public static final int getCurrentSubject() {
+        return getCurrentPipeline().getCurrentSubject();
     }
 
     /**
@@ -781,13 +666,17 @@ public class MARF {
      * @throws MARFException if class cannot be loaded for any reason
      * @since 0.3.0.5
      */
-    public static synchronized final void setSampleLoaderPluginClass(String pstrClassName)
+    public static final void setSampleLoaderPluginClass(String pstrClassName)
             throws MARFException {
+        Class oPluginClass = null;
+
         try {
-            soSampleLoaderPluginClass = Class.forName(pstrClassName);
+            oPluginClass = Class.forName(pstrClassName);
         } catch (Exception e) {
             throw new MARFException(e.getMessage(), e);
         }
+
+        getCurrentPipeline().setSampleLoaderPluginClass(oPluginClass);
     }
 
     /**
@@ -797,13 +686,9 @@ public class MARF {
      * @throws MARFException if the parameter is <code>null</code>
      * @since 0.3.0.5
      */
-    public static synchronized final void setSampleLoaderPluginClass(Class poClass)
+    public static final void setSampleLoaderPluginClass(Class poClass)
             throws MARFException {
-        if (poClass == null) {
-            throw new MARFException("Plugin class cannot be null.");
-        }
-
-        soSampleLoaderPluginClass = poClass;
+        getCurrentPipeline().setSampleLoaderPluginClass(poClass);
     }
 
     /**
@@ -812,8 +697,8 @@ public class MARF {
      * @return the internal plugin class
      * @since 0.3.0.5
      */
-    public static synchronized final Class getSampleLoaderPluginClass() {
-        return soSampleLoaderPluginClass;
+    public static final Class getSampleLoaderPluginClass() {
+        return getCurrentPipeline().getSampleLoaderPluginClass();
     }
 
     /**
@@ -823,13 +708,17 @@ public class MARF {
      * @throws MARFException if class cannot be loaded for any reason
      * @since 0.3.0.4
      */
-    public static synchronized final void setPreprocessingPluginClass(String pstrClassName)
+    public static final void setPreprocessingPluginClass(String pstrClassName)
             throws MARFException {
+        Class oPluginClass = null;
+
         try {
-            soPreprocessingPluginClass = Class.forName(pstrClassName);
+            oPluginClass = Class.forName(pstrClassName);
         } catch (Exception e) {
             throw new MARFException(e.getMessage(), e);
         }
+
+        getCurrentPipeline().setPreprocessingPluginClass(oPluginClass);
     }
 
     /**
@@ -839,13 +728,9 @@ public class MARF {
      * @throws MARFException if the parameter is <code>null</code>
      * @since 0.3.0.4
      */
-    public static synchronized final void setPreprocessingPluginClass(Class poClass)
+    public static final void setPreprocessingPluginClass(Class poClass)
             throws MARFException {
-        if (poClass == null) {
-            throw new MARFException("Plugin class cannot be null.");
-        }
-
-        soPreprocessingPluginClass = poClass;
+        getCurrentPipeline().setPreprocessingPluginClass(poClass);
     }
 
     /**
@@ -854,8 +739,8 @@ public class MARF {
      * @return the internal plugin class
      * @since 0.3.0.4
      */
-    public static synchronized final Class getPreprocessingPluginClass() {
-        return soPreprocessingPluginClass;
+    public static final Class getPreprocessingPluginClass() {
+        return getCurrentPipeline().getPreprocessingPluginClass();
     }
 
     /**
@@ -865,13 +750,17 @@ public class MARF {
      * @throws MARFException if class cannot be loaded for any reason
      * @since 0.3.0.4
      */
-    public static synchronized final void setFeatureExtractionPluginClass(String pstrClassName)
+    public static final void setFeatureExtractionPluginClass(String pstrClassName)
             throws MARFException {
+        Class oPluginClass = null;
+
         try {
-            soFeatureExtractionPluginClass = Class.forName(pstrClassName);
+            oPluginClass = Class.forName(pstrClassName);
         } catch (Exception e) {
             throw new MARFException(e.getMessage(), e);
         }
+
+        getCurrentPipeline().setFeatureExtractionPluginClass(oPluginClass);
     }
 
     /**
@@ -881,13 +770,9 @@ public class MARF {
      * @throws MARFException if the parameter is <code>null</code>
      * @since 0.3.0.4
      */
-    public static synchronized final void setFeatureExtractionPluginClass(Class poClass)
+    public static final void setFeatureExtractionPluginClass(Class poClass)
             throws MARFException {
-        if (poClass == null) {
-            throw new MARFException("Plugin class cannot be null.");
-        }
-
-        soFeatureExtractionPluginClass = poClass;
+        getCurrentPipeline().setFeatureExtractionPluginClass(poClass);
     }
 
     /**
@@ -896,8 +781,8 @@ public class MARF {
      * @return the internal plugin class
      * @since 0.3.0.4
      */
-    public static synchronized final Class getFeatureExtractionPluginClass() {
-        return soFeatureExtractionPluginClass;
+    public static final Class getFeatureExtractionPluginClass() {
+        return getCurrentPipeline().getFeatureExtractionPluginClass();
     }
 
     /**
@@ -907,13 +792,17 @@ public class MARF {
      * @throws MARFException if class cannot be loaded for any reason
      * @since 0.3.0.4
      */
-    public static synchronized final void setClassificationPluginClass(String pstrClassName)
+    public static final void setClassificationPluginClass(String pstrClassName)
             throws MARFException {
+        Class oPluginClass = null;
+
         try {
-            soClassificationPluginClass = Class.forName(pstrClassName);
+            oPluginClass = Class.forName(pstrClassName);
         } catch (Exception e) {
             throw new MARFException(e.getMessage(), e);
         }
+
+        getCurrentPipeline().setClassificationPluginClass(oPluginClass);
     }
 
     /**
@@ -923,13 +812,9 @@ public class MARF {
      * @throws MARFException if the parameter is <code>null</code>
      * @since 0.3.0.4
      */
-    public static synchronized final void setClassificationPluginClass(Class poClass)
+    public static final void setClassificationPluginClass(Class poClass)
             throws MARFException {
-        if (poClass == null) {
-            throw new MARFException("Plugin class cannot be null.");
-        }
-
-        soClassificationPluginClass = poClass;
+        getCurrentPipeline().setClassificationPluginClass(poClass);
     }
 
     /**
@@ -938,8 +823,8 @@ public class MARF {
      * @return the internal plugin class
      * @since 0.3.0.4
      */
-    public static synchronized final Class getClassificationPluginClass() {
-        return soClassificationPluginClass;
+    public static final Class getClassificationPluginClass() {
+        return getCurrentPipeline().getClassificationPluginClass();
     }
 
     /**
@@ -990,16 +875,8 @@ public class MARF {
      *
      * @return configuration string
      */
-    public static synchronized final String getConfig() {
-        // TODO: more human-readable output
-        return new StringBuffer()
-                .append("[")
-                .append("PR: ").append(siPreprocessingMethod).append(", ")
-                .append("FE: ").append(siFeatureExtractionMethod).append(", ")
-                .append("CL: ").append(siClassificationMethod).append(", ")
-                .append("ID: ").append(siCurrentSubject)
-                .append("]")
-                .toString();
+    public static final String getConfig() {
+        return getCurrentPipeline().getConfig();
     }
 
     /**
@@ -1008,8 +885,8 @@ public class MARF {
      * @return Sample object
      * @since 0.2.0
      */
-    public static synchronized final Sample getSample() {
-        return soSample;
+    public static final Sample getSample() {
+        return getCurrentPipeline().getSample();
     }
 
     /**
@@ -1018,8 +895,8 @@ public class MARF {
      * @return SampleLoader object
      * @since 0.2.0
      */
-    public static synchronized final ISampleLoader getSampleLoader() {
-        return soSampleLoader;
+    public static final ISampleLoader getSampleLoader() {
+        return getCurrentPipeline().getSampleLoader();
     }
 
     /**
@@ -1028,8 +905,8 @@ public class MARF {
      * @return Preprocessing object
      * @since 0.2.0
      */
-    public static synchronized final IPreprocessing getPreprocessing() {
-        return soPreprocessing;
+    public static final IPreprocessing getPreprocessing() {
+        return getCurrentPipeline().getPreprocessing();
     }
 
     /**
@@ -1038,8 +915,8 @@ public class MARF {
      * @return FeatureExtraction object
      * @since 0.2.0
      */
-    public static synchronized final IFeatureExtraction getFeatureExtraction() {
-        return soFeatureExtraction;
+    public static final IFeatureExtraction getFeatureExtraction() {
+        return getCurrentPipeline().getFeatureExtraction();
     }
 
     /**
@@ -1048,8 +925,8 @@ public class MARF {
      * @return Classification object
      * @since 0.2.0
      */
-    public static synchronized final IClassification getClassification() {
-        return soClassification;
+    public static final IClassification getClassification() {
+        return getCurrentPipeline().getClassification();
     }
 
     /**
@@ -1057,8 +934,8 @@ public class MARF {
      *
      * @return integer ID of the indentified subject
      */
-    public static synchronized final int queryResultID() {
-        return soClassification.getResult().getID();
+    public static final int queryResultID() {
+        return getCurrentPipeline().queryResultID();
     }
 
     /**
@@ -1066,8 +943,8 @@ public class MARF {
      *
      * @return Result ID and all the stats of the classification
      */
-    public static synchronized final Result getResult() {
-        return soClassification.getResult();
+    public static final Result getResult() {
+        return getCurrentPipeline().getResult();
     }
 
     /**
@@ -1076,200 +953,235 @@ public class MARF {
      * @return ResultSet object with one or more results.
      * @since 0.3.0.2
      */
-    public static synchronized final ResultSet getResultSet() {
-        return soClassification.getResultSet();
+    public static final ResultSet getResultSet() {
+        return getCurrentPipeline().getResultSet();
     }
 
 	/* API */
 
     /**
      * Recognition/Identification mode.
+     * As of 0.3.0.6 delegates to the current pipeline.
      *
      * @throws MARFException if there was an error in the pipeline
      *                       or classification
+     * @see MARFPipeline#recognize()
      * @since 0.2.0
      */
     public static final void recognize()
             throws MARFException {
-        startRecognitionPipeline();
-
-        Debug.debug("MARF: Classifying...");
-
-        synchronized (soClassification) {
-            if (soClassification.classify() == false) {
-                throw new ClassificationException("Classification returned false.");
-            }
-        }
+        getCurrentPipeline().recognize();
     }
 
     /**
      * Training mode.
+     * As of 0.3.0.6 delegates to the current pipeline.
      *
      * @throws MARFException if the subject is unset or there was
      *                       an error in training in the underlying classification module
+     * @see MARFPipeline#train()
      * @since 0.2.0
      */
     public static final void train()
             throws MARFException {
-        //if(siCurrentSubject == UNSET)
-        if (getCurrentSubject() == UNSET) {
-            throw new MARFException("Unset subject ID for training.");
-        }
+        getCurrentPipeline().train();
+    }
 
-        startRecognitionPipeline();
+    /**
+     * Recognizes a collection of sample files in parallel using the
+     * configuration of the current pipeline.
+     *
+     * @param poSampleFiles collection of <code>File</code>s to recognize
+     * @return <code>Map</code> of each <code>File</code> to its <code>ResultSet</code>
+     * @throws MARFException if recognition of any of the files fails
+     * @see MARFPipeline#recognizeAll(Collection)
+     * @since 0.3.0.6
+     */
+    public static final Map recognizeAll(final Collection poSampleFiles)
+            throws MARFException {
+        return getCurrentPipeline().recognizeAll(poSampleFiles);
+    }
 
-        Debug.debug("MARF: Training...");
+    /**
+     * Recognizes all the files in the samples directory in parallel
+     * using the configuration of the current pipeline.
+     *
+     * @return <code>Map</code> of each <code>File</code> to its <code>ResultSet</code>
+     * @throws MARFException if the directory is unset or recognition of any of the files fails
+     * @see #setSamplesDir(String)
+     * @see MARFPipeline#recognizeAll()
+     * @since 0.3.0.6
+     */
+    public static final Map recognizeAll()
+            throws MARFException {
+        return getCurrentPipeline().recognizeAll();
+    }
 
-        synchronized (soClassification) {
-            //XXX batch: soClassification.restore();
+    /**
+     * Trains on a map of sample files to subject IDs in parallel
+     * using the configuration of the current pipeline.
+     *
+     * @param poSampleFiles <code>Map</code> of <code>File</code>s to their <code>Integer</code> subject IDs
+     * @throws MARFException if training on any of the files fails
+     * @see MARFPipeline#trainAll(Map)
+     * @since 0.3.0.6
+     */
+    public static final void trainAll(final Map poSampleFiles)
+            throws MARFException {
+        getCurrentPipeline().trainAll(poSampleFiles);
+    }
 
-            if (soClassification.train() == false) {
-                throw new ClassificationException("Training returned false.");
-            }
+    /**
+     * Begins a batch training session on the current pipeline.
+     * Subsequent <code>train()</code> calls keep the training sets in
+     * memory until <code>commitTraining()</code> writes them once.
+     *
+     * @throws MARFException if a batch is already in progress
+     * @see MARFPipeline#beginTraining()
+     * @since 0.3.0.6
+     */
+    public static final void beginTraining()
+            throws MARFException {
+        getCurrentPipeline().beginTraining();
+    }
 
-            //XXX batch: soClassification.dump();
-        }
+    /**
+     * Begins a batch training session on the current pipeline
+     * with periodic checkpoints.
+     *
+     * @param piCheckpointInterval dump the training sets every so many samples
+     * @throws MARFException if a batch is already in progress
+     * @see MARFPipeline#beginTraining(int)
+     * @since 0.3.0.6
+     */
+    public static final void beginTraining(final int piCheckpointInterval)
+            throws MARFException {
+        getCurrentPipeline().beginTraining(piCheckpointInterval);
     }
 
     /**
-     * The core processing pipeline. The pipeline work
-     * through almost entire process up until creation
-     * of the classification module. Then the application's
-     * choice depicts whether to call train() or classify()
-     * on this module via MARF's train() or recognize() methods.
-     * The pipeline is granularly synchronized on each object
-     * that gets instantiated, so no indirect blocking occurs
-     * on MARF itself (e.g. betwen the main thread and the inner
-     * threads of the framework that maybe accessing the MARF
-     * class concurrently).
+     * Commits the batch training session of the current pipeline.
      *
-     * @throws MARFException in case any underlying error happens
-     * @see #train()
-     * @see #recognize()
+     * @throws MARFException if there is no batch in progress or dumping fails
+     * @see MARFPipeline#commitTraining()
+     * @since 0.3.0.6
      */
-    private static final void startRecognitionPipeline()
+    public static final void commitTraining()
             throws MARFException {
-		/*
-		 * Checking minimal required settings
-		 */
-        checkSettings();
-
-		/*
-		 * Sample Loading Stage
-		 */
-        synchronized (sstrFileName) {
-            Debug.debug("Loading sample \"" + getSampleFile() + "\"");
-            soSampleLoader = SampleLoaderFactory.create(siSampleFormat);
-
-            synchronized (soSampleLoader) {
-                soSample = soSampleLoader.loadSample(sstrFileName);
-
-				/*
-				 * Preprocessing Stage
-				 */
-                synchronized (soSample) {
-                    Debug.debug("Preprocessing...");
-                    soPreprocessing = PreprocessingFactory.create(siPreprocessingMethod, soSample);
-
-                    synchronized (soPreprocessing) {
-                        // TODO: [SM]: Should this be in the preprocessing itself somewhere?
-
-                        if (sbDumpWaveGraph) {
-                            Debug.debug("Duming initial wave graph...");
-
-                            new WaveGrapher
-                                    (
-                                            soSample.getSampleArray(),
-                                            0,
-                                            soSample.getSampleArray().length,
-                                            getSampleFile(),
-                                            "initial"
-                                    ).dump();
-                        }
-
-                        Debug.debug("Invoking preprocess() of " + soPreprocessing.getClass().getName());
-                        soPreprocessing.preprocess();
-                        Debug.debug("Done preprocess() of " + soPreprocessing.getClass().getName());
-
-                        if (sbDumpWaveGraph) {
-                            Debug.debug("Duming preprocessed wave graph...");
-
-                            new WaveGrapher
-                                    (
-                                            soSample.getSampleArray(),
-                                            0,
-                                            soSample.getSampleArray().length,
-                                            getSampleFile(),
-                                            "preprocessed"
-                                    ).dump();
-                        }
-
-						/*
-						 * Feature Extraction Stage
-						 */
-                        Debug.debug("Feature extraction...");
-                        soFeatureExtraction = FeatureExtractionFactory.create(siFeatureExtractionMethod, soPreprocessing);
-
-                        synchronized (soFeatureExtraction) {
-                            soFeatureExtraction.extractFeatures();
-
-							/*
-							 * Classification Stage
-							 */
-                            Debug.debug("Classification...");
-                            soClassification = ClassificationFactory.create(siClassificationMethod, soFeatureExtraction);
-						
-							/*
-							 * Classification ends in here, as it is continue in one
-							 * way or the other in train() or recognize() depending on
-							 * the curren run-time mode.
-							 */
-                        }// feat
-                    }// prep
-                }//sample itself
-            }//sampleloader
-        }//samplefilename
-    }
-
-    /**
-     * Checks for all necessary settings to be present.
-     * Specifically, checks whether preprocessing, feature
-     * extraction, classification methods are set as well as
-     * the audio sample format. The filename of the sample
-     * or a directory must also be present.
-     *
-     * @throws MARFException if any of the settings are unset
-     * @since 0.3.0.5
+        getCurrentPipeline().commitTraining();
+    }
+
+    /**
+     * Aborts the batch training session of the current pipeline, if any.
+     *
+     * @see MARFPipeline#abortTraining()
+     * @since 0.3.0.6
+     */
+    public static final void abortTraining() {
+        getCurrentPipeline().abortTraining();
+    }
+
+    /**
+     * Retrieves the training batch in progress in the current pipeline.
+     *
+     * @return the batch or <code>null</code> if training is not batched
+     * @since 0.3.0.6
+     */
+    public static final TrainingBatch getTrainingBatch() {
+        return getCurrentPipeline().getTrainingBatch();
+    }
+
+    /**
+     * Retrieves the pipeline the static API operates on: the pipeline
+     * running in the calling thread (or in the thread that started it),
+     * or the default pipeline otherwise.
+     *
+     * @return the current pipeline, never <code>null</code>
+     * @since 0.3.0.6
+     */
+    public static final MARFPipeline getCurrentPipeline() {
+        MARFPipeline oPipeline = MARFPipeline.getBoundPipeline();
+        return oPipeline == null ? soDefaultPipeline : oPipeline;
+    }
+
+    /**
+     * Retrieves the default pipeline backing the static API.
+     * Useful as a template for the per-thread pipelines, e.g.
+     * <code>new MARFPipeline(MARF.getDefaultPipeline())</code>.
+     *
+     * @return the default pipeline
+     * @since 0.3.0.6
      */
-    private static synchronized void checkSettings()
+    public static final MARFPipeline getDefaultPipeline() {
+        return soDefaultPipeline;
+    }
+
+    /**
+     * Buffered sample processing for large samples: recognition reading the
+     * sample in chunks of bounded size.
+     *
+     * @throws MARFException if any of the modules cannot stream or
+     *                       there was an error in the pipeline or classification
+     * @see MARFPipeline#streamedRecognition()
+     */
+    public static final void streamedRecognition()
             throws MARFException {
-        if
-                (
-                siPreprocessingMethod == UNSET ||
-                        siFeatureExtractionMethod == UNSET ||
-                        siClassificationMethod == UNSET ||
-                        siSampleFormat == UNSET ||
-
-                        // TODO: either filename or dir must present
-                        (sstrFileName.equals("") && sstrSamplesDir.equals(""))
-                ) {
-            // TODO: Enhance error reporting here
-            String strSetupErrMsg =
-                    "MARF.startRecognitionPipeline() - Some configuration parameters were unset.\n" +
-                            getConfig();
-
-            throw new MARFException(strSetupErrMsg);
-        }
+        getCurrentPipeline().streamedRecognition();
+    }
+
+    /**
+     * Training counterpart of <code>streamedRecognition()</code>.
+     *
+     * @throws MARFException if the subject is unset, any of the modules
+     *                       cannot stream, or there was an error in training
+     * @see MARFPipeline#streamedTraining()
+     * @since 0.3.0.6
+     */
+    public static final void streamedTraining()
+            throws MARFException {
+        getCurrentPipeline().streamedTraining();
+    }
+
+    /**
+     * Sets how many audio data elements are read at a time in the streamed mode.
+     *
+     * @param piStreamChunkSize chunk size
+     * @see MARFPipeline#setStreamChunkSize(int)
+     * @since 0.3.0.6
+     */
+    public static final void setStreamChunkSize(final int piStreamChunkSize) {
+        getCurrentPipeline().setStreamChunkSize(piStreamChunkSize);
+    }
+
+    /**
+     * Retrieves the chunk size of the streamed mode.
+     *
+     * @return chunk size
+     * @since 0.3.0.6
+     */
+    public static final int getStreamChunkSize() {
+        return getCurrentPipeline().getStreamChunkSize();
+    }
+
+    /**
+     * Sets how many of the best results the classifiers retain.
+     *
+     * @param piResultLimit number of results; <code>MARFPipeline.ALL_RESULTS</code> for all
+     * @see MARFPipeline#setResultLimit(int)
+     * @since 0.3.0.6
+     */
+    public static final void setResultLimit(final int piResultLimit) {
+        getCurrentPipeline().setResultLimit(piResultLimit);
     }
 
     /**
-     * Meant to provide implementation of the buffered sample processing for large samples.
-     * Not implemented.
+     * Retrieves how many of the best results the classifiers retain.
      *
-     * @throws NotImplementedException
+     * @return number of results, or <code>MARFPipeline.ALL_RESULTS</code>
+     * @since 0.3.0.6
      */
-    public static synchronized final void streamedRecognition() {
-        throw new NotImplementedException("MARF.streamedRecognition()");
+    public static final int getResultLimit() {
+        return getCurrentPipeline().getResultLimit();
     }
 
     /**
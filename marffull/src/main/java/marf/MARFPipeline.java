@@ -0,0 +1,1411 @@
+/*
+ * The MARF System.
+ */
+
+package marf;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+import marf.Classification.ClassificationException;
+import marf.Classification.ClassificationFactory;
+import marf.Classification.IClassification;
+import marf.FeatureExtraction.FeatureExtractionFactory;
+import marf.FeatureExtraction.IFeatureExtraction;
+import marf.FeatureExtraction.IStreamingFeatureExtraction;
+import marf.Preprocessing.IPreprocessing;
+import marf.Preprocessing.IStreamingPreprocessing;
+import marf.Preprocessing.PreprocessingFactory;
+import marf.Storage.ISampleLoader;
+import marf.Storage.ModuleParams;
+import marf.Storage.Result;
+import marf.Storage.ResultSet;
+import marf.Storage.Sample;
+import marf.Storage.SampleLoader;
+import marf.Storage.SampleLoaderFactory;
+import marf.Storage.TrainingBatch;
+import marf.gui.WaveGrapher;
+import marf.util.Debug;
+import marf.util.ExecutionService;
+import marf.util.MARFException;
+
+
+/**
+ * <p>Instance-based recognition pipeline.</p>
+ * <p>Holds its own configuration (module selection, sample format,
+ * module parameters, plugins) and its own per-request state (sample,
+ * loader, preprocessing, feature extraction and classification
+ * modules), so that several pipelines can run recognition or training
+ * concurrently within the same JVM, e.g. one per core in a server.
+ * The static API of <code>MARF</code> is a thin wrapper over
+ * a default instance of this class.</p>
+ *
+ * <p>While a pipeline is running, it is bound to the running thread
+ * (and the threads that thread starts), so that the modules querying
+ * <code>MARF.get*()</code> see this pipeline's configuration and
+ * not the default one.</p>
+ *
+ * <p>An instance serializes its own <code>recognize()</code> and
+ * <code>train()</code> calls on a dedicated run lock, separate from the
+ * configuration monitor, so the module threads can still query the
+ * configuration while the pipeline runs; different instances do not
+ * block each other.</p>
+ *
+ * <p>$Id$</p>
+ *
+ * @author The MARF Research and Development Group
+ * @version $Revision$
+ * @see MARF
+ * @since 0.3.0.6
+ */
+public class MARFPipeline {
+    /**
+     * Default number of audio data elements read at a time
+     * in the streamed mode, 8192.
+     */
+    public static final int DEFAULT_STREAM_CHUNK_SIZE = 8192;
+
+    /**
+     * Result limit indicating that classifiers report a result
+     * for every subject, which is the default.
+     */
+    public static final int ALL_RESULTS = 0;
+
+	/*
+	 * --------------------------------------------------------
+	 * Thread Binding
+	 * --------------------------------------------------------
+	 */
+
+    /**
+     * Pipeline currently running in a given thread. Not inheritable,
+     * as the pooled threads would keep the pipeline of the thread that
+     * created them; the tasks of the execution service are bound to
+     * the pipeline of their submitter instead.
+     *
+     * @see ExecutionService#submit(String, java.util.concurrent.Callable)
+     */
+    private static final ThreadLocal soCurrentPipeline = new ThreadLocal();
+
+	/*
+	 * --------------------------------------------------------
+	 * Configuration
+	 * --------------------------------------------------------
+	 */
+
+    /**
+     * Indicates what preprocessing method to use in the pipeline.
+     */
+    private int iPreprocessingMethod = MARF.UNSET;
+
+    /**
+     * Indicates what feature extraction method to use in the pipeline.
+     */
+    private int iFeatureExtractionMethod = MARF.UNSET;
+
+    /**
+     * Indicates what classification method to use in the pipeline.
+     */
+    private int iClassificationMethod = MARF.UNSET;
+
+    /**
+     * Indicates what sample format is in use.
+     */
+    private int iSampleFormat = MARF.UNSET;
+
+    /**
+     * ID of the currently trained speaker.
+     */
+    private int iCurrentSubject = MARF.UNSET;
+
+    /**
+     * Indicates current incoming sample filename.
+     */
+    private String strFileName = "";
+
+    /**
+     * Indicates directory name with training samples.
+     */
+    private String strSamplesDir = "";
+
+    /**
+     * Stores module-specific parameters in an independent way.
+     */
+    private ModuleParams oModuleParams = null;
+
+    /**
+     * Indicates whether or not to dump a spectrogram at the end of feature extraction.
+     */
+    private boolean bDumpSpectrogram = false;
+
+    /**
+     * Indicates whether or not to dump a wave graph.
+     */
+    private boolean bDumpWaveGraph = false;
+
+    /**
+     * Number of audio data elements read at a time in the streamed mode.
+     */
+    private int iStreamChunkSize = DEFAULT_STREAM_CHUNK_SIZE;
+
+    /**
+     * Maximum number of best results the classifiers put into
+     * their result sets; <code>ALL_RESULTS</code> for no limit.
+     */
+    private int iResultLimit = ALL_RESULTS;
+
+    /**
+     * Class of a sample loader plugin.
+     */
+    private Class oSampleLoaderPluginClass = null;
+
+    /**
+     * Class of a preprocessing plugin.
+     */
+    private Class oPreprocessingPluginClass = null;
+
+    /**
+     * Class of a feature extraction plugin.
+     */
+    private Class oFeatureExtractionPluginClass = null;
+
+    /**
+     * Class of a classification plugin.
+     */
+    private Class oClassificationPluginClass = null;
+
+    /**
+     * Training batch in progress, if any.
+     */
+    private TrainingBatch oTrainingBatch = null;
+
+	/*
+	 * --------------------------------------------------------
+	 * Per-request Module Instance References
+	 * --------------------------------------------------------
+	 */
+
+    /**
+     * Serializes runs of this pipeline.
+     */
+    private final Object oRunLock = new Object();
+
+    /**
+     * Internal <code>Sample</code> reference.
+     */
+    private volatile Sample oSample = null;
+
+    /**
+     * Internal <code>SampleLoader</code> reference.
+     */
+    private volatile ISampleLoader oSampleLoader = null;
+
+    /**
+     * Internal <code>Preprocessing</code> reference.
+     */
+    private volatile IPreprocessing oPreprocessing = null;
+
+    /**
+     * Internal <code>FeatureExtraction</code> reference.
+     */
+    private volatile IFeatureExtraction oFeatureExtraction = null;
+
+    /**
+     * Internal <code>Classification</code> reference.
+     */
+    private volatile IClassification oClassification = null;
+
+	/*
+	 * --------------------------------------------------------
+	 * Constructors
+	 * --------------------------------------------------------
+	 */
+
+    /**
+     * Constructs a pipeline with all the configuration parameters unset.
+     */
+    public MARFPipeline() {
+    }
+
+    /**
+     * Constructs a pipeline with the same configuration as the parameter.
+     * Per-request state (the sample and the modules) is not copied.
+     * The module parameters are copied, their vectors included, as some
+     * modules, e.g. the feature extraction aggregator, swap them while
+     * the pipeline runs. The training batch in progress, if any, is shared
+     * by reference, so that the copies train into it.
+     *
+     * @param poPipeline pipeline to copy configuration from
+     */
+    public MARFPipeline(final MARFPipeline poPipeline) {
+        synchronized (poPipeline) {
+            this.iPreprocessingMethod = poPipeline.iPreprocessingMethod;
+            this.iFeatureExtractionMethod = poPipeline.iFeatureExtractionMethod;
+            this.iClassificationMethod = poPipeline.iClassificationMethod;
+            this.iSampleFormat = poPipeline.iSampleFormat;
+            this.iCurrentSubject = poPipeline.iCurrentSubject;
+            this.strFileName = poPipeline.strFileName;
+            this.strSamplesDir = poPipeline.strSamplesDir;
+            this.oModuleParams = poPipeline.oModuleParams == null ? null : new ModuleParams(poPipeline.oModuleParams);
+            this.bDumpSpectrogram = poPipeline.bDumpSpectrogram;
+            this.bDumpWaveGraph = poPipeline.bDumpWaveGraph;
+            this.iStreamChunkSize = poPipeline.iStreamChunkSize;
+            this.iResultLimit = poPipeline.iResultLimit;
+            this.oSampleLoaderPluginClass = poPipeline.oSampleLoaderPluginClass;
+            this.oPreprocessingPluginClass = poPipeline.oPreprocessingPluginClass;
+            this.oFeatureExtractionPluginClass = poPipeline.oFeatureExtractionPluginClass;
+            this.oClassificationPluginClass = poPipeline.oClassificationPluginClass;
+            this.oTrainingBatch = poPipeline.oTrainingBatch;
+        }
+    }
+
+	/*
+	 * --------------------------------------------------------
+	 * Thread Binding Methods
+	 * --------------------------------------------------------
+	 */
+
+    /**
+     * Retrieves the pipeline running in the calling thread.
+     *
+     * @return the bound pipeline or <code>null</code> if none is running
+     */
+    public static MARFPipeline getBoundPipeline() {
+        return (MARFPipeline) soCurrentPipeline.get();
+    }
+
+    /**
+     * Binds a pipeline to the calling thread. The previous binding
+     * must be restored once the pipeline is done with.
+     *
+     * @param poPipeline the pipeline to bind; <code>null</code> unbinds
+     * @return previously bound pipeline, to be restored after
+     */
+    public static MARFPipeline bind(final MARFPipeline poPipeline) {
+        MARFPipeline oPrevious = (MARFPipeline) soCurrentPipeline.get();
+        soCurrentPipeline.set(poPipeline);
+        return oPrevious;
+    }
+
+	/*
+	 * --------------------------------------------------------
+	 * Setting/Getting Configuration Parameters
+	 * --------------------------------------------------------
+	 */
+
+    /**
+     * Sets preprocessing method to be used.
+     *
+     * @param piPreprocessingMethod one of the allowed preprocessing methods
+     * @throws MARFException if the parameter outside of the valid range
+     */
+    public synchronized void setPreprocessingMethod(final int piPreprocessingMethod)
+            throws MARFException {
+        if (piPreprocessingMethod < MARF.MIN_PREPROCESSING_METHOD || piPreprocessingMethod > MARF.MAX_PREPROCESSING_METHOD) {
+            throw new MARFException
+                    (
+                            "Preprocessing method (" + piPreprocessingMethod +
+                                    ") is out of range [" + MARF.MIN_PREPROCESSING_METHOD + "," + MARF.MAX_PREPROCESSING_METHOD + "]."
+                    );
+        }
+
+        this.iPreprocessingMethod = piPreprocessingMethod;
+    }
+
+    /**
+     * Gets currently selected preprocessing method.
+     *
+     * @return one of the preprocessing methods
+     */
+    public synchronized int getPreprocessingMethod() {
+        return this.iPreprocessingMethod;
+    }
+
+    /**
+     * Sets feature extraction method to be used.
+     *
+     * @param piFeatureExtractionMethod one of the allowed feature extraction methods
+     * @throws MARFException if the parameter outside of the valid range
+     */
+    public synchronized void setFeatureExtractionMethod(final int piFeatureExtractionMethod)
+            throws MARFException {
+        if (piFeatureExtractionMethod < MARF.MIN_FEATUREEXTRACTION_METHOD || piFeatureExtractionMethod > MARF.MAX_FEATUREEXTRACTION_METHOD) {
+            throw new MARFException
+                    (
+                            "Feature extraction method (" + piFeatureExtractionMethod +
+                                    ") is out of range [" + MARF.MIN_FEATUREEXTRACTION_METHOD + "," + MARF.MAX_FEATUREEXTRACTION_METHOD + "]."
+                    );
+        }
+
+        this.iFeatureExtractionMethod = piFeatureExtractionMethod;
+    }
+
+    /**
+     * Gets currently selected feature extraction method.
+     *
+     * @return current feature extraction method
+     */
+    public synchronized int getFeatureExtractionMethod() {
+        return this.iFeatureExtractionMethod;
+    }
+
+    /**
+     * Sets classification method to be used.
+     *
+     * @param piClassificationMethod one of the allowed classification methods
+     * @throws MARFException if the parameter outside of the valid range
+     */
+    public synchronized void setClassificationMethod(final int piClassificationMethod)
+            throws MARFException {
+        if (piClassificationMethod < MARF.MIN_CLASSIFICATION_METHOD || piClassificationMethod > MARF.MAX_CLASSIFICATION_METHOD) {
+            throw new MARFException
+                    (
+                            "Classification method (" + piClassificationMethod +
+                                    ") is out of range [" + MARF.MIN_CLASSIFICATION_METHOD + "," + MARF.MAX_CLASSIFICATION_METHOD + "]."
+                    );
+        }
+
+        this.iClassificationMethod = piClassificationMethod;
+    }
+
+    /**
+     * Gets classification method to be used.
+     *
+     * @return current classification method
+     */
+    public synchronized int getClassificationMethod() {
+        return this.iClassificationMethod;
+    }
+
+    /**
+     * Sets input sample file format.
+     *
+     * @param piSampleFormat one of the allowed sample formats
+     */
+    public synchronized void setSampleFormat(final int piSampleFormat) {
+        this.iSampleFormat = piSampleFormat;
+    }
+
+    /**
+     * Gets input sample file format.
+     *
+     * @return current sample format
+     */
+    public synchronized int getSampleFormat() {
+        return this.iSampleFormat;
+    }
+
+    /**
+     * Sets input sample file name.
+     *
+     * @param pstrFileName string representing sample file to be read
+     */
+    public synchronized void setSampleFile(final String pstrFileName) {
+        this.strFileName = pstrFileName;
+    }
+
+    /**
+     * Obtains filename of a sample currently being processed.
+     *
+     * @return file name of a string representing sample file
+     */
+    public synchronized String getSampleFile() {
+        return this.strFileName;
+    }
+
+    /**
+     * Sets directory with sample files to be read from.
+     *
+     * @param pstrSamplesDir string representing directory name
+     */
+    public synchronized void setSamplesDir(final String pstrSamplesDir) {
+        this.strSamplesDir = pstrSamplesDir;
+    }
+
+    /**
+     * Gets directory with sample files to be read from.
+     *
+     * @return directory name
+     */
+    public synchronized String getSamplesDir() {
+        return this.strSamplesDir;
+    }
+
+    /**
+     * Sets module-specific parameters an application programmer wishes to pass on to the module.
+     *
+     * @param poModuleParams parameters' instance
+     */
+    public synchronized void setModuleParams(final ModuleParams poModuleParams) {
+        this.oModuleParams = poModuleParams;
+    }
+
+    /**
+     * Gets module-specific parameters an application programmer passed on to the module.
+     *
+     * @return ModuleParams object reference
+     */
+    public synchronized ModuleParams getModuleParams() {
+        return this.oModuleParams;
+    }
+
+    /**
+     * Indicates whether spectrogram is wanted as an output of a FeatureExtraction module.
+     *
+     * @param pbDump <code>true</code> if wanted, <code>false</code> if not
+     */
+    public synchronized void setDumpSpectrogram(final boolean pbDump) {
+        this.bDumpSpectrogram = pbDump;
+    }
+
+    /**
+     * Whether spectrogram wanted or not.
+     *
+     * @return <code>true</code> if spectrogram being dumped, <code>false</code> otherwise
+     */
+    public synchronized boolean getDumpSpectrogram() {
+        return this.bDumpSpectrogram;
+    }
+
+    /**
+     * Indicates whether wave graph is wanted as an output.
+     *
+     * @param pbDump <code>true</code> if wanted, <code>false</code> if not
+     */
+    public synchronized void setDumpWaveGraph(final boolean pbDump) {
+        this.bDumpWaveGraph = pbDump;
+    }
+
+    /**
+     * Whether wave graph wanted or not.
+     *
+     * @return <code>true</code> if graph wanted being dumped, <code>false</code> otherwise
+     */
+    public synchronized boolean getDumpWaveGraph() {
+        return this.bDumpWaveGraph;
+    }
+
+    /**
+     * Sets how many audio data elements are read at a time in the
+     * streamed mode, which bounds the memory used for the sample.
+     *
+     * @param piStreamChunkSize chunk size
+     * @throws IllegalArgumentException if the parameter is less than 1
+     * @see #streamedRecognition()
+     */
+    public synchronized void setStreamChunkSize(final int piStreamChunkSize) {
+        if (piStreamChunkSize < 1) {
+            throw new IllegalArgumentException("Stream chunk size (" + piStreamChunkSize + ") is less than 1.");
+        }
+
+        this.iStreamChunkSize = piStreamChunkSize;
+    }
+
+    /**
+     * Retrieves the chunk size of the streamed mode.
+     *
+     * @return chunk size
+     */
+    public synchronized int getStreamChunkSize() {
+        return this.iStreamChunkSize;
+    }
+
+    /**
+     * Sets how many of the best results the classifiers retain.
+     * With many enrolled subjects and only the best one or two
+     * of interest this spares building a result for every subject.
+     * Classifiers that do not support a limit report all results.
+     *
+     * @param piResultLimit number of results; <code>ALL_RESULTS</code> for all
+     * @throws IllegalArgumentException if the parameter is negative
+     * @see #ALL_RESULTS
+     */
+    public synchronized void setResultLimit(final int piResultLimit) {
+        if (piResultLimit < 0) {
+            throw new IllegalArgumentException("Result limit (" + piResultLimit + ") is negative.");
+        }
+
+        this.iResultLimit = piResultLimit;
+    }
+
+    /**
+     * Retrieves how many of the best results the classifiers retain.
+     *
+     * @return number of results, or <code>ALL_RESULTS</code>
+     */
+    public synchronized int getResultLimit() {
+        return this.iResultLimit;
+    }
+
+    /**
+     * Sets ID of a subject currently being trained on.
+     *
+     * @param piSubjectID integer ID of the subject
+     */
+    public synchronized void setCurrentSubject(final int piSubjectID) {
+        this.iCurrentSubject = piSubjectID;
+    }
+
+    /**
+     * Gets ID of a subject currently being trained on.
+     *
+     * @return integer ID of the subject
+     */
+    public synchronized int getCurrentSubject() {
+        return this.iCurrentSubject;
+    }
+
+    /**
+     * Allows setting a loaded sample loader plugin class.
+     *
+     * @param poClass class represting a sample loader plugin object
+     * @throws MARFException if the parameter is <code>null</code>
+     */
+    public synchronized void setSampleLoaderPluginClass(Class poClass)
+            throws MARFException {
+        if (poClass == null) {
+            throw new MARFException("Plugin class cannot be null.");
+        }
+
+        this.oSampleLoaderPluginClass = poClass;
+    }
+
+    /**
+     * Allows querying for the current sample loader plugin class.
+     *
+     * @return the internal plugin class
+     */
+    public synchronized Class getSampleLoaderPluginClass() {
+        return this.oSampleLoaderPluginClass;
+    }
+
+    /**
+     * Allows setting a loaded preprocessing plugin class.
+     *
+     * @param poClass class represting a preprocessing plugin object
+     * @throws MARFException if the parameter is <code>null</code>
+     */
+    public synchronized void setPreprocessingPluginClass(Class poClass)
+            throws MARFException {
+        if (poClass == null) {
+            throw new MARFException("Plugin class cannot be null.");
+        }
+
+        this.oPreprocessingPluginClass = poClass;
+    }
+
+    /**
+     * Allows querying for the current preprocessing plugin class.
+     *
+     * @return the internal plugin class
+     */
+    public synchronized Class getPreprocessingPluginClass() {
+        return this.oPreprocessingPluginClass;
+    }
+
+    /**
+     * Allows setting a loaded feature extraction class plugin class.
+     *
+     * @param poClass class represting a feature extraction plugin object
+     * @throws MARFException if the parameter is <code>null</code>
+     */
+    public synchronized void setFeatureExtractionPluginClass(Class poClass)
+            throws MARFException {
+        if (poClass == null) {
+            throw new MARFException("Plugin class cannot be null.");
+        }
+
+        this.oFeatureExtractionPluginClass = poClass;
+    }
+
+    /**
+     * Allows querying for the current feature extraction plugin class.
+     *
+     * @return the internal plugin class
+     */
+    public synchronized Class getFeatureExtractionPluginClass() {
+        return this.oFeatureExtractionPluginClass;
+    }
+
+    /**
+     * Allows setting a loaded classification plugin class.
+     *
+     * @param poClass class represting a classification plugin object
+     * @throws MARFException if the parameter is <code>null</code>
+     */
+    public synchronized void setClassificationPluginClass(Class poClass)
+            throws MARFException {
+        if (poClass == null) {
+            throw new MARFException("Plugin class cannot be null.");
+        }
+
+        this.oClassificationPluginClass = poClass;
+    }
+
+    /**
+     * Allows querying for the current classification plugin class.
+     *
+     * @return the internal plugin class
+     */
+    public synchronized Class getClassificationPluginClass() {
+        return this.oClassificationPluginClass;
+    }
+
+    /**
+     * Begins a batch training session without periodic checkpoints.
+     *
+     * @return the new batch
+     * @throws MARFException if a batch is already in progress
+     * @see #beginTraining(int)
+     */
+    public TrainingBatch beginTraining()
+            throws MARFException {
+        return beginTraining(TrainingBatch.NO_CHECKPOINTS);
+    }
+
+    /**
+     * Begins a batch training session. Until it's committed, <code>train()</code>
+     * only updates the training sets kept in memory instead of rewriting them
+     * on disk for every sample.
+     *
+     * @param piCheckpointInterval dump the training sets every so many samples;
+     *                             <code>TrainingBatch.NO_CHECKPOINTS</code> to only dump on commit
+     * @return the new batch
+     * @throws MARFException if a batch is already in progress
+     * @see #commitTraining()
+     */
+    public synchronized TrainingBatch beginTraining(final int piCheckpointInterval)
+            throws MARFException {
+        if (this.oTrainingBatch != null) {
+            throw new MARFException("A training batch is already in progress.");
+        }
+
+        this.oTrainingBatch = new TrainingBatch(piCheckpointInterval);
+
+        return this.oTrainingBatch;
+    }
+
+    /**
+     * Writes out the training sets of the batch in progress and ends the batch.
+     *
+     * @throws MARFException if there is no batch in progress or dumping fails
+     */
+    public synchronized void commitTraining()
+            throws MARFException {
+        if (this.oTrainingBatch == null) {
+            throw new MARFException("No training batch in progress.");
+        }
+
+        try {
+            this.oTrainingBatch.commit();
+        } finally {
+            this.oTrainingBatch = null;
+        }
+    }
+
+    /**
+     * Ends the batch in progress, discarding the samples added since
+     * its last checkpoint. Does nothing if there is no batch.
+     */
+    public synchronized void abortTraining() {
+        if (this.oTrainingBatch != null) {
+            this.oTrainingBatch.abort();
+            this.oTrainingBatch = null;
+        }
+    }
+
+    /**
+     * Retrieves the training batch in progress.
+     *
+     * @return the batch or <code>null</code> if training is not batched
+     */
+    public synchronized TrainingBatch getTrainingBatch() {
+        return this.oTrainingBatch;
+    }
+
+    /**
+     * Returns a string representation of this pipeline's configuration.
+     *
+     * @return configuration string
+     */
+    public synchronized String getConfig() {
+        return new StringBuffer()
+                .append("[")
+                .append("PR: ").append(this.iPreprocessingMethod).append(", ")
+                .append("FE: ").append(this.iFeatureExtractionMethod).append(", ")
+                .append("CL: ").append(this.iClassificationMethod).append(", ")
+                .append("ID: ").append(this.iCurrentSubject)
+                .append("]")
+                .toString();
+    }
+
+	/*
+	 * --------------------------------------------------------
+	 * Per-request State
+	 * --------------------------------------------------------
+	 */
+
+    /**
+     * Retrieves current <code>Sample</code> reference.
+     *
+     * @return Sample object
+     */
+    public Sample getSample() {
+        return this.oSample;
+    }
+
+    /**
+     * Retrieves current <code>SampleLoader</code> reference.
+     *
+     * @return SampleLoader object
+     */
+    public ISampleLoader getSampleLoader() {
+        return this.oSampleLoader;
+    }
+
+    /**
+     * Retrieves current <code>Preprocessing</code> reference.
+     *
+     * @return Preprocessing object
+     */
+    public IPreprocessing getPreprocessing() {
+        return this.oPreprocessing;
+    }
+
+    /**
+     * Retrieves current <code>FeatureExtraction</code> reference.
+     *
+     * @return FeatureExtraction object
+     */
+    public IFeatureExtraction getFeatureExtraction() {
+        return this.oFeatureExtraction;
+    }
+
+    /**
+     * Retrieves current <code>Classification</code> reference.
+     *
+     * @return Classification object
+     */
+    public IClassification getClassification() {
+        return this.oClassification;
+    }
+
+    /**
+     * Queries for the final classification result.
+     *
+     * @return integer ID of the indentified subject
+     */
+    public int queryResultID() {
+        return this.oClassification.getResult().getID();
+    }
+
+    /**
+     * Gets the entire Result object of the likely outcome.
+     *
+     * @return Result ID and all the stats of the classification
+     */
+    public Result getResult() {
+        return this.oClassification.getResult();
+    }
+
+    /**
+     * Gets the entire collection of results.
+     *
+     * @return ResultSet object with one or more results.
+     */
+    public ResultSet getResultSet() {
+        return this.oClassification.getResultSet();
+    }
+
+	/*
+	 * --------------------------------------------------------
+	 * API
+	 * --------------------------------------------------------
+	 */
+
+    /**
+     * Recognition/Identification mode.
+     *
+     * @throws MARFException if there was an error in the pipeline
+     *                       or classification
+     */
+    public void recognize()
+            throws MARFException {
+        recognize(false);
+    }
+
+    /**
+     * Recognition/Identification mode for samples too large to be
+     * loaded into memory at once. The sample is read, preprocessed, and
+     * its features extracted in chunks of <code>getStreamChunkSize()</code>
+     * elements, so the memory used does not depend on the sample's length.
+     * Requires the preprocessing and feature extraction modules to
+     * implement <code>IStreamingPreprocessing</code> and
+     * <code>IStreamingFeatureExtraction</code> respectively, and the
+     * sample loader to extend <code>SampleLoader</code>. Wave graphs
+     * are not dumped in this mode.
+     *
+     * @throws MARFException if any of the modules cannot stream or
+     *                       there was an error in the pipeline or classification
+     * @see #recognize()
+     */
+    public void streamedRecognition()
+            throws MARFException {
+        recognize(true);
+    }
+
+    /**
+     * Recognizes the current sample with or without streaming.
+     *
+     * @param pbStreamed <code>true</code> to run the streamed pipeline
+     * @throws MARFException if there was an error in the pipeline
+     *                       or classification
+     */
+    private void recognize(final boolean pbStreamed)
+            throws MARFException {
+        synchronized (this.oRunLock) {
+            MARFPipeline oPrevious = bind(this);
+
+            try {
+                if (pbStreamed) {
+                    startStreamedPipeline();
+                } else {
+                    startRecognitionPipeline();
+                }
+
+                Debug.debug("MARF: Classifying...");
+
+                if (this.oClassification.classify() == false) {
+                    throw new ClassificationException("Classification returned false.");
+                }
+            } finally {
+                bind(oPrevious);
+            }
+        }
+    }
+
+    /**
+     * Training mode.
+     *
+     * @throws MARFException if the subject is unset or there was
+     *                       an error in training in the underlying classification module
+     */
+    public void train()
+            throws MARFException {
+        train(null, false);
+    }
+
+    /**
+     * Training mode for samples too large to be loaded into memory at once.
+     *
+     * @throws MARFException if the subject is unset, any of the modules
+     *                       cannot stream, or there was an error in training
+     * @see #streamedRecognition()
+     */
+    public void streamedTraining()
+            throws MARFException {
+        train(null, true);
+    }
+
+    /**
+     * Training mode with the classification stage optionally serialized
+     * on a lock shared among several pipelines, so that they can run the
+     * rest of the pipeline in parallel while updating the same model.
+     *
+     * @param poClassificationLock lock to hold while training the classifier;
+     *                             <code>null</code> if none is needed
+     * @param pbStreamed           <code>true</code> to run the streamed pipeline
+     * @throws MARFException if the subject is unset or there was
+     *                       an error in training in the underlying classification module
+     */
+    private void train(final Object poClassificationLock, final boolean pbStreamed)
+            throws MARFException {
+        if (getCurrentSubject() == MARF.UNSET) {
+            throw new MARFException("Unset subject ID for training.");
+        }
+
+        synchronized (this.oRunLock) {
+            MARFPipeline oPrevious = bind(this);
+
+            try {
+                if (pbStreamed) {
+                    startStreamedPipeline();
+                } else {
+                    startRecognitionPipeline();
+                }
+
+                Debug.debug("MARF: Training...");
+
+                boolean bTrained;
+
+                if (poClassificationLock == null) {
+                    bTrained = this.oClassification.train();
+                } else {
+                    synchronized (poClassificationLock) {
+                        bTrained = this.oClassification.train();
+                    }
+                }
+
+                if (bTrained == false) {
+                    throw new ClassificationException("Training returned false.");
+                }
+            } finally {
+                bind(oPrevious);
+            }
+        }
+    }
+
+	/*
+	 * --------------------------------------------------------
+	 * Batch API
+	 * --------------------------------------------------------
+	 */
+
+    /**
+     * Recognizes every sample file in a collection in parallel, on as many
+     * worker threads as there are processors. Each file is run through
+     * a pipeline of its own configured as this one.
+     *
+     * @param poSampleFiles collection of <code>File</code>s to recognize
+     * @return <code>Map</code> of each <code>File</code> to its <code>ResultSet</code>,
+     * in the iteration order of the parameter
+     * @throws MARFException if recognition of any of the files fails
+     * @see #recognizeAll(Collection, int)
+     */
+    public Map recognizeAll(final Collection poSampleFiles)
+            throws MARFException {
+        return recognizeAll(poSampleFiles, getDefaultWorkerCount());
+    }
+
+    /**
+     * Recognizes every sample file in a collection in parallel on a bounded
+     * number of worker threads.
+     *
+     * @param poSampleFiles collection of <code>File</code>s to recognize
+     * @param piWorkers     maximum number of worker threads
+     * @return <code>Map</code> of each <code>File</code> to its <code>ResultSet</code>,
+     * in the iteration order of the parameter
+     * @throws MARFException if recognition of any of the files fails
+     */
+    public Map recognizeAll(final Collection poSampleFiles, final int piWorkers)
+            throws MARFException {
+        final Map oResults = new LinkedHashMap();
+        List oTasks = new ArrayList(poSampleFiles.size());
+
+        for (Iterator oFiles = poSampleFiles.iterator(); oFiles.hasNext(); ) {
+            final File oFile = (File) oFiles.next();
+            final MARFPipeline oWorker = new MARFPipeline(this);
+
+            oWorker.setSampleFile(oFile.getPath());
+            oResults.put(oFile, null);
+
+            oTasks.add(new Callable() {
+                public Object call()
+                        throws MARFException {
+                    oWorker.recognize();
+                    return oWorker.getResultSet();
+                }
+            });
+        }
+
+        List oResultSets = runAll(oTasks, piWorkers);
+        Iterator oFiles = poSampleFiles.iterator();
+
+        for (int i = 0; i < oResultSets.size(); i++) {
+            oResults.put(oFiles.next(), oResultSets.get(i));
+        }
+
+        return oResults;
+    }
+
+    /**
+     * Recognizes every file found in a directory.
+     *
+     * @param poDirectory directory with sample files
+     * @return <code>Map</code> of each <code>File</code> to its <code>ResultSet</code>,
+     * ordered by file name
+     * @throws MARFException if the directory cannot be listed or recognition of any of the files fails
+     * @see #recognizeAll(Collection)
+     */
+    public Map recognizeAll(final File poDirectory)
+            throws MARFException {
+        return recognizeAll(listSampleFiles(poDirectory));
+    }
+
+    /**
+     * Recognizes every file found in the samples directory.
+     *
+     * @return <code>Map</code> of each <code>File</code> to its <code>ResultSet</code>,
+     * ordered by file name
+     * @throws MARFException if the directory is unset, cannot be listed or recognition of any of the files fails
+     * @see #setSamplesDir(String)
+     */
+    public Map recognizeAll()
+            throws MARFException {
+        String strSamplesDir = getSamplesDir();
+
+        if (strSamplesDir == null || strSamplesDir.equals("")) {
+            throw new MARFException("Samples directory is unset.");
+        }
+
+        return recognizeAll(new File(strSamplesDir));
+    }
+
+    /**
+     * Trains on every sample file in a map in parallel, on as many
+     * worker threads as there are processors.
+     *
+     * @param poSampleFiles <code>Map</code> of <code>File</code>s to train on to their <code>Integer</code> subject IDs
+     * @throws MARFException if training on any of the files fails
+     * @see #trainAll(Map, int)
+     */
+    public void trainAll(final Map poSampleFiles)
+            throws MARFException {
+        trainAll(poSampleFiles, getDefaultWorkerCount());
+    }
+
+    /**
+     * Trains on every sample file in a map in parallel on a bounded number
+     * of worker threads. Loading, preprocessing and feature extraction run
+     * concurrently; the classification stage updating the shared model is
+     * serialized. If no training batch is in progress, one is started for
+     * the duration of the call and committed at the end, so that the
+     * training sets are written once.
+     *
+     * @param poSampleFiles <code>Map</code> of <code>File</code>s to train on to their <code>Integer</code> subject IDs
+     * @param piWorkers     maximum number of worker threads
+     * @throws MARFException if training on any of the files fails
+     */
+    public void trainAll(final Map poSampleFiles, final int piWorkers)
+            throws MARFException {
+        boolean bOwnBatch = getTrainingBatch() == null;
+
+        if (bOwnBatch) {
+            beginTraining();
+        }
+
+        try {
+            final Object oClassificationLock = new Object();
+            List oTasks = new ArrayList(poSampleFiles.size());
+
+            for (Iterator oEntries = poSampleFiles.entrySet().iterator(); oEntries.hasNext(); ) {
+                Map.Entry oEntry = (Map.Entry) oEntries.next();
+                final MARFPipeline oWorker = new MARFPipeline(this);
+
+                oWorker.setSampleFile(((File) oEntry.getKey()).getPath());
+                oWorker.setCurrentSubject(((Integer) oEntry.getValue()).intValue());
+
+                oTasks.add(new Callable() {
+                    public Object call()
+                            throws MARFException {
+                        oWorker.train(oClassificationLock, false);
+                        return null;
+                    }
+                });
+            }
+
+            runAll(oTasks, piWorkers);
+
+            if (bOwnBatch) {
+                commitTraining();
+            }
+        } finally {
+            if (bOwnBatch) {
+                abortTraining();
+            }
+        }
+    }
+
+    /**
+     * Runs the tasks on the pipeline queue of the MARF-wide execution
+     * service, at most a given number at a time, and collects their
+     * results. Stops at the first failure.
+     *
+     * @param poTasks   list of <code>Callable</code>s
+     * @param piWorkers maximum number of tasks running at a time
+     * @return list of the tasks' results, in order
+     * @throws MARFException wrapping the first task failure
+     * @see ExecutionService#QUEUE_PIPELINE
+     */
+    private static List runAll(final List poTasks, final int piWorkers)
+            throws MARFException {
+        try {
+            return Arrays.asList(ExecutionService.invokeAll(ExecutionService.QUEUE_PIPELINE, poTasks, piWorkers));
+        } catch (ExecutionException e) {
+            Throwable oCause = e.getCause();
+
+            if (oCause instanceof MARFException) {
+                throw (MARFException) oCause;
+            }
+
+            if (oCause instanceof Error) {
+                throw (Error) oCause;
+            }
+
+            throw new MARFException(oCause.getMessage(), (Exception) oCause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MARFException("Interrupted while waiting for the workers.", e);
+        }
+    }
+
+    /**
+     * Lists regular files of a directory sorted by name.
+     *
+     * @param poDirectory directory to list
+     * @return list of <code>File</code>s
+     * @throws MARFException if the parameter is not a readable directory
+     */
+    private static List listSampleFiles(final File poDirectory)
+            throws MARFException {
+        File[] aoFiles = poDirectory.listFiles();
+
+        if (aoFiles == null) {
+            throw new MARFException("Cannot list samples directory: " + poDirectory);
+        }
+
+        Arrays.sort(aoFiles);
+
+        List oSampleFiles = new ArrayList(aoFiles.length);
+
+        for (int i = 0; i < aoFiles.length; i++) {
+            if (aoFiles[i].isFile()) {
+                oSampleFiles.add(aoFiles[i]);
+            }
+        }
+
+        return oSampleFiles;
+    }
+
+    /**
+     * Default number of workers for the batch API, one per processor.
+     *
+     * @return number of available processors
+     */
+    private static int getDefaultWorkerCount() {
+        return Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * The core processing pipeline. Works through loading, preprocessing,
+     * feature extraction up until creation of the classification module.
+     * Then <code>train()</code> or <code>recognize()</code> decide what
+     * to do with the module. Only this instance's monitor is held,
+     * so distinct pipelines do not block each other.
+     *
+     * @throws MARFException in case any underlying error happens
+     * @see #train()
+     * @see #recognize()
+     */
+    private void startRecognitionPipeline()
+            throws MARFException {
+		/*
+		 * Checking minimal required settings
+		 */
+        checkSettings();
+
+        String strSampleFile = getSampleFile();
+        boolean bWaveGraph = getDumpWaveGraph();
+
+		/*
+		 * Sample Loading Stage
+		 */
+        Debug.debug("Loading sample \"{}\"", strSampleFile);
+        this.oSampleLoader = SampleLoaderFactory.create(getSampleFormat());
+        this.oSample = this.oSampleLoader.loadSample(strSampleFile);
+
+		/*
+		 * Preprocessing Stage
+		 */
+        Debug.debug("Preprocessing...");
+        this.oPreprocessing = PreprocessingFactory.create(getPreprocessingMethod(), this.oSample);
+
+        if (bWaveGraph) {
+            Debug.debug("Duming initial wave graph...");
+
+            new WaveGrapher
+                    (
+                            this.oSample.getSampleArray(),
+                            0,
+                            this.oSample.getSampleArray().length,
+                            strSampleFile,
+                            "initial"
+                    ).dump();
+        }
+
+        Debug.debug("Invoking preprocess() of {}", this.oPreprocessing.getClass().getName());
+        this.oPreprocessing.preprocess();
+        Debug.debug("Done preprocess() of {}", this.oPreprocessing.getClass().getName());
+
+        if (bWaveGraph) {
+            Debug.debug("Duming preprocessed wave graph...");
+
+            new WaveGrapher
+                    (
+                            this.oSample.getSampleArray(),
+                            0,
+                            this.oSample.getSampleArray().length,
+                            strSampleFile,
+                            "preprocessed"
+                    ).dump();
+        }
+
+		/*
+		 * Feature Extraction Stage
+		 */
+        Debug.debug("Feature extraction...");
+        this.oFeatureExtraction = FeatureExtractionFactory.create(getFeatureExtractionMethod(), this.oPreprocessing);
+        this.oFeatureExtraction.extractFeatures();
+
+		/*
+		 * Classification Stage
+		 */
+        Debug.debug("Classification...");
+        this.oClassification = ClassificationFactory.create(getClassificationMethod(), this.oFeatureExtraction);
+
+		/*
+		 * Classification ends in here, as it is continue in one
+		 * way or the other in train() or recognize() depending on
+		 * the curren run-time mode.
+		 */
+    }
+
+    /**
+     * Streamed counterpart of <code>startRecognitionPipeline()</code>.
+     * Only one chunk of the sample is held in memory at a time; the
+     * chunks are preprocessed and fed to the feature extraction, which
+     * keeps a running accumulation of the features.
+     *
+     * @throws MARFException if any of the modules cannot stream or
+     *                       there was an error in the pipeline
+     */
+    private void startStreamedPipeline()
+            throws MARFException {
+        checkSettings();
+
+        String strSampleFile = getSampleFile();
+
+        if (getDumpWaveGraph()) {
+            Debug.debug("NOTICE: wave graphs are not dumped in the streamed mode.");
+        }
+
+		/*
+		 * Sample Loading Stage: only open the stream
+		 */
+        Debug.debug("Opening sample stream \"{}\"", strSampleFile);
+        this.oSampleLoader = SampleLoaderFactory.create(getSampleFormat());
+
+        if (this.oSampleLoader instanceof SampleLoader == false) {
+            throw new MARFException
+                    (
+                            "Sample loader " + this.oSampleLoader.getClass().getName() +
+                                    " does not support streaming."
+                    );
+        }
+
+        SampleLoader oStreamLoader = (SampleLoader) this.oSampleLoader;
+        oStreamLoader.setStreamed(true);
+
+        try {
+            this.oSample = oStreamLoader.loadSample(strSampleFile);
+
+            this.oPreprocessing = PreprocessingFactory.create(getPreprocessingMethod(), this.oSample);
+            this.oFeatureExtraction = FeatureExtractionFactory.create(getFeatureExtractionMethod(), this.oPreprocessing);
+
+            if (this.oPreprocessing instanceof IStreamingPreprocessing == false) {
+                throw new MARFException
+                        (
+                                "Preprocessing " + this.oPreprocessing.getClass().getName() +
+                                        " does not support streaming."
+                        );
+            }
+
+            if (this.oFeatureExtraction instanceof IStreamingFeatureExtraction == false) {
+                throw new MARFException
+                        (
+                                "Feature extraction " + this.oFeatureExtraction.getClass().getName() +
+                                        " does not support streaming."
+                        );
+            }
+
+            IStreamingPreprocessing oStreamPreprocessing = (IStreamingPreprocessing) this.oPreprocessing;
+            IStreamingFeatureExtraction oStreamFeatureExtraction = (IStreamingFeatureExtraction) this.oFeatureExtraction;
+
+			/*
+			 * Preprocessing and Feature Extraction Stages, chunk by chunk
+			 */
+            Debug.debug("Streaming preprocessing and feature extraction...");
+
+            double[] adChunk = new double[getStreamChunkSize()];
+            int iNbrDataRecv;
+
+            oStreamPreprocessing.beginStream();
+            oStreamFeatureExtraction.beginStream();
+
+            while ((iNbrDataRecv = oStreamLoader.readAudioData(adChunk)) > 0) {
+                iNbrDataRecv = oStreamPreprocessing.preprocessChunk(adChunk, iNbrDataRecv);
+                oStreamFeatureExtraction.extractChunk(adChunk, iNbrDataRecv);
+            }
+
+            // Whatever the preprocessing held back
+            iNbrDataRecv = oStreamPreprocessing.preprocessChunk(adChunk, 0);
+            oStreamFeatureExtraction.extractChunk(adChunk, iNbrDataRecv);
+
+            oStreamFeatureExtraction.endStream(oStreamPreprocessing.endStream());
+        } finally {
+            oStreamLoader.closeSampleStream();
+        }
+
+		/*
+		 * Classification Stage
+		 */
+        Debug.debug("Classification...");
+        this.oClassification = ClassificationFactory.create(getClassificationMethod(), this.oFeatureExtraction);
+    }
+
+    /**
+     * Checks for all necessary settings to be present.
+     * Specifically, checks whether preprocessing, feature
+     * extraction, classification methods are set as well as
+     * the audio sample format. The filename of the sample
+     * or a directory must also be present.
+     *
+     * @throws MARFException if any of the settings are unset
+     */
+    synchronized void checkSettings()
+            throws MARFException {
+        if
+                (
+                this.iPreprocessingMethod == MARF.UNSET ||
+                        this.iFeatureExtractionMethod == MARF.UNSET ||
+                        this.iClassificationMethod == MARF.UNSET ||
+                        this.iSampleFormat == MARF.UNSET ||
+                        (this.strFileName.equals("") && this.strSamplesDir.equals(""))
+                ) {
+            String strSetupErrMsg =
+                    "MARF.startRecognitionPipeline() - Some configuration parameters were unset.\n" +
+                            getConfig();
+
+            throw new MARFException(strSetupErrMsg);
+        }
+    }
+
+    /**
+     * Retrieves class' revision.
+     *
+     * @return revision string
+     */
+    public static String getMARFSourceCodeRevision() {
+        return "$Revision$";
+    }
+}
+
+// EOF
@@ -1,6 +1,7 @@
 package marf.Preprocessing.Dummy;
 
 import marf.Preprocessing.IPreprocessing;
+import marf.Preprocessing.IStreamingPreprocessing;
 import marf.Preprocessing.Preprocessing;
 import marf.Preprocessing.PreprocessingException;
 import marf.Storage.Sample;
@@ -18,7 +19,8 @@ import marf.util.Debug;
  * @since 0.0.1
  */
 public class Dummy
-        extends Preprocessing {
+        extends Preprocessing
+        implements IStreamingPreprocessing {
     /**
      * For serialization versioning.
      * When adding new members or make other structural
@@ -29,6 +31,27 @@ public class Dummy
      */
     private static final long serialVersionUID = -8360158324170431628L;
 
+    /**
+     * Maximum absolute amplitude seen so far in the streamed mode.
+     *
+     * @since 0.3.0.6
+     */
+    private transient double dStreamPeak = 0.0;
+
+    /**
+     * Last sample of the stream so far, held back in the streamed mode.
+     *
+     * @since 0.3.0.6
+     */
+    private transient double dStreamHeld = 0.0;
+
+    /**
+     * Whether a sample is held back in the streamed mode.
+     *
+     * @since 0.3.0.6
+     */
+    private transient boolean bStreamHeld = false;
+
     /**
      * Default constructor for reflective creation of Preprocessing
      * clones. Typically should not be used unless really necessary
@@ -74,6 +97,82 @@ public class Dummy
         return normalize();
     }
 
+    /**
+     * Starts a new stream by resetting the amplitude peak.
+     *
+     * @since 0.3.0.6
+     */
+    public void beginStream() {
+        this.dStreamPeak = 0.0;
+        this.bStreamHeld = false;
+    }
+
+    /**
+     * Tracks the amplitude peak of the stream; the chunk itself is
+     * left intact as the normalization can only be done at the end.
+     * As <code>normalize()</code> neither counts nor scales the last
+     * sample, the latest sample is held back until followed by another
+     * one, and the last one is passed on at the end divided by the gain.
+     *
+     * @param padChunk chunk of audio data
+     * @param piLength number of valid elements in the chunk; 0 at the end
+     * @return number of samples passed on in the chunk
+     * @throws PreprocessingException never thrown
+     * @since 0.3.0.6
+     */
+    public int preprocessChunk(double[] padChunk, int piLength)
+            throws PreprocessingException {
+        if (piLength == 0) {
+            if (this.bStreamHeld == false) {
+                return 0;
+            }
+
+            this.bStreamHeld = false;
+            padChunk[0] = this.dStreamPeak == 0.0 ? this.dStreamHeld : this.dStreamHeld * this.dStreamPeak;
+            return 1;
+        }
+
+        double dLast = padChunk[piLength - 1];
+        int iCount = piLength - 1;
+
+        if (this.bStreamHeld) {
+            System.arraycopy(padChunk, 0, padChunk, 1, iCount);
+            padChunk[0] = this.dStreamHeld;
+            iCount++;
+        }
+
+        for (int i = 0; i < iCount; i++) {
+            if (Math.abs(padChunk[i]) > this.dStreamPeak) {
+                this.dStreamPeak = Math.abs(padChunk[i]);
+            }
+        }
+
+        this.dStreamHeld = dLast;
+        this.bStreamHeld = true;
+
+        return iCount;
+    }
+
+    /**
+     * Finishes the stream.
+     *
+     * @return the normalization gain, i.e. the reciprocal of the
+     * amplitude peak, or <code>1.0</code> for a silent stream
+     * @throws PreprocessingException never thrown
+     * @since 0.3.0.6
+     */
+    public double endStream()
+            throws PreprocessingException {
+        if (this.dStreamPeak == 0.0) {
+            if (Debug.isDebugOn()) {
+                Debug.debug("NOTICE: Dummy.endStream() - peak = " + this.dStreamPeak);
+            }
+            return 1.0;
+        }
+
+        return 1.0 / this.dStreamPeak;
+    }
+
     /**
      * Dummy implementation of <code>removeNoise()</code> for testing.
      *
@@ -82,7 +181,7 @@ public class Dummy
      */
     public final boolean removeNoise()
             throws PreprocessingException {
-        Debug.debug(this.getClass().getName() + ".removeNoise()");
+        Debug.debug("{}.removeNoise()", this.getClass().getName());
         return false;
     }
 
@@ -94,7 +193,7 @@ public class Dummy
      */
     public final boolean removeSilence()
             throws PreprocessingException {
-        Debug.debug(this.getClass().getName() + ".removeSilence()");
+        Debug.debug("{}.removeSilence()", this.getClass().getName());
         return false;
     }
 
@@ -108,7 +207,7 @@ public class Dummy
      */
     public final boolean cropAudio(double pdStartingFrequency, double pdEndFrequency)
             throws PreprocessingException {
-        Debug.debug(this.getClass().getName() + ".cropAudio()");
+        Debug.debug("{}.cropAudio()", this.getClass().getName());
         return false;
     }
 
@@ -76,6 +76,33 @@ public class Raw
         return true;
     }
 
+    /**
+     * Raw implementation of <code>preprocessChunk()</code>.
+     * Does not do any preprocessing.
+     *
+     * @param padChunk chunk of audio data
+     * @param piLength number of valid elements in the chunk
+     * @return <code>piLength</code>
+     * @throws PreprocessingException never thrown
+     * @since 0.3.0.6
+     */
+    public int preprocessChunk(double[] padChunk, int piLength)
+            throws PreprocessingException {
+        return piLength;
+    }
+
+    /**
+     * Finishes the stream without any gain.
+     *
+     * @return <code>1.0</code>
+     * @throws PreprocessingException never thrown
+     * @since 0.3.0.6
+     */
+    public double endStream()
+            throws PreprocessingException {
+        return 1.0;
+    }
+
     /**
      * Returns source code revision information.
      *
@@ -62,30 +62,6 @@ public class BandpassFilter
         super(poSample);
     }
 
-    /**
-     * Stub implementation of removeNoise().
-     *
-     * @return <code>false</code>
-     * @throws PreprocessingException never thrown
-     */
-    public final boolean removeNoise()
-            throws PreprocessingException {
-        Debug.debug("BandpassFilter.removeNoise()");
-        return false;
-    }
-
-    /**
-     * Stub implementation of removeSilence().
-     *
-     * @return <code>false</code>
-     * @throws PreprocessingException never thrown
-     */
-    public final boolean removeSilence()
-            throws PreprocessingException {
-        Debug.debug("BandpassFilter.removeSilence()");
-        return false;
-    }
-
     /**
      * Stub implementation of <code>cropAudio()</code>.
      *
@@ -10,6 +10,7 @@ import marf.Preprocessing.PreprocessingException;
 import marf.Storage.ModuleParams;
 import marf.Storage.Sample;
 import marf.math.Algorithms;
+import marf.math.FFTPlan;
 import marf.math.MathException;
 import marf.util.Arrays;
 import marf.util.Debug;
@@ -108,9 +109,6 @@ public abstract class FFTFilter
 
         boolean bChanges = normalize();
 
-        double[] adSampleData = this.oSample.getSampleArray();
-        double[] adFilteredData = new double[adSampleData.length];
-
         // By default we do not remove noise or silence
         boolean bRemoveNoise = false;
         boolean bRemoveSilence = false;
@@ -136,6 +134,10 @@ public abstract class FFTFilter
             bChanges |= removeSilence();
         }
 
+        // Either may have replaced the sample data
+        double[] adSampleData = this.oSample.getSampleArray();
+        double[] adFilteredData = new double[adSampleData.length];
+
         bChanges |= filter(adSampleData, adFilteredData);
 
         this.oSample.setSampleArray(adFilteredData);
@@ -186,12 +188,27 @@ public abstract class FFTFilter
     public final boolean filter(final double[] padSample, double[] padFiltered)
             throws PreprocessingException {
         try {
+            int i;
             int iResponseSize = this.adFreqResponse.length;
 
+            // Precomputed window shared by all the windows
+            FFTPlan oPlan = FFTPlan.getPlan(iResponseSize, 1, FFTPlan.WINDOW_SQRT_HAMMING);
+            double[] adWindow = FFTPlan.getWindow(iResponseSize, FFTPlan.WINDOW_SQRT_HAMMING);
+
             double[] adBuffer = new double[iResponseSize];
-            double[] adBufferImag = new double[iResponseSize];
-            double[] adOutputReal = new double[iResponseSize];
-            double[] adOutputImag = new double[iResponseSize];
+            double[] adSpectrumReal = new double[iResponseSize / 2 + 1];
+            double[] adSpectrumImag = new double[iResponseSize / 2 + 1];
+
+            /*
+             * The input is real, so only the bins 0..N/2 are transformed. Since only
+             * the real part of the output is used, the response of bin k is in effect
+             * the average of the responses of bins k and N - k.
+             */
+            double[] adResponse = new double[iResponseSize / 2 + 1];
+
+            for (i = 0; i < adResponse.length; i++) {
+                adResponse[i] = (this.adFreqResponse[i] + this.adFreqResponse[(iResponseSize - i) % iResponseSize]) / 2;
+            }
 
             if (padFiltered.length < padSample.length) {
                 throw new PreprocessingException
@@ -201,37 +218,36 @@ public abstract class FFTFilter
                         );
             }
 
-            int i;
-
             int iPosition = -iResponseSize / 2;
 
-            Debug.debug(getClass(), "position prior entry while(): " + iPosition + ", sample length: " + padSample.length);
+            if (Debug.isDebugOn()) {
+                Debug.debug(getClass(), "position prior entry while(): " + iPosition + ", sample length: " + padSample.length);
+            }
 
             while (iPosition < padSample.length) {
                 for (i = 0; i < iResponseSize; i++) {
                     if (((iPosition + i) < padSample.length) && ((iPosition + i) >= 0)) {
-                        adBuffer[i] = padSample[iPosition + i] * Algorithms.Hamming.sqrtHamming(i, iResponseSize);
+                        adBuffer[i] = padSample[iPosition + i];
                     } else {
                         adBuffer[i] = 0;
                     }
-
-                    adBufferImag[i] = 0;
                 }
 
-                Algorithms.FFT.doFFT(adBuffer, adBufferImag, adOutputReal, adOutputImag, 1);
+                oPlan.applyWindow(adBuffer);
+                Algorithms.FFT.realFFT(adBuffer, adSpectrumReal, adSpectrumImag);
 
-                for (i = 0; i < iResponseSize; i++) {
-                    adOutputReal[i] *= this.adFreqResponse[i];
-                    adOutputImag[i] *= this.adFreqResponse[i];
+                for (i = 0; i < adResponse.length; i++) {
+                    adSpectrumReal[i] *= adResponse[i];
+                    adSpectrumImag[i] *= adResponse[i];
                 }
 
-                Algorithms.FFT.doFFT(adOutputReal, adOutputImag, adBuffer, adBufferImag, -1);
+                Algorithms.FFT.inverseRealFFT(adSpectrumReal, adSpectrumImag, adBuffer);
 
                 // Copy & normalize
                 for (i = 0; (i < iResponseSize) && ((iPosition + i) < padSample.length); i++) {
                     if ((iPosition + i) >= 0) {
                         padFiltered[iPosition + i] +=
-                                adBuffer[i] * Algorithms.Hamming.sqrtHamming(i, iResponseSize) / iResponseSize;
+                                adBuffer[i] * adWindow[i] / iResponseSize;
                     }
                 }
 
@@ -87,7 +87,7 @@ public class HighFrequencyBoost
     public HighFrequencyBoost(IPreprocessing poPreprocessing)
             throws PreprocessingException {
         super(poPreprocessing);
-        Debug.debug("HighFrequencyBoost constructed with preprocessing [" + poPreprocessing + "].");
+        Debug.debug("HighFrequencyBoost constructed with preprocessing [{}].", poPreprocessing);
     }
 
     /**
@@ -99,7 +99,7 @@ public class HighFrequencyBoost
     public HighFrequencyBoost(Sample poSample)
             throws PreprocessingException {
         super(poSample);
-        Debug.debug("HighFrequencyBoost constructed with sample [" + poSample + "].");
+        Debug.debug("HighFrequencyBoost constructed with sample [{}].", poSample);
     }
 
     /**
@@ -117,35 +117,13 @@ public class HighFrequencyBoost
 
         //TODO: in scale of sample, not response array bChanges |= normalize(DEFAULT_HIGH_FREQUENCY_CUTOFF);
         bChanges |= normalize();
-        Debug.debug("HighFrequencyBoost preprocess() done: [" + bChanges + "].");
+        if (Debug.isDebugOn()) {
+            Debug.debug("HighFrequencyBoost preprocess() done: [" + bChanges + "].");
+        }
 
         return bChanges;
     }
 
-    /**
-     * Stub implementation of <code>removeNoise()</code>.
-     *
-     * @return <code>false</code>
-     * @throws PreprocessingException never thrown
-     */
-    public final boolean removeNoise()
-            throws PreprocessingException {
-        Debug.debug("HighFrequencyBoost.removeNoise()");
-        return false;
-    }
-
-    /**
-     * Stub implementation of <code>removeSilence()</code>.
-     *
-     * @return <code>false</code>
-     * @throws PreprocessingException never thrown
-     */
-    public final boolean removeSilence()
-            throws PreprocessingException {
-        Debug.debug("HighFrequencyBoost.removeSilence()");
-        return false;
-    }
-
     /**
      * Stub implementation of <code>cropAudio()</code>.
      *
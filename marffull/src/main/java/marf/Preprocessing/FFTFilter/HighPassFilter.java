@@ -61,30 +61,6 @@ public class HighPassFilter
         super(poSample);
     }
 
-    /**
-     * Stub implementation of <code>removeNoise()</code>.
-     *
-     * @return <code>false</code>
-     * @throws PreprocessingException never thrown
-     */
-    public final boolean removeNoise()
-            throws PreprocessingException {
-        Debug.debug("HighPassFilter.removeNoise()");
-        return false;
-    }
-
-    /**
-     * Stub implementation of <code>removeSilence()</code>.
-     *
-     * @return <code>false</code>
-     * @throws PreprocessingException never thrown
-     */
-    public final boolean removeSilence()
-            throws PreprocessingException {
-        Debug.debug("HighPassFilter.removeSilence()");
-        return false;
-    }
-
     /**
      * Stub implementation of <code>cropAudio()</code>.
      *
@@ -62,30 +62,6 @@ public class LowPassFilter
         super(poSample);
     }
 
-    /**
-     * Stub implementation of <code>removeNoise()</code>.
-     *
-     * @return <code>false</code>
-     * @throws PreprocessingException never thrown
-     */
-    public final boolean removeNoise()
-            throws PreprocessingException {
-        Debug.debug("LowPassFilter.removeNoise()");
-        return false;
-    }
-
-    /**
-     * Stub implementation of <code>removeSilence()</code>.
-     *
-     * @return <code>false</code>
-     * @throws PreprocessingException never thrown
-     */
-    public final boolean removeSilence()
-            throws PreprocessingException {
-        Debug.debug("LowPassFilter.removeSilence()");
-        return false;
-    }
-
     /**
      * Stub implementation of <code>cropAudio()</code>.
      *
@@ -0,0 +1,60 @@
+package marf.Preprocessing;
+
+
+/**
+ * <p>Chunk-wise preprocessing of samples too large to be held in memory.</p>
+ *
+ * <p>A module implementing this interface in addition to
+ * <code>IPreprocessing</code> can be fed the audio data of a sample in
+ * consecutive chunks, in order, between <code>beginStream()</code> and
+ * <code>endStream()</code>. Operations that depend on the entire sample,
+ * such as amplitude normalization, cannot be applied to the chunks seen
+ * so far, so they are deferred: <code>endStream()</code> returns the gain
+ * the whole stream would have been scaled by, and it is up to the
+ * consumer to apply it to whatever it accumulated from the chunks.
+ * A module may hold samples back until it sees more of the stream;
+ * a chunk of length 0 marks the end of the stream, and gets the
+ * samples held back, if any, before <code>endStream()</code>.</p>
+ *
+ * <p>$Id$</p>
+ *
+ * @author The MARF Research and Development Group
+ * @version $Revision$
+ * @see marf.FeatureExtraction.IStreamingFeatureExtraction
+ * @since 0.3.0.6
+ */
+public interface IStreamingPreprocessing {
+    /**
+     * Interface source code revision.
+     */
+    String MARF_INTERFACE_CODE_REVISION = "$Revision$";
+
+    /**
+     * Resets the running state before the first chunk of a new stream.
+     */
+    void beginStream();
+
+    /**
+     * Preprocesses one chunk of the stream in place.
+     *
+     * @param padChunk chunk of audio data; modified in place
+     * @param piLength number of valid elements in the chunk; 0 at the
+     *                 end of the stream, to get the samples held back
+     * @return number of valid elements in the chunk after preprocessing
+     * @throws PreprocessingException if the chunk cannot be preprocessed
+     */
+    int preprocessChunk(double[] padChunk, int piLength)
+            throws PreprocessingException;
+
+    /**
+     * Finishes the stream.
+     *
+     * @return the deferred gain to be applied to the whole stream;
+     * <code>1.0</code> if none
+     * @throws PreprocessingException if the stream cannot be finished
+     */
+    double endStream()
+            throws PreprocessingException;
+}
+
+// EOF
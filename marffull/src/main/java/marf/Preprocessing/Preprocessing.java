@@ -96,39 +96,100 @@ public abstract class Preprocessing
         boolean bChanged = poPreprocessing.preprocess();
 
         if (bChanged == false) {
-            Debug.debug
-                    (
-                            "WARNING: " +
-                                    poPreprocessing.getClass().getName() +
-                                    ".preprocess() returned false."
-                    );
+            Debug.debug("WARNING: {}.preprocess() returned false.", poPreprocessing.getClass().getName());
         }
 
         this.oObjectToSerialize = this.oSample = poPreprocessing.getSample();
     }
 
     /**
-     * Derivatives should implement this method to remove noise from the sample.
+     * Removes the noise between the speech segments found by <code>SpeechSegmenter</code>,
+     * i.e. gates the sample: the non-speech parts are zeroed, and the
+     * speech keeps its timing. Derivatives may override it with actual
+     * noise reduction.
      *
      * @return boolean that sample has changed (noise removed)
-     * @throws NotImplementedException
-     * @throws PreprocessingException  declared but never thrown
+     * @throws PreprocessingException if the sample is not available
+     * @see SpeechSegmenter
      */
     public boolean removeNoise()
             throws PreprocessingException {
-        throw new NotImplementedException(this, "removeNoise()");
+        double[] adSample = getSampleArray("removeNoise");
+        int[][] aaiSegments = new SpeechSegmenter().segment(adSample);
+
+        if (SpeechSegmenter.getLength(aaiSegments) == adSample.length) {
+            return false;
+        }
+
+        int iPos = 0;
+
+        for (int i = 0; i <= aaiSegments.length; i++) {
+            int iEnd = i < aaiSegments.length ? aaiSegments[i][0] : adSample.length;
+
+            Arrays.fill(adSample, iPos, iEnd, 0.0);
+
+            if (i < aaiSegments.length) {
+                iPos = aaiSegments[i][1];
+            }
+        }
+
+        if (Debug.isDebugOn()) {
+            Debug.debug("Preprocessing.removeNoise() - speech segments = " + aaiSegments.length);
+        }
+
+        return true;
     }
 
     /**
-     * Derivatives should implement this method to remove silence.
+     * Removes the silence, i.e. whatever is not in the speech segments found
+     * by <code>SpeechSegmenter</code>, so that the modules downstream do
+     * not process it. A sample with no speech found is left as is.
      *
      * @return boolean that sample has changed (silence removed)
-     * @throws NotImplementedException
-     * @throws PreprocessingException  declared but never thrown
+     * @throws PreprocessingException if the sample is not available
+     * @see SpeechSegmenter
      */
     public boolean removeSilence()
             throws PreprocessingException {
-        throw new NotImplementedException(this, "removeSilence()");
+        double[] adSample = getSampleArray("removeSilence");
+        int[][] aaiSegments = new SpeechSegmenter().segment(adSample);
+        int iLength = SpeechSegmenter.getLength(aaiSegments);
+
+        if (iLength == 0 || iLength == adSample.length) {
+            return false;
+        }
+
+        if (Debug.isDebugOn()) {
+            Debug.debug
+                    (
+                            "Preprocessing.removeSilence() - kept " + iLength + " of " + adSample.length +
+                                    " samples in " + aaiSegments.length + " segments"
+                    );
+        }
+
+        this.oSample.setSampleArray(SpeechSegmenter.join(adSample, aaiSegments));
+
+        return true;
+    }
+
+    /**
+     * Retrieves the sample data for a method that needs it.
+     *
+     * @param pstrMethod name of the method
+     * @return the sample array
+     * @throws PreprocessingException if the sample is not available
+     * @since 0.3.0.6
+     */
+    private double[] getSampleArray(final String pstrMethod)
+            throws PreprocessingException {
+        if (this.oSample == null || this.oSample.getSampleArray() == null) {
+            throw new PreprocessingException
+                    (
+                            "Preprocessing." + pstrMethod + "() - sample is not available (null)"
+                    );
+        }
+
+        return this.oSample.getSampleArray();
     }
 
     /**
@@ -194,11 +255,13 @@ public abstract class Preprocessing
                         );
             }
 
-            Debug.debug
-                    (
-                            "Preprocessing.normalize(" + piIndexFrom + "," +
-                                    piIndexTo + ") has begun..."
-                    );
+            if (Debug.isDebugOn()) {
+                Debug.debug
+                        (
+                                "Preprocessing.normalize(" + piIndexFrom + "," +
+                                        piIndexTo + ") has begun..."
+                        );
+            }
 
             double dMax = Double.MIN_VALUE;
 
@@ -213,7 +276,9 @@ public abstract class Preprocessing
 
             // Prevent devision by zero
             if (dMax == 0.0) {
-                Debug.debug("NOTICE: Preprocessing.normalize() - dMax = " + dMax);
+                if (Debug.isDebugOn()) {
+                    Debug.debug("NOTICE: Preprocessing.normalize() - dMax = " + dMax);
+                }
                 return false;
             }
 
@@ -222,11 +287,13 @@ public abstract class Preprocessing
                 adAmplitude[i] /= dMax;
             }
 
-            Debug.debug
-                    (
-                            "Preprocessing.normalize(" + piIndexFrom + "," + piIndexTo +
-                                    ") has normally finished..."
-                    );
+            if (Debug.isDebugOn()) {
+                Debug.debug
+                        (
+                                "Preprocessing.normalize(" + piIndexFrom + "," + piIndexTo +
+                                        ") has normally finished..."
+                        );
+            }
 
             return true;
         } catch (ArrayIndexOutOfBoundsException e) {
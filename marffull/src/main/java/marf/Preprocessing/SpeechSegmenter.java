@@ -0,0 +1,266 @@
+package marf.Preprocessing;
+
+import marf.Storage.SampleLoader;
+
+
+/**
+ * <p>Energy and zero-crossing voice activity segmenter.</p>
+ *
+ * <p>A single pass over the sample computes the energy and the number of
+ * zero crossings of consecutive frames. The frame energies, in dB, are
+ * then compared to two thresholds set within the dynamic range of the
+ * sample, from its noise floor (the <code>NOISE_PERCENTILE</code>-th
+ * percentile of the frame energies) to its loudest frame: frames above
+ * the high threshold start speech, which extends to the neighbouring
+ * frames above the low one, after Rabiner and Sambur. Quiet frames
+ * above the low threshold that cross zero often enough, as fricatives
+ * do, are speech as well. Every speech run is finally widened by
+ * <code>HANGOVER_FRAMES</code> on both sides so as not to clip the
+ * onsets and the decays. A sample with less than <code>MIN_DYNAMIC_RANGE</code>
+ * between the noise floor and the loudest frame is all speech, or all
+ * silence if it has no energy.</p>
+ *
+ * <p>The segments are ranges of sample indexes, so that the modules
+ * downstream may skip what is outside them. The segmenter keeps no state
+ * across calls and may be shared by threads.</p>
+ *
+ * <p>$Id$</p>
+ *
+ * @author The MARF Research and Development Group
+ * @version $Revision$
+ * @see Preprocessing#removeSilence()
+ * @see Preprocessing#removeNoise()
+ * @see marf.FeatureExtraction.Segmentation.Segmentation
+ * @since 0.3.0.6
+ */
+public class SpeechSegmenter {
+    /**
+     * Default frame size of 20 ms at the default sampling frequency.
+     */
+    public static final int DEFAULT_FRAME_SIZE = Math.round(SampleLoader.DEFAULT_FREQUENCY / 50);
+
+    /**
+     * Percentile of the frame energies taken as the noise floor, 0.1.
+     */
+    public static final double NOISE_PERCENTILE = 0.1;
+
+    /**
+     * Dynamic range below which a sample is not segmented, 10 dB.
+     */
+    public static final double MIN_DYNAMIC_RANGE = 10.0;
+
+    /**
+     * Position of the low threshold within the dynamic range, 0.1.
+     */
+    public static final double LOW_THRESHOLD = 0.1;
+
+    /**
+     * Position of the high threshold within the dynamic range, 0.25.
+     */
+    public static final double HIGH_THRESHOLD = 0.25;
+
+    /**
+     * Zero crossings per sample above which a quiet frame is taken as a fricative, 0.25.
+     */
+    public static final double ZERO_CROSSING_THRESHOLD = 0.25;
+
+    /**
+     * Number of frames speech runs are widened by on both sides, 4.
+     */
+    public static final int HANGOVER_FRAMES = 4;
+
+    /**
+     * Frame size in samples.
+     */
+    private final int iFrameSize;
+
+    /**
+     * Constructs a segmenter with the default frame size.
+     */
+    public SpeechSegmenter() {
+        this(DEFAULT_FRAME_SIZE);
+    }
+
+    /**
+     * Constructs a segmenter.
+     *
+     * @param piFrameSize frame size in samples
+     * @throws IllegalArgumentException if the frame size is less than 1
+     */
+    public SpeechSegmenter(final int piFrameSize) {
+        if (piFrameSize < 1) {
+            throw new IllegalArgumentException("Frame size (" + piFrameSize + ") is less than 1.");
+        }
+
+        this.iFrameSize = piFrameSize;
+    }
+
+    /**
+     * Finds the speech in a sample.
+     *
+     * @param padSample the sample
+     * @return <code>{start, end}</code> pairs of the speech segments,
+     * end exclusive, in order; empty if there is no speech
+     */
+    public int[][] segment(final double[] padSample) {
+        int iFrames = (padSample.length + this.iFrameSize - 1) / this.iFrameSize;
+
+        if (iFrames == 0) {
+            return new int[0][];
+        }
+
+        double[] adLevels = new double[iFrames];
+        double[] adCrossings = new double[iFrames];
+        double dMaxEnergy = 0.0;
+
+        // The single pass over the sample
+        for (int f = 0, i = 0; f < iFrames; f++) {
+            int iEnd = Math.min(i + this.iFrameSize, padSample.length);
+            int iStart = i;
+            double dEnergy = 0.0;
+            int iCrossings = 0;
+
+            for (; i < iEnd; i++) {
+                dEnergy += padSample[i] * padSample[i];
+
+                if (i > 0 && (padSample[i] >= 0.0) != (padSample[i - 1] >= 0.0)) {
+                    iCrossings++;
+                }
+            }
+
+            dEnergy /= iEnd - iStart;
+            dMaxEnergy = Math.max(dMaxEnergy, dEnergy);
+
+            adLevels[f] = dEnergy;
+            adCrossings[f] = (double) iCrossings / (iEnd - iStart);
+        }
+
+        if (dMaxEnergy == 0.0) {
+            return new int[0][];
+        }
+
+        // In dB, with the silent frames clamped well below the loudest
+        double dMinEnergy = dMaxEnergy * 1.0E-12;
+
+        for (int f = 0; f < iFrames; f++) {
+            adLevels[f] = 10.0 * Math.log(Math.max(adLevels[f], dMinEnergy)) / Math.log(10.0);
+        }
+
+        double[] adSorted = adLevels.clone();
+        java.util.Arrays.sort(adSorted);
+
+        double dFloor = adSorted[(int) (NOISE_PERCENTILE * (iFrames - 1))];
+        double dPeak = adSorted[iFrames - 1];
+        double dRange = dPeak - dFloor;
+
+        if (dRange < MIN_DYNAMIC_RANGE) {
+            return new int[][]{{0, padSample.length}};
+        }
+
+        double dLow = dFloor + LOW_THRESHOLD * dRange;
+        double dHigh = dFloor + HIGH_THRESHOLD * dRange;
+
+        boolean[] abSpeech = new boolean[iFrames];
+
+        for (int f = 0; f < iFrames; f++) {
+            if (adLevels[f] > dHigh) {
+                abSpeech[f] = true;
+
+                // Extend backwards; forwards is done by the next iterations
+                for (int b = f - 1; b >= 0 && !abSpeech[b] && adLevels[b] > dLow; b--) {
+                    abSpeech[b] = true;
+                }
+            } else if (adLevels[f] > dLow && ((f > 0 && abSpeech[f - 1]) || adCrossings[f] > ZERO_CROSSING_THRESHOLD)) {
+                abSpeech[f] = true;
+            }
+        }
+
+        // Hangover, and conversion to sample ranges
+        int[][] aaiRanges = new int[iFrames / 2 + 1][];
+        int iSegments = 0;
+        int f = 0;
+
+        while (f < iFrames) {
+            if (!abSpeech[f]) {
+                f++;
+                continue;
+            }
+
+            int iFirst = f;
+
+            while (f < iFrames && abSpeech[f]) {
+                f++;
+            }
+
+            int iStart = Math.max(0, iFirst - HANGOVER_FRAMES) * this.iFrameSize;
+            int iEnd = (int) Math.min((long) (f + HANGOVER_FRAMES) * this.iFrameSize, padSample.length);
+
+            if (iSegments > 0 && aaiRanges[iSegments - 1][1] >= iStart) {
+                aaiRanges[iSegments - 1][1] = iEnd;
+            } else {
+                aaiRanges[iSegments++] = new int[]{iStart, iEnd};
+            }
+        }
+
+        int[][] aaiSegments = new int[iSegments][];
+        System.arraycopy(aaiRanges, 0, aaiSegments, 0, iSegments);
+
+        return aaiSegments;
+    }
+
+    /**
+     * Counts the samples in segments.
+     *
+     * @param paaiSegments segments from <code>segment()</code>
+     * @return total length
+     */
+    public static int getLength(final int[][] paaiSegments) {
+        int iLength = 0;
+
+        for (int i = 0; i < paaiSegments.length; i++) {
+            iLength += paaiSegments[i][1] - paaiSegments[i][0];
+        }
+
+        return iLength;
+    }
+
+    /**
+     * Concatenates the segments of a sample.
+     *
+     * @param padSample    the sample
+     * @param paaiSegments segments from <code>segment()</code>
+     * @return a new array of the samples in the segments
+     */
+    public static double[] join(final double[] padSample, final int[][] paaiSegments) {
+        double[] adJoined = new double[getLength(paaiSegments)];
+        int iPos = 0;
+
+        for (int i = 0; i < paaiSegments.length; i++) {
+            int iLength = paaiSegments[i][1] - paaiSegments[i][0];
+            System.arraycopy(padSample, paaiSegments[i][0], adJoined, iPos, iLength);
+            iPos += iLength;
+        }
+
+        return adJoined;
+    }
+
+    /**
+     * Retrieves the frame size.
+     *
+     * @return the size in samples
+     */
+    public final int getFrameSize() {
+        return this.iFrameSize;
+    }
+
+    /**
+     * Returns source code revision information.
+     *
+     * @return revision string
+     */
+    public static String getMARFSourceCodeRevision() {
+        return "$Revision$";
+    }
+}
+
+// EOF
@@ -1,10 +1,15 @@
 package marf.Stats;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Vector;
 
 import marf.MARF;
 import marf.util.Debug;
+import marf.util.LongDoubleHashMap;
 import marf.util.Matrix;
 
 
@@ -13,6 +18,16 @@ import marf.util.Matrix;
  * The class is properly synchronized as of 0.3.0.5.
  * </p>
  * <p>
+ * <p>As of 0.3.0.6, the table is sparse: every observation gets an
+ * integer ID, its index in the table, from a hash map, and the
+ * occurences of an n-gram are kept in a primitive hash map under
+ * the IDs of its observations packed into a <code>long</code>, with
+ * <code>ID_BITS</code> bits each. The lookups thus take constant time,
+ * and the memory grows with the n-grams observed rather than with
+ * the cube of the vocabulary. The vocabulary is limited to
+ * <code>MAX_OBSERVATIONS</code>. Tables serialized by the earlier
+ * versions, as nested vectors, are converted when loaded.</p>
+ * <p>
  * $Id: ProbabilityTable.java,v 1.40 2006/02/13 00:35:22 mokhov Exp $
  *
  * @author Serguei Mokhov
@@ -21,6 +36,20 @@ import marf.util.Matrix;
  */
 public class ProbabilityTable
         implements Serializable {
+    /**
+     * Number of bits of an observation ID in an n-gram key, 21.
+     *
+     * @since 0.3.0.6
+     */
+    public static final int ID_BITS = 21;
+
+    /**
+     * Maximum number of distinct observations in a table.
+     *
+     * @since 0.3.0.6
+     */
+    public static final int MAX_OBSERVATIONS = (1 << ID_BITS) - 1;
+
     /**
      * Observations by columns.
      * Observation's index in the vector is the one in the table
@@ -28,11 +57,36 @@ public class ProbabilityTable
      */
     private Vector oColumnIndex = new Vector();
 
+    /**
+     * Observation IDs (<code>Integer</code>s), i.e. indexes in
+     * <code>oColumnIndex</code>, by observation. Rebuilt when loaded.
+     *
+     * @since 0.3.0.6
+     */
+    private transient Map oIDs = new HashMap();
+
+    /**
+     * Occurences by n-gram key.
+     *
+     * @see #getKey(int[], int)
+     * @since 0.3.0.6
+     */
+    private LongDoubleHashMap oCounts = new LongDoubleHashMap();
+
     /**
      * Vector of vectors of probabilities, which are Double
      * objects. To save space <code>null</code> means 0.0.
+     * As of 0.3.0.6, only set in the tables serialized by the earlier
+     * versions, until converted into <code>oCounts</code> when loaded.
+     */
+    private Matrix oNMatrix = null;
+
+    /**
+     * Observation IDs of an n-gram being looked up, reused across calls.
+     *
+     * @since 0.3.0.6
      */
-    private Matrix oNMatrix = new Matrix();
+    private transient int[] aiNgramIDs = new int[3];
 
     /**
      * Current natural language.
@@ -92,13 +146,15 @@ public class ProbabilityTable
     public final synchronized double p(final Vector poObservationList) {
         double dProbability = getOccurence(poObservationList);
 
-        Debug.debug
-                (
-                        "poObservationList.size=" + poObservationList.size()
-                                + ", Observations=" + poObservationList
-                                + ", P=" + dProbability
-                                + ", lang=" + getLang()
-                );
+        if (Debug.isDebugOn()) {
+            Debug.debug
+                    (
+                            "poObservationList.size=" + poObservationList.size()
+                                    + ", Observations=" + poObservationList
+                                    + ", P=" + dProbability
+                                    + ", lang=" + getLang()
+                    );
+        }
 
         return dProbability;
     }
@@ -133,10 +189,8 @@ public class ProbabilityTable
                                     ") out of bounds (" + this.oColumnIndex.size() + ")"
                     );
 
-        Vector oObservationList = new Vector();
-        oObservationList.add(this.oColumnIndex.elementAt(piX));
-
-        setOccurence(oObservationList, pdOccurence);
+        this.aiNgramIDs[0] = piX;
+        this.oCounts.put(getKey(this.aiNgramIDs, 1), pdOccurence);
     }
 
     /**
@@ -165,11 +219,9 @@ public class ProbabilityTable
                                     ") out of bounds (" + this.oColumnIndex.size() + ")"
                     );
 
-        Vector oObservationList = new Vector();
-        oObservationList.add(this.oColumnIndex.elementAt(piY));
-        oObservationList.add(this.oColumnIndex.elementAt(piX));
-
-        setOccurence(oObservationList, pdOccurence);
+        this.aiNgramIDs[0] = piY;
+        this.aiNgramIDs[1] = piX;
+        this.oCounts.put(getKey(this.aiNgramIDs, 2), pdOccurence);
     }
 
     /**
@@ -203,12 +255,10 @@ public class ProbabilityTable
                                     this.oColumnIndex.size() + ")"
                     );
 
-        Vector oObservationList = new Vector();
-        oObservationList.add(this.oColumnIndex.elementAt(piZ));
-        oObservationList.add(this.oColumnIndex.elementAt(piY));
-        oObservationList.add(this.oColumnIndex.elementAt(piX));
-
-        setOccurence(oObservationList, pdOccurence);
+        this.aiNgramIDs[0] = piZ;
+        this.aiNgramIDs[1] = piY;
+        this.aiNgramIDs[2] = piX;
+        this.oCounts.put(getKey(this.aiNgramIDs, 3), pdOccurence);
     }
 
     /**
@@ -232,10 +282,8 @@ public class ProbabilityTable
                                     this.oColumnIndex.size() + ")"
                     );
 
-        Vector oObservationList = new Vector();
-        oObservationList.add(this.oColumnIndex.elementAt(piX));
-
-        return getOccurence(oObservationList);
+        this.aiNgramIDs[0] = piX;
+        return this.oCounts.get(getKey(this.aiNgramIDs, 1), 0.0);
     }
 
     /**
@@ -248,7 +296,9 @@ public class ProbabilityTable
      * @throws ArrayIndexOutOfBoundsException if either of the coordinates is out of range
      */
     public final synchronized double getOccurence(final int piX, final int piY) {
-        Debug.debug("getOccurence(" + piX + "," + piY + ")");
+        if (Debug.isDebugOn()) {
+            Debug.debug("getOccurence(" + piX + "," + piY + ")");
+        }
 
         if
                 (
@@ -266,11 +316,9 @@ public class ProbabilityTable
                                     this.oColumnIndex.size() + ")"
                     );
 
-        Vector oObservationList = new Vector();
-        oObservationList.add(this.oColumnIndex.elementAt(piY));
-        oObservationList.add(this.oColumnIndex.elementAt(piX));
-
-        return getOccurence(oObservationList);
+        this.aiNgramIDs[0] = piY;
+        this.aiNgramIDs[1] = piX;
+        return this.oCounts.get(getKey(this.aiNgramIDs, 2), 0.0);
     }
 
     /**
@@ -283,7 +331,7 @@ public class ProbabilityTable
      * @return the number of occurences of the item at the coordinates.
      * @throws ArrayIndexOutOfBoundsException if either of the coordinates is out of range
      */
-    public final double getOccurence(final int piX, final int piY, final int piZ) {
+    public final synchronized double getOccurence(final int piX, final int piY, final int piZ) {
         if
                 (
                 (piX > this.oColumnIndex.size() - 1)
@@ -304,12 +352,10 @@ public class ProbabilityTable
                                     this.oColumnIndex.size() + ")"
                     );
 
-        Vector oObservationList = new Vector();
-        oObservationList.add(this.oColumnIndex.elementAt(piZ));
-        oObservationList.add(this.oColumnIndex.elementAt(piY));
-        oObservationList.add(this.oColumnIndex.elementAt(piX));
-
-        return getOccurence(oObservationList);
+        this.aiNgramIDs[0] = piZ;
+        this.aiNgramIDs[1] = piY;
+        this.aiNgramIDs[2] = piX;
+        return this.oCounts.get(getKey(this.aiNgramIDs, 3), 0.0);
     }
 
     /**
@@ -320,153 +366,17 @@ public class ProbabilityTable
      * @param pdOccurence       the desired occurence
      */
     public final synchronized void setOccurence(final Vector poObservationList, final double pdOccurence) {
-        int iUniIndex;
-        int iBiIndex;
-        int iTriIndex;
-
-//		Debug.debug("setOccurence(poObservationList["+poObservationList+"])");
-
-        switch (poObservationList.size()) {
-            case 1: {
-                iUniIndex = this.oColumnIndex.indexOf(poObservationList.elementAt(0));
-
-                if (iUniIndex == -1) {
-                    this.oColumnIndex.add(poObservationList.elementAt(0));
-                    this.oNMatrix.add(new Double(pdOccurence));
-                } else {
-                    this.oNMatrix.setElementAt(new Double(pdOccurence), iUniIndex);
-                }
-
-                break;
-            }
-
-            case 2: {
-                iUniIndex = this.oColumnIndex.indexOf(poObservationList.elementAt(0));
-
-                Vector oRow;
-
-                if (iUniIndex == -1) {
-                    this.oColumnIndex.add(poObservationList.elementAt(0));
-                    iUniIndex = this.oColumnIndex.size() - 1;
-
-                    oRow = new Vector();
-                    this.oNMatrix.add(oRow);
-                } else {
-                    oRow = (Vector) this.oNMatrix.elementAt(iUniIndex);
-
-                    // Fill in a gap
-                    if (oRow == null) {
-                        oRow = new Vector();
-                        this.oNMatrix.setElementAt(oRow, iUniIndex);
-                    }
-                }
-
-                iBiIndex = this.oColumnIndex.indexOf(poObservationList.elementAt(1));
-
-                if (iBiIndex == -1) {
-                    this.oColumnIndex.add(poObservationList.elementAt(1));
-                    iBiIndex = this.oColumnIndex.size() - 1;
-                    this.oNMatrix.add(new Vector());
-                }
-
-                oRow.ensureCapacity(iBiIndex + 1);
-                oRow.setSize(iBiIndex + 1);
-
-                oRow.setElementAt(new Double(pdOccurence), iBiIndex);
-
-                break;
-            }
-
-            case 3: {
-                iUniIndex = this.oColumnIndex.indexOf(poObservationList.elementAt(0));
-
-                Vector oPlane;
-                Vector oRow;
-
-                if (iUniIndex == -1) {
-                    this.oColumnIndex.add(poObservationList.elementAt(0));
-                    iUniIndex = this.oColumnIndex.size() - 1;
-
-                    oPlane = new Vector();
-                    this.oNMatrix.add(oPlane);
-                } else {
-/*					Debug.debug
-                    (
-						"oColumnIndex.size=" + this.oColumnIndex.size() + ", " +
-						"iUniIndex=" + iUniIndex + ", " +
-						"oNMatrix.size = " + this.oNMatrix.size()
-					);
-*/
-                    oPlane = (Vector) this.oNMatrix.elementAt(iUniIndex);
-
-                    if (oPlane == null) {
-                        oPlane = new Vector();
-
-                        oPlane.ensureCapacity(iUniIndex + 1);
-                        oPlane.setSize(iUniIndex + 1);
-
-                        this.oNMatrix.setElementAt(oPlane, iUniIndex);
-                    }
-                }
-
-                iBiIndex = this.oColumnIndex.indexOf(poObservationList.elementAt(1));
-
-                if (iBiIndex == -1) {
-                    this.oColumnIndex.add(poObservationList.elementAt(1));
-                    iBiIndex = this.oColumnIndex.size() - 1;
-
-                    this.oNMatrix.ensureCapacity(iBiIndex + 1);
-                    this.oNMatrix.setSize(iBiIndex + 1);
-
-                    oRow = new Vector();
-
-                    oPlane.ensureCapacity(iBiIndex + 1);
-                    oPlane.setSize(iBiIndex + 1);
-
-                    oPlane.setElementAt(oRow, iBiIndex);
-                } else {
-/*					Debug.debug
-                    (
-						"oColumnIndex.size=" + oColumnIndex.size() + ", " +
-						"iBiIndex=" + iBiIndex + ", " +
-						"oPlane.size = " + oPlane.size()
-					);
-*/
-                    oPlane.ensureCapacity(iBiIndex + 1);
-                    oPlane.setSize(iBiIndex + 1);
-
-                    oRow = (Vector) oPlane.elementAt(iBiIndex);
-
-                    // fill in gap created by tri-index
-                    if (oRow == null) {
-                        oRow = new Vector();
-                        oPlane.setElementAt(oRow, iBiIndex);
-                    }
-                }
-
-                iTriIndex = this.oColumnIndex.indexOf(poObservationList.elementAt(2));
-
-                if (iTriIndex == -1) {
-                    this.oColumnIndex.add(poObservationList.elementAt(2));
-                    iTriIndex = this.oColumnIndex.size() - 1;
-
-                    this.oNMatrix.ensureCapacity(iTriIndex + 1);
-                    this.oNMatrix.setSize(iTriIndex + 1);
-
-                    oPlane.ensureCapacity(iTriIndex + 1);
-                    oPlane.setSize(iTriIndex + 1);
-
-//					oPlane.setElementAt(new Vector(), iTriIndex);
-                }
+        int iLength = poObservationList.size();
 
-                oRow.ensureCapacity(iTriIndex + 1);
-                oRow.setSize(iTriIndex + 1);
-
-                oRow.setElementAt(new Double(pdOccurence), iTriIndex);
+        if (iLength < 1 || iLength > 3) {
+            return;
+        }
 
-                break;
-            }
+        for (int i = 0; i < iLength; i++) {
+            this.aiNgramIDs[i] = intern(poObservationList.elementAt(i));
         }
+
+        this.oCounts.put(getKey(this.aiNgramIDs, iLength), pdOccurence);
     }
 
     /**
@@ -477,106 +387,203 @@ public class ProbabilityTable
      * @return the number of occurences
      */
     public final synchronized double getOccurence(final Vector poObservationList) {
-        double dOccurence = 0.0;
+        int iLength = poObservationList.size();
 
-        int iUniIndex;
-        int iBiIndex;
-        int iTriIndex;
+        if (iLength < 1 || iLength > 3) {
+            return 0.0;
+        }
 
-//		Debug.debug("getOccurence(poObservationList["+poObservationList+"])");
+        for (int i = 0; i < iLength; i++) {
+            Integer oID = (Integer) this.oIDs.get(poObservationList.elementAt(i));
 
-        switch (poObservationList.size()) {
-            case 1: {
-                iUniIndex = this.oColumnIndex.indexOf(poObservationList.elementAt(0));
+            // Never observed
+            if (oID == null) {
+                return 0.0;
+            }
 
-                if (iUniIndex == -1) {
-                    return 0.0;
-                }
+            this.aiNgramIDs[i] = oID.intValue();
+        }
 
-                Double oOccurence = (Double) this.oNMatrix.elementAt(iUniIndex);
+        return this.oCounts.get(getKey(this.aiNgramIDs, iLength), 0.0);
+    }
 
-                if (oOccurence == null) {
-                    return 0.0;
-                }
+    /**
+     * Increments the frequency of occurences of a list of observations.
+     *
+     * @param poObservationList the list to work with
+     * @return the new frequency
+     */
+    public final synchronized int incFrequency(final Vector poObservationList) {
+        int iLength = poObservationList.size();
 
-                dOccurence = oOccurence.doubleValue();
+        if (iLength < 1 || iLength > 3) {
+            return 1;
+        }
 
-                break;
-            }
+        for (int i = 0; i < iLength; i++) {
+            this.aiNgramIDs[i] = intern(poObservationList.elementAt(i));
+        }
 
-            case 2: {
-                iUniIndex = this.oColumnIndex.indexOf(poObservationList.elementAt(0));
-                iBiIndex = this.oColumnIndex.indexOf(poObservationList.elementAt(1));
+        long lKey = getKey(this.aiNgramIDs, iLength);
+        int iFrequency = (int) this.oCounts.get(lKey, 0.0) + 1;
 
-                if (iUniIndex == -1 || iBiIndex == -1) {
-                    return 0.0;
-                }
+        this.oCounts.put(lKey, iFrequency);
 
-                Vector oRow = (Vector) this.oNMatrix.elementAt(iUniIndex);
+        return iFrequency;
+    }
 
-                if (oRow == null || oRow.size() < iBiIndex + 1) {
-                    return 0.0;
-                }
+    /**
+     * Adds an observation to the table, if new, without any occurence.
+     *
+     * @param poObservation the observation
+     * @return its index in the table
+     * @throws IllegalStateException if the table has <code>MAX_OBSERVATIONS</code> already
+     * @see #addOccurence(int[], int, double)
+     * @since 0.3.0.6
+     */
+    public final synchronized int addObservation(final Object poObservation) {
+        return intern(poObservation);
+    }
 
-                Double oOccurence = (Double) oRow.elementAt(iBiIndex);
+    /**
+     * Adds to the occurence of an n-gram given by the indexes of its
+     * observations, e.g. to merge the counts collected elsewhere.
+     * Works with uni-, bi-, and trigram models.
+     *
+     * @param paiIndexes  indexes of the observations in the table, in the order observed
+     * @param piLength    number of indexes, 1 to 3
+     * @param pdOccurence amount to add
+     * @return the new occurence
+     * @throws IllegalArgumentException if the length or an index is out of range
+     * @see #addObservation(Object)
+     * @since 0.3.0.6
+     */
+    public final synchronized double addOccurence(final int[] paiIndexes, final int piLength, final double pdOccurence) {
+        if (piLength < 1 || piLength > 3) {
+            throw new IllegalArgumentException("N-gram length (" + piLength + ") is not between 1 and 3.");
+        }
 
-                if (oOccurence == null) {
-                    return 0.0;
-                }
+        for (int i = 0; i < piLength; i++) {
+            if (paiIndexes[i] < 0 || paiIndexes[i] >= this.oColumnIndex.size()) {
+                throw new IllegalArgumentException("Observation index (" + paiIndexes[i] + ") is out of range.");
+            }
+        }
+
+        return this.oCounts.add(getKey(paiIndexes, piLength), pdOccurence);
+    }
 
-                dOccurence = oOccurence.doubleValue();
+    /**
+     * Retrieves the number of n-grams with an occurence set.
+     *
+     * @return the count
+     * @since 0.3.0.6
+     */
+    public final synchronized int getNgramCount() {
+        return this.oCounts.size();
+    }
 
-                break;
-            }
+    /**
+     * Retrieves the ID of an observation, i.e. its index in the table,
+     * giving it the next one if it is new.
+     *
+     * @param poObservation the observation
+     * @return the ID
+     * @throws IllegalStateException if the table has <code>MAX_OBSERVATIONS</code> already
+     * @since 0.3.0.6
+     */
+    private int intern(final Object poObservation) {
+        Integer oID = (Integer) this.oIDs.get(poObservation);
 
-            case 3: {
-                iUniIndex = this.oColumnIndex.indexOf(poObservationList.elementAt(0));
-                iBiIndex = this.oColumnIndex.indexOf(poObservationList.elementAt(1));
-                iTriIndex = this.oColumnIndex.indexOf(poObservationList.elementAt(2));
+        if (oID != null) {
+            return oID.intValue();
+        }
 
-                if (iUniIndex == -1 || iBiIndex == -1 || iTriIndex == -1) {
-                    return 0.0;
-                }
+        int iID = this.oColumnIndex.size();
 
-                Vector oPlane = (Vector) this.oNMatrix.elementAt(iUniIndex);
+        if (iID == MAX_OBSERVATIONS) {
+            throw new IllegalStateException
+                    (
+                            "ProbabilityTable: more than " + MAX_OBSERVATIONS + " distinct observations."
+                    );
+        }
 
-                if (oPlane == null || oPlane.size() < iBiIndex + 1) {
-                    return 0.0;
-                }
+        this.oColumnIndex.add(poObservation);
+        this.oIDs.put(poObservation, Integer.valueOf(iID));
 
-                Vector oRow = (Vector) oPlane.elementAt(iBiIndex);
+        return iID;
+    }
 
-                if (oRow == null || oRow.size() < iTriIndex + 1) {
-                    return 0.0;
-                }
+    /**
+     * Packs the IDs of the observations of an n-gram into its key,
+     * each shifted by one so that n-grams of different lengths
+     * do not share keys.
+     *
+     * @param paiIDs   the IDs, in order
+     * @param piLength number of IDs, 1 to 3
+     * @return the key
+     * @since 0.3.0.6
+     */
+    private static long getKey(final int[] paiIDs, final int piLength) {
+        long lKey = 0;
 
-                Double oOccurence = (Double) oRow.elementAt(iTriIndex);
+        for (int i = 0; i < piLength; i++) {
+            lKey = (lKey << ID_BITS) | (paiIDs[i] + 1);
+        }
 
-                if (oOccurence == null) {
-                    return 0.0;
-                }
+        return lKey;
+    }
+
+    /**
+     * Loads the table, rebuilding the observation IDs and converting
+     * the nested vectors of the earlier versions.
+     *
+     * @param poInput stream to load from
+     * @throws IOException            if the stream does
+     * @throws ClassNotFoundException if the stream does
+     * @since 0.3.0.6
+     */
+    private void readObject(final ObjectInputStream poInput)
+            throws IOException, ClassNotFoundException {
+        poInput.defaultReadObject();
 
-                dOccurence = oOccurence.doubleValue();
+        this.aiNgramIDs = new int[3];
+        this.oIDs = new HashMap();
 
-                break;
-            }
+        for (int i = 0; i < this.oColumnIndex.size(); i++) {
+            this.oIDs.put(this.oColumnIndex.elementAt(i), Integer.valueOf(i));
         }
 
-        //Debug.debug("dOccurence = " + dOccurence);
+        if (this.oCounts == null) {
+            this.oCounts = new LongDoubleHashMap();
+        }
 
-        return dOccurence;
+        if (this.oNMatrix != null) {
+            convert(this.oNMatrix, 0);
+            this.oNMatrix = null;
+        }
     }
 
     /**
-     * Increments the frequency of occurences of a list of observations.
+     * Moves the occurences of a level of the earlier nested vectors
+     * into <code>oCounts</code>. A level holds the <code>Double</code>
+     * occurences of the n-grams ending there, or the vectors of the
+     * next level, or both, <code>null</code>s standing for nothing.
      *
-     * @param poObservationList the list to work with
-     * @return the new frequency
+     * @param poLevel  vector of the level
+     * @param piLength number of IDs of the n-gram prefix in <code>aiNgramIDs</code>
+     * @since 0.3.0.6
      */
-    public final synchronized int incFrequency(final Vector poObservationList) {
-        int iFrequency = (int) getOccurence(poObservationList) + 1;
-        setOccurence(poObservationList, iFrequency);
-        return iFrequency;
+    private void convert(final Vector poLevel, final int piLength) {
+        for (int i = 0; i < poLevel.size() && i < this.oColumnIndex.size(); i++) {
+            Object oElement = poLevel.elementAt(i);
+            this.aiNgramIDs[piLength] = i;
+
+            if (oElement instanceof Double) {
+                this.oCounts.put(getKey(this.aiNgramIDs, piLength + 1), ((Double) oElement).doubleValue());
+            } else if (oElement instanceof Vector && piLength < 2) {
+                convert((Vector) oElement, piLength + 1);
+            }
+        }
     }
 
     /**
@@ -0,0 +1,915 @@
+package marf.Stats.StatisticalEstimators;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Vector;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import marf.Stats.ProbabilityTable;
+import marf.Stats.StatisticalEstimators.Smoothing.ISmoothing;
+import marf.Storage.StorageException;
+import marf.nlp.util.NLPStreamTokenizer;
+import marf.util.Arrays;
+import marf.util.Debug;
+import marf.util.ExecutionService;
+import marf.util.LongDoubleHashMap;
+
+
+/**
+ * <p>Trains a statistical estimator on a large corpus.</p>
+ *
+ * <p>Where <code>StatisticalEstimator.train()</code> updates the probability
+ * table n-gram by n-gram and keeps it all in memory, the corpus trainer
+ * counts the n-grams of the current n-gram model apart and merges the
+ * counts into the table at the end. The texts are tokenized in the calling
+ * thread, the tokens numbered in the order first seen, and the numbers
+ * handed out in blocks of <code>getBlockSize()</code> tokens to counting
+ * tasks on the <code>ExecutionService.QUEUE_TRAINING</code> queue. Each
+ * task counts into a primitive hash map of its own; when the map grows
+ * beyond the task's share of the memory budget, its counts are written to
+ * a temporary file sorted by n-gram, and the task starts over. The sorted
+ * runs, from the files and the maps left, are finally merged, added to the
+ * estimator's restored table, smoothed if the estimator does smoothing,
+ * and dumped.</p>
+ *
+ * <p>The resulting table is the one <code>train()</code> of the estimator
+ * would produce reading the texts one after another, save for the n-grams
+ * spanning two texts, which are not counted. The memory budget covers the
+ * counts only, not the vocabulary nor the table itself. A trainer may
+ * train several estimators in turn, but not at the same time.</p>
+ *
+ * <p>$Id$</p>
+ *
+ * @author The MARF Research and Development Group
+ * @version $Revision$
+ * @see StatisticalEstimator#train()
+ * @see marf.Classification.Stochastic.MaxProbabilityClassifier#invalidateLanguageModels()
+ * @since 0.3.0.6
+ */
+public class NgramCorpusTrainer {
+    /**
+     * Default number of tokens in a block handed to a counting task, 65536.
+     */
+    public static final int DEFAULT_BLOCK_SIZE = 65536;
+
+    /**
+     * Default memory budget of the counts, 64 MB.
+     */
+    public static final long DEFAULT_MEMORY_BUDGET = 64L * 1024 * 1024;
+
+    /**
+     * Estimated memory taken by a counted n-gram, in bytes, 64: 16 bytes
+     * per slot of a hash map up to two-thirds full, three times as many
+     * slots right after it grows, and the old slots while it does.
+     */
+    public static final int BYTES_PER_NGRAM = 64;
+
+    /**
+     * Mask of an observation ID in an n-gram key.
+     */
+    private static final long ID_MASK = (1L << ProbabilityTable.ID_BITS) - 1;
+
+    /**
+     * Block telling a counting task there are no more.
+     */
+    private static final Block END = new Block(new int[0], 0);
+
+    /**
+     * Estimator to train.
+     */
+    protected StatisticalEstimator oEstimator = null;
+
+    /**
+     * Number of counting tasks; 0 for the pool size of the execution service.
+     */
+    protected int iThreads = 0;
+
+    /**
+     * Number of tokens in a block.
+     */
+    protected int iBlockSize = DEFAULT_BLOCK_SIZE;
+
+    /**
+     * Memory budget of the counts, in bytes.
+     */
+    protected long lMemoryBudget = DEFAULT_MEMORY_BUDGET;
+
+    /**
+     * Directory of the spilled runs; <code>null</code> for the
+     * system's temporary directory.
+     */
+    protected File oSpillDirectory = null;
+
+    /**
+     * Number of runs spilled to disk by the last training.
+     */
+    private int iSpills = 0;
+
+    /**
+     * Constructs a trainer of an estimator.
+     *
+     * @param poEstimator the estimator
+     */
+    public NgramCorpusTrainer(StatisticalEstimator poEstimator) {
+        this.oEstimator = poEstimator;
+    }
+
+    /**
+     * Trains the estimator on text files, read with the platform's
+     * default encoding.
+     *
+     * @param paoFiles the files
+     * @return <code>true</code> if training was successful; <code>false</code>
+     * if the n-gram model is not one of the uni-, bi-, or trigram
+     * @throws StorageException if a file can not be read, or the runs
+     *                          or the estimator can not be stored
+     * @see #train(Reader[])
+     */
+    public boolean train(final File[] paoFiles)
+            throws StorageException {
+        Reader[] aoReaders = new Reader[paoFiles.length];
+
+        try {
+            for (int i = 0; i < paoFiles.length; i++) {
+                aoReaders[i] = new BufferedReader(new FileReader(paoFiles[i]));
+            }
+
+            return train(aoReaders);
+        } catch (IOException e) {
+            throw new StorageException(e);
+        } finally {
+            for (int i = 0; i < aoReaders.length; i++) {
+                if (aoReaders[i] != null) {
+                    try {
+                        aoReaders[i].close();
+                    } catch (IOException e) {
+                        Debug.debug("NgramCorpusTrainer: could not close " + paoFiles[i] + ": " + e);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Trains the estimator on texts, read to the end but not closed.
+     *
+     * @param paoTexts the texts
+     * @return <code>true</code> if training was successful; <code>false</code>
+     * if the n-gram model is not one of the uni-, bi-, or trigram
+     * @throws StorageException if a text can not be read, or the runs
+     *                          or the estimator can not be stored
+     */
+    public boolean train(final Reader[] paoTexts)
+            throws StorageException {
+        int iN = StatisticalEstimator.getNgramLength();
+
+        if (iN == 0) {
+            return false;
+        }
+
+        this.iSpills = 0;
+
+        int iTasks = this.iThreads == 0 ? ExecutionService.getPoolSize() : this.iThreads;
+        long lMaxNgrams = Math.max(1, this.lMemoryBudget / BYTES_PER_NGRAM / iTasks);
+
+        BlockingQueue oBlocks = new ArrayBlockingQueue(2 * iTasks);
+        Counter[] aoCounters = new Counter[iTasks + 1];
+        Future[] aoFutures = new Future[iTasks];
+        Vector oTokens = new Vector();
+
+        // The calling thread's own counter, for when no task runs elsewhere
+        aoCounters[iTasks] = new Counter(oBlocks, iN, (int) Math.min(lMaxNgrams, Integer.MAX_VALUE));
+
+        try {
+            for (int i = 0; i < iTasks; i++) {
+                aoCounters[i] = new Counter(oBlocks, iN, aoCounters[iTasks].iMaxNgrams);
+                aoFutures[i] = ExecutionService.submit(ExecutionService.QUEUE_TRAINING, aoCounters[i]);
+            }
+
+            tokenize(paoTexts, iN, oTokens, oBlocks, aoCounters);
+
+            for (int i = 0; i < iTasks; i++) {
+                if (!aoCounters[i].bInline) {
+                    oBlocks.put(END);
+                }
+            }
+
+            for (int i = 0; i < iTasks; i++) {
+                aoFutures[i].get();
+                aoFutures[i] = null;
+            }
+
+            merge(aoCounters, iN, oTokens);
+
+            return true;
+        } catch (IOException e) {
+            throw new StorageException(e);
+        } catch (ExecutionException e) {
+            throw new StorageException
+                    (
+                            "NgramCorpusTrainer: counting failed: " + e.getCause(),
+                            e.getCause() instanceof Exception ? (Exception) e.getCause() : e
+                    );
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new StorageException(e);
+        } finally {
+            for (int i = 0; i < iTasks; i++) {
+                if (aoFutures[i] != null) {
+                    aoFutures[i].cancel(true);
+                }
+            }
+
+            for (int i = 0; i < aoCounters.length; i++) {
+                if (aoCounters[i] != null) {
+                    aoCounters[i].deleteRuns();
+                }
+            }
+        }
+    }
+
+    /**
+     * Tokenizes the texts and hands the token IDs out in blocks. A block
+     * starts with the last n - 1 tokens of the previous one from the same
+     * text, so that every n-gram is in exactly one block. The tokens of a
+     * text too short to make an n-gram are left out altogether.
+     *
+     * @param paoTexts    the texts
+     * @param piN         n-gram length
+     * @param poTokens    receives the tokens, by ID
+     * @param poBlocks    queue of the blocks
+     * @param paoCounters the counters; the last one is the calling thread's
+     * @throws IOException          if a text can not be read
+     * @throws InterruptedException if interrupted while waiting for the queue
+     */
+    private void tokenize
+    (
+            final Reader[] paoTexts,
+            final int piN,
+            final Vector poTokens,
+            final BlockingQueue poBlocks,
+            final Counter[] paoCounters
+    )
+            throws IOException, InterruptedException {
+        Map oIDs = new HashMap();
+        String[] astrHead = new String[piN - 1];
+
+        for (int t = 0; t < paoTexts.length; t++) {
+            NLPStreamTokenizer oTokenizer = createTokenizer(paoTexts[t]);
+            int[] aiBlock = new int[piN - 1 + this.iBlockSize];
+            int iLength = 0;
+            int iTokens = 0;
+            String strToken = null;
+
+            while ((strToken = oTokenizer.getNextToken()) != null) {
+                // Hold the first tokens back until they make an n-gram
+                if (iTokens < piN - 1) {
+                    astrHead[iTokens++] = strToken;
+                    continue;
+                }
+
+                if (iTokens == piN - 1) {
+                    for (int i = 0; i < piN - 1; i++) {
+                        aiBlock[iLength++] = getID(astrHead[i], oIDs, poTokens);
+                    }
+
+                    iTokens++;
+                }
+
+                aiBlock[iLength++] = getID(strToken, oIDs, poTokens);
+
+                if (iLength == aiBlock.length) {
+                    int[] aiNext = new int[aiBlock.length];
+                    System.arraycopy(aiBlock, iLength - (piN - 1), aiNext, 0, piN - 1);
+
+                    handOut(new Block(aiBlock, iLength), poBlocks, paoCounters);
+
+                    aiBlock = aiNext;
+                    iLength = piN - 1;
+                }
+            }
+
+            if (iLength >= piN) {
+                handOut(new Block(aiBlock, iLength), poBlocks, paoCounters);
+            }
+        }
+    }
+
+    /**
+     * Retrieves the ID of a token, giving it the next one if it is new.
+     *
+     * @param pstrToken the token
+     * @param poIDs     IDs of the tokens so far
+     * @param poTokens  the tokens so far, by ID
+     * @return the ID
+     * @throws IllegalStateException if there are <code>ProbabilityTable.MAX_OBSERVATIONS</code> tokens already
+     */
+    private static int getID(final String pstrToken, final Map poIDs, final Vector poTokens) {
+        Integer oID = (Integer) poIDs.get(pstrToken);
+
+        if (oID == null) {
+            if (poTokens.size() == ProbabilityTable.MAX_OBSERVATIONS) {
+                throw new IllegalStateException
+                        (
+                                "NgramCorpusTrainer: more than " + ProbabilityTable.MAX_OBSERVATIONS + " distinct tokens."
+                        );
+            }
+
+            oID = Integer.valueOf(poTokens.size());
+            poIDs.put(pstrToken, oID);
+            poTokens.add(pstrToken);
+        }
+
+        return oID.intValue();
+    }
+
+    /**
+     * Hands a block to the counting tasks, or counts it in the calling
+     * thread if none of them runs elsewhere.
+     *
+     * @param poBlock     the block
+     * @param poBlocks    queue of the blocks
+     * @param paoCounters the counters; the last one is the calling thread's
+     * @throws IOException          if the calling thread's counts can not be spilled
+     * @throws InterruptedException if interrupted while waiting for the queue
+     */
+    private void handOut(final Block poBlock, final BlockingQueue poBlocks, final Counter[] paoCounters)
+            throws IOException, InterruptedException {
+        for (int i = 0; i < paoCounters.length - 1; i++) {
+            if (!paoCounters[i].bInline) {
+                poBlocks.put(poBlock);
+                return;
+            }
+        }
+
+        paoCounters[paoCounters.length - 1].count(poBlock);
+    }
+
+    /**
+     * Merges the sorted runs of the counters into the restored table
+     * of the estimator, then smoothes and dumps it.
+     *
+     * @param paoCounters the counters, done counting
+     * @param piN         n-gram length
+     * @param poTokens    the tokens, by ID
+     * @throws IOException      if a spilled run can not be read
+     * @throws StorageException if the estimator can not be restored or dumped
+     */
+    private void merge(final Counter[] paoCounters, final int piN, final Vector poTokens)
+            throws IOException, StorageException {
+        PriorityQueue oRuns = new PriorityQueue(paoCounters.length + 1, new Comparator() {
+            public int compare(Object poRun1, Object poRun2) {
+                long lKey1 = ((Run) poRun1).lKey;
+                long lKey2 = ((Run) poRun2).lKey;
+                return lKey1 < lKey2 ? -1 : (lKey1 == lKey2 ? 0 : 1);
+            }
+        });
+
+        try {
+            for (int i = 0; i < paoCounters.length; i++) {
+                paoCounters[i].openRuns(oRuns);
+                this.iSpills += paoCounters[i].oRunFiles.size();
+            }
+
+            this.oEstimator.restore();
+
+            ProbabilityTable oTable = this.oEstimator.getProbabilityTable();
+
+            if (!oRuns.isEmpty()) {
+                // Columns in the order the tokens were first seen, as train() does
+                int[] aiIndexes = new int[poTokens.size()];
+
+                for (int i = 0; i < aiIndexes.length; i++) {
+                    aiIndexes[i] = oTable.addObservation(poTokens.elementAt(i));
+                }
+
+                int[] aiNgram = new int[piN];
+
+                while (!oRuns.isEmpty()) {
+                    Run oRun = (Run) oRuns.poll();
+                    long lKey = oRun.lKey;
+                    double dCount = oRun.dCount;
+
+                    if (oRun.next()) {
+                        oRuns.add(oRun);
+                    }
+
+                    while (!oRuns.isEmpty() && ((Run) oRuns.peek()).lKey == lKey) {
+                        oRun = (Run) oRuns.poll();
+                        dCount += oRun.dCount;
+
+                        if (oRun.next()) {
+                            oRuns.add(oRun);
+                        }
+                    }
+
+                    for (int i = piN - 1; i >= 0; i--) {
+                        aiNgram[i] = aiIndexes[(int) (lKey & ID_MASK) - 1];
+                        lKey >>>= ProbabilityTable.ID_BITS;
+                    }
+
+                    oTable.addOccurence(aiNgram, piN, dCount);
+                }
+            }
+        } finally {
+            while (!oRuns.isEmpty()) {
+                ((Run) oRuns.poll()).close();
+            }
+        }
+
+        if (this.oEstimator instanceof ISmoothing) {
+            ((ISmoothing) this.oEstimator).smooth();
+        }
+
+        this.oEstimator.dump();
+
+        if (Debug.isDebugOn()) {
+            Debug.debug
+                    (
+                            "NgramCorpusTrainer: {} tokens, {} n-grams, {} runs spilled",
+                            Integer.valueOf(poTokens.size()),
+                            Integer.valueOf(this.oEstimator.getProbabilityTable().getNgramCount()),
+                            Integer.valueOf(this.iSpills)
+                    );
+        }
+    }
+
+    /**
+     * Creates the tokenizer of a text. Derivatives may override it
+     * to tokenize differently.
+     *
+     * @param poText the text
+     * @return a new <code>NLPStreamTokenizer</code>
+     */
+    protected NLPStreamTokenizer createTokenizer(Reader poText) {
+        return new NLPStreamTokenizer(poText);
+    }
+
+    /**
+     * Retrieves the estimator trained.
+     *
+     * @return the estimator
+     */
+    public final StatisticalEstimator getEstimator() {
+        return this.oEstimator;
+    }
+
+    /**
+     * Sets the estimator to train.
+     *
+     * @param poEstimator the estimator
+     */
+    public final void setEstimator(StatisticalEstimator poEstimator) {
+        this.oEstimator = poEstimator;
+    }
+
+    /**
+     * Sets the number of counting tasks.
+     *
+     * @param piThreads number of tasks; 0 for the pool size of the execution service
+     * @throws IllegalArgumentException if the number is negative
+     */
+    public final void setThreads(final int piThreads) {
+        if (piThreads < 0) {
+            throw new IllegalArgumentException("Number of threads (" + piThreads + ") is negative.");
+        }
+
+        this.iThreads = piThreads;
+    }
+
+    /**
+     * Retrieves the number of counting tasks.
+     *
+     * @return number of tasks; 0 for the pool size of the execution service
+     */
+    public final int getThreads() {
+        return this.iThreads;
+    }
+
+    /**
+     * Sets the number of tokens in a block handed to a counting task.
+     *
+     * @param piBlockSize number of tokens
+     * @throws IllegalArgumentException if the size is less than 1
+     */
+    public final void setBlockSize(final int piBlockSize) {
+        if (piBlockSize < 1) {
+            throw new IllegalArgumentException("Block size (" + piBlockSize + ") is less than 1.");
+        }
+
+        this.iBlockSize = piBlockSize;
+    }
+
+    /**
+     * Retrieves the number of tokens in a block.
+     *
+     * @return number of tokens
+     */
+    public final int getBlockSize() {
+        return this.iBlockSize;
+    }
+
+    /**
+     * Sets the memory budget of the counts, shared evenly by the counting
+     * tasks. A task spills its counts to disk when they exceed its share,
+     * estimated at <code>BYTES_PER_NGRAM</code> per n-gram.
+     *
+     * @param plBytes the budget in bytes
+     * @throws IllegalArgumentException if the budget is less than 1
+     */
+    public final void setMemoryBudget(final long plBytes) {
+        if (plBytes < 1) {
+            throw new IllegalArgumentException("Memory budget (" + plBytes + ") is less than 1.");
+        }
+
+        this.lMemoryBudget = plBytes;
+    }
+
+    /**
+     * Retrieves the memory budget of the counts.
+     *
+     * @return the budget in bytes
+     */
+    public final long getMemoryBudget() {
+        return this.lMemoryBudget;
+    }
+
+    /**
+     * Sets the directory of the runs spilled to disk.
+     *
+     * @param poDirectory the directory; <code>null</code> for the
+     *                    system's temporary directory
+     */
+    public final void setSpillDirectory(File poDirectory) {
+        this.oSpillDirectory = poDirectory;
+    }
+
+    /**
+     * Retrieves the directory of the runs spilled to disk.
+     *
+     * @return the directory; <code>null</code> for the system's temporary directory
+     */
+    public final File getSpillDirectory() {
+        return this.oSpillDirectory;
+    }
+
+    /**
+     * Retrieves the number of runs spilled to disk by the last training.
+     *
+     * @return the count
+     */
+    public final int getSpillCount() {
+        return this.iSpills;
+    }
+
+    /**
+     * Token IDs of a stretch of a text.
+     */
+    private static final class Block {
+        /**
+         * The IDs.
+         */
+        final int[] aiIDs;
+
+        /**
+         * Number of IDs in use.
+         */
+        final int iLength;
+
+        /**
+         * Constructs a block.
+         *
+         * @param paiIDs   the IDs, not copied
+         * @param piLength number of IDs in use
+         */
+        Block(final int[] paiIDs, final int piLength) {
+            this.aiIDs = paiIDs;
+            this.iLength = piLength;
+        }
+    }
+
+    /**
+     * Counting task: counts the n-grams of the blocks it takes
+     * off the queue until the <code>END</code>.
+     */
+    private final class Counter
+            implements java.util.concurrent.Callable {
+        /**
+         * Queue of the blocks.
+         */
+        private final BlockingQueue oBlocks;
+
+        /**
+         * N-gram length.
+         */
+        private final int iN;
+
+        /**
+         * Number of n-grams counted before spilling.
+         */
+        final int iMaxNgrams;
+
+        /**
+         * Counts of the n-grams, by key.
+         */
+        private final LongDoubleHashMap oCounts = new LongDoubleHashMap();
+
+        /**
+         * Runs spilled so far.
+         */
+        final Vector oRunFiles = new Vector();
+
+        /**
+         * Thread handing the blocks out.
+         */
+        private final Thread oProducer = Thread.currentThread();
+
+        /**
+         * Whether the task was run by the thread handing the blocks out,
+         * the executor being full, and so did nothing.
+         */
+        volatile boolean bInline = false;
+
+        /**
+         * Constructs a counter.
+         *
+         * @param poBlocks     queue of the blocks
+         * @param piN          n-gram length
+         * @param piMaxNgrams  number of n-grams counted before spilling
+         */
+        Counter(final BlockingQueue poBlocks, final int piN, final int piMaxNgrams) {
+            this.oBlocks = poBlocks;
+            this.iN = piN;
+            this.iMaxNgrams = piMaxNgrams;
+        }
+
+        /**
+         * Counts the blocks of the queue. A failure does not stop the
+         * task from taking the blocks, so as not to block the thread
+         * handing them out, but is thrown at the end.
+         *
+         * @return <code>null</code>
+         * @throws Exception the first failure to count
+         */
+        public Object call()
+                throws Exception {
+            if (Thread.currentThread() == this.oProducer) {
+                this.bInline = true;
+                return null;
+            }
+
+            Exception oError = null;
+            Block oBlock;
+
+            while ((oBlock = (Block) this.oBlocks.take()) != END) {
+                if (oError == null) {
+                    try {
+                        count(oBlock);
+                    } catch (Exception e) {
+                        oError = e;
+                    }
+                }
+            }
+
+            if (oError != null) {
+                throw oError;
+            }
+
+            return null;
+        }
+
+        /**
+         * Counts the n-grams of a block.
+         *
+         * @param poBlock the block
+         * @throws IOException if the counts can not be spilled
+         */
+        void count(final Block poBlock)
+                throws IOException {
+            int[] aiIDs = poBlock.aiIDs;
+
+            for (int i = this.iN - 1; i < poBlock.iLength; i++) {
+                long lKey = 0;
+
+                for (int j = i - this.iN + 1; j <= i; j++) {
+                    lKey = (lKey << ProbabilityTable.ID_BITS) | (aiIDs[j] + 1);
+                }
+
+                this.oCounts.add(lKey, 1.0);
+
+                if (this.oCounts.size() > this.iMaxNgrams) {
+                    spill();
+                }
+            }
+        }
+
+        /**
+         * Writes the counts to a temporary file, sorted by key, and clears them.
+         *
+         * @throws IOException if the file can not be written
+         */
+        private void spill()
+                throws IOException {
+            long[] alKeys = this.oCounts.getKeys();
+            Arrays.sort(alKeys);
+
+            File oFile = File.createTempFile("marf-ngrams", ".run", NgramCorpusTrainer.this.oSpillDirectory);
+            this.oRunFiles.add(oFile);
+
+            DataOutputStream oOutput = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(oFile)));
+
+            try {
+                oOutput.writeInt(alKeys.length);
+
+                for (int i = 0; i < alKeys.length; i++) {
+                    oOutput.writeLong(alKeys[i]);
+                    oOutput.writeDouble(this.oCounts.get(alKeys[i], 0.0));
+                }
+            } finally {
+                oOutput.close();
+            }
+
+            this.oCounts.clear();
+        }
+
+        /**
+         * Opens the spilled runs and the counts left in memory as a run,
+         * adding those not empty to a queue.
+         *
+         * @param poRuns the queue, ordered by the current keys
+         * @throws IOException if a run can not be read
+         */
+        void openRuns(final PriorityQueue poRuns)
+                throws IOException {
+            for (int i = 0; i < this.oRunFiles.size(); i++) {
+                Run oRun = new Run((File) this.oRunFiles.elementAt(i));
+
+                if (oRun.next()) {
+                    poRuns.add(oRun);
+                } else {
+                    oRun.close();
+                }
+            }
+
+            if (this.oCounts.size() > 0) {
+                long[] alKeys = this.oCounts.getKeys();
+                double[] adCounts = new double[alKeys.length];
+
+                Arrays.sort(alKeys);
+
+                for (int i = 0; i < alKeys.length; i++) {
+                    adCounts[i] = this.oCounts.get(alKeys[i], 0.0);
+                }
+
+                this.oCounts.clear();
+
+                Run oRun = new Run(alKeys, adCounts);
+                oRun.next();
+                poRuns.add(oRun);
+            }
+        }
+
+        /**
+         * Deletes the spilled runs.
+         */
+        void deleteRuns() {
+            for (int i = 0; i < this.oRunFiles.size(); i++) {
+                File oFile = (File) this.oRunFiles.elementAt(i);
+
+                if (!oFile.delete() && oFile.exists()) {
+                    Debug.debug("NgramCorpusTrainer: could not delete " + oFile);
+                }
+            }
+
+            this.oRunFiles.clear();
+        }
+    }
+
+    /**
+     * Sorted run of n-gram counts being merged, from a file or from memory.
+     */
+    private static final class Run {
+        /**
+         * Current key.
+         */
+        long lKey;
+
+        /**
+         * Current count.
+         */
+        double dCount;
+
+        /**
+         * Keys of an in-memory run; <code>null</code> for a file.
+         */
+        private long[] alKeys = null;
+
+        /**
+         * Counts of an in-memory run.
+         */
+        private double[] adCounts = null;
+
+        /**
+         * Input of a file run; <code>null</code> when in memory or closed.
+         */
+        private DataInputStream oInput = null;
+
+        /**
+         * Number of entries not read yet.
+         */
+        private int iRemaining;
+
+        /**
+         * Opens a file run.
+         *
+         * @param poFile the file
+         * @throws IOException if the file can not be read
+         */
+        Run(final File poFile)
+                throws IOException {
+            this.oInput = new DataInputStream(new BufferedInputStream(new FileInputStream(poFile)));
+            this.iRemaining = this.oInput.readInt();
+        }
+
+        /**
+         * Constructs an in-memory run.
+         *
+         * @param palKeys   the keys, sorted
+         * @param padCounts the counts of the keys
+         */
+        Run(final long[] palKeys, final double[] padCounts) {
+            this.alKeys = palKeys;
+            this.adCounts = padCounts;
+            this.iRemaining = palKeys.length;
+        }
+
+        /**
+         * Moves on to the next entry.
+         *
+         * @return <code>false</code> if there is none, the run being closed then
+         * @throws IOException if the file can not be read
+         */
+        boolean next()
+                throws IOException {
+            if (this.iRemaining == 0) {
+                close();
+                return false;
+            }
+
+            if (this.oInput != null) {
+                this.lKey = this.oInput.readLong();
+                this.dCount = this.oInput.readDouble();
+            } else {
+                int i = this.alKeys.length - this.iRemaining;
+                this.lKey = this.alKeys[i];
+                this.dCount = this.adCounts[i];
+            }
+
+            this.iRemaining--;
+
+            return true;
+        }
+
+        /**
+         * Closes the file, if any.
+         */
+        void close() {
+            if (this.oInput != null) {
+                try {
+                    this.oInput.close();
+                } catch (IOException e) {
+                    Debug.debug("NgramCorpusTrainer: could not close a run: " + e);
+                }
+
+                this.oInput = null;
+            }
+        }
+    }
+
+    /**
+     * Returns source code revision information.
+     *
+     * @return revision string
+     */
+    public static String getMARFSourceCodeRevision() {
+        return "$Revision$";
+    }
+}
+
+// EOF
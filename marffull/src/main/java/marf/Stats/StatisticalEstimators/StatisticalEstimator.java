@@ -1,5 +1,6 @@
 package marf.Stats.StatisticalEstimators;
 
+import java.io.IOException;
 import java.util.Vector;
 
 import marf.MARF;
@@ -68,119 +69,92 @@ public abstract class StatisticalEstimator
     //XXX: public abstract double p(String pstrSentence);
     //XXX: public abstract double p(Ngram poNgram);
     public final double p() {
-        double dProbability = 0.0;
-
         try {
-            // P(EOS,first-char)
-//			boolean bBeginning = true;
-
             restore();
+            return p(this.oProbabilityTable, getNgrams());
+        } catch (Exception e) {
+            System.err.println(e.getMessage());
+            e.printStackTrace(System.err);
+        }
 
-            String strToken = null;
-
-//			while(this.oStreamTokenizer.nextToken() != StreamTokenizer.TT_EOF)
-            while ((strToken = this.oStreamTokenizer.getNextToken()) != null) {
-//				String strToken = getNextToken();
-
-                // Something which what we didn't ask for (not a string)
-//				if(strToken == null)
-//				{
-//					System.out.println("WARNING: Null token!");
-//					continue;
-//				}
-
-                Vector oNgram = new Vector();
-
-                switch (MARF.NLP.getNgramModel()) {
-                    case MARF.ENgramModels.UNIGRAM: {
-                        oNgram.add(strToken);
-                        dProbability += Math.log(this.oProbabilityTable.p(oNgram));
-                        break;
-                    }
-
-                    case MARF.ENgramModels.BIGRAM: {
-                        oNgram.add(strToken);
-
-//						if(oStreamTokenizer.nextToken() == StreamTokenizer.TT_EOF)
-//							break;
-
-//						String strToken2 = getNextToken();
-
-                        String strToken2 = oStreamTokenizer.getNextToken();
-
-                        if (strToken2 == null) {
-                            break;
-                        }
-
-                        oNgram.add(strToken2);
-
-                        this.oStreamTokenizer.pushBack();
-
-                        dProbability += Math.log(oProbabilityTable.p(oNgram));
-
-                        break;
-                    }
-
-                    case MARF.ENgramModels.TRIGRAM: {
-                        oNgram.add(strToken);
-
-//						if(oStreamTokenizer.nextToken() == StreamTokenizer.TT_EOF)
-//							break;
-
-                        String strToken2 = oStreamTokenizer.getNextToken();
-
-                        if (strToken2 == null) {
-                            break;
-                        }
+        return 0.0;
+    }
 
-                        oNgram.add(strToken2);
+    /**
+     * Computes the log probability of a stream of n-grams with a table,
+     * as the sum of the logarithms of the occurences of the n-grams.
+     *
+     * @param poTable  the table, e.g. of a language
+     * @param poNgrams n-grams from <code>getNgrams()</code>
+     * @return the log probability
+     * @since 0.3.0.6
+     */
+    public static double p(final ProbabilityTable poTable, final Vector poNgrams) {
+        double dProbability = 0.0;
 
-                        int iTokenType2 = this.oStreamTokenizer.ttype;
-                        double dNumericValue2 = this.oStreamTokenizer.nval;
+        for (int i = 0; i < poNgrams.size(); i++) {
+            dProbability += Math.log(poTable.p((Vector) poNgrams.elementAt(i)));
+        }
 
-//						if(oStreamTokenizer.nextToken() == StreamTokenizer.TT_EOF)
-//							break;
+        return dProbability;
+    }
 
-//						String strToken3 = getNextToken();
+    /**
+     * Reads the rest of the stream tokenizer's input into n-grams of the
+     * current n-gram model, one starting at every token that is followed
+     * by enough tokens to make one, as <code>train()</code> counts them.
+     * The input is thus tokenized once however many tables the n-grams
+     * are scored with.
+     *
+     * @return <code>Vector</code> of the n-grams, each a <code>Vector</code> of tokens
+     * @throws IOException if the tokenizer fails to read
+     * @see MARF.NLP#getNgramModel()
+     * @since 0.3.0.6
+     */
+    public final Vector getNgrams()
+            throws IOException {
+        int iN = getNgramLength();
 
-                        String strToken3 = this.oStreamTokenizer.getNextToken();
+        if (iN == 0) {
+            return new Vector();
+        }
 
-                        if (strToken3 == null) {
-                            break;
-                        }
+        Vector oTokens = new Vector();
+        String strToken;
 
-                        oNgram.add(strToken3);
+        while ((strToken = this.oStreamTokenizer.getNextToken()) != null) {
+            oTokens.add(strToken);
+        }
 
-                        int iTokenType3 = this.oStreamTokenizer.ttype;
-                        double dNumericValue3 = this.oStreamTokenizer.nval;
+        Vector oNgrams = new Vector(Math.max(oTokens.size() - iN + 1, 0));
 
-                        this.oStreamTokenizer.ttype = iTokenType2;
-                        this.oStreamTokenizer.nval = dNumericValue2;
-                        this.oStreamTokenizer.sval = strToken2;
+        for (int i = 0; i + iN <= oTokens.size(); i++) {
+            oNgrams.add(new Vector(oTokens.subList(i, i + iN)));
+        }
 
-                        this.oStreamTokenizer.pushBack();
+        return oNgrams;
+    }
 
-                        this.oStreamTokenizer.ttype = iTokenType3;
-                        this.oStreamTokenizer.nval = dNumericValue3;
-                        this.oStreamTokenizer.sval = strToken3;
+    /**
+     * Retrieves the number of tokens of an n-gram of the current model.
+     *
+     * @return 1 to 3, or 0 if the model is not known
+     * @since 0.3.0.6
+     */
+    protected static int getNgramLength() {
+        switch (MARF.NLP.getNgramModel()) {
+            case MARF.ENgramModels.UNIGRAM:
+                return 1;
 
-                        this.oStreamTokenizer.pushBack();
+            case MARF.ENgramModels.BIGRAM:
+                return 2;
 
-                        dProbability += Math.log(this.oProbabilityTable.p(oNgram));
-                        break;
-                    }
+            case MARF.ENgramModels.TRIGRAM:
+                return 3;
 
-                    default: {
-                        break;
-                    }
-                }
-            }
-        } catch (Exception e) {
-            System.err.println(e.getMessage());
-            e.printStackTrace(System.err);
+            default:
+                return 0;
         }
-
-        return dProbability;
     }
 
     /**
@@ -192,107 +166,22 @@ public abstract class StatisticalEstimator
         try {
             restore();
 
-            String strToken = null;
-
-            // Collect Stats
-            //XXX: while(this.oStreamTokenizer.nextToken() != StreamTokenizer.TT_EOF)
-            while ((strToken = this.oStreamTokenizer.getNextToken()) != null) {
-                //String strToken = getNextToken();
-
-                // Something which what we didn't ask for (not a string)
-                if (strToken == null) {
-                    System.err.println
-                            (
-                                    "WARNING: Null token! st:[" + this.oStreamTokenizer.toString() + "]" +
-                                            this.oStreamTokenizer.sval + this.oStreamTokenizer.nval + this.oStreamTokenizer.ttype
-                            );
+            int iN = getNgramLength();
 
-                    continue;
-                }
-
-                Vector oNgram = new Vector();
+            // Collect Stats, sliding an n-token window over the input
+            if (iN > 0) {
+                Vector oNgram = new Vector(iN + 1);
+                String strToken = null;
 
-                switch (MARF.NLP.getNgramModel()) {
-                    case MARF.ENgramModels.UNIGRAM: {
-                        oNgram.add(strToken);
-//						Debug.debug("oNgram["+oUnigram+"]");
-                        this.oProbabilityTable.incFrequency(oNgram);
+                while ((strToken = this.oStreamTokenizer.getNextToken()) != null) {
+                    oNgram.add(strToken);
 
-                        break;
+                    if (oNgram.size() > iN) {
+                        oNgram.remove(0);
                     }
 
-                    case MARF.ENgramModels.BIGRAM: {
-                        oNgram.add(strToken);
-
-//						if(this.oStreamTokenizer.nextToken() == StreamTokenizer.TT_EOF)
-//							break;
-
-                        String strToken2 = this.oStreamTokenizer.getNextToken();
-
-                        if (strToken2 == null) {
-                            break;
-                        }
-
-                        oNgram.add(strToken2);
-                        this.oStreamTokenizer.pushBack();
-
-//						Debug.debug("oNgram["+oNgram+"]");
+                    if (oNgram.size() == iN) {
                         this.oProbabilityTable.incFrequency(oNgram);
-
-                        break;
-                    }
-
-                    case MARF.ENgramModels.TRIGRAM: {
-                        oNgram.add(strToken);
-
-//						if(this.oStreamTokenizer.nextToken() == StreamTokenizer.TT_EOF)
-//							break;
-
-                        String strToken2 = this.oStreamTokenizer.getNextToken();
-
-                        if (strToken2 == null) {
-                            break;
-                        }
-
-                        oNgram.add(strToken2);
-
-                        int iTokenType2 = this.oStreamTokenizer.ttype;
-                        double dNumericValue2 = this.oStreamTokenizer.nval;
-
-                        //if(oStreamTokenizer.nextToken() == StreamTokenizer.TT_EOF)
-                        //	break;
-
-                        String strToken3 = this.oStreamTokenizer.getNextToken();
-
-                        if (strToken3 == null) {
-                            break;
-                        }
-
-                        oNgram.add(strToken3);
-
-                        int iTokenType3 = this.oStreamTokenizer.ttype;
-                        double dNumericValue3 = this.oStreamTokenizer.nval;
-
-                        this.oStreamTokenizer.ttype = iTokenType2;
-                        this.oStreamTokenizer.nval = dNumericValue2;
-                        this.oStreamTokenizer.sval = strToken2;
-
-                        this.oStreamTokenizer.pushBack();
-
-                        this.oStreamTokenizer.ttype = iTokenType3;
-                        this.oStreamTokenizer.nval = dNumericValue3;
-                        this.oStreamTokenizer.sval = strToken3;
-
-                        this.oStreamTokenizer.pushBack();
-
-//						Debug.debug("oNgram["+oNgram+"]");
-                        this.oProbabilityTable.incFrequency(oNgram);
-
-                        break;
-                    }
-
-                    default: {
-                        break;
                     }
                 }
             }
@@ -430,10 +319,23 @@ public abstract class StatisticalEstimator
      * @see marf.Storage.StorageManager#getFilename()
      */
     public final String getFilename() {
+        return getFilename(MARF.NLP.getLanguage());
+    }
+
+    /**
+     * Retrieves the default dump filename of a given language's table
+     * for the current n-gram model.
+     *
+     * @param pstrLang the language
+     * @return the filename
+     * @see #getFilename()
+     * @since 0.3.0.6
+     */
+    public final String getFilename(final String pstrLang) {
         return
                 getClass().getName() +
                         "." + MARF.NLP.getNgramModel() +
-                        "." + MARF.NLP.getLanguage() +
+                        "." + pstrLang +
                         ".gzbin";
     }
 
@@ -164,10 +164,12 @@ public class Cluster
 
         incMeanCount();
 
-        if (bNewSample == true) {
-            Debug.debug("Added feature vector for subject: " + piSubjectID);
-        } else {
-            Debug.debug("Updated mean vector for subject: " + piSubjectID);
+        if (Debug.isDebugOn()) {
+            if (bNewSample == true) {
+                Debug.debug("Added feature vector for subject: " + piSubjectID);
+            } else {
+                Debug.debug("Updated mean vector for subject: " + piSubjectID);
+            }
         }
 
         return true;
@@ -30,6 +30,14 @@ import marf.util.InvalidSampleFormatException;
  */
 public class WAVLoader
         extends SampleLoader {
+    /**
+     * Raw byte buffer of the last <code>readAudioData()</code> call,
+     * kept to avoid reallocating it for every chunk.
+     *
+     * @since 0.3.0.6
+     */
+    private byte[] atAudioBuffer = null;
+
     /*
      * ----------------
 	 * Methods
@@ -124,7 +132,12 @@ public class WAVLoader
     public final int readAudioData(double[] padAudioData)
             throws StorageException {
         try {
-            byte[] atAudioBuffer = new byte[padAudioData.length * 2];
+            // Reuse the buffer across the chunks of a streamed sample
+            if (this.atAudioBuffer == null || this.atAudioBuffer.length != padAudioData.length * 2) {
+                this.atAudioBuffer = new byte[padAudioData.length * 2];
+            }
+
+            byte[] atAudioBuffer = this.atAudioBuffer;
             int iNbrBytes = this.oAudioInputStream.read(atAudioBuffer);
             int iWordCount = (iNbrBytes / 2) + (iNbrBytes % 2);
 
@@ -0,0 +1,137 @@
+package marf.Storage;
+
+import java.util.Vector;
+
+
+/**
+ * <p>Mean vectors of all the clusters of a training set laid out
+ * contiguously in one row-major primitive array.</p>
+ *
+ * <p>Classifiers comparing an incoming feature vector against every
+ * enrolled subject can then run over the means in one tight loop
+ * instead of chasing a <code>Cluster</code> object and a separate
+ * array per subject. Row <code>i</code> occupies the elements
+ * <code>[i * getDimension(), (i + 1) * getDimension())</code> and
+ * belongs to the subject <code>getSubjectID(i)</code>; rows are in
+ * the order of the clusters. A matrix is a snapshot and is never
+ * modified once built, so it may be shared among threads.</p>
+ *
+ * <p>$Id$</p>
+ *
+ * @author The MARF Research and Development Group
+ * @version $Revision$
+ * @see TrainingSet#getMeanMatrix()
+ * @since 0.3.0.6
+ */
+public final class MeanMatrix {
+    /**
+     * The mean vectors, one after another.
+     */
+    private final double[] adMeans;
+
+    /**
+     * Subject ID of each row.
+     */
+    private final int[] aiSubjectIDs;
+
+    /**
+     * Length of every mean vector.
+     */
+    private final int iDimension;
+
+    /**
+     * Builds the matrix of given rows.
+     *
+     * @param padMeans      row-major mean vectors
+     * @param paiSubjectIDs subject ID of each row
+     * @param piDimension   row length
+     */
+    private MeanMatrix(final double[] padMeans, final int[] paiSubjectIDs, final int piDimension) {
+        this.adMeans = padMeans;
+        this.aiSubjectIDs = paiSubjectIDs;
+        this.iDimension = piDimension;
+    }
+
+    /**
+     * Copies the mean vectors of the clusters into a matrix.
+     *
+     * @param poClusters Vector of Clusters
+     * @return the matrix, or <code>null</code> if some mean vector is
+     * missing or the mean vectors are not all of the same length
+     */
+    static MeanMatrix build(final Vector poClusters) {
+        int iRows = poClusters.size();
+        int iDimension = 0;
+
+        for (int i = 0; i < iRows; i++) {
+            double[] adMean = ((Cluster) poClusters.get(i)).getMeanVector();
+
+            if (adMean == null || (i > 0 && adMean.length != iDimension)) {
+                return null;
+            }
+
+            iDimension = adMean.length;
+        }
+
+        double[] adMeans = new double[iRows * iDimension];
+        int[] aiSubjectIDs = new int[iRows];
+
+        for (int i = 0; i < iRows; i++) {
+            Cluster oCluster = (Cluster) poClusters.get(i);
+
+            System.arraycopy(oCluster.getMeanVector(), 0, adMeans, i * iDimension, iDimension);
+            aiSubjectIDs[i] = oCluster.getSubjectID();
+        }
+
+        return new MeanMatrix(adMeans, aiSubjectIDs, iDimension);
+    }
+
+    /**
+     * Retrieves the mean vectors, one row after another.
+     * The array must not be modified.
+     *
+     * @return row-major array of <code>getRows() * getDimension()</code> elements
+     */
+    public double[] getMeans() {
+        return this.adMeans;
+    }
+
+    /**
+     * Retrieves subject ID of a row.
+     *
+     * @param piRow row index
+     * @return the subject ID
+     */
+    public int getSubjectID(final int piRow) {
+        return this.aiSubjectIDs[piRow];
+    }
+
+    /**
+     * Retrieves number of rows, i.e. of clusters.
+     *
+     * @return row count
+     */
+    public int getRows() {
+        return this.aiSubjectIDs.length;
+    }
+
+    /**
+     * Retrieves length of the mean vectors.
+     *
+     * @return the dimension
+     */
+    public int getDimension() {
+        return this.iDimension;
+    }
+
+    /**
+     * Returns source code revision information.
+     *
+     * @return revision string
+     */
+    public static String getMARFSourceCodeRevision() {
+        return "$Revision$";
+    }
+}
+
+// EOF
@@ -0,0 +1,360 @@
+package marf.Storage;
+
+import java.io.Serializable;
+
+import lib.comirva.audio.CholeskyDecomposition;
+import lib.comirva.audio.Matrix;
+
+
+/**
+ * <p>Pooled within-subject covariance of the feature vectors of a training set.</p>
+ *
+ * <p>The scatter of every training vector around the mean of its subject
+ * is accumulated as the vectors come in, with Welford's update, so that
+ * no vector needs to be kept: a vector <code>x</code> joining a cluster of
+ * <code>n</code> vectors of mean <code>m</code> adds <code>n / (n + 1) * (x - m)(x - m)<sup>T</sup></code>.
+ * The covariance is the scatter divided by the number of vectors less the
+ * number of subjects. Only the lower triangle of the symmetric scatter is
+ * kept, row by row: element <code>(i, j)</code> with <code>j &lt;= i</code>
+ * is at <code>i * (i + 1) / 2 + j</code>.</p>
+ *
+ * <p>As there are usually few training vectors per dimension, the covariance
+ * is shrunk towards a multiple of the identity with the same trace before
+ * being factorized, which keeps it positive definite. The Cholesky factor
+ * and the means whitened with it are computed once and cached until the
+ * covariance changes, and may be shared by threads.</p>
+ *
+ * <p>$Id$</p>
+ *
+ * @author The MARF Research and Development Group
+ * @version $Revision$
+ * @see TrainingSet#getCovariance()
+ * @see marf.Classification.Distance.MahalanobisDistance
+ * @since 0.3.0.6
+ */
+public class PooledCovariance
+        implements Serializable {
+    /**
+     * Weight of the identity in the shrunk covariance, <code>0.1</code>.
+     */
+    public static final double SHRINKAGE = 0.1;
+
+    /**
+     * Length of the feature vectors.
+     */
+    private final int iDimension;
+
+    /**
+     * Lower triangle of the scatter matrix, row by row.
+     */
+    private final double[] adScatter;
+
+    /**
+     * Number of vectors accumulated less number of subjects.
+     */
+    private int iDegreesOfFreedom = 0;
+
+    /**
+     * Cached factor of the shrunk covariance.
+     */
+    private transient volatile Factor oFactor = null;
+
+    /**
+     * Most recently whitened mean matrix along with its whitened means.
+     */
+    private transient volatile WhitenedMeans oWhitenedMeans = null;
+
+    /**
+     * For serialization versioning.
+     * When adding new members or make other structural
+     * changes regenerate this number with the
+     * <code>serialver</code> tool that comes with JDK.
+     */
+    private static final long serialVersionUID = -4529101658237788137L;
+
+    /**
+     * Constructs an empty estimate.
+     *
+     * @param piDimension length of the feature vectors
+     */
+    public PooledCovariance(final int piDimension) {
+        this.iDimension = piDimension;
+        this.adScatter = new double[piDimension * (piDimension + 1) / 2];
+    }
+
+    /**
+     * Copy-constructor.
+     *
+     * @param poCovariance estimate to copy
+     */
+    public PooledCovariance(final PooledCovariance poCovariance) {
+        this.iDimension = poCovariance.iDimension;
+        this.adScatter = poCovariance.adScatter.clone();
+        this.iDegreesOfFreedom = poCovariance.iDegreesOfFreedom;
+        this.oFactor = poCovariance.oFactor;
+    }
+
+    /**
+     * Accounts for a vector joining a cluster. Must be called
+     * before the cluster's mean is updated with the vector.
+     *
+     * @param padMean     mean of the cluster before the vector joins it
+     * @param piMeanCount number of vectors in the cluster before; nothing
+     *                    is added for the first vector of a cluster
+     * @param padVector   the joining vector
+     * @throws IllegalArgumentException if a vector is not of the estimate's length
+     */
+    public void add(final double[] padMean, final int piMeanCount, final double[] padVector) {
+        if (piMeanCount == 0) {
+            return;
+        }
+
+        if (padMean.length != this.iDimension || padVector.length != this.iDimension) {
+            throw new IllegalArgumentException
+                    (
+                            "Vector length (" + padVector.length + ") is not that of the covariance (" + this.iDimension + ")"
+                    );
+        }
+
+        double dWeight = (double) piMeanCount / (piMeanCount + 1);
+        int k = 0;
+
+        for (int i = 0; i < this.iDimension; i++) {
+            double dScaled = dWeight * (padVector[i] - padMean[i]);
+
+            for (int j = 0; j <= i; j++) {
+                this.adScatter[k++] += dScaled * (padVector[j] - padMean[j]);
+            }
+        }
+
+        this.iDegreesOfFreedom++;
+        this.oFactor = null;
+        this.oWhitenedMeans = null;
+    }
+
+    /**
+     * Retrieves length of the feature vectors.
+     *
+     * @return the dimension
+     */
+    public final int getDimension() {
+        return this.iDimension;
+    }
+
+    /**
+     * Retrieves number of vectors accumulated less number of subjects.
+     *
+     * @return 0 if every subject has a single vector so far
+     */
+    public final int getDegreesOfFreedom() {
+        return this.iDegreesOfFreedom;
+    }
+
+    /**
+     * Retrieves the Cholesky factor <code>L</code> of the shrunk covariance,
+     * <code>(1 - SHRINKAGE) * C + SHRINKAGE * trace(C) / D * I = L * L<sup>T</sup></code>,
+     * factorizing it on first use.
+     *
+     * @return lower triangle of <code>L</code> packed as the scatter, or <code>null</code>
+     * if there is no spread to estimate the covariance from yet, in which case
+     * the identity is to be used
+     */
+    public final double[] getCholeskyFactor() {
+        Factor oCurrent = this.oFactor;
+
+        if (oCurrent == null) {
+            // Racing builders produce equal factors; either one will do
+            oCurrent = new Factor(factorize());
+            this.oFactor = oCurrent;
+        }
+
+        return oCurrent.adLower;
+    }
+
+    /**
+     * Factorizes the shrunk covariance.
+     *
+     * @return the packed factor, or <code>null</code> for the identity
+     */
+    private double[] factorize() {
+        int n = this.iDimension;
+
+        if (this.iDegreesOfFreedom == 0 || n == 0) {
+            return null;
+        }
+
+        double dTrace = 0.0;
+
+        for (int i = 0; i < n; i++) {
+            dTrace += this.adScatter[i * (i + 1) / 2 + i];
+        }
+
+        dTrace /= this.iDegreesOfFreedom;
+
+        if (!(dTrace > 0.0) || Double.isInfinite(dTrace)) {
+            return null;
+        }
+
+        double dScale = (1.0 - SHRINKAGE) / this.iDegreesOfFreedom;
+        double dRidge = SHRINKAGE * dTrace / n;
+        double[][] aadCovariance = new double[n][n];
+        int k = 0;
+
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j <= i; j++) {
+                aadCovariance[i][j] = aadCovariance[j][i] = dScale * this.adScatter[k++];
+            }
+
+            aadCovariance[i][i] += dRidge;
+        }
+
+        CholeskyDecomposition oCholesky = new CholeskyDecomposition(new Matrix(aadCovariance));
+
+        if (!oCholesky.isSPD()) {
+            return null;
+        }
+
+        double[][] aadLower = oCholesky.getL().getArray();
+        double[] adLower = new double[this.adScatter.length];
+
+        k = 0;
+
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j <= i; j++) {
+                adLower[k++] = aadLower[i][j];
+            }
+        }
+
+        return adLower;
+    }
+
+    /**
+     * Whitens a vector, i.e. solves <code>L * y = x</code> by forward
+     * substitution, so that the Mahalanobis distance of two vectors is
+     * the Euclidean distance of their whitened forms.
+     *
+     * @param padLower  packed factor from <code>getCholeskyFactor()</code>
+     * @param padVector <code>x</code>
+     * @param piOffset  where <code>x</code> starts in its array
+     * @param padResult receives <code>y</code>; may be the same array
+     *                  as <code>padVector</code> at the same offset
+     * @param piResultOffset where <code>y</code> starts in its array
+     * @param piDimension length of the vectors
+     */
+    public static void whiten
+    (
+            final double[] padLower,
+            final double[] padVector,
+            final int piOffset,
+            double[] padResult,
+            final int piResultOffset,
+            final int piDimension
+    ) {
+        int k = 0;
+
+        for (int i = 0; i < piDimension; i++) {
+            double dSum = padVector[piOffset + i];
+
+            for (int j = 0; j < i; j++) {
+                dSum -= padLower[k++] * padResult[piResultOffset + j];
+            }
+
+            padResult[piResultOffset + i] = dSum / padLower[k++];
+        }
+    }
+
+    /**
+     * Retrieves the mean vectors of a matrix whitened with the
+     * current factor, whitening them on first use.
+     *
+     * @param poMeans mean matrix of the training set, of this estimate's dimension
+     * @return row-major whitened means, or <code>null</code> if there is no factor
+     */
+    public final double[] getWhitenedMeans(final MeanMatrix poMeans) {
+        double[] adLower = getCholeskyFactor();
+
+        if (adLower == null) {
+            return null;
+        }
+
+        WhitenedMeans oCurrent = this.oWhitenedMeans;
+
+        if (oCurrent == null || oCurrent.oMeans != poMeans || oCurrent.adLower != adLower) {
+            double[] adMeans = poMeans.getMeans();
+            double[] adWhitened = new double[adMeans.length];
+            int iDimension = poMeans.getDimension();
+
+            for (int r = 0; r < poMeans.getRows(); r++) {
+                whiten(adLower, adMeans, r * iDimension, adWhitened, r * iDimension, iDimension);
+            }
+
+            oCurrent = new WhitenedMeans(poMeans, adLower, adWhitened);
+            this.oWhitenedMeans = oCurrent;
+        }
+
+        return oCurrent.adWhitened;
+    }
+
+    /**
+     * Holder of a factor, so that a <code>null</code> factor can be cached.
+     */
+    private static final class Factor {
+        /**
+         * The packed factor; <code>null</code> for the identity.
+         */
+        final double[] adLower;
+
+        /**
+         * Constructs the holder.
+         *
+         * @param padLower the packed factor
+         */
+        Factor(final double[] padLower) {
+            this.adLower = padLower;
+        }
+    }
+
+    /**
+     * Whitened means along with what they were computed from.
+     */
+    private static final class WhitenedMeans {
+        /**
+         * The mean matrix.
+         */
+        final MeanMatrix oMeans;
+
+        /**
+         * The factor used.
+         */
+        final double[] adLower;
+
+        /**
+         * The whitened means, row-major.
+         */
+        final double[] adWhitened;
+
+        /**
+         * Constructs the entry.
+         *
+         * @param poMeans     the mean matrix
+         * @param padLower    the factor
+         * @param padWhitened the whitened means
+         */
+        WhitenedMeans(final MeanMatrix poMeans, final double[] padLower, final double[] padWhitened) {
+            this.oMeans = poMeans;
+            this.adLower = padLower;
+            this.adWhitened = padWhitened;
+        }
+    }
+
+    /**
+     * Returns source code revision information.
+     *
+     * @return revision string
+     */
+    public static String getMARFSourceCodeRevision() {
+        return "$Revision$";
+    }
+}
+
+// EOF
@@ -22,7 +22,8 @@ public class Result
     protected int iID = 0;
 
     /**
-     * Textual result description.
+     * Textual result description; <code>null</code> to describe
+     * the ID and the outcome only when it's asked for.
      *
      * @since 0.3.0
      */
@@ -102,7 +103,8 @@ public class Result
      *
      * @param piID            integer ID of the subject
      * @param pdOutcome       distance/probability of the result
-     * @param pstrDescription textual description of the result
+     * @param pstrDescription textual description of the result; <code>null</code>
+     *                        to have it generated from the ID and the outcome
      * @since 0.3.0
      */
     public Result(final int piID, final double pdOutcome, final String pstrDescription) {
@@ -118,7 +120,7 @@ public class Result
      * @since 0.3.0.5
      */
     public Result(final Result poResult) {
-        this(poResult.getID(), poResult.getOutcome(), new String(poResult.getDescription()));
+        this(poResult.getID(), poResult.getOutcome(), poResult.strDescription);
     }
 
     /**
@@ -147,6 +149,10 @@ public class Result
      * @since 0.3.0
      */
     public final String getDescription() {
+        if (this.strDescription == null) {
+            return "ID=" + this.iID + ", outcome=" + this.dOutcome;
+        }
+
         return this.strDescription;
     }
 
@@ -163,7 +169,7 @@ public class Result
         oBuffer
                 .append("[").append(this.iID).append(":")
                 .append(this.dOutcome).append(":")
-                .append(this.strDescription).append("]");
+                .append(getDescription()).append("]");
 
         return oBuffer.toString();
     }
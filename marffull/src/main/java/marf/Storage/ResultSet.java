@@ -28,6 +28,13 @@ public class ResultSet
      */
     public static final int UNSORTED = -1;
 
+    /**
+     * Indicates that the result set retains all the results added.
+     *
+     * @since 0.3.0.6
+     */
+    public static final int UNLIMITED = 0;
+
     /**
      * Distances from other samples and other stats or
      * probabilities and likelyhood (growable and shrinkable).
@@ -56,6 +63,48 @@ public class ResultSet
      */
     protected int iSortMode = UNSORTED;
 
+    /**
+     * How many of the best results to retain; <code>UNLIMITED</code>
+     * to retain all. In the bounded mode <code>oResultSet</code>
+     * is a binary heap with the worst retained result on top.
+     *
+     * @see #setLimit(int, int)
+     * @since 0.3.0.6
+     */
+    protected int iLimit = UNLIMITED;
+
+    /**
+     * Which results are the best in the bounded mode: the ones with the
+     * smallest outcome under <code>SortComparator.ASCENDING</code> (distances),
+     * or the largest under <code>SortComparator.DESCENDING</code> (probabilities).
+     *
+     * @since 0.3.0.6
+     */
+    protected int iLimitMode = SortComparator.ASCENDING;
+
+    /**
+     * In the bounded mode, order in which each heap element was added,
+     * to break ties the way the stable full sort would.
+     *
+     * @since 0.3.0.6
+     */
+    private int[] aiSequence = null;
+
+    /**
+     * Number of results offered to the bounded set so far.
+     *
+     * @since 0.3.0.6
+     */
+    private int iOffered = 0;
+
+    /**
+     * Set when the heap may have been modified from outside
+     * and must be rebuilt before it's used again.
+     *
+     * @since 0.3.0.6
+     */
+    private boolean bHeapInvalid = false;
+
     /**
      * For serialization versioning.
      * When adding new members or make other structural
@@ -97,7 +146,89 @@ public class ResultSet
     public ResultSet(final ResultSet poResultSet) {
         this.oResultSet = (Vector) poResultSet.getResultSetVector().clone();
         this.iSortMode = poResultSet.getSortMode();
-        this.aoResultSetSorted = (Result[]) poResultSet.getResultSetSorted().clone();
+        this.aoResultSetSorted =
+                poResultSet.aoResultSetSorted == null ?
+                        null : poResultSet.aoResultSetSorted.clone();
+        this.iLimit = poResultSet.iLimit;
+        this.iLimitMode = poResultSet.iLimitMode;
+        this.aiSequence = poResultSet.aiSequence == null ? null : poResultSet.aiSequence.clone();
+        this.iOffered = poResultSet.iOffered;
+        this.bHeapInvalid = poResultSet.bHeapInvalid;
+    }
+
+    /**
+     * Constructs an empty result set retaining only
+     * the given number of the best results.
+     *
+     * @param piLimit     number of results to retain; <code>UNLIMITED</code> for all
+     * @param piLimitMode <code>SortComparator.ASCENDING</code> to retain the smallest outcomes,
+     *                    or <code>SortComparator.DESCENDING</code> to retain the largest
+     * @throws IllegalArgumentException if either parameter is invalid
+     * @see #setLimit(int, int)
+     * @since 0.3.0.6
+     */
+    public ResultSet(final int piLimit, final int piLimitMode) {
+        this();
+        setLimit(piLimit, piLimitMode);
+    }
+
+    /**
+     * Switches the result set to retain only the given number of the best
+     * results, i.e. to the bounded mode, or back to retaining all of them.
+     * In the bounded mode a result not better than the worst of the retained
+     * ones is dropped as soon as it's added, and a better one replaces it,
+     * in O(log <i>k</i>) time and O(<i>k</i>) memory for the limit <i>k</i>;
+     * only the retained results are ever sorted. Hence, all the queries,
+     * such as <code>getAverageID()</code>, or the ones of the order opposite
+     * to the limit mode, only consider the retained results. The results
+     * already in the set are trimmed to the limit.
+     *
+     * @param piLimit     number of results to retain; <code>UNLIMITED</code> for all
+     * @param piLimitMode <code>SortComparator.ASCENDING</code> to retain the smallest outcomes,
+     *                    or <code>SortComparator.DESCENDING</code> to retain the largest
+     * @throws IllegalArgumentException if the limit is negative or the mode is neither
+     *                                  of the two sorting modes
+     * @since 0.3.0.6
+     */
+    public final void setLimit(final int piLimit, final int piLimitMode) {
+        if (piLimit < 0) {
+            throw new IllegalArgumentException("Result limit (" + piLimit + ") is negative.");
+        }
+
+        if (piLimitMode != SortComparator.ASCENDING && piLimitMode != SortComparator.DESCENDING) {
+            throw new IllegalArgumentException("Invalid limit mode: " + piLimitMode);
+        }
+
+        this.iLimit = piLimit;
+        this.iLimitMode = piLimitMode;
+        this.iSortMode = UNSORTED;
+
+        if (piLimit == UNLIMITED) {
+            this.aiSequence = null;
+            this.bHeapInvalid = false;
+        } else {
+            rebuildHeap();
+        }
+    }
+
+    /**
+     * Retrieves how many of the best results are retained.
+     *
+     * @return the limit, or <code>UNLIMITED</code>
+     * @since 0.3.0.6
+     */
+    public final int getLimit() {
+        return this.iLimit;
+    }
+
+    /**
+     * Retrieves which results are the best in the bounded mode.
+     *
+     * @return <code>SortComparator.ASCENDING</code> or <code>SortComparator.DESCENDING</code>
+     * @since 0.3.0.6
+     */
+    public final int getLimitMode() {
+        return this.iLimitMode;
     }
 
     /**
@@ -208,11 +339,218 @@ public class ResultSet
     public final void sort(final int piMode) {
         if (this.iSortMode != piMode) {
             this.iSortMode = piMode;
-            this.aoResultSetSorted = (Result[]) oResultSet.toArray(new Result[0]);
+
+            if (this.iLimit == UNLIMITED) {
+                this.aoResultSetSorted = (Result[]) oResultSet.toArray(new Result[0]);
+            } else {
+                this.aoResultSetSorted = getRetainedInOrderAdded();
+            }
+
             Arrays.sort(this.aoResultSetSorted, new ResultComparator(this.iSortMode));
         }
     }
 
+    /**
+     * Retrieves the retained results of the bounded mode in the order they
+     * were added, so that the stable sort orders the ties as it would
+     * with all the results.
+     *
+     * @return array of the retained results
+     * @since 0.3.0.6
+     */
+    private Result[] getRetainedInOrderAdded() {
+        if (this.bHeapInvalid) {
+            rebuildHeap();
+        }
+
+        int iSize = this.oResultSet.size();
+        long[] alKeys = new long[iSize];
+
+        for (int i = 0; i < iSize; i++) {
+            alKeys[i] = ((long) this.aiSequence[i] << 32) | i;
+        }
+
+        java.util.Arrays.sort(alKeys);
+
+        Result[] aoResults = new Result[iSize];
+
+        for (int i = 0; i < iSize; i++) {
+            aoResults[i] = (Result) this.oResultSet.get((int) alKeys[i]);
+        }
+
+        return aoResults;
+    }
+
+    /**
+     * Tells whether a result with the given outcome would be retained
+     * by the bounded mode if added now.
+     *
+     * @param pdOutcome outcome of the result
+     * @return <code>true</code> if it would be
+     * @since 0.3.0.6
+     */
+    private boolean admits(final double pdOutcome) {
+        if (this.bHeapInvalid) {
+            rebuildHeap();
+        }
+
+        if (this.iLimit == UNLIMITED || this.oResultSet.size() < this.iLimit) {
+            return true;
+        }
+
+        // Ties go to the result added earlier
+        double dWorst = ((Result) this.oResultSet.get(0)).getOutcome();
+
+        return this.iLimitMode == SortComparator.ASCENDING ? pdOutcome < dWorst : pdOutcome > dWorst;
+    }
+
+    /**
+     * Adds a result in the bounded mode, evicting the worst retained one
+     * when the set is full. The result must have just been admitted by
+     * <code>admits()</code>.
+     *
+     * @param poResult result to add
+     * @since 0.3.0.6
+     */
+    private void offer(final Result poResult) {
+        int iSequence = this.iOffered++;
+        int iSize = this.oResultSet.size();
+
+        if (iSize < this.iLimit) {
+            this.oResultSet.add(poResult);
+            this.aiSequence[iSize] = iSequence;
+            siftUp(iSize);
+        } else {
+            this.oResultSet.set(0, poResult);
+            this.aiSequence[0] = iSequence;
+            siftDown(0, iSize);
+        }
+
+        this.iSortMode = UNSORTED;
+    }
+
+    /**
+     * Rearranges the current results into the heap of the bounded mode,
+     * dropping all but the best <code>iLimit</code> ones. Their present
+     * positions are taken as the order they were added in.
+     *
+     * @since 0.3.0.6
+     */
+    private void rebuildHeap() {
+        int iSize = this.oResultSet.size();
+
+        this.aiSequence = new int[Math.max(this.iLimit, iSize)];
+
+        for (int i = 0; i < iSize; i++) {
+            this.aiSequence[i] = i;
+        }
+
+        this.iOffered = iSize;
+
+        for (int i = iSize / 2 - 1; i >= 0; i--) {
+            siftDown(i, iSize);
+        }
+
+        // Pop the worst ones off the top
+        while (iSize > this.iLimit) {
+            iSize--;
+            this.oResultSet.set(0, this.oResultSet.get(iSize));
+            this.aiSequence[0] = this.aiSequence[iSize];
+            this.oResultSet.remove(iSize);
+            siftDown(0, iSize);
+        }
+
+        if (this.aiSequence.length > this.iLimit) {
+            int[] aiSequence = new int[this.iLimit];
+            System.arraycopy(this.aiSequence, 0, aiSequence, 0, this.iLimit);
+            this.aiSequence = aiSequence;
+        }
+
+        this.bHeapInvalid = false;
+    }
+
+    /**
+     * Moves a heap element up to its place.
+     *
+     * @param piIndex element index
+     * @since 0.3.0.6
+     */
+    private void siftUp(int piIndex) {
+        while (piIndex > 0) {
+            int iParent = (piIndex - 1) / 2;
+
+            if (!isWorse(piIndex, iParent)) {
+                break;
+            }
+
+            swap(piIndex, iParent);
+            piIndex = iParent;
+        }
+    }
+
+    /**
+     * Moves a heap element down to its place.
+     *
+     * @param piIndex element index
+     * @param piSize  heap size
+     * @since 0.3.0.6
+     */
+    private void siftDown(int piIndex, final int piSize) {
+        while (true) {
+            int iChild = 2 * piIndex + 1;
+
+            if (iChild >= piSize) {
+                break;
+            }
+
+            if (iChild + 1 < piSize && isWorse(iChild + 1, iChild)) {
+                iChild++;
+            }
+
+            if (!isWorse(iChild, piIndex)) {
+                break;
+            }
+
+            swap(piIndex, iChild);
+            piIndex = iChild;
+        }
+    }
+
+    /**
+     * Orders the heap elements by outcome in the limit mode,
+     * then by the order they were added in.
+     *
+     * @param piIndex1 first element index
+     * @param piIndex2 second element index
+     * @return <code>true</code> if the first element ranks after the second
+     * @since 0.3.0.6
+     */
+    private boolean isWorse(final int piIndex1, final int piIndex2) {
+        double dOutcome1 = ((Result) this.oResultSet.get(piIndex1)).getOutcome();
+        double dOutcome2 = ((Result) this.oResultSet.get(piIndex2)).getOutcome();
+
+        if (dOutcome1 == dOutcome2) {
+            return this.aiSequence[piIndex1] > this.aiSequence[piIndex2];
+        }
+
+        return this.iLimitMode == SortComparator.ASCENDING ? dOutcome1 > dOutcome2 : dOutcome1 < dOutcome2;
+    }
+
+    /**
+     * Swaps two heap elements.
+     *
+     * @param piIndex1 first element index
+     * @param piIndex2 second element index
+     * @since 0.3.0.6
+     */
+    private void swap(final int piIndex1, final int piIndex2) {
+        this.oResultSet.set(piIndex1, this.oResultSet.set(piIndex2, this.oResultSet.get(piIndex1)));
+
+        int iSequence = this.aiSequence[piIndex1];
+        this.aiSequence[piIndex1] = this.aiSequence[piIndex2];
+        this.aiSequence[piIndex2] = iSequence;
+    }
+
     /**
      * Add result to the result set.
      *
@@ -221,6 +559,17 @@ public class ResultSet
      * @param pstrDescription textual description of the result
      */
     public final void addResult(int piID, double pdOutcome, String pstrDescription) {
+        if (this.iLimit != UNLIMITED) {
+            // Don't even construct what's going to be dropped
+            if (admits(pdOutcome)) {
+                offer(new Result(piID, pdOutcome, pstrDescription));
+            } else {
+                this.iOffered++;
+            }
+
+            return;
+        }
+
         this.oResultSet.add(new Result(piID, pdOutcome, pstrDescription));
 
         // Invalidate the sorted flag.
@@ -229,13 +578,28 @@ public class ResultSet
 
     /**
      * Add result to the result set. Generates description based
-     * on the two parameters.
+     * on the two parameters only when it's asked for, so that
+     * adding many results doesn't cost a string each.
      *
      * @param piID      subject ID recognized
      * @param pdOutcome outcome of the recongnition distance or likelyhood
      */
     public final void addResult(int piID, double pdOutcome) {
-        addResult(piID, pdOutcome, "ID=" + piID + ", outcome=" + pdOutcome);
+        if (this.iLimit != UNLIMITED) {
+            // Don't even construct what's going to be dropped
+            if (admits(pdOutcome)) {
+                offer(new Result(piID, pdOutcome, (String) null));
+            } else {
+                this.iOffered++;
+            }
+
+            return;
+        }
+
+        this.oResultSet.add(new Result(piID, pdOutcome, (String) null));
+
+        // Invalidate the sorted flag.
+        this.iSortMode = UNSORTED;
     }
 
     /**
@@ -250,7 +614,20 @@ public class ResultSet
             throw new IllegalArgumentException("Result parameter is null.");
         }
 
+        if (this.iLimit != UNLIMITED) {
+            if (admits(poResult.getOutcome())) {
+                offer(poResult);
+            } else {
+                this.iOffered++;
+            }
+
+            return;
+        }
+
         this.oResultSet.add(poResult);
+
+        // Invalidate the sorted flag.
+        this.iSortMode = UNSORTED;
     }
 
     /**
@@ -316,9 +693,21 @@ public class ResultSet
 		 * Thus, don't trust the client code anymore to keep
 		 * the stuff unmodified (i.e. adding/deleting new records)
 		 * and force a resorting internally in the sort() method.
+		 * In the bounded mode the heap is rebuilt as well, so
+		 * the results are handed out in the order they were added.
 		 */
         this.iSortMode = UNSORTED;
 
+        if (this.iLimit != UNLIMITED && !this.bHeapInvalid) {
+            Result[] aoResults = getRetainedInOrderAdded();
+
+            for (int i = 0; i < aoResults.length; i++) {
+                this.oResultSet.set(i, aoResults[i]);
+            }
+
+            this.bHeapInvalid = true;
+        }
+
         return this.oResultSet;
     }
 
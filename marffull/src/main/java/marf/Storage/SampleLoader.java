@@ -2,6 +2,7 @@ package marf.Storage;
 
 import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.IOException;
 
 import lib.sound.sampled.AudioFormat;
 import lib.sound.sampled.AudioInputStream;
@@ -57,6 +58,15 @@ public abstract class SampleLoader
      */
     protected ByteArrayOutputStream oByteArrayOutputStream = null;
 
+    /**
+     * When set, loading a sample only opens its audio stream and
+     * leaves the audio data to be pulled chunk by chunk with
+     * <code>readAudioData()</code>.
+     *
+     * @since 0.3.0.6
+     */
+    protected boolean bStreamed = false;
+
     /**
      * Current frequency.
      *
@@ -105,6 +115,12 @@ public abstract class SampleLoader
      */
     public void updateSample()
             throws StorageException {
+        // The data stays in the stream to be read in chunks
+        if (this.bStreamed) {
+            this.oSample.setSampleArray(new double[0]);
+            return;
+        }
+
         double[] adSampleArray = new double[(int) getSampleSize()];
         readAudioData(adSampleArray);
         this.oSample.setSampleArray(adSampleArray);
@@ -136,6 +152,47 @@ public abstract class SampleLoader
         return this.oAudioInputStream.getFrameLength();
     }
 
+    /**
+     * Switches the streamed mode on or off. In the streamed mode
+     * <code>loadSample()</code> does not read the whole audio data
+     * into the sample's array; it is to be read in chunks of the
+     * caller's buffer size with <code>readAudioData()</code> and
+     * the stream closed with <code>closeSampleStream()</code>.
+     *
+     * @param pbStreamed <code>true</code> to stream the audio data
+     * @since 0.3.0.6
+     */
+    public void setStreamed(boolean pbStreamed) {
+        this.bStreamed = pbStreamed;
+    }
+
+    /**
+     * Tells whether the loader is in the streamed mode.
+     *
+     * @return <code>true</code> if the audio data is left in the stream
+     * @since 0.3.0.6
+     */
+    public boolean isStreamed() {
+        return this.bStreamed;
+    }
+
+    /**
+     * Closes the audio stream of the current sample, if any.
+     *
+     * @throws StorageException if there was an error closing the stream
+     * @since 0.3.0.6
+     */
+    public void closeSampleStream()
+            throws StorageException {
+        try {
+            if (this.oAudioInputStream != null) {
+                this.oAudioInputStream.close();
+            }
+        } catch (IOException e) {
+            throw new StorageException(e);
+        }
+    }
+
     /**
      * Returns internal reference to a Sample object.
      *
@@ -0,0 +1,307 @@
+package marf.Storage;
+
+import java.util.Enumeration;
+import java.util.Hashtable;
+
+import marf.util.Debug;
+
+
+/**
+ * <p>Batch training session over one or more <code>TrainingSet</code>s.</p>
+ *
+ * <p>Outside of a batch every trained utterance causes the entire training
+ * set to be restored, updated, and rewritten to disk, which makes training
+ * on <i>n</i> files cost O(<i>n</i><sup>2</sup>) I/O. Within a batch the
+ * training sets are kept in memory, updated in place, and written once on
+ * <code>commit()</code>, with an optional periodic checkpoint every so many
+ * added feature vectors to bound the work lost on a crash.</p>
+ *
+ * <p>A batch is thread-safe, so several pipelines training in parallel
+ * may share one.</p>
+ *
+ * <p>$Id$</p>
+ *
+ * @author The MARF Research and Development Group
+ * @version $Revision$
+ * @see TrainingSet
+ * @see TrainingSetCache
+ * @since 0.3.0.6
+ */
+public class TrainingBatch {
+    /**
+     * Indicates no periodic checkpoints; the data is only
+     * written on commit.
+     */
+    public static final int NO_CHECKPOINTS = 0;
+
+    /**
+     * Working training sets keyed by their file path.
+     */
+    private Hashtable oTrainingSets = new Hashtable();
+
+    /**
+     * Number of feature vectors added since the last checkpoint
+     * after which the working sets are dumped; 0 to disable.
+     */
+    private int iCheckpointInterval = NO_CHECKPOINTS;
+
+    /**
+     * Feature vectors added since the last dump.
+     */
+    private int iPendingCount = 0;
+
+    /**
+     * Total feature vectors added in this batch.
+     */
+    private int iTotalCount = 0;
+
+    /**
+     * Set once the batch is committed or aborted.
+     */
+    private boolean bClosed = false;
+
+    /**
+     * Constructs a batch without periodic checkpoints.
+     */
+    public TrainingBatch() {
+        this(NO_CHECKPOINTS);
+    }
+
+    /**
+     * Constructs a batch with periodic checkpoints.
+     *
+     * @param piCheckpointInterval dump every so many added feature vectors;
+     *                             <code>NO_CHECKPOINTS</code> to only dump on commit
+     */
+    public TrainingBatch(final int piCheckpointInterval) {
+        this.iCheckpointInterval = piCheckpointInterval;
+    }
+
+    /**
+     * Retrieves the in-memory working copy of a training set,
+     * restoring it (via the cache) the first time it is needed.
+     *
+     * @param pstrFilename training set filename (relative to <code>TrainingSet.WORKING_PATH</code>)
+     * @param piDumpMode   dump mode the training set is stored in
+     * @return the working TrainingSet of this batch
+     * @throws StorageException if the batch is closed or the set cannot be restored
+     */
+    public synchronized TrainingSet getTrainingSet(final String pstrFilename, final int piDumpMode)
+            throws StorageException {
+        checkOpen();
+
+        String strKey = TrainingSetCache.getKey(pstrFilename);
+        TrainingSet oWorkingSet = (TrainingSet) this.oTrainingSets.get(strKey);
+
+        if (oWorkingSet == null) {
+            oWorkingSet = TrainingSetCache.getTrainingSetForUpdate(pstrFilename, piDumpMode);
+            this.oTrainingSets.put(strKey, oWorkingSet);
+        }
+
+        return oWorkingSet;
+    }
+
+    /**
+     * Adds a feature vector to one of the working training sets and
+     * dumps the sets if a checkpoint is due.
+     *
+     * @param poTrainingSet             working set obtained from <code>getTrainingSet()</code>
+     * @param padFeatureVector          vector to add
+     * @param pstrFilename              to check to avoid training on the same file
+     * @param piSubjectID               for which subject that vector is
+     * @param piPreprocessingMethod     preprocessing method used
+     * @param piFeatureExtractionMethod feature extraction method used
+     * @return <code>true</code> if the vector was added; <code>false</code> otherwise
+     * @throws StorageException if the batch is closed or the checkpoint fails
+     * @see TrainingSet#addFeatureVector(double[], String, int, int, int)
+     */
+    public synchronized boolean addFeatureVector
+    (
+            TrainingSet poTrainingSet,
+            double[] padFeatureVector,
+            String pstrFilename,
+            int piSubjectID,
+            int piPreprocessingMethod,
+            int piFeatureExtractionMethod
+    )
+            throws StorageException {
+        return addFeatureVector
+                (
+                        poTrainingSet,
+                        padFeatureVector,
+                        pstrFilename,
+                        piSubjectID,
+                        piPreprocessingMethod,
+                        piFeatureExtractionMethod,
+                        false
+                );
+    }
+
+    /**
+     * Adds a feature vector to one of the working training sets, asking
+     * it to keep the pooled covariance if need be, and dumps the sets
+     * if a checkpoint is due.
+     *
+     * @param poTrainingSet             working set obtained from <code>getTrainingSet()</code>
+     * @param padFeatureVector          vector to add
+     * @param pstrFilename              to check to avoid training on the same file
+     * @param piSubjectID               for which subject that vector is
+     * @param piPreprocessingMethod     preprocessing method used
+     * @param piFeatureExtractionMethod feature extraction method used
+     * @param pbKeepCovariance          <code>true</code> to keep the covariance
+     * @return <code>true</code> if the vector was added; <code>false</code> otherwise
+     * @throws StorageException if the batch is closed or the checkpoint fails
+     * @see TrainingSet#addFeatureVector(double[], String, int, int, int, boolean)
+     */
+    public synchronized boolean addFeatureVector
+    (
+            TrainingSet poTrainingSet,
+            double[] padFeatureVector,
+            String pstrFilename,
+            int piSubjectID,
+            int piPreprocessingMethod,
+            int piFeatureExtractionMethod,
+            boolean pbKeepCovariance
+    )
+            throws StorageException {
+        checkOpen();
+
+        boolean bVectorAdded = poTrainingSet.addFeatureVector
+                (
+                        padFeatureVector,
+                        pstrFilename,
+                        piSubjectID,
+                        piPreprocessingMethod,
+                        piFeatureExtractionMethod,
+                        pbKeepCovariance
+                );
+
+        if (bVectorAdded) {
+            this.iPendingCount++;
+            this.iTotalCount++;
+
+            if (this.iCheckpointInterval > 0 && this.iPendingCount >= this.iCheckpointInterval) {
+                checkpoint();
+            }
+        }
+
+        return bVectorAdded;
+    }
+
+    /**
+     * Dumps all the modified working sets now, keeping the batch open.
+     *
+     * @throws StorageException if dumping fails
+     */
+    public synchronized void checkpoint()
+            throws StorageException {
+        checkOpen();
+
+        if (this.iPendingCount == 0) {
+            return;
+        }
+
+        Enumeration oSets = this.oTrainingSets.elements();
+
+        while (oSets.hasMoreElements()) {
+            TrainingSet oTrainingSet = (TrainingSet) oSets.nextElement();
+            oTrainingSet.dump();
+
+            // The batch keeps training on the working set, so publish a copy
+            TrainingSetCache.update(new TrainingSet(oTrainingSet));
+        }
+
+        Debug.debug
+                (
+                        "TrainingBatch: checkpointed " + this.oTrainingSets.size() +
+                                " training set(s), " + this.iPendingCount + " new vector(s)"
+                );
+
+        this.iPendingCount = 0;
+    }
+
+    /**
+     * Writes the working sets once and closes the batch.
+     *
+     * @throws StorageException if dumping fails
+     */
+    public synchronized void commit()
+            throws StorageException {
+        checkpoint();
+        close();
+    }
+
+    /**
+     * Discards whatever was added since the last checkpoint and closes the batch.
+     */
+    public synchronized void abort() {
+        close();
+    }
+
+    /**
+     * Tells whether the batch still accepts feature vectors.
+     *
+     * @return <code>true</code> if neither committed nor aborted
+     */
+    public synchronized boolean isOpen() {
+        return !this.bClosed;
+    }
+
+    /**
+     * Retrieves number of feature vectors added during this batch.
+     *
+     * @return total count
+     */
+    public synchronized int getTotalCount() {
+        return this.iTotalCount;
+    }
+
+    /**
+     * Retrieves number of feature vectors not yet dumped.
+     *
+     * @return pending count
+     */
+    public synchronized int getPendingCount() {
+        return this.iPendingCount;
+    }
+
+    /**
+     * Retrieves the checkpoint interval.
+     *
+     * @return the interval, or <code>NO_CHECKPOINTS</code>
+     */
+    public synchronized int getCheckpointInterval() {
+        return this.iCheckpointInterval;
+    }
+
+    /**
+     * Releases the working sets and marks the batch closed.
+     */
+    private void close() {
+        this.oTrainingSets.clear();
+        this.bClosed = true;
+    }
+
+    /**
+     * Ensures the batch has not been committed or aborted yet.
+     *
+     * @throws StorageException if the batch is closed
+     */
+    private void checkOpen()
+            throws StorageException {
+        if (this.bClosed) {
+            throw new StorageException("TrainingBatch has already been committed or aborted.");
+        }
+    }
+
+    /**
+     * Returns source code revision information.
+     *
+     * @return revision string
+     */
+    public static String getMARFSourceCodeRevision() {
+        return "$Revision$";
+    }
+}
+
+// EOF
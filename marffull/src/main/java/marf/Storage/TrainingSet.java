@@ -2,6 +2,7 @@ package marf.Storage;
 
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
+import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
@@ -66,6 +67,24 @@ public class TrainingSet
      */
     protected int iFeatureExtractionMethod;
 
+    /**
+     * Mean vectors of the clusters in one array; built on demand
+     * and dropped whenever the clusters change.
+     *
+     * @since 0.3.0.6
+     */
+    private transient volatile MeanMatrix oMeanMatrix = null;
+
+    /**
+     * Pooled within-subject covariance of the feature vectors; only
+     * kept when asked for from the first vector on, <code>null</code>
+     * otherwise.
+     *
+     * @see #addFeatureVector(double[], String, int, int, int, boolean)
+     * @since 0.3.0.6
+     */
+    protected PooledCovariance oCovariance = null;
+
     /**
      * For serialization versioning.
      * When adding new members or make other structural
@@ -84,6 +103,35 @@ public class TrainingSet
         this.strFilename = DEFAULT_TRAINING_SET_FILENAME;
     }
 
+    /**
+     * Copy-constructor. Unlike <code>clone()</code>, copies
+     * every cluster as well, so the copy can be trained on
+     * without affecting the original.
+     *
+     * @param poTrainingSet TrainingSet object to copy
+     * @since 0.3.0.6
+     */
+    public TrainingSet(final TrainingSet poTrainingSet) {
+        this.iCurrentDumpMode = poTrainingSet.iCurrentDumpMode;
+        this.strFilename = poTrainingSet.strFilename;
+        this.iPreprocessingMethod = poTrainingSet.iPreprocessingMethod;
+        this.iFeatureExtractionMethod = poTrainingSet.iFeatureExtractionMethod;
+
+        this.oClusters = new Vector(poTrainingSet.oClusters.size());
+
+        for (int i = 0; i < poTrainingSet.oClusters.size(); i++) {
+            this.oClusters.add(new Cluster((Cluster) poTrainingSet.oClusters.get(i)));
+        }
+
+        this.oFeatureSet =
+                poTrainingSet.oFeatureSet == null ?
+                        null : (FeatureSet) poTrainingSet.oFeatureSet.clone();
+
+        this.oCovariance =
+                poTrainingSet.oCovariance == null ?
+                        null : new PooledCovariance(poTrainingSet.oCovariance);
+    }
+
     /**
      * Retrieves clusters of training samples.
      *
@@ -93,6 +141,40 @@ public class TrainingSet
         return this.oClusters;
     }
 
+    /**
+     * Retrieves the mean vectors of all the clusters as one contiguous
+     * matrix, building it on first use after the clusters change.
+     *
+     * @return the matrix, or <code>null</code> if some cluster has no mean
+     * vector or the mean vectors are not all of the same length
+     * @see MeanMatrix
+     * @since 0.3.0.6
+     */
+    public final MeanMatrix getMeanMatrix() {
+        MeanMatrix oMatrix = this.oMeanMatrix;
+
+        if (oMatrix == null) {
+            // Racing builders produce equal snapshots; either one will do
+            oMatrix = MeanMatrix.build(this.oClusters);
+            this.oMeanMatrix = oMatrix;
+        }
+
+        return oMatrix;
+    }
+
+    /**
+     * Retrieves the pooled within-subject covariance of the feature
+     * vectors added to this training set.
+     *
+     * @return the estimate, or <code>null</code> if the training set
+     * doesn't keep it
+     * @see PooledCovariance
+     * @since 0.3.0.6
+     */
+    public final PooledCovariance getCovariance() {
+        return this.oCovariance;
+    }
+
     /**
      * Returns preprocessing method used on this training set.
      *
@@ -131,6 +213,8 @@ public class TrainingSet
 
     /**
      * Adds new feature vector to the mean and recomputes the mean.
+     * Equivalent to <code>addFeatureVector(padFeatureVector, pstrFilename,
+     * piSubjectID, piPreprocessingMethod, piFeatureExtractionMethod, false)</code>.
      *
      * @param padFeatureVector          vector to add
      * @param pstrFilename              to check to avoid training on the same file
@@ -138,6 +222,7 @@ public class TrainingSet
      * @param piPreprocessingMethod     preprocessing method used
      * @param piFeatureExtractionMethod feature extraction method used
      * @return <code>true</code> if the vector was added; <code>false</code> otherwise
+     * @see #addFeatureVector(double[], String, int, int, int, boolean)
      */
     public final boolean addFeatureVector
     (
@@ -146,6 +231,42 @@ public class TrainingSet
             int piSubjectID,
             int piPreprocessingMethod,
             int piFeatureExtractionMethod
+    ) {
+        return addFeatureVector
+                (
+                        padFeatureVector,
+                        pstrFilename,
+                        piSubjectID,
+                        piPreprocessingMethod,
+                        piFeatureExtractionMethod,
+                        false
+                );
+    }
+
+    /**
+     * Adds new feature vector to the mean and recomputes the mean.
+     * A training set that keeps the pooled covariance updates it
+     * as well. An empty one starts keeping it if asked to; a non-empty
+     * one can't, since the vectors already averaged are gone.
+     *
+     * @param padFeatureVector          vector to add
+     * @param pstrFilename              to check to avoid training on the same file
+     * @param piSubjectID               for which subject that vector is
+     * @param piPreprocessingMethod     preprocessing method used
+     * @param piFeatureExtractionMethod feature extraction method used
+     * @param pbKeepCovariance          <code>true</code> to keep the covariance from now on
+     * @return <code>true</code> if the vector was added; <code>false</code> otherwise
+     * @see #getCovariance()
+     * @since 0.3.0.6
+     */
+    public final boolean addFeatureVector
+    (
+            double[] padFeatureVector,
+            String pstrFilename,
+            int piSubjectID,
+            int piPreprocessingMethod,
+            int piFeatureExtractionMethod,
+            boolean pbKeepCovariance
     ) {
         /*
 		 * check if this sample is already in the training set
@@ -154,6 +275,9 @@ public class TrainingSet
         Cluster oCluster = null;
         boolean bNewSample = true;
 
+        // The means are about to change
+        this.oMeanMatrix = null;
+
         double[] adMeanVector = null;
 
         for (int i = 0; (i < oClusters.size()) && (bNewSample); i++) {
@@ -162,11 +286,7 @@ public class TrainingSet
             if (piSubjectID == oCluster.getSubjectID()) {
                 // Disallow training on the same file twice
                 if (oCluster.existsFilename(pstrFilename)) {
-                    Debug.debug
-                            (
-                                    "TrainingSet.addFeatureVector() --- Attempt to train on the same file: " +
-                                            pstrFilename
-                            );
+                    Debug.debug("TrainingSet.addFeatureVector() --- Attempt to train on the same file: {}", pstrFilename);
 
                     return false;
                 }
@@ -176,12 +296,26 @@ public class TrainingSet
             }
         }
 
+        if (this.oCovariance == null) {
+            if (pbKeepCovariance && this.oClusters.size() == 0) {
+                this.oCovariance = new PooledCovariance(padFeatureVector.length);
+            }
+        } else if (this.oCovariance.getDimension() != padFeatureVector.length) {
+            // Of other vectors; can't be made whole again
+            this.oCovariance = null;
+        }
+
         if (bNewSample) {
             oCluster = new Cluster();
             adMeanVector = (double[]) padFeatureVector.clone();
         } else {
             int iMeanCount = oCluster.getMeanCount();
 
+            // Spread around the mean before it moves
+            if (this.oCovariance != null) {
+                this.oCovariance.add(adMeanVector, iMeanCount, padFeatureVector);
+            }
+
             // Recompute the mean
             for (int f = 0; f < adMeanVector.length; f++) {
                 adMeanVector[f] = (adMeanVector[f] * iMeanCount + padFeatureVector[f]) / (iMeanCount + 1);
@@ -199,13 +333,15 @@ public class TrainingSet
         if (bNewSample) {
             this.oClusters.add(oCluster);
 
-            Debug.debug
-                    (
-                            "Added feature vector for subject " + piSubjectID +
-                                    ", preprocessing method " + piPreprocessingMethod +
-                                    ", feature extraction method " + piFeatureExtractionMethod
-                    );
-        } else {
+            if (Debug.isDebugOn()) {
+                Debug.debug
+                        (
+                                "Added feature vector for subject " + piSubjectID +
+                                        ", preprocessing method " + piPreprocessingMethod +
+                                        ", feature extraction method " + piFeatureExtractionMethod
+                        );
+            }
+        } else if (Debug.isDebugOn()) {
             Debug.debug
                     (
                             "Updated mean vector for subject " + piSubjectID +
@@ -217,6 +353,17 @@ public class TrainingSet
         return true;
     }
 
+    /**
+     * Retrieves the file this training set is dumped to and restored from,
+     * i.e. the filename resolved against <code>WORKING_PATH</code>.
+     *
+     * @return the file of this training set
+     * @since 0.3.0.6
+     */
+    public final File getFile() {
+        return new File(WORKING_PATH + "/" + this.strFilename);
+    }
+
     /**
      * Gets the size of the feature vectors set.
      *
@@ -233,6 +380,8 @@ public class TrainingSet
      */
     public void restore()
             throws StorageException {
+        this.oMeanMatrix = null;
+
         try {
             switch (this.iCurrentDumpMode) {
 				/*
@@ -265,6 +414,7 @@ public class TrainingSet
                     oOIS.close();
 
                     this.oClusters = oTrainingSet.getClusters();
+                    this.oCovariance = oTrainingSet.oCovariance;
 
                     break;
                 }
@@ -395,6 +545,8 @@ public class TrainingSet
     public Object clone() {
         TrainingSet oClone = (TrainingSet) super.clone();
 
+        oClone.oMeanMatrix = null;
+
         oClone.oClusters =
                 this.oClusters == null ?
                         null : (Vector) this.oClusters.clone();
@@ -403,6 +555,10 @@ public class TrainingSet
                 this.oFeatureSet == null ?
                         null : (FeatureSet) this.oFeatureSet.clone();
 
+        oClone.oCovariance =
+                this.oCovariance == null ?
+                        null : new PooledCovariance(this.oCovariance);
+
         return oClone;
     }
 
@@ -0,0 +1,249 @@
+package marf.Storage;
+
+import java.io.File;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import marf.util.Debug;
+
+
+/**
+ * <p>Process-wide, read-mostly cache of resident <code>TrainingSet</code>s.</p>
+ *
+ * <p>Classification modules are created per request, and each of them
+ * used to deserialize (and un-GZIP) its training set from disk on every
+ * <code>classify()</code>. The cache keeps one restored instance per
+ * training set file, which is what uniquely identifies a global cluster
+ * (preprocessing, feature extraction, feature vector size and dump
+ * format are all encoded into the filename), and hands it out to all
+ * the classifiers.</p>
+ *
+ * <p>The cached instances are shared and must be treated as read-only;
+ * training has to work on a copy obtained via
+ * <code>getTrainingSetForUpdate()</code> and publish the result back
+ * with <code>update()</code> once dumped. An entry is also dropped if
+ * the file's modification time changes behind the cache's back (e.g.
+ * another process retrained); the file is only <code>stat</code>'ed
+ * at most once per the modification check interval, so classification
+ * does not touch disk on the hot path.</p>
+ *
+ * <p>$Id$</p>
+ *
+ * @author The MARF Research and Development Group
+ * @version $Revision$
+ * @see TrainingSet
+ * @since 0.3.0.6
+ */
+public final class TrainingSetCache {
+    /**
+     * Default interval between modification time checks of a cached
+     * training set's file, in milliseconds.
+     */
+    public static final long DEFAULT_MODIFICATION_CHECK_INTERVAL = 1000;
+
+    /**
+     * Cached entries keyed by the training set file path.
+     */
+    private static final Map soEntries = new ConcurrentHashMap();
+
+    /**
+     * Current modification check interval. A negative value disables
+     * modification checks altogether, and a zero checks on every access.
+     */
+    private static volatile long slModificationCheckInterval = DEFAULT_MODIFICATION_CHECK_INTERVAL;
+
+    /**
+     * Disallow instances as everything is static.
+     */
+    private TrainingSetCache() {
+    }
+
+    /**
+     * Retrieves a shared, resident training set, restoring it from
+     * disk only if it is not cached yet or its file has changed.
+     * The returned object must not be modified.
+     *
+     * @param pstrFilename training set filename (relative to <code>TrainingSet.WORKING_PATH</code>)
+     * @param piDumpMode   dump mode the training set is stored in
+     * @return the shared TrainingSet
+     * @throws StorageException if the training set cannot be restored
+     */
+    public static TrainingSet getTrainingSet(final String pstrFilename, final int piDumpMode)
+            throws StorageException {
+        String strKey = getKey(pstrFilename);
+        Entry oEntry = (Entry) soEntries.get(strKey);
+
+        if (oEntry != null && oEntry.isValid(oEntry.oTrainingSet.getFile())) {
+            return oEntry.oTrainingSet;
+        }
+
+        // Miss or stale; concurrent misses of the same set are rare and harmless.
+        TrainingSet oTemplate = createTrainingSet(pstrFilename, piDumpMode);
+        oTemplate.restore();
+
+        soEntries.put(strKey, new Entry(oTemplate, oTemplate.getFile().lastModified()));
+
+        Debug.debug("TrainingSetCache: restored {}", strKey);
+
+        return oTemplate;
+    }
+
+    /**
+     * Retrieves a private copy of the training set suitable for
+     * training on. The cached instance is not affected until
+     * the copy is published with <code>update()</code>.
+     *
+     * @param pstrFilename training set filename (relative to <code>TrainingSet.WORKING_PATH</code>)
+     * @param piDumpMode   dump mode the training set is stored in
+     * @return a deep copy of the cached TrainingSet
+     * @throws StorageException if the training set cannot be restored
+     * @see #update(TrainingSet)
+     */
+    public static TrainingSet getTrainingSetForUpdate(final String pstrFilename, final int piDumpMode)
+            throws StorageException {
+        return new TrainingSet(getTrainingSet(pstrFilename, piDumpMode));
+    }
+
+    /**
+     * Publishes a freshly dumped training set, replacing whatever was
+     * cached for its file. The instance itself becomes the shared one,
+     * so the caller must not modify it afterwards; a caller that keeps
+     * training has to publish a copy.
+     *
+     * @param poTrainingSet the training set that has just been dumped
+     */
+    public static void update(final TrainingSet poTrainingSet) {
+        File oFile = poTrainingSet.getFile();
+        soEntries.put(oFile.getPath(), new Entry(poTrainingSet, oFile.lastModified()));
+    }
+
+    /**
+     * Drops the cached training set of a given file, if any.
+     *
+     * @param pstrFilename training set filename (relative to <code>TrainingSet.WORKING_PATH</code>)
+     */
+    public static void invalidate(final String pstrFilename) {
+        soEntries.remove(getKey(pstrFilename));
+    }
+
+    /**
+     * Drops all the cached training sets.
+     */
+    public static void invalidateAll() {
+        soEntries.clear();
+    }
+
+    /**
+     * Sets how often, at most, the files of the cached training sets
+     * are checked for modification.
+     *
+     * @param plInterval interval in milliseconds; zero means every access,
+     *                   a negative value disables the checks
+     */
+    public static void setModificationCheckInterval(final long plInterval) {
+        slModificationCheckInterval = plInterval;
+    }
+
+    /**
+     * Retrieves current modification check interval.
+     *
+     * @return interval in milliseconds
+     */
+    public static long getModificationCheckInterval() {
+        return slModificationCheckInterval;
+    }
+
+    /**
+     * Computes the cache key of a training set file, which is
+     * its path resolved the same way <code>TrainingSet</code> does.
+     *
+     * @param pstrFilename training set filename
+     * @return the key
+     * @see TrainingSet#getFile()
+     */
+    static String getKey(final String pstrFilename) {
+        return new File(TrainingSet.WORKING_PATH + "/" + pstrFilename).getPath();
+    }
+
+    /**
+     * Creates a blank training set set up for a given file and mode.
+     *
+     * @param pstrFilename training set filename
+     * @param piDumpMode   dump mode
+     * @return new TrainingSet object
+     */
+    private static TrainingSet createTrainingSet(final String pstrFilename, final int piDumpMode) {
+        TrainingSet oTrainingSet = new TrainingSet();
+        oTrainingSet.setDumpMode(piDumpMode);
+        oTrainingSet.setFilename(pstrFilename);
+        return oTrainingSet;
+    }
+
+    /**
+     * Cached training set along with the file state it was loaded from.
+     */
+    private static final class Entry {
+        /**
+         * The shared training set.
+         */
+        final TrainingSet oTrainingSet;
+
+        /**
+         * File modification time at the time of caching.
+         */
+        final long lLastModified;
+
+        /**
+         * When the file was last checked for modification.
+         */
+        volatile long lLastChecked;
+
+        /**
+         * Constructs a cache entry.
+         *
+         * @param poTrainingSet  training set to cache
+         * @param plLastModified its file's modification time
+         */
+        Entry(final TrainingSet poTrainingSet, final long plLastModified) {
+            this.oTrainingSet = poTrainingSet;
+            this.lLastModified = plLastModified;
+            this.lLastChecked = System.currentTimeMillis();
+        }
+
+        /**
+         * Tells whether the entry is still usable, checking the file
+         * only when the check interval has elapsed.
+         *
+         * @param poFile the file of the training set
+         * @return <code>true</code> if the cached data is up to date
+         */
+        boolean isValid(final File poFile) {
+            long lInterval = slModificationCheckInterval;
+
+            if (lInterval < 0) {
+                return true;
+            }
+
+            long lNow = System.currentTimeMillis();
+
+            if (lNow - this.lLastChecked < lInterval) {
+                return true;
+            }
+
+            this.lLastChecked = lNow;
+
+            return poFile.lastModified() == this.lLastModified;
+        }
+    }
+
+    /**
+     * Returns source code revision information.
+     *
+     * @return revision string
+     */
+    public static String getMARFSourceCodeRevision() {
+        return "$Revision$";
+    }
+}
+
+// EOF
@@ -7,6 +7,8 @@ import java.util.Vector;
 import marf.MARF;
 import marf.Storage.StorageException;
 import marf.Storage.StorageManager;
+import marf.math.FFTPlan;
+import marf.math.MathException;
 import marf.util.Debug;
 import marf.util.NotImplementedException;
 
@@ -79,13 +81,16 @@ public class Spectrogram
     public final void addLPC(final double[] lpc_coeffs, final int num_coeffs, final int size) {
         double[] to_insert = new double[size];
 
+        // cos(2 * pi * i * -k / 128) and sin(2 * pi * i * -k / 128) are tabulated
+        FFTPlan oPlan = getLPCPlan();
+
         for (int i = 0; i < size; i++) {
             double Ar = 1.0;
             double Ai = 0.0;
 
             for (int k = 0; k < num_coeffs; k++) {
-                Ar -= lpc_coeffs[k] * Math.cos(2 * Math.PI * i * -k / 128);
-                Ai -= lpc_coeffs[k] * Math.sin(2 * Math.PI * i * -k / 128);
+                Ar -= lpc_coeffs[k] * oPlan.getTwiddleReal(i * k);
+                Ai -= lpc_coeffs[k] * oPlan.getTwiddleImag(i * k);
             }
 
             double A = Math.sqrt(Ar * Ar + Ai * Ai);
@@ -102,6 +107,21 @@ public class Spectrogram
         this.data.add(to_insert);
     }
 
+    /**
+     * Retrieves the tables for the 128-point LPC spectrum.
+     *
+     * @return shared inverse plan of size 128
+     * @since 0.3.0.6
+     */
+    private static FFTPlan getLPCPlan() {
+        try {
+            return FFTPlan.getPlan(128, -1, FFTPlan.WINDOW_NONE);
+        } catch (MathException e) {
+            // Cannot happen: 128 is a power of 2
+            throw new IllegalStateException(e.getMessage());
+        }
+    }
+
     /**
      * Adds FFT spectrum to the data to dump.
      *
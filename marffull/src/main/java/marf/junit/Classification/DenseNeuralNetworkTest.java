@@ -0,0 +1,194 @@
+package marf.junit.Classification;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import marf.Classification.NeuralNetwork.DenseNeuralNetwork;
+import marf.Classification.NeuralNetwork.NeuralNetwork;
+import marf.Classification.NeuralNetwork.NeuralNetworkModel;
+
+
+/**
+ * <p>DenseNeuralNetwork unit tests: given the same net, it must evaluate
+ * and train exactly like <code>NeuralNetwork</code>.</p>
+ * <p>
+ * $Id$
+ *
+ * @author The MARF Research and Development Group
+ * @since 0.3.0.6
+ */
+public class DenseNeuralNetworkTest
+        extends TestCase {
+    /**
+     * Number of inputs of the test net.
+     */
+    private static final int INPUTS = 16;
+
+    /**
+     * Number of training samples.
+     */
+    private static final int SAMPLES = 4;
+
+    /**
+     * Net in the object form.
+     */
+    private NeuralNetwork oNeuralNetwork;
+
+    /**
+     * The same net in the dense form.
+     */
+    private DenseNeuralNetwork oDenseNeuralNetwork;
+
+    /**
+     * Training inputs.
+     */
+    private double[][] aadInputs;
+
+    /**
+     * @param args
+     */
+    public static void main(String[] args) {
+        //junit.textui.TestRunner.run(DenseNeuralNetworkTest.class);
+    }
+
+    /**
+     * @param name
+     */
+    public DenseNeuralNetworkTest(String name) {
+        super(name);
+    }
+
+    protected void setUp()
+            throws Exception {
+        super.setUp();
+
+        this.oNeuralNetwork = new NeuralNetwork(null);
+        this.oNeuralNetwork.generate(INPUTS, new int[]{INPUTS * 2, INPUTS}, NeuralNetwork.DEFAULT_OUTPUT_NEURON_BITS);
+
+        this.oDenseNeuralNetwork = new DenseNeuralNetwork(null);
+        this.oDenseNeuralNetwork.setModel(this.oNeuralNetwork.getModel());
+
+        Random oRandom = new Random(11);
+
+        this.aadInputs = new double[SAMPLES][INPUTS];
+
+        for (int s = 0; s < SAMPLES; s++) {
+            for (int i = 0; i < INPUTS; i++) {
+                this.aadInputs[s][i] = oRandom.nextDouble();
+            }
+        }
+    }
+
+    protected void tearDown()
+            throws Exception {
+        super.tearDown();
+    }
+
+    /**
+     * The dense form keeps the topology and the weights.
+     *
+     * @throws Exception
+     */
+    public void testSameModel()
+            throws Exception {
+        assertSameModel(this.oNeuralNetwork.getModel(), this.oDenseNeuralNetwork.getModel());
+    }
+
+    /**
+     * Both forms produce the same outputs.
+     *
+     * @throws Exception
+     */
+    public void testSameOutputs()
+            throws Exception {
+        for (int s = 0; s < SAMPLES; s++) {
+            assertSameOutputs(this.aadInputs[s]);
+        }
+    }
+
+    /**
+     * Both forms learn the same from the same samples.
+     *
+     * @throws Exception
+     */
+    public void testSameTraining()
+            throws Exception {
+        double[] adInitialWeights = this.oNeuralNetwork.getModel().getWeights()[1];
+
+        for (int iEpoch = 0; iEpoch < 3; iEpoch++) {
+            for (int s = 0; s < SAMPLES; s++) {
+                this.oNeuralNetwork.train(this.aadInputs[s], s + 1, NeuralNetwork.DEFAULT_TRAINING_CONSTANT);
+                this.oNeuralNetwork.commit();
+
+                this.oDenseNeuralNetwork.train(this.aadInputs[s], s + 1, NeuralNetwork.DEFAULT_TRAINING_CONSTANT);
+                this.oDenseNeuralNetwork.commit();
+            }
+        }
+
+        assertSameModel(this.oNeuralNetwork.getModel(), this.oDenseNeuralNetwork.getModel());
+        assertFalse(Arrays.equals(adInitialWeights, this.oDenseNeuralNetwork.getModel().getWeights()[1]));
+
+        for (int s = 0; s < SAMPLES; s++) {
+            assertSameOutputs(this.aadInputs[s]);
+        }
+    }
+
+    /**
+     * Evaluates both forms on an input and compares the outputs.
+     *
+     * @param padInput the input
+     * @throws Exception
+     */
+    private void assertSameOutputs(double[] padInput)
+            throws Exception {
+        this.oNeuralNetwork.setInputs(padInput);
+        this.oNeuralNetwork.eval();
+
+        this.oDenseNeuralNetwork.setInputs(padInput);
+        this.oDenseNeuralNetwork.eval();
+
+        assertSameArray("outputs", this.oNeuralNetwork.getOutputResults(), this.oDenseNeuralNetwork.getOutputResults());
+    }
+
+    /**
+     * Compares two nets.
+     *
+     * @param poExpected expected net
+     * @param poActual   actual net
+     */
+    static void assertSameModel(NeuralNetworkModel poExpected, NeuralNetworkModel poActual) {
+        assertEquals(poExpected.getLayerCount(), poActual.getLayerCount());
+
+        for (int l = 0; l < poExpected.getLayerCount(); l++) {
+            assertEquals("layer " + l, poExpected.getLayerSize(l), poActual.getLayerSize(l));
+            assertSameArray("thresholds of layer " + l, poExpected.getThresholds()[l], poActual.getThresholds()[l]);
+
+            if (l > 0) {
+                assertSameArray("weights of layer " + l, poExpected.getWeights()[l], poActual.getWeights()[l]);
+            }
+
+            for (int n = 0; n < poExpected.getLayerSize(l); n++) {
+                assertEquals("name in layer " + l, poExpected.getName(l, n), poActual.getName(l, n));
+            }
+        }
+    }
+
+    /**
+     * Compares two arrays to rounding.
+     *
+     * @param pstrMessage message on failure
+     * @param padExpected expected array
+     * @param padActual   actual array
+     */
+    static void assertSameArray(String pstrMessage, double[] padExpected, double[] padActual) {
+        assertEquals(pstrMessage, padExpected.length, padActual.length);
+
+        for (int i = 0; i < padExpected.length; i++) {
+            assertEquals(pstrMessage + ", element " + i, padExpected[i], padActual[i], 1e-12);
+        }
+    }
+}
+
+// EOF
@@ -0,0 +1,308 @@
+package marf.junit.Classification;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import marf.Classification.Distance.ChebyshevDistance;
+import marf.Classification.Distance.DiffDistance;
+import marf.Classification.Distance.EuclideanDistance;
+import marf.Classification.Distance.MahalanobisDistance;
+import marf.Classification.Distance.MinkowskiDistance;
+import marf.Storage.MeanMatrix;
+import marf.Storage.TrainingSet;
+
+
+/**
+ * <p>Distance classifiers unit tests: the batched <code>distances()</code>
+ * must agree with <code>distance()</code> per mean vector.</p>
+ * <p>
+ * $Id$
+ *
+ * @author The MARF Research and Development Group
+ * @since 0.3.0.6
+ */
+public class DistanceTest
+        extends TestCase {
+    /**
+     * Number of subjects in the training set.
+     */
+    private static final int SUBJECTS = 7;
+
+    /**
+     * Number of feature vectors per subject.
+     */
+    private static final int VECTORS_PER_SUBJECT = 12;
+
+    /**
+     * Feature vector length.
+     */
+    private static final int DIMENSION = 9;
+
+    /**
+     * Training set the classifiers compare against.
+     */
+    private TrainingSet oTrainingSet;
+
+    /**
+     * @param args
+     */
+    public static void main(String[] args) {
+        //junit.textui.TestRunner.run(DistanceTest.class);
+    }
+
+    /**
+     * @param name
+     */
+    public DistanceTest(String name) {
+        super(name);
+    }
+
+    protected void setUp()
+            throws Exception {
+        super.setUp();
+
+        Random oRandom = new Random(9);
+
+        this.oTrainingSet = new TrainingSet();
+
+        for (int s = 0; s < SUBJECTS; s++) {
+            for (int v = 0; v < VECTORS_PER_SUBJECT; v++) {
+                double[] adFeatures = new double[DIMENSION];
+
+                for (int f = 0; f < DIMENSION; f++) {
+                    adFeatures[f] = s + (f + 1) * oRandom.nextGaussian();
+                }
+
+                this.oTrainingSet.addFeatureVector(adFeatures, "s" + s + "v" + v + ".wav", s + 1, 0, 0, true);
+            }
+        }
+    }
+
+    protected void tearDown()
+            throws Exception {
+        super.tearDown();
+    }
+
+    /**
+     * Euclidean distances.
+     */
+    public void testEuclidean() {
+        check(new Euclidean());
+    }
+
+    /**
+     * Chebyshev distances.
+     */
+    public void testChebyshev() {
+        check(new Chebyshev());
+    }
+
+    /**
+     * Minkowski distances.
+     */
+    public void testMinkowski() {
+        check(new Minkowski());
+    }
+
+    /**
+     * Diff distances.
+     */
+    public void testDiff() {
+        check(new Diff());
+    }
+
+    /**
+     * Mahalanobis distances, over the covariance of the training set.
+     */
+    public void testMahalanobis() {
+        Mahalanobis oMahalanobis = new Mahalanobis(this.oTrainingSet);
+
+        assertNotNull(this.oTrainingSet.getCovariance());
+        check(oMahalanobis);
+    }
+
+    /**
+     * Only a training set asked for the covariance from the first vector
+     * on keeps it, including over training that doesn't ask for it.
+     */
+    public void testCovarianceKeptOnlyWhenAsked() {
+        TrainingSet oPlain = new TrainingSet();
+
+        oPlain.addFeatureVector(new double[]{1, 2}, "a.wav", 1, 0, 0);
+        oPlain.addFeatureVector(new double[]{3, 5}, "b.wav", 1, 0, 0);
+        assertNull(oPlain.getCovariance());
+
+        // Too late to learn it from what's been averaged
+        oPlain.addFeatureVector(new double[]{2, 2}, "c.wav", 1, 0, 0, true);
+        assertNull(oPlain.getCovariance());
+        assertNull(new TrainingSet(oPlain).getCovariance());
+
+        TrainingSet oKept = new TrainingSet();
+
+        oKept.addFeatureVector(new double[]{1, 2}, "a.wav", 1, 0, 0, true);
+        oKept.addFeatureVector(new double[]{3, 5}, "b.wav", 1, 0, 0);
+        oKept.addFeatureVector(new double[]{2, 2}, "c.wav", 1, 0, 0);
+
+        assertNotNull(oKept.getCovariance());
+        assertEquals(2, oKept.getCovariance().getDimension());
+        assertNotNull(new TrainingSet(oKept).getCovariance());
+
+        // Without the covariance, the distance is plain Euclidean
+        assertEquals(5.0, new Mahalanobis(oPlain).distance(new double[]{0, 1}, new double[]{4, 4}), 0.0);
+    }
+
+    /**
+     * Compares the batched distances to the per-vector ones for
+     * a few incoming feature vectors.
+     *
+     * @param poDistance classifier under test
+     */
+    private void check(IBatchDistance poDistance) {
+        MeanMatrix oMeans = this.oTrainingSet.getMeanMatrix();
+
+        assertEquals(SUBJECTS, oMeans.getRows());
+        assertEquals(DIMENSION, oMeans.getDimension());
+
+        Random oRandom = new Random(3);
+
+        for (int t = 0; t < 5; t++) {
+            double[] adFeatures = new double[DIMENSION];
+
+            for (int f = 0; f < DIMENSION; f++) {
+                adFeatures[f] = 3 * oRandom.nextGaussian();
+            }
+
+            double[] adDistances = new double[SUBJECTS];
+
+            assertTrue(poDistance.batch(oMeans.getMeans(), SUBJECTS, DIMENSION, adFeatures, adDistances));
+
+            for (int i = 0; i < SUBJECTS; i++) {
+                double[] adMean = new double[DIMENSION];
+                System.arraycopy(oMeans.getMeans(), i * DIMENSION, adMean, 0, DIMENSION);
+
+                double dExpected = poDistance.distance(adMean, adFeatures);
+
+                assertEquals("trial " + t + ", subject " + oMeans.getSubjectID(i), dExpected, adDistances[i], 1e-10 * Math.max(1, dExpected));
+            }
+        }
+    }
+
+    /**
+     * Classifier exposing its batched distances.
+     */
+    private interface IBatchDistance {
+        /**
+         * @see marf.Classification.Distance.Distance#distance(double[], double[])
+         */
+        double distance(double[] padVector1, double[] padVector2);
+
+        /**
+         * Calls <code>distances()</code>.
+         */
+        boolean batch(double[] padMeans, int piRows, int piDimension, double[] padFeatures, double[] padDistances);
+    }
+
+    /**
+     * Euclidean distance under test.
+     */
+    private static class Euclidean
+            extends EuclideanDistance
+            implements IBatchDistance {
+        /**
+         * For serialization versioning.
+         */
+        private static final long serialVersionUID = 316074393037004528L;
+
+        Euclidean() {
+            super(null);
+        }
+
+        public boolean batch(double[] padMeans, int piRows, int piDimension, double[] padFeatures, double[] padDistances) {
+            return distances(padMeans, piRows, piDimension, padFeatures, padDistances);
+        }
+    }
+
+    /**
+     * Chebyshev distance under test.
+     */
+    private static class Chebyshev
+            extends ChebyshevDistance
+            implements IBatchDistance {
+        /**
+         * For serialization versioning.
+         */
+        private static final long serialVersionUID = -1177917771292913238L;
+
+        Chebyshev() {
+            super(null);
+        }
+
+        public boolean batch(double[] padMeans, int piRows, int piDimension, double[] padFeatures, double[] padDistances) {
+            return distances(padMeans, piRows, piDimension, padFeatures, padDistances);
+        }
+    }
+
+    /**
+     * Minkowski distance under test.
+     */
+    private static class Minkowski
+            extends MinkowskiDistance
+            implements IBatchDistance {
+        /**
+         * For serialization versioning.
+         */
+        private static final long serialVersionUID = 1629318134645504592L;
+
+        Minkowski() {
+            super(null);
+        }
+
+        public boolean batch(double[] padMeans, int piRows, int piDimension, double[] padFeatures, double[] padDistances) {
+            return distances(padMeans, piRows, piDimension, padFeatures, padDistances);
+        }
+    }
+
+    /**
+     * Diff distance under test.
+     */
+    private static class Diff
+            extends DiffDistance
+            implements IBatchDistance {
+        /**
+         * For serialization versioning.
+         */
+        private static final long serialVersionUID = 3942466417210053510L;
+
+        Diff() {
+            super(null);
+        }
+
+        public boolean batch(double[] padMeans, int piRows, int piDimension, double[] padFeatures, double[] padDistances) {
+            return distances(padMeans, piRows, piDimension, padFeatures, padDistances);
+        }
+    }
+
+    /**
+     * Mahalanobis distance under test.
+     */
+    private static class Mahalanobis
+            extends MahalanobisDistance
+            implements IBatchDistance {
+        /**
+         * For serialization versioning.
+         */
+        private static final long serialVersionUID = 1549969318545999063L;
+
+        Mahalanobis(TrainingSet poTrainingSet) {
+            super(null);
+            this.oTrainingSet = poTrainingSet;
+        }
+
+        public boolean batch(double[] padMeans, int piRows, int piDimension, double[] padFeatures, double[] padDistances) {
+            return distances(padMeans, piRows, piDimension, padFeatures, padDistances);
+        }
+    }
+}
+
+// EOF
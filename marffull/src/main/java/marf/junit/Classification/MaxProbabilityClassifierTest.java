@@ -0,0 +1,422 @@
+package marf.junit.Classification;
+
+import java.io.File;
+import java.io.StringReader;
+import java.util.Random;
+import java.util.Vector;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import junit.framework.TestCase;
+
+import marf.Classification.Stochastic.MaxProbabilityClassifier;
+import marf.MARF;
+import marf.Stats.ProbabilityTable;
+import marf.Stats.StatisticalEstimators.StatisticalEstimator;
+import marf.Storage.ModuleParams;
+import marf.Storage.StorageException;
+import marf.nlp.util.NLPStreamTokenizer;
+
+
+/**
+ * <p>MaxProbabilityClassifier unit tests: classifiers used concurrently
+ * must each score against the right resident language models, leave the
+ * NLP language alone, and see a language trained again or the models
+ * invalidated.</p>
+ * <p>
+ * $Id$
+ *
+ * @author The MARF Research and Development Group
+ * @since 0.3.0.6
+ */
+public class MaxProbabilityClassifierTest
+        extends TestCase {
+    /**
+     * Languages to train, each mostly of its own character.
+     */
+    private static final String[] LANGUAGES = {"test-a", "test-b", "test-c"};
+
+    /**
+     * Characters the texts of the languages are mostly made of.
+     */
+    private static final String ALPHABET = "abc";
+
+    /**
+     * Number of concurrent classifying tasks.
+     */
+    private static final int TASKS = 8;
+
+    /**
+     * Classifications per task.
+     */
+    private static final int CLASSIFICATIONS = 25;
+
+    /**
+     * N-gram model in effect before the test.
+     */
+    private int iOldNgramModel;
+
+    /**
+     * Language in effect before the test.
+     */
+    private String strOldLanguage;
+
+    /**
+     * Module parameters in effect before the test.
+     */
+    private ModuleParams oOldModuleParams;
+
+    /**
+     * Dump file of the classifiers' available languages.
+     */
+    private File oLanguagesFile;
+
+    /**
+     * @param args
+     */
+    public static void main(String[] args) {
+        //junit.textui.TestRunner.run(MaxProbabilityClassifierTest.class);
+    }
+
+    /**
+     * @param name
+     */
+    public MaxProbabilityClassifierTest(String name) {
+        super(name);
+    }
+
+    protected void setUp()
+            throws Exception {
+        super.setUp();
+
+        this.iOldNgramModel = MARF.NLP.getNgramModel();
+        this.strOldLanguage = MARF.NLP.getLanguage();
+        this.oOldModuleParams = MARF.getModuleParams();
+
+        MARF.NLP.setNgramModel(MARF.ENgramModels.UNIGRAM);
+        MARF.setModuleParams(null);
+
+        this.oLanguagesFile = File.createTempFile("marf", "languages.gzbin");
+        this.oLanguagesFile.delete();
+
+        MaxProbabilityClassifier.invalidateLanguageModels();
+
+        for (int i = 0; i < LANGUAGES.length; i++) {
+            train(LANGUAGES[i], makeText(ALPHABET.charAt(i), 200, 0.9, new Random(i)));
+        }
+
+        MARF.NLP.setLanguage(this.strOldLanguage);
+    }
+
+    protected void tearDown()
+            throws Exception {
+        MaxProbabilityClassifier.invalidateLanguageModels();
+
+        Estimator oEstimator = new Estimator();
+
+        for (int i = 0; i < LANGUAGES.length; i++) {
+            new File(oEstimator.getFilename(LANGUAGES[i])).delete();
+        }
+
+        this.oLanguagesFile.delete();
+
+        MARF.NLP.setNgramModel(this.iOldNgramModel);
+        MARF.NLP.setLanguage(this.strOldLanguage);
+        MARF.setModuleParams(this.oOldModuleParams);
+
+        super.tearDown();
+    }
+
+    /**
+     * Classifiers running at the same time, each with an estimator of
+     * its own, find the language of every text, and share one resident
+     * model of every language.
+     *
+     * @throws Exception
+     */
+    public void testConcurrentClassifiers()
+            throws Exception {
+        ExecutorService oExecutor = Executors.newFixedThreadPool(TASKS);
+
+        try {
+            Vector oFutures = new Vector();
+
+            for (int t = 0; t < TASKS; t++) {
+                final int iTask = t;
+
+                oFutures.add(oExecutor.submit(new Callable() {
+                    public Object call()
+                            throws Exception {
+                        Random oRandom = new Random(100 + iTask);
+                        ProbabilityTable[] aoModels = new ProbabilityTable[LANGUAGES.length];
+
+                        for (int c = 0; c < CLASSIFICATIONS; c++) {
+                            int iLang = oRandom.nextInt(LANGUAGES.length);
+                            Classifier oClassifier = createClassifier(makeText(ALPHABET.charAt(iLang), 30, 0.7, oRandom));
+
+                            // Half the tasks scoring on parallel tasks of their own
+                            oClassifier.enableParallelScoring(iTask % 2 == 1);
+
+                            assertTrue(oClassifier.classify());
+                            assertEquals("task " + iTask, LANGUAGES[iLang], oClassifier.getResult().getDescription());
+
+                            aoModels[iLang] = oClassifier.getLanguageModel(LANGUAGES[iLang]);
+                        }
+
+                        return aoModels;
+                    }
+                }));
+            }
+
+            ProbabilityTable[] aoResident = residentModels();
+
+            for (int t = 0; t < oFutures.size(); t++) {
+                ProbabilityTable[] aoModels = (ProbabilityTable[]) ((Future) oFutures.get(t)).get();
+
+                for (int i = 0; i < aoModels.length; i++) {
+                    if (aoModels[i] != null) {
+                        assertSame("task " + t + ", " + LANGUAGES[i], aoResident[i], aoModels[i]);
+                    }
+                }
+            }
+        } finally {
+            oExecutor.shutdown();
+        }
+
+        assertEquals(this.strOldLanguage, MARF.NLP.getLanguage());
+    }
+
+    /**
+     * Every language is scored with its own model, whatever the
+     * NLP language is, which classifying leaves as it was.
+     *
+     * @throws Exception
+     */
+    public void testModelOfEveryLanguage()
+            throws Exception {
+        MARF.NLP.setLanguage(LANGUAGES[0]);
+
+        Classifier oClassifier = createClassifier("");
+
+        for (int i = 0; i < LANGUAGES.length; i++) {
+            ProbabilityTable oModel = oClassifier.getLanguageModel(LANGUAGES[i]);
+
+            assertEquals(LANGUAGES[i], oModel.getLang());
+            assertEquals(LANGUAGES[0], MARF.NLP.getLanguage());
+
+            for (int j = 0; j < ALPHABET.length(); j++) {
+                if (i != j) {
+                    assertTrue(LANGUAGES[i], p(oModel, ALPHABET.charAt(i)) > p(oModel, ALPHABET.charAt(j)));
+                }
+            }
+        }
+
+        assertTrue(createClassifier("aab").classify());
+        assertEquals(LANGUAGES[0], MARF.NLP.getLanguage());
+    }
+
+    /**
+     * A language trained again replaces its resident model, and the
+     * model handed out before is left as it was.
+     *
+     * @throws Exception
+     */
+    public void testTrainingReplacesModel()
+            throws Exception {
+        Classifier oClassifier = createClassifier("");
+        ProbabilityTable oOldModel = oClassifier.getLanguageModel(LANGUAGES[0]);
+        double dOldP = p(oOldModel, 'b');
+
+        assertSame(oOldModel, oClassifier.getLanguageModel(LANGUAGES[0]));
+
+        // Enough b's to make the language more of a b one
+        train(LANGUAGES[0], makeText('b', 1000, 1.0, new Random(7)));
+        MARF.NLP.setLanguage(this.strOldLanguage);
+
+        ProbabilityTable oNewModel = oClassifier.getLanguageModel(LANGUAGES[0]);
+
+        assertNotSame(oOldModel, oNewModel);
+        assertEquals(dOldP, p(oOldModel, 'b'), 0.0);
+        assertEquals(dOldP + 1000, p(oNewModel, 'b'), 0.0);
+
+        Classifier oB = createClassifier("bbbbb");
+        assertTrue(oB.classify());
+        assertEquals(LANGUAGES[0], oB.getResult().getDescription());
+    }
+
+    /**
+     * A model stored by another estimator, e.g. of another process,
+     * is only seen once the resident models are invalidated.
+     *
+     * @throws Exception
+     */
+    public void testInvalidateLanguageModels()
+            throws Exception {
+        Classifier oClassifier = createClassifier("");
+        ProbabilityTable oOldModel = oClassifier.getLanguageModel(LANGUAGES[1]);
+        double dOldP = p(oOldModel, 'c');
+
+        // Trained behind the classifiers' back
+        MARF.NLP.setLanguage(LANGUAGES[1]);
+
+        Estimator oEstimator = new Estimator();
+        oEstimator.setStreamTokenizer(createTokenizer("ccc"));
+        assertTrue(oEstimator.train());
+
+        MARF.NLP.setLanguage(this.strOldLanguage);
+
+        // Stale until invalidated
+        assertSame(oOldModel, oClassifier.getLanguageModel(LANGUAGES[1]));
+
+        MaxProbabilityClassifier.invalidateLanguageModels();
+
+        ProbabilityTable oNewModel = oClassifier.getLanguageModel(LANGUAGES[1]);
+
+        assertNotSame(oOldModel, oNewModel);
+        assertEquals(dOldP + 3, p(oNewModel, 'c'), 0.0);
+        assertSame(oNewModel, createClassifier("").getLanguageModel(LANGUAGES[1]));
+    }
+
+    /**
+     * Trains a language with a classifier, as an application would.
+     *
+     * @param pstrLang the language
+     * @param pstrText text of the language
+     * @throws Exception
+     */
+    private void train(String pstrLang, String pstrText)
+            throws Exception {
+        MARF.NLP.setLanguage(pstrLang);
+
+        Estimator oEstimator = new Estimator();
+        oEstimator.setStreamTokenizer(createTokenizer(pstrText));
+
+        MaxProbabilityClassifier oClassifier = new MaxProbabilityClassifier(oEstimator);
+        oClassifier.setFilename(this.oLanguagesFile.getPath());
+
+        assertTrue(oClassifier.train());
+    }
+
+    /**
+     * Creates a classifier of a text, with an estimator of its own.
+     *
+     * @param pstrText the text
+     * @return the classifier
+     */
+    private Classifier createClassifier(String pstrText) {
+        Estimator oEstimator = new Estimator();
+        oEstimator.setStreamTokenizer(createTokenizer(pstrText));
+
+        Classifier oClassifier = new Classifier(oEstimator);
+        oClassifier.setFilename(this.oLanguagesFile.getPath());
+
+        return oClassifier;
+    }
+
+    /**
+     * Retrieves the resident models of the languages.
+     *
+     * @return a model of every language
+     * @throws StorageException
+     */
+    private ProbabilityTable[] residentModels()
+            throws StorageException {
+        Classifier oClassifier = createClassifier("");
+        ProbabilityTable[] aoModels = new ProbabilityTable[LANGUAGES.length];
+
+        for (int i = 0; i < LANGUAGES.length; i++) {
+            aoModels[i] = oClassifier.getLanguageModel(LANGUAGES[i]);
+        }
+
+        return aoModels;
+    }
+
+    /**
+     * Makes a text of mostly one character, the others of the
+     * alphabet filling in the rest.
+     *
+     * @param pcMain     the main character
+     * @param piLength   text length
+     * @param pdMainRate share of the main character
+     * @param poRandom   source of the other characters
+     * @return the text
+     */
+    private static String makeText(char pcMain, int piLength, double pdMainRate, Random poRandom) {
+        StringBuffer oText = new StringBuffer();
+
+        for (int i = 0; i < piLength; i++) {
+            if (poRandom.nextDouble() < pdMainRate) {
+                oText.append(pcMain);
+            } else {
+                oText.append(ALPHABET.charAt(poRandom.nextInt(ALPHABET.length())));
+            }
+        }
+
+        return oText.toString();
+    }
+
+    /**
+     * Retrieves the occurences of a character in a unigram model.
+     *
+     * @param poModel the model
+     * @param pcToken the character
+     * @return the occurences
+     */
+    private static double p(ProbabilityTable poModel, char pcToken) {
+        Vector oUnigram = new Vector();
+        oUnigram.add(String.valueOf(pcToken));
+        return poModel.p(oUnigram);
+    }
+
+    /**
+     * Creates a tokenizer making a token of every character.
+     *
+     * @param pstrText the text
+     * @return the tokenizer
+     */
+    private static NLPStreamTokenizer createTokenizer(String pstrText) {
+        NLPStreamTokenizer oTokenizer = new NLPStreamTokenizer(new StringReader(pstrText));
+        oTokenizer.resetSyntax();
+        return oTokenizer;
+    }
+
+    /**
+     * Estimator without smoothing.
+     */
+    private static class Estimator
+            extends StatisticalEstimator {
+        /**
+         * For serialization versioning.
+         */
+        private static final long serialVersionUID = 1L;
+    }
+
+    /**
+     * Classifier letting the test see the models it scores with.
+     */
+    private static class Classifier
+            extends MaxProbabilityClassifier {
+        /**
+         * For serialization versioning.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Constructs a classifier.
+         *
+         * @param poEstimator the estimator
+         */
+        Classifier(StatisticalEstimator poEstimator) {
+            super(poEstimator);
+        }
+
+        protected ProbabilityTable getLanguageModel(String pstrLang)
+                throws StorageException {
+            return super.getLanguageModel(pstrLang);
+        }
+    }
+}
+
+// EOF
@@ -0,0 +1,344 @@
+package marf.junit.Classification;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.util.Arrays;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import marf.Classification.NeuralNetwork.NeuralNetwork;
+import marf.Classification.NeuralNetwork.NeuralNetworkModel;
+import marf.MARF;
+import marf.Storage.StorageException;
+import marf.Storage.StorageManager;
+
+
+/**
+ * <p>NeuralNetworkModel storage unit tests: what is written in the
+ * binary ("MARFNNET") and XML formats must read back the same.</p>
+ * <p>
+ * $Id$
+ *
+ * @author The MARF Research and Development Group
+ * @since 0.3.0.6
+ */
+public class NeuralNetworkModelTest
+        extends TestCase {
+    /**
+     * Scratch directory the nets are written to.
+     */
+    private File oDirectory;
+
+    /**
+     * @param args
+     */
+    public static void main(String[] args) {
+        //junit.textui.TestRunner.run(NeuralNetworkModelTest.class);
+    }
+
+    /**
+     * @param name
+     */
+    public NeuralNetworkModelTest(String name) {
+        super(name);
+    }
+
+    protected void setUp()
+            throws Exception {
+        super.setUp();
+
+        this.oDirectory = File.createTempFile("marf", "nnet");
+        this.oDirectory.delete();
+        this.oDirectory.mkdir();
+    }
+
+    protected void tearDown()
+            throws Exception {
+        File[] aoFiles = this.oDirectory.listFiles();
+
+        for (int i = 0; aoFiles != null && i < aoFiles.length; i++) {
+            aoFiles[i].delete();
+        }
+
+        this.oDirectory.delete();
+
+        super.tearDown();
+    }
+
+    /**
+     * A net with the default neuron names.
+     *
+     * @throws Exception
+     */
+    public void testBinaryRoundTrip()
+            throws Exception {
+        NeuralNetworkModel oModel = makeModel(new int[]{5, 7, 3}, false);
+        String strFilename = getFilename("net.bin");
+
+        oModel.writeBinary(strFilename);
+
+        assertIdentical(oModel, NeuralNetworkModel.readBinary(strFilename));
+    }
+
+    /**
+     * A net with its own neuron names, not all of them ASCII.
+     *
+     * @throws Exception
+     */
+    public void testBinaryRoundTripWithNames()
+            throws Exception {
+        NeuralNetworkModel oModel = makeModel(new int[]{4, 9, 6, 2}, true);
+        String strFilename = getFilename("named.bin");
+
+        oModel.writeBinary(strFilename);
+
+        NeuralNetworkModel oRead = NeuralNetworkModel.readBinary(strFilename);
+
+        assertIdentical(oModel, oRead);
+        assertEquals("néuron-1-0", oRead.getName(1, 0));
+    }
+
+    /**
+     * A binary file starts with the magic and the format version.
+     *
+     * @throws Exception
+     */
+    public void testBinaryHeader()
+            throws Exception {
+        String strFilename = getFilename("header.bin");
+
+        makeModel(new int[]{2, 2}, false).writeBinary(strFilename);
+
+        byte[] atContents = readFile(strFilename);
+
+        assertTrue(Arrays.equals(NeuralNetworkModel.MAGIC, Arrays.copyOf(atContents, NeuralNetworkModel.MAGIC.length)));
+        assertEquals(NeuralNetworkModel.FORMAT_VERSION, atContents[NeuralNetworkModel.MAGIC.length]);
+    }
+
+    /**
+     * Neither a foreign nor a truncated file is taken for a net.
+     *
+     * @throws Exception
+     */
+    public void testBinaryRejectsBadFiles()
+            throws Exception {
+        String strFilename = getFilename("good.bin");
+
+        makeModel(new int[]{3, 4, 2}, false).writeBinary(strFilename);
+
+        byte[] atContents = readFile(strFilename);
+
+        byte[] atForeign = atContents.clone();
+        atForeign[0] = 'X';
+        assertUnreadable(writeFile("foreign.bin", atForeign));
+
+        assertUnreadable(writeFile("truncated.bin", Arrays.copyOf(atContents, atContents.length - 5)));
+    }
+
+    /**
+     * A net written by <code>NeuralNetwork</code> in XML converts
+     * to the binary format and back without a change.
+     *
+     * @throws Exception
+     */
+    public void testXMLBinaryConversion()
+            throws Exception {
+        NeuralNetwork oNeuralNetwork = new NeuralNetwork(null);
+        oNeuralNetwork.generate(6, new int[]{8, 5}, 4);
+
+        String strXML = getFilename("net.xml");
+        String strBinary = getFilename("net.bin");
+        String strBackToXML = getFilename("back.xml");
+
+        oNeuralNetwork.dumpXML(strXML);
+
+        NeuralNetworkModel.convertXMLToBinary(strXML, strBinary);
+        NeuralNetworkModel.convertBinaryToXML(strBinary, strBackToXML);
+
+        NeuralNetworkModel oFromXML = NeuralNetworkModel.readXML(strXML);
+
+        assertIdentical(oNeuralNetwork.getModel(), oFromXML);
+        assertIdentical(oFromXML, NeuralNetworkModel.readBinary(strBinary));
+        assertIdentical(oFromXML, NeuralNetworkModel.readXML(strBackToXML));
+    }
+
+    /**
+     * After switching from the binary to the XML dump mode,
+     * the binary file of the old net is not restored.
+     *
+     * @throws Exception
+     */
+    public void testXMLDumpSupersedesBinary()
+            throws Exception {
+        NeuralNetwork oOld = new NeuralNetwork(null);
+        oOld.generate(4, new int[]{8}, 2);
+
+        NeuralNetwork oNew = new NeuralNetwork(null);
+        oNew.generate(4, new int[]{6, 3}, 2);
+
+        String strPrefix =
+                NeuralNetwork.class.getName() + "." +
+                        MARF.getPreprocessingMethod() + "." +
+                        MARF.getFeatureExtractionMethod() + ".";
+
+        File oBinary = new File(strPrefix + NeuralNetwork.BINARY_NET_EXTENSION);
+        File oXML = new File(strPrefix + NeuralNetwork.XML_NET_EXTENSION);
+
+        try {
+            oOld.setDumpMode(StorageManager.DUMP_GZIP_BINARY);
+            oOld.dump();
+
+            oNew.setDumpMode(StorageManager.DUMP_XML);
+            oNew.dump();
+
+            assertFalse(oBinary.exists());
+
+            NeuralNetwork oRestored = new NeuralNetwork(null);
+            oRestored.setDumpMode(StorageManager.DUMP_GZIP_BINARY);
+            oRestored.restore();
+
+            assertIdentical(oNew.getModel(), oRestored.getModel());
+        } finally {
+            oBinary.delete();
+            oXML.delete();
+        }
+    }
+
+    /**
+     * Makes a fully connected net of random weights.
+     *
+     * @param paiLayerSizes layer sizes
+     * @param pbNamed       whether to give the neurons names of their own
+     * @return the net
+     */
+    private static NeuralNetworkModel makeModel(int[] paiLayerSizes, boolean pbNamed) {
+        Random oRandom = new Random(paiLayerSizes.length);
+
+        int iLayers = paiLayerSizes.length;
+
+        double[][] aadWeights = new double[iLayers][];
+        double[][] aadThresholds = new double[iLayers][];
+        String[][] aastrNames = pbNamed ? new String[iLayers][] : null;
+
+        for (int l = 0; l < iLayers; l++) {
+            aadThresholds[l] = new double[paiLayerSizes[l]];
+            aadWeights[l] = new double[l == 0 ? 0 : paiLayerSizes[l] * paiLayerSizes[l - 1]];
+
+            for (int i = 0; i < aadThresholds[l].length; i++) {
+                aadThresholds[l][i] = oRandom.nextGaussian();
+            }
+
+            for (int i = 0; i < aadWeights[l].length; i++) {
+                aadWeights[l][i] = oRandom.nextGaussian();
+            }
+
+            if (pbNamed) {
+                aastrNames[l] = new String[paiLayerSizes[l]];
+
+                for (int n = 0; n < paiLayerSizes[l]; n++) {
+                    aastrNames[l][n] = "néuron-" + l + "-" + n;
+                }
+            }
+        }
+
+        return new NeuralNetworkModel(paiLayerSizes, aadWeights, aadThresholds, aastrNames);
+    }
+
+    /**
+     * Asserts that two nets are the same, bit for bit.
+     *
+     * @param poExpected expected net
+     * @param poActual   actual net
+     */
+    private static void assertIdentical(NeuralNetworkModel poExpected, NeuralNetworkModel poActual) {
+        assertTrue(Arrays.equals(poExpected.getLayerSizes(), poActual.getLayerSizes()));
+
+        for (int l = 0; l < poExpected.getLayerCount(); l++) {
+            assertTrue("thresholds of layer " + l, Arrays.equals(poExpected.getThresholds()[l], poActual.getThresholds()[l]));
+
+            if (l > 0) {
+                assertTrue("weights of layer " + l, Arrays.equals(poExpected.getWeights()[l], poActual.getWeights()[l]));
+            }
+
+            for (int n = 0; n < poExpected.getLayerSize(l); n++) {
+                assertEquals("name in layer " + l, poExpected.getName(l, n), poActual.getName(l, n));
+            }
+        }
+    }
+
+    /**
+     * Asserts that a file is not read as a binary net.
+     *
+     * @param pstrFilename the file
+     */
+    private static void assertUnreadable(String pstrFilename) {
+        try {
+            NeuralNetworkModel.readBinary(pstrFilename);
+            fail(pstrFilename + " must not be read as a net");
+        } catch (StorageException e) {
+            // Expected
+        }
+    }
+
+    /**
+     * Resolves a file name in the scratch directory.
+     *
+     * @param pstrName file name
+     * @return the path
+     */
+    private String getFilename(String pstrName) {
+        return new File(this.oDirectory, pstrName).getPath();
+    }
+
+    /**
+     * Reads a whole file.
+     *
+     * @param pstrFilename the file
+     * @return its contents
+     * @throws Exception
+     */
+    private static byte[] readFile(String pstrFilename)
+            throws Exception {
+        File oFile = new File(pstrFilename);
+        byte[] atContents = new byte[(int) oFile.length()];
+        FileInputStream oFIS = new FileInputStream(oFile);
+
+        try {
+            int iRead = 0;
+
+            while (iRead < atContents.length) {
+                iRead += oFIS.read(atContents, iRead, atContents.length - iRead);
+            }
+        } finally {
+            oFIS.close();
+        }
+
+        return atContents;
+    }
+
+    /**
+     * Writes a file in the scratch directory.
+     *
+     * @param pstrName    file name
+     * @param patContents what to write
+     * @return the path
+     * @throws Exception
+     */
+    private String writeFile(String pstrName, byte[] patContents)
+            throws Exception {
+        String strFilename = getFilename(pstrName);
+        FileOutputStream oFOS = new FileOutputStream(strFilename);
+
+        try {
+            oFOS.write(patContents);
+        } finally {
+            oFOS.close();
+        }
+
+        return strFilename;
+    }
+}
+
+// EOF
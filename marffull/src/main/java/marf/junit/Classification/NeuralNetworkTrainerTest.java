@@ -0,0 +1,248 @@
+package marf.junit.Classification;
+
+import java.util.Random;
+import java.util.Vector;
+
+import junit.framework.TestCase;
+
+import marf.Classification.NeuralNetwork.EpochStatistics;
+import marf.Classification.NeuralNetwork.NeuralNetwork;
+import marf.Classification.NeuralNetwork.NeuralNetworkModel;
+import marf.Classification.NeuralNetwork.NeuralNetworkTrainer;
+
+
+/**
+ * <p>NeuralNetworkTrainer unit tests: per-sample training must be that of
+ * <code>NeuralNetwork</code>, and mini-batch training must not depend
+ * on the number of threads.</p>
+ * <p>
+ * $Id$
+ *
+ * @author The MARF Research and Development Group
+ * @since 0.3.0.6
+ */
+public class NeuralNetworkTrainerTest
+        extends TestCase {
+    /**
+     * Number of inputs of the test net.
+     */
+    private static final int INPUTS = 12;
+
+    /**
+     * Number of training samples.
+     */
+    private static final int SAMPLES = 10;
+
+    /**
+     * Maximum number of epochs to train for.
+     */
+    private static final int EPOCHS = 4;
+
+    /**
+     * Minimum error to train to.
+     */
+    private static final double MIN_ERROR = NeuralNetwork.DEFAULT_MIN_ERROR;
+
+    /**
+     * Net to start training from.
+     */
+    private NeuralNetwork oNeuralNetwork;
+
+    /**
+     * Training inputs.
+     */
+    private double[][] aadInputs;
+
+    /**
+     * Training subject IDs.
+     */
+    private int[] aiIDs;
+
+    /**
+     * @param args
+     */
+    public static void main(String[] args) {
+        //junit.textui.TestRunner.run(NeuralNetworkTrainerTest.class);
+    }
+
+    /**
+     * @param name
+     */
+    public NeuralNetworkTrainerTest(String name) {
+        super(name);
+    }
+
+    protected void setUp()
+            throws Exception {
+        super.setUp();
+
+        this.oNeuralNetwork = new NeuralNetwork(null);
+        this.oNeuralNetwork.generate(INPUTS, new int[]{INPUTS * 2}, 8);
+
+        Random oRandom = new Random(13);
+
+        this.aadInputs = new double[SAMPLES][INPUTS];
+        this.aiIDs = new int[SAMPLES];
+
+        for (int s = 0; s < SAMPLES; s++) {
+            this.aiIDs[s] = s % 4 + 1;
+
+            for (int i = 0; i < INPUTS; i++) {
+                this.aadInputs[s][i] = this.aiIDs[s] * 0.1 + 0.05 * oRandom.nextGaussian();
+            }
+        }
+    }
+
+    protected void tearDown()
+            throws Exception {
+        super.tearDown();
+    }
+
+    /**
+     * With a batch size of 1 the weights are updated after every
+     * sample, exactly as <code>NeuralNetwork</code> does.
+     *
+     * @throws Exception
+     */
+    public void testPerSampleMatchesNeuralNetwork()
+            throws Exception {
+        NeuralNetworkModel oModel = this.oNeuralNetwork.getModel();
+        NeuralNetworkTrainer oTrainer = new NeuralNetworkTrainer(oModel);
+
+        int iEpochs = oTrainer.train(this.aadInputs, this.aiIDs, NeuralNetwork.DEFAULT_TRAINING_CONSTANT, EPOCHS, MIN_ERROR).size();
+
+        for (int iEpoch = 0; iEpoch < iEpochs; iEpoch++) {
+            for (int s = 0; s < SAMPLES; s++) {
+                this.oNeuralNetwork.train(this.aadInputs[s], this.aiIDs[s], NeuralNetwork.DEFAULT_TRAINING_CONSTANT);
+                this.oNeuralNetwork.commit();
+            }
+        }
+
+        DenseNeuralNetworkTest.assertSameModel(this.oNeuralNetwork.getModel(), oModel);
+    }
+
+    /**
+     * Mini-batches give the same net on one thread and on several.
+     *
+     * @throws Exception
+     */
+    public void testMiniBatchIndependentOfThreads()
+            throws Exception {
+        int[] aiBatchSizes = {3, 4, SAMPLES};
+
+        for (int b = 0; b < aiBatchSizes.length; b++) {
+            NeuralNetworkModel oSingle = train(aiBatchSizes[b], 1);
+            NeuralNetworkModel oParallel = train(aiBatchSizes[b], 3);
+
+            DenseNeuralNetworkTest.assertSameModel(oSingle, oParallel);
+        }
+    }
+
+    /**
+     * Mini-batch training does change the weights, and differently
+     * from per-sample training.
+     *
+     * @throws Exception
+     */
+    public void testMiniBatchUpdatesWeights()
+            throws Exception {
+        double[] adInitial = this.oNeuralNetwork.getModel().getWeights()[1];
+        double[] adPerSample = train(1, 1).getWeights()[1];
+        double[] adMiniBatch = train(4, 1).getWeights()[1];
+
+        assertTrue(maxDifference(adInitial, adMiniBatch) > 0.0);
+        assertTrue(maxDifference(adPerSample, adMiniBatch) > 0.0);
+    }
+
+    /**
+     * Every epoch is recorded, in order, over all the samples,
+     * until the error gets to the minimum or the epochs run out.
+     *
+     * @throws Exception
+     */
+    public void testEpochStatistics()
+            throws Exception {
+        NeuralNetworkTrainer oTrainer = new NeuralNetworkTrainer(this.oNeuralNetwork.getModel());
+        oTrainer.setBatchSize(5);
+        oTrainer.setThreads(2);
+
+        Vector oStatistics = oTrainer.train(this.aadInputs, this.aiIDs, NeuralNetwork.DEFAULT_TRAINING_CONSTANT, EPOCHS, MIN_ERROR);
+
+        assertSame(oStatistics, oTrainer.getEpochStatistics());
+        assertTrue(oStatistics.size() >= 1 && oStatistics.size() <= EPOCHS);
+
+        for (int i = 0; i < oStatistics.size(); i++) {
+            EpochStatistics oEpoch = (EpochStatistics) oStatistics.get(i);
+
+            assertEquals(i + 1, oEpoch.getEpoch());
+            assertEquals(SAMPLES, oEpoch.getSamples());
+            assertEquals(oEpoch.getError() <= MIN_ERROR, oEpoch.isConverged());
+
+            // Only the last epoch may have converged
+            assertTrue(!oEpoch.isConverged() || i == oStatistics.size() - 1);
+        }
+    }
+
+    /**
+     * Invalid settings are rejected.
+     *
+     * @throws Exception
+     */
+    public void testInvalidSettings()
+            throws Exception {
+        NeuralNetworkTrainer oTrainer = new NeuralNetworkTrainer(this.oNeuralNetwork.getModel());
+
+        try {
+            oTrainer.setBatchSize(0);
+            fail("A batch size of 0 must be rejected");
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+
+        try {
+            oTrainer.setThreads(0);
+            fail("0 threads must be rejected");
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+    }
+
+    /**
+     * Trains a copy of the initial net.
+     *
+     * @param piBatchSize batch size
+     * @param piThreads   thread count
+     * @return the trained net
+     * @throws Exception
+     */
+    private NeuralNetworkModel train(int piBatchSize, int piThreads)
+            throws Exception {
+        NeuralNetworkModel oModel = this.oNeuralNetwork.getModel();
+        NeuralNetworkTrainer oTrainer = new NeuralNetworkTrainer(oModel);
+
+        oTrainer.setBatchSize(piBatchSize);
+        oTrainer.setThreads(piThreads);
+        oTrainer.train(this.aadInputs, this.aiIDs, NeuralNetwork.DEFAULT_TRAINING_CONSTANT, EPOCHS, MIN_ERROR);
+
+        return oModel;
+    }
+
+    /**
+     * Computes the largest difference between the elements of two arrays.
+     *
+     * @param padArray1 first array
+     * @param padArray2 second array
+     * @return the difference
+     */
+    private static double maxDifference(double[] padArray1, double[] padArray2) {
+        double dMax = 0.0;
+
+        for (int i = 0; i < padArray1.length; i++) {
+            dMax = Math.max(dMax, Math.abs(padArray1[i] - padArray2[i]));
+        }
+
+        return dMax;
+    }
+}
+
+// EOF
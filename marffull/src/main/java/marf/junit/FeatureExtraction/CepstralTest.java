@@ -0,0 +1,285 @@
+package marf.junit.FeatureExtraction;
+
+import java.util.Vector;
+
+import junit.framework.TestCase;
+
+import marf.FeatureExtraction.Cepstral.Cepstral;
+import marf.FeatureExtraction.Cepstral.MelFilterBank;
+import marf.MARF;
+import marf.Preprocessing.Dummy.Raw;
+import marf.Storage.ModuleParams;
+import marf.Storage.Sample;
+import marf.Storage.SampleLoader;
+
+
+/**
+ * <p>Cepstral (MFCC) unit tests: the coefficients of a synthetic tone
+ * must be those computed directly, as the DCT of the logarithm of the
+ * mel filter energies of a plain DFT of every frame.</p>
+ * <p>
+ * $Id$
+ *
+ * @author The MARF Research and Development Group
+ * @since 0.3.0.6
+ */
+public class CepstralTest
+        extends TestCase {
+    /**
+     * Sample lengths to test with: shorter than a window, a whole
+     * window, and windows and a bit, the last frame padded.
+     */
+    private static final int[] SAMPLE_LENGTHS = {100, 256, 1000};
+
+    /**
+     * Module parameters in effect before the test.
+     */
+    private ModuleParams oOldModuleParams;
+
+    /**
+     * @param args
+     */
+    public static void main(String[] args) {
+        //junit.textui.TestRunner.run(CepstralTest.class);
+    }
+
+    /**
+     * @param name
+     */
+    public CepstralTest(String name) {
+        super(name);
+    }
+
+    protected void setUp()
+            throws Exception {
+        super.setUp();
+        this.oOldModuleParams = MARF.getModuleParams();
+    }
+
+    protected void tearDown()
+            throws Exception {
+        MARF.setModuleParams(this.oOldModuleParams);
+        super.tearDown();
+    }
+
+    /**
+     * The default configuration.
+     *
+     * @throws Exception
+     */
+    public void testDefaultMatchesDirect()
+            throws Exception {
+        MARF.setModuleParams(null);
+
+        check(Cepstral.DEFAULT_WINDOW_SIZE, Cepstral.DEFAULT_COEFFICIENTS, Cepstral.DEFAULT_FILTERS);
+    }
+
+    /**
+     * A configuration set through the module parameters.
+     *
+     * @throws Exception
+     */
+    public void testParamsMatchDirect()
+            throws Exception {
+        Vector oParams = new Vector();
+        oParams.add(Integer.valueOf(128));
+        oParams.add(Integer.valueOf(8));
+        oParams.add(Integer.valueOf(20));
+
+        ModuleParams oModuleParams = new ModuleParams();
+        oModuleParams.setFeatureExtractionParams(oParams);
+        MARF.setModuleParams(oModuleParams);
+
+        check(128, 8, 20);
+    }
+
+    /**
+     * A silent frame has the floor energy in every filter.
+     *
+     * @throws Exception
+     */
+    public void testSilence()
+            throws Exception {
+        MARF.setModuleParams(null);
+
+        Cepstral oCepstral = new Cepstral(new Raw(new Sample(new double[Cepstral.DEFAULT_WINDOW_SIZE])));
+        assertTrue(oCepstral.extractFeatures());
+
+        double[] adFeatures = oCepstral.getFeaturesArray();
+
+        assertEquals(Math.log(MelFilterBank.MIN_ENERGY) * Math.sqrt(Cepstral.DEFAULT_FILTERS), adFeatures[0], 1e-9);
+
+        for (int i = 1; i < adFeatures.length; i++) {
+            assertEquals(0.0, adFeatures[i], 1e-9);
+        }
+    }
+
+    /**
+     * Compares the module to the direct computation for a tone of
+     * each length.
+     *
+     * @param piWindowSize   window size
+     * @param piCoefficients number of coefficients
+     * @param piFilters      number of filters
+     * @throws Exception
+     */
+    private static void check(int piWindowSize, int piCoefficients, int piFilters)
+            throws Exception {
+        for (int l = 0; l < SAMPLE_LENGTHS.length; l++) {
+            double[] adSample = makeTone(SAMPLE_LENGTHS[l]);
+
+            Cepstral oCepstral = new Cepstral(new Raw(new Sample(adSample.clone())));
+            assertTrue(oCepstral.extractFeatures());
+
+            double[] adExpected = mfcc(adSample, piWindowSize, piCoefficients, piFilters);
+            double[] adActual = oCepstral.getFeaturesArray();
+
+            assertEquals(piCoefficients, adActual.length);
+
+            for (int i = 0; i < piCoefficients; i++) {
+                assertEquals
+                        (
+                                "length " + SAMPLE_LENGTHS[l] + ", coefficient " + i,
+                                adExpected[i], adActual[i], 1e-9 * Math.max(1.0, Math.abs(adExpected[i]))
+                        );
+            }
+        }
+    }
+
+    /**
+     * Computes the MFCC directly: half-overlapping Hamming-windowed frames,
+     * the last one zero-padded, a plain DFT of each, triangular filters of
+     * unit area between mel-equidistant boundaries, the logarithm of their
+     * energies, an orthonormal DCT-II, and the average over the frames.
+     *
+     * @param padSample      the sample
+     * @param piWindowSize   window size
+     * @param piCoefficients number of coefficients
+     * @param piFilters      number of filters
+     * @return the coefficients
+     */
+    private static double[] mfcc(double[] padSample, int piWindowSize, int piCoefficients, int piFilters) {
+        double dRate = Math.round(SampleLoader.DEFAULT_FREQUENCY);
+        int iBins = piWindowSize / 2 + 1;
+
+        // Filter boundaries in Hz
+        double dMinMel = mel(MelFilterBank.MIN_FREQUENCY);
+        double dDeltaMel = (mel(dRate / 2) - dMinMel) / (piFilters + 1);
+        double[] adBoundaries = new double[piFilters + 2];
+
+        for (int i = 0; i < adBoundaries.length; i++) {
+            adBoundaries[i] = 700.0 * (Math.pow(10.0, (dMinMel + i * dDeltaMel) / 2595.0) - 1.0);
+        }
+
+        adBoundaries[0] = MelFilterBank.MIN_FREQUENCY;
+        adBoundaries[piFilters + 1] = dRate / 2;
+
+        double[] adFeatures = new double[piCoefficients];
+        int iFrames = 0;
+
+        for (int iStart = 0; iStart < padSample.length; iStart += piWindowSize / 2) {
+            double[] adFrame = new double[piWindowSize];
+
+            for (int n = 0; n < piWindowSize && iStart + n < padSample.length; n++) {
+                adFrame[n] = padSample[iStart + n] * (0.54 - 0.46 * Math.cos(2 * Math.PI * n / (piWindowSize - 1)));
+            }
+
+            double[] adLogEnergies = new double[piFilters];
+
+            for (int f = 0; f < piFilters; f++) {
+                double dStart = adBoundaries[f];
+                double dCenter = adBoundaries[f + 1];
+                double dEnd = adBoundaries[f + 2];
+                double dEnergy = 0.0;
+
+                for (int k = 0; k < iBins; k++) {
+                    double dFrequency = k * dRate / piWindowSize;
+
+                    if (dFrequency < dStart || dFrequency > dEnd) {
+                        continue;
+                    }
+
+                    double dWeight = dFrequency < dCenter ?
+                            2.0 / (dEnd - dStart) * (dFrequency - dStart) / (dCenter - dStart) :
+                            2.0 / (dEnd - dStart) * (dEnd - dFrequency) / (dEnd - dCenter);
+
+                    dEnergy += dWeight * power(adFrame, k);
+                }
+
+                adLogEnergies[f] = Math.log(Math.max(dEnergy, MelFilterBank.MIN_ENERGY));
+            }
+
+            for (int i = 0; i < piCoefficients; i++) {
+                double dSum = 0.0;
+
+                for (int j = 0; j < piFilters; j++) {
+                    dSum += Math.cos(Math.PI * i * (j + 0.5) / piFilters) * adLogEnergies[j];
+                }
+
+                adFeatures[i] += Math.sqrt((i == 0 ? 1.0 : 2.0) / piFilters) * dSum;
+            }
+
+            iFrames++;
+
+            if (iStart + piWindowSize >= padSample.length) {
+                break;
+            }
+        }
+
+        for (int i = 0; i < piCoefficients; i++) {
+            adFeatures[i] /= iFrames;
+        }
+
+        return adFeatures;
+    }
+
+    /**
+     * Power of a DFT bin, summed directly.
+     *
+     * @param padFrame the frame
+     * @param piBin    the bin
+     * @return squared magnitude of the bin
+     */
+    private static double power(double[] padFrame, int piBin) {
+        double dReal = 0.0;
+        double dImag = 0.0;
+
+        for (int n = 0; n < padFrame.length; n++) {
+            double dAngle = 2 * Math.PI * piBin * n / padFrame.length;
+            dReal += padFrame[n] * Math.cos(dAngle);
+            dImag -= padFrame[n] * Math.sin(dAngle);
+        }
+
+        return dReal * dReal + dImag * dImag;
+    }
+
+    /**
+     * Mel frequency of a linear frequency.
+     *
+     * @param pdFrequency frequency in Hz
+     * @return frequency in mels
+     */
+    private static double mel(double pdFrequency) {
+        return 2595.0 * Math.log10(1.0 + pdFrequency / 700.0);
+    }
+
+    /**
+     * Makes a tone of 440 Hz with two harmonics.
+     *
+     * @param piLength sample length
+     * @return the sample
+     */
+    private static double[] makeTone(int piLength) {
+        double dRate = Math.round(SampleLoader.DEFAULT_FREQUENCY);
+        double[] adSample = new double[piLength];
+
+        for (int i = 0; i < piLength; i++) {
+            double dPhase = 2 * Math.PI * 440.0 * i / dRate;
+            adSample[i] = 0.5 * Math.sin(dPhase) + 0.25 * Math.sin(2 * dPhase) + 0.1 * Math.sin(3 * dPhase);
+        }
+
+        return adSample;
+    }
+}
+
+// EOF
@@ -0,0 +1,228 @@
+package marf.junit.FeatureExtraction;
+
+import junit.framework.TestCase;
+
+import marf.FeatureExtraction.F0.F0;
+import marf.MARF;
+import marf.Preprocessing.Dummy.Raw;
+import marf.Storage.ModuleParams;
+import marf.Storage.Sample;
+import marf.Storage.SampleLoader;
+
+
+/**
+ * <p>F0 (YIN) unit tests: the pitch of harmonic signals of a known
+ * fundamental must be recovered, and silence must be unvoiced.</p>
+ * <p>
+ * $Id$
+ *
+ * @author The MARF Research and Development Group
+ * @since 0.3.0.6
+ */
+public class F0Test
+        extends TestCase {
+    /**
+     * Sampling frequency the module assumes.
+     */
+    private static final int RATE = Math.round(SampleLoader.DEFAULT_FREQUENCY);
+
+    /**
+     * Fundamentals to recover, off the integer lags too.
+     */
+    private static final double[] FUNDAMENTALS = {75.0, 110.0, 147.3, 220.0, 311.1, 390.0};
+
+    /**
+     * Relative error allowed in the recovered fundamental.
+     */
+    private static final double TOLERANCE = 0.005;
+
+    /**
+     * Module parameters in effect before the test.
+     */
+    private ModuleParams oOldModuleParams;
+
+    /**
+     * @param args
+     */
+    public static void main(String[] args) {
+        //junit.textui.TestRunner.run(F0Test.class);
+    }
+
+    /**
+     * @param name
+     */
+    public F0Test(String name) {
+        super(name);
+    }
+
+    protected void setUp()
+            throws Exception {
+        super.setUp();
+        this.oOldModuleParams = MARF.getModuleParams();
+        MARF.setModuleParams(null);
+    }
+
+    protected void tearDown()
+            throws Exception {
+        MARF.setModuleParams(this.oOldModuleParams);
+        super.tearDown();
+    }
+
+    /**
+     * Every frame of a harmonic signal is voiced at its fundamental,
+     * the harmonics notwithstanding.
+     *
+     * @throws Exception
+     */
+    public void testHarmonicSignal()
+            throws Exception {
+        double[] adAmplitudes = {1.0, 0.6, 0.4, 0.3};
+
+        for (int i = 0; i < FUNDAMENTALS.length; i++) {
+            F0 oF0 = extract(harmonics(FUNDAMENTALS[i], adAmplitudes, RATE, 0.3));
+            String strMessage = "F0 " + FUNDAMENTALS[i];
+
+            double[] adFeatures = oF0.getFeaturesArray();
+
+            assertEquals(F0.FEATURES, adFeatures.length);
+            assertEquals(strMessage, FUNDAMENTALS[i], adFeatures[0], FUNDAMENTALS[i] * TOLERANCE);
+            assertEquals(strMessage, FUNDAMENTALS[i], adFeatures[2], FUNDAMENTALS[i] * TOLERANCE);
+            assertEquals(strMessage, FUNDAMENTALS[i], adFeatures[3], FUNDAMENTALS[i] * TOLERANCE);
+            assertEquals(strMessage, FUNDAMENTALS[i], adFeatures[4], FUNDAMENTALS[i] * TOLERANCE);
+            assertEquals(strMessage, 1.0, adFeatures[5], 0.0);
+        }
+    }
+
+    /**
+     * A second harmonic stronger than the fundamental doesn't
+     * make the octave above be taken for it.
+     *
+     * @throws Exception
+     */
+    public void testStrongSecondHarmonic()
+            throws Exception {
+        double[] adAmplitudes = {0.5, 1.0, 0.5};
+
+        for (int i = 0; i < FUNDAMENTALS.length / 2; i++) {
+            F0 oF0 = extract(harmonics(FUNDAMENTALS[i], adAmplitudes, RATE / 2, 0.0));
+
+            assertEquals("F0 " + FUNDAMENTALS[i], FUNDAMENTALS[i], oF0.getFeaturesArray()[4], FUNDAMENTALS[i] * TOLERANCE);
+        }
+    }
+
+    /**
+     * Only the frames within the tone between two silent
+     * stretches are voiced.
+     *
+     * @throws Exception
+     */
+    public void testToneBetweenSilences()
+            throws Exception {
+        double dFundamental = 180.0;
+        double[] adTone = harmonics(dFundamental, new double[]{1.0, 0.5}, RATE / 2, 0.0);
+        double[] adSample = new double[RATE / 2 + adTone.length + RATE / 2];
+
+        System.arraycopy(adTone, 0, adSample, RATE / 2, adTone.length);
+
+        F0 oF0 = extract(adSample);
+        double[] adContour = oF0.getPitchContour();
+        int iHop = oF0.getHopSize();
+        int iFrameSize = 2 * ((RATE + F0.DEFAULT_MIN_FREQUENCY - 1) / F0.DEFAULT_MIN_FREQUENCY + 1);
+
+        assertTrue(adContour.length > 0);
+
+        for (int i = 0; i < adContour.length; i++) {
+            int iStart = i * iHop;
+            int iEnd = iStart + iFrameSize;
+
+            if (iEnd <= RATE / 2 || iStart >= RATE / 2 + adTone.length) {
+                assertEquals("frame " + i, 0.0, adContour[i], 0.0);
+            } else if (iStart >= RATE / 2 && iEnd <= RATE / 2 + adTone.length) {
+                assertEquals("frame " + i, dFundamental, adContour[i], dFundamental * TOLERANCE);
+            }
+        }
+
+        double dVoiced = oF0.getFeaturesArray()[5];
+
+        assertTrue("voiced " + dVoiced, dVoiced > 0.2 && dVoiced < 0.6);
+    }
+
+    /**
+     * Silence has no voiced frames, and all features are 0.
+     *
+     * @throws Exception
+     */
+    public void testSilence()
+            throws Exception {
+        double[] adFeatures = extract(new double[RATE]).getFeaturesArray();
+
+        assertEquals(F0.FEATURES, adFeatures.length);
+
+        for (int i = 0; i < adFeatures.length; i++) {
+            assertEquals(0.0, adFeatures[i], 0.0);
+        }
+    }
+
+    /**
+     * Invalid frequency ranges are rejected.
+     *
+     * @throws Exception
+     */
+    public void testInvalidRange()
+            throws Exception {
+        F0 oF0 = new F0(new Raw(new Sample(new double[1])));
+
+        try {
+            oF0.setFrequencyRange(200, 100);
+            fail("An empty range must be rejected");
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+
+        try {
+            oF0.setFrequencyRange(60, RATE / 2);
+            fail("A range up to the Nyquist frequency must be rejected");
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+    }
+
+    /**
+     * Extracts the pitch of a sample.
+     *
+     * @param padSample the sample
+     * @return the module, after extraction
+     * @throws Exception
+     */
+    private static F0 extract(double[] padSample)
+            throws Exception {
+        F0 oF0 = new F0(new Raw(new Sample(padSample)));
+        assertTrue(oF0.extractFeatures());
+        return oF0;
+    }
+
+    /**
+     * Makes a harmonic signal.
+     *
+     * @param pdFundamental fundamental frequency in Hz
+     * @param padAmplitudes amplitude of the fundamental and of each harmonic after it
+     * @param piLength      sample length
+     * @param pdPhaseStep   phase added to every next harmonic
+     * @return the sample
+     */
+    private static double[] harmonics(double pdFundamental, double[] padAmplitudes, int piLength, double pdPhaseStep) {
+        double[] adSample = new double[piLength];
+
+        for (int i = 0; i < piLength; i++) {
+            double dPhase = 2 * Math.PI * pdFundamental * i / RATE;
+
+            for (int h = 0; h < padAmplitudes.length; h++) {
+                adSample[i] += 0.2 * padAmplitudes[h] * Math.sin((h + 1) * dPhase + h * pdPhaseStep);
+            }
+        }
+
+        return adSample;
+    }
+}
+
+// EOF
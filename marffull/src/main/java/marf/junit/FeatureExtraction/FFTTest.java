@@ -0,0 +1,174 @@
+package marf.junit.FeatureExtraction;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import marf.FeatureExtraction.FFT.FFT;
+import marf.Preprocessing.Dummy.Dummy;
+import marf.Preprocessing.Dummy.Raw;
+import marf.Storage.Sample;
+
+
+/**
+ * <p>FFT feature extraction unit tests.</p>
+ * <p>
+ * $Id$
+ *
+ * @author The MARF Research and Development Group
+ * @since 0.3.0.6
+ */
+public class FFTTest
+        extends TestCase {
+    /**
+     * Sample lengths to test with: shorter than a chunk, whole
+     * numbers of chunks, and chunks and a bit.
+     */
+    private static final int[] SAMPLE_LENGTHS = {1, 100, 1024, 2048, 3072, 5000, 8191, 16384};
+
+    /**
+     * Stream chunk sizes to test with.
+     */
+    private static final int[] STREAM_CHUNK_SIZES = {1, 333, 1024, 8192};
+
+    /**
+     * @param args
+     */
+    public static void main(String[] args) {
+        //junit.textui.TestRunner.run(FFTTest.class);
+    }
+
+    /**
+     * @param name
+     */
+    public FFTTest(String name) {
+        super(name);
+    }
+
+    protected void setUp()
+            throws Exception {
+        super.setUp();
+    }
+
+    protected void tearDown()
+            throws Exception {
+        super.tearDown();
+    }
+
+    /**
+     * Streamed raw features must be those of the whole sample.
+     *
+     * @throws Exception
+     */
+    public void testStreamedRawMatchesBatch()
+            throws Exception {
+        for (int l = 0; l < SAMPLE_LENGTHS.length; l++) {
+            double[] adSample = makeSample(SAMPLE_LENGTHS[l], l);
+
+            FFT oBatch = new FFT(new Raw(new Sample(adSample.clone())));
+            oBatch.extractFeatures();
+
+            for (int c = 0; c < STREAM_CHUNK_SIZES.length; c++) {
+                double[] adStreamed = stream(new Raw(), adSample, STREAM_CHUNK_SIZES[c]);
+                assertClose("length " + SAMPLE_LENGTHS[l] + ", chunk " + STREAM_CHUNK_SIZES[c], oBatch.getFeaturesArray(), adStreamed);
+            }
+        }
+    }
+
+    /**
+     * Streamed normalized features must be those of the whole sample
+     * normalized first.
+     *
+     * @throws Exception
+     */
+    public void testStreamedNormalizedMatchesBatch()
+            throws Exception {
+        for (int l = 0; l < SAMPLE_LENGTHS.length; l++) {
+            double[] adSample = makeSample(SAMPLE_LENGTHS[l], l);
+
+            // A loud last sample, which normalize() leaves out
+            adSample[adSample.length - 1] = 0.99;
+
+            Dummy oDummy = new Dummy(new Sample(adSample.clone()));
+            oDummy.preprocess();
+
+            FFT oBatch = new FFT(oDummy);
+            oBatch.extractFeatures();
+
+            for (int c = 0; c < STREAM_CHUNK_SIZES.length; c++) {
+                double[] adStreamed = stream(new Dummy(), adSample, STREAM_CHUNK_SIZES[c]);
+                assertClose("length " + SAMPLE_LENGTHS[l] + ", chunk " + STREAM_CHUNK_SIZES[c], oBatch.getFeaturesArray(), adStreamed);
+            }
+        }
+    }
+
+    /**
+     * Streams a sample as the streamed pipeline does.
+     *
+     * @param poPreprocessing streaming preprocessing module
+     * @param padSample       the sample
+     * @param piChunkSize     stream chunk size
+     * @return the features
+     * @throws Exception
+     */
+    private static double[] stream(Dummy poPreprocessing, double[] padSample, int piChunkSize)
+            throws Exception {
+        FFT oFFT = new FFT(poPreprocessing);
+        double[] adChunk = new double[piChunkSize];
+
+        poPreprocessing.beginStream();
+        oFFT.beginStream();
+
+        for (int iOffset = 0; iOffset < padSample.length; iOffset += piChunkSize) {
+            int iLength = Math.min(piChunkSize, padSample.length - iOffset);
+            System.arraycopy(padSample, iOffset, adChunk, 0, iLength);
+            oFFT.extractChunk(adChunk, poPreprocessing.preprocessChunk(adChunk, iLength));
+        }
+
+        oFFT.extractChunk(adChunk, poPreprocessing.preprocessChunk(adChunk, 0));
+        oFFT.endStream(poPreprocessing.endStream());
+
+        return oFFT.getFeaturesArray();
+    }
+
+    /**
+     * Makes a noisy two-tone sample.
+     *
+     * @param piLength sample length
+     * @param plSeed   noise seed
+     * @return the sample
+     */
+    private static double[] makeSample(int piLength, long plSeed) {
+        Random oRandom = new Random(plSeed);
+        double[] adSample = new double[piLength];
+
+        for (int i = 0; i < piLength; i++) {
+            adSample[i] = 0.4 * Math.sin(i * 0.3) + 0.2 * Math.sin(i * 0.05) + 0.05 * oRandom.nextGaussian();
+        }
+
+        return adSample;
+    }
+
+    /**
+     * Asserts that two feature vectors are the same to rounding.
+     *
+     * @param pstrMessage message on failure
+     * @param padExpected expected features
+     * @param padActual   actual features
+     */
+    private static void assertClose(String pstrMessage, double[] padExpected, double[] padActual) {
+        assertEquals(pstrMessage, padExpected.length, padActual.length);
+
+        double dMax = 0;
+
+        for (int i = 0; i < padExpected.length; i++) {
+            dMax = Math.max(dMax, Math.abs(padExpected[i]));
+        }
+
+        for (int i = 0; i < padExpected.length; i++) {
+            assertEquals(pstrMessage + ", feature " + i, padExpected[i], padActual[i], 1e-12 * dMax);
+        }
+    }
+}
+
+// EOF
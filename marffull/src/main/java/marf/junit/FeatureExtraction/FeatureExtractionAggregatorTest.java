@@ -0,0 +1,224 @@
+package marf.junit.FeatureExtraction;
+
+import java.util.Random;
+import java.util.Vector;
+
+import junit.framework.TestCase;
+
+import marf.FeatureExtraction.FeatureExtractionAggregator;
+import marf.FeatureExtraction.FeatureExtractionFactory;
+import marf.FeatureExtraction.IFeatureExtraction;
+import marf.MARF;
+import marf.Preprocessing.Dummy.Raw;
+import marf.Storage.ModuleParams;
+import marf.Storage.Sample;
+
+
+/**
+ * <p>FeatureExtractionAggregator unit tests: the aggregated features must
+ * be bit-identical with the frames shared or not, and to those of every
+ * module extracting on its own.</p>
+ * <p>
+ * $Id$
+ *
+ * @author The MARF Research and Development Group
+ * @since 0.3.0.6
+ */
+public class FeatureExtractionAggregatorTest
+        extends TestCase {
+    /**
+     * Modules to aggregate, LPC twice, so that two of them
+     * ask for the same frames.
+     */
+    private static final int[] MODULES =
+            {
+                    MARF.FFT,
+                    MARF.LPC,
+                    MARF.MIN_MAX_AMPLITUDES,
+                    MARF.CEPSTRAL,
+                    MARF.LPC
+            };
+
+    /**
+     * Sample lengths to test with: shorter than a frame, whole
+     * numbers of frames, and frames and a bit.
+     */
+    private static final int[] SAMPLE_LENGTHS = {100, 1024, 4096, 5000, 16001};
+
+    /**
+     * Module parameters in effect before the test.
+     */
+    private ModuleParams oOldModuleParams;
+
+    /**
+     * @param args
+     */
+    public static void main(String[] args) {
+        //junit.textui.TestRunner.run(FeatureExtractionAggregatorTest.class);
+    }
+
+    /**
+     * @param name
+     */
+    public FeatureExtractionAggregatorTest(String name) {
+        super(name);
+    }
+
+    protected void setUp()
+            throws Exception {
+        super.setUp();
+        this.oOldModuleParams = MARF.getModuleParams();
+    }
+
+    protected void tearDown()
+            throws Exception {
+        MARF.setModuleParams(this.oOldModuleParams);
+        super.tearDown();
+    }
+
+    /**
+     * Shared frames, cloned samples, and the modules on their
+     * own give the very same features.
+     *
+     * @throws Exception
+     */
+    public void testSharedFramesBitIdentical()
+            throws Exception {
+        for (int l = 0; l < SAMPLE_LENGTHS.length; l++) {
+            double[] adSample = makeSample(SAMPLE_LENGTHS[l], l);
+            String strMessage = "length " + SAMPLE_LENGTHS[l];
+
+            double[] adShared = aggregate(adSample, true);
+            double[] adCloned = aggregate(adSample, false);
+            double[] adAlone = extractAlone(adSample);
+
+            assertBitIdentical(strMessage + ", cloned", adCloned, adShared);
+            assertBitIdentical(strMessage + ", alone", adAlone, adShared);
+        }
+    }
+
+    /**
+     * The aggregator goes back to the mode it was in.
+     *
+     * @throws Exception
+     */
+    public void testEnableSharedFrames()
+            throws Exception {
+        FeatureExtractionAggregator oAggregator = new FeatureExtractionAggregator(new Raw(new Sample(new double[1])));
+
+        assertTrue(oAggregator.isSharedFrames());
+        assertTrue(oAggregator.enableSharedFrames(false));
+        assertFalse(oAggregator.isSharedFrames());
+        assertFalse(oAggregator.enableSharedFrames(true));
+        assertTrue(oAggregator.isSharedFrames());
+    }
+
+    /**
+     * Extracts the features of a sample with the aggregator.
+     *
+     * @param padSample     the sample
+     * @param pbSharedFrames whether to share the frames
+     * @return the features
+     * @throws Exception
+     */
+    private static double[] aggregate(double[] padSample, boolean pbSharedFrames)
+            throws Exception {
+        Vector oParams = new Vector();
+
+        for (int i = 0; i < MODULES.length; i++) {
+            oParams.add(Integer.valueOf(MODULES[i]));
+            oParams.add(null);
+        }
+
+        ModuleParams oModuleParams = new ModuleParams();
+        oModuleParams.setFeatureExtractionParams(oParams);
+        MARF.setModuleParams(oModuleParams);
+
+        FeatureExtractionAggregator oAggregator = new FeatureExtractionAggregator(new Raw(new Sample(padSample.clone())));
+        oAggregator.enableSharedFrames(pbSharedFrames);
+
+        assertTrue(oAggregator.extractFeatures());
+
+        // Restored after
+        assertSame(oParams, MARF.getModuleParams().getFeatureExtractionParams());
+
+        return oAggregator.getFeaturesArray();
+    }
+
+    /**
+     * Extracts the features of a sample with every module on its own,
+     * as the aggregator would, and concatenates them.
+     *
+     * @param padSample the sample
+     * @return the features
+     * @throws Exception
+     */
+    private static double[] extractAlone(double[] padSample)
+            throws Exception {
+        // What the aggregated modules see
+        ModuleParams oModuleParams = new ModuleParams();
+        oModuleParams.setFeatureExtractionParams(new Vector());
+        MARF.setModuleParams(oModuleParams);
+
+        double[][] aadFeatures = new double[MODULES.length][];
+        int iLength = 0;
+
+        for (int i = 0; i < MODULES.length; i++) {
+            IFeatureExtraction oModule = FeatureExtractionFactory.create(MODULES[i], new Raw(new Sample(padSample.clone())));
+
+            oModule.extractFeatures();
+            aadFeatures[i] = oModule.getFeaturesArray();
+            iLength += aadFeatures[i].length;
+        }
+
+        double[] adFeatures = new double[iLength];
+        int iOffset = 0;
+
+        for (int i = 0; i < MODULES.length; i++) {
+            System.arraycopy(aadFeatures[i], 0, adFeatures, iOffset, aadFeatures[i].length);
+            iOffset += aadFeatures[i].length;
+        }
+
+        return adFeatures;
+    }
+
+    /**
+     * Makes a noisy two-tone sample.
+     *
+     * @param piLength sample length
+     * @param plSeed   noise seed
+     * @return the sample
+     */
+    private static double[] makeSample(int piLength, long plSeed) {
+        Random oRandom = new Random(plSeed);
+        double[] adSample = new double[piLength];
+
+        for (int i = 0; i < piLength; i++) {
+            adSample[i] = 0.4 * Math.sin(i * 0.3) + 0.2 * Math.sin(i * 0.05) + 0.05 * oRandom.nextGaussian();
+        }
+
+        return adSample;
+    }
+
+    /**
+     * Asserts that two feature vectors are the same to the bit.
+     *
+     * @param pstrMessage message on failure
+     * @param padExpected expected features
+     * @param padActual   actual features
+     */
+    private static void assertBitIdentical(String pstrMessage, double[] padExpected, double[] padActual) {
+        assertEquals(pstrMessage, padExpected.length, padActual.length);
+
+        for (int i = 0; i < padExpected.length; i++) {
+            assertEquals
+                    (
+                            pstrMessage + ", feature " + i,
+                            Double.doubleToLongBits(padExpected[i]),
+                            Double.doubleToLongBits(padActual[i])
+                    );
+        }
+    }
+}
+
+// EOF
@@ -0,0 +1,288 @@
+package marf.junit.Preprocessing;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import marf.FeatureExtraction.Segmentation.Segmentation;
+import marf.Preprocessing.Dummy.Raw;
+import marf.Preprocessing.Endpoint.Endpoint;
+import marf.Preprocessing.SpeechSegmenter;
+import marf.Storage.Sample;
+
+
+/**
+ * <p>SpeechSegmenter unit tests: speech placed between silent stretches
+ * must be found at the expected index ranges, widened by the hangover,
+ * and cut out or gated accordingly by the preprocessing.</p>
+ * <p>
+ * $Id$
+ *
+ * @author The MARF Research and Development Group
+ * @since 0.3.0.6
+ */
+public class SpeechSegmenterTest
+        extends TestCase {
+    /**
+     * Frame size of the segmenter.
+     */
+    private static final int FRAME = SpeechSegmenter.DEFAULT_FRAME_SIZE;
+
+    /**
+     * Samples the hangover adds on either side of a segment.
+     */
+    private static final int HANGOVER = SpeechSegmenter.HANGOVER_FRAMES * FRAME;
+
+    /**
+     * Stretches of the test sample in frames, alternating
+     * silence and speech, silence first.
+     */
+    private static final int[] STRETCHES = {50, 40, 30, 25, 40};
+
+    /**
+     * Sample made of the stretches.
+     */
+    private double[] adSample;
+
+    /**
+     * @param args
+     */
+    public static void main(String[] args) {
+        //junit.textui.TestRunner.run(SpeechSegmenterTest.class);
+    }
+
+    /**
+     * @param name
+     */
+    public SpeechSegmenterTest(String name) {
+        super(name);
+    }
+
+    protected void setUp()
+            throws Exception {
+        super.setUp();
+        this.adSample = makeSample(STRETCHES, new Random(17));
+    }
+
+    protected void tearDown()
+            throws Exception {
+        super.tearDown();
+    }
+
+    /**
+     * Both bursts are found, each widened by the hangover.
+     *
+     * @throws Exception
+     */
+    public void testSpeechBetweenSilences()
+            throws Exception {
+        assertRanges(expectedSegments(), new SpeechSegmenter().segment(this.adSample));
+    }
+
+    /**
+     * Speech running to the very ends of the sample isn't widened past them.
+     *
+     * @throws Exception
+     */
+    public void testSpeechAtTheEnds()
+            throws Exception {
+        double[] adSample = makeSample(new int[]{0, 30, 40, 20}, new Random(5));
+
+        assertRanges
+                (
+                        new int[][]{{0, 30 * FRAME + HANGOVER}, {70 * FRAME - HANGOVER, 90 * FRAME}},
+                        new SpeechSegmenter().segment(adSample)
+                );
+    }
+
+    /**
+     * Bursts closer than twice the hangover make one segment.
+     *
+     * @throws Exception
+     */
+    public void testCloseBurstsMerge()
+            throws Exception {
+        int iGap = 2 * SpeechSegmenter.HANGOVER_FRAMES - 1;
+        double[] adSample = makeSample(new int[]{30, 20, iGap, 20, 30}, new Random(11));
+
+        assertRanges
+                (
+                        new int[][]{{30 * FRAME - HANGOVER, (70 + iGap) * FRAME + HANGOVER}},
+                        new SpeechSegmenter().segment(adSample)
+                );
+    }
+
+    /**
+     * Silence has no speech, a sample with no dynamic range is all
+     * speech, and an empty one has no segments.
+     *
+     * @throws Exception
+     */
+    public void testDegenerateSamples()
+            throws Exception {
+        SpeechSegmenter oSegmenter = new SpeechSegmenter();
+
+        assertEquals(0, oSegmenter.segment(new double[5000]).length);
+        assertEquals(0, oSegmenter.segment(new double[0]).length);
+
+        double[] adTone = makeSample(new int[]{0, 50}, new Random(3));
+
+        assertRanges(new int[][]{{0, adTone.length}}, oSegmenter.segment(adTone));
+    }
+
+    /**
+     * The silence is cut out, leaving the speech segments back to back.
+     *
+     * @throws Exception
+     */
+    public void testRemoveSilence()
+            throws Exception {
+        Endpoint oEndpoint = new Endpoint(new Sample(this.adSample.clone()));
+
+        assertTrue(oEndpoint.removeSilence());
+
+        int[][] aaiSegments = expectedSegments();
+        double[] adRemoved = oEndpoint.getSample().getSampleArray();
+
+        assertEquals(SpeechSegmenter.getLength(aaiSegments), adRemoved.length);
+
+        for (int i = 0, iPos = 0; i < aaiSegments.length; i++) {
+            for (int j = aaiSegments[i][0]; j < aaiSegments[i][1]; j++, iPos++) {
+                assertEquals(this.adSample[j], adRemoved[iPos], 0.0);
+            }
+        }
+
+        // Nothing left to remove
+        assertFalse(new Endpoint(new Sample(adRemoved)).removeSilence());
+    }
+
+    /**
+     * The rest of the sample is gated to 0, the speech left as is.
+     *
+     * @throws Exception
+     */
+    public void testRemoveNoise()
+            throws Exception {
+        Endpoint oEndpoint = new Endpoint(new Sample(this.adSample.clone()));
+
+        assertTrue(oEndpoint.removeNoise());
+
+        int[][] aaiSegments = expectedSegments();
+        double[] adGated = oEndpoint.getSample().getSampleArray();
+
+        assertEquals(this.adSample.length, adGated.length);
+
+        for (int i = 0; i < adGated.length; i++) {
+            boolean bSpeech = false;
+
+            for (int s = 0; s < aaiSegments.length; s++) {
+                bSpeech |= i >= aaiSegments[s][0] && i < aaiSegments[s][1];
+            }
+
+            assertEquals("sample " + i, bSpeech ? this.adSample[i] : 0.0, adGated[i], 0.0);
+        }
+    }
+
+    /**
+     * The segmentation module reports the same segments.
+     *
+     * @throws Exception
+     */
+    public void testSegmentationModule()
+            throws Exception {
+        Segmentation oSegmentation = new Segmentation(new Raw(new Sample(this.adSample.clone())));
+
+        assertTrue(oSegmentation.extractFeatures());
+        assertRanges(expectedSegments(), oSegmentation.getSegments());
+    }
+
+    /**
+     * Invalid frame sizes are rejected.
+     *
+     * @throws Exception
+     */
+    public void testInvalidFrameSize()
+            throws Exception {
+        try {
+            new SpeechSegmenter(0);
+            fail("A frame size of 0 must be rejected");
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+    }
+
+    /**
+     * Computes the expected segments of the test sample.
+     *
+     * @return the speech stretches widened by the hangover
+     */
+    private static int[][] expectedSegments() {
+        int[][] aaiSegments = new int[STRETCHES.length / 2][];
+        int iStart = 0;
+
+        for (int i = 0; i < STRETCHES.length; i++) {
+            int iEnd = iStart + STRETCHES[i] * FRAME;
+
+            if (i % 2 == 1) {
+                aaiSegments[i / 2] = new int[]{iStart - HANGOVER, iEnd + HANGOVER};
+            }
+
+            iStart = iEnd;
+        }
+
+        return aaiSegments;
+    }
+
+    /**
+     * Makes a sample of faint noise with vowel-like harmonic bursts
+     * on the frame boundaries.
+     *
+     * @param paiStretches lengths in frames, alternating silence and speech, silence first
+     * @param poRandom     noise source
+     * @return the sample
+     */
+    private static double[] makeSample(int[] paiStretches, Random poRandom) {
+        int iLength = 0;
+
+        for (int i = 0; i < paiStretches.length; i++) {
+            iLength += paiStretches[i] * FRAME;
+        }
+
+        double[] adSample = new double[iLength];
+        int iStart = 0;
+
+        for (int i = 0; i < paiStretches.length; i++) {
+            int iEnd = iStart + paiStretches[i] * FRAME;
+
+            for (int j = iStart; j < iEnd; j++) {
+                adSample[j] = 1.0E-4 * poRandom.nextGaussian();
+
+                if (i % 2 == 1) {
+                    double dPhase = 2 * Math.PI * 150.0 * (j - iStart) / (FRAME * 50.0);
+                    adSample[j] += 0.3 * Math.sin(dPhase) + 0.15 * Math.sin(2 * dPhase) + 0.05 * Math.sin(3 * dPhase);
+                }
+            }
+
+            iStart = iEnd;
+        }
+
+        return adSample;
+    }
+
+    /**
+     * Asserts that the segments are the expected ones.
+     *
+     * @param paaiExpected expected segments
+     * @param paaiActual   actual segments
+     */
+    private static void assertRanges(int[][] paaiExpected, int[][] paaiActual) {
+        assertEquals("segments", paaiExpected.length, paaiActual.length);
+
+        for (int i = 0; i < paaiExpected.length; i++) {
+            assertEquals("segment " + i + " start", paaiExpected[i][0], paaiActual[i][0]);
+            assertEquals("segment " + i + " end", paaiExpected[i][1], paaiActual[i][1]);
+        }
+    }
+}
+
+// EOF
@@ -0,0 +1,358 @@
+package marf.junit.Stats;
+
+import java.io.File;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import marf.MARF;
+import marf.Stats.ProbabilityTable;
+import marf.Stats.StatisticalEstimators.NgramCorpusTrainer;
+import marf.Stats.StatisticalEstimators.StatisticalEstimator;
+import marf.nlp.util.NLPStreamTokenizer;
+
+
+/**
+ * <p>NgramCorpusTrainer unit tests: counting apart, spilling to disk or
+ * not, must give the table <code>StatisticalEstimator.train()</code>
+ * gives reading the texts one after another.</p>
+ * <p>
+ * $Id$
+ *
+ * @author The MARF Research and Development Group
+ * @since 0.3.0.6
+ */
+public class NgramCorpusTrainerTest
+        extends TestCase {
+    /**
+     * Characters the texts are made of, each a token.
+     */
+    private static final String ALPHABET = "abcdefg ";
+
+    /**
+     * N-gram models to test with.
+     */
+    private static final int[] MODELS =
+            {
+                    MARF.ENgramModels.UNIGRAM,
+                    MARF.ENgramModels.BIGRAM,
+                    MARF.ENgramModels.TRIGRAM
+            };
+
+    /**
+     * N-gram model in effect before the test.
+     */
+    private int iOldNgramModel;
+
+    /**
+     * Scratch directory of the tables and the spilled runs.
+     */
+    private File oDirectory;
+
+    /**
+     * Texts to train on, short ones included.
+     */
+    private String[] astrTexts;
+
+    /**
+     * @param args
+     */
+    public static void main(String[] args) {
+        //junit.textui.TestRunner.run(NgramCorpusTrainerTest.class);
+    }
+
+    /**
+     * @param name
+     */
+    public NgramCorpusTrainerTest(String name) {
+        super(name);
+    }
+
+    protected void setUp()
+            throws Exception {
+        super.setUp();
+
+        this.iOldNgramModel = MARF.NLP.getNgramModel();
+
+        this.oDirectory = File.createTempFile("marf", "ngrams");
+        this.oDirectory.delete();
+        this.oDirectory.mkdir();
+
+        Random oRandom = new Random(23);
+        int[] aiLengths = {500, 1, 0, 2, 137, 3, 1200};
+
+        this.astrTexts = new String[aiLengths.length];
+
+        for (int t = 0; t < aiLengths.length; t++) {
+            StringBuffer oText = new StringBuffer();
+
+            for (int i = 0; i < aiLengths[t]; i++) {
+                // Skewed, so that some n-grams are a lot more frequent
+                oText.append(ALPHABET.charAt((int) (ALPHABET.length() * oRandom.nextDouble() * oRandom.nextDouble())));
+            }
+
+            this.astrTexts[t] = oText.toString();
+        }
+    }
+
+    protected void tearDown()
+            throws Exception {
+        MARF.NLP.setNgramModel(this.iOldNgramModel);
+
+        File[] aoFiles = this.oDirectory.listFiles();
+
+        for (int i = 0; aoFiles != null && i < aoFiles.length; i++) {
+            aoFiles[i].delete();
+        }
+
+        this.oDirectory.delete();
+
+        super.tearDown();
+    }
+
+    /**
+     * Counts kept in memory, in small blocks over a few tasks.
+     *
+     * @throws Exception
+     */
+    public void testInMemoryMatchesSequential()
+            throws Exception {
+        for (int m = 0; m < MODELS.length; m++) {
+            MARF.NLP.setNgramModel(MODELS[m]);
+
+            Trainer oTrainer = new Trainer(new Estimator(this.oDirectory, "corpus" + m));
+            oTrainer.setThreads(2);
+            oTrainer.setBlockSize(5);
+
+            assertTrue(oTrainer.train(readers()));
+            assertEquals(0, oTrainer.getSpillCount());
+
+            assertSameTable(trainSequentially("sequential" + m, 1), oTrainer.getEstimator().getProbabilityTable());
+        }
+    }
+
+    /**
+     * Counts spilled to disk all the time, on one task and on several.
+     * The spilled runs are gone afterwards.
+     *
+     * @throws Exception
+     */
+    public void testSpilledRunsMatchSequential()
+            throws Exception {
+        int[] aiThreads = {1, 3};
+
+        for (int m = 0; m < MODELS.length; m++) {
+            MARF.NLP.setNgramModel(MODELS[m]);
+
+            ProbabilityTable oExpected = trainSequentially("sequential" + m, 1);
+
+            for (int t = 0; t < aiThreads.length; t++) {
+                Trainer oTrainer = new Trainer(new Estimator(this.oDirectory, "corpus" + m + "." + t));
+                oTrainer.setThreads(aiThreads[t]);
+                oTrainer.setBlockSize(16);
+                oTrainer.setMemoryBudget(NgramCorpusTrainer.BYTES_PER_NGRAM * 6L * aiThreads[t]);
+                oTrainer.setSpillDirectory(this.oDirectory);
+
+                assertTrue(oTrainer.train(readers()));
+                assertTrue("model " + MODELS[m] + ", " + aiThreads[t] + " thread(s)", oTrainer.getSpillCount() > 0);
+
+                assertSameTable(oExpected, oTrainer.getEstimator().getProbabilityTable());
+                assertEquals(0, countRuns());
+            }
+        }
+    }
+
+    /**
+     * Training again adds to the stored table, as <code>train()</code> does.
+     *
+     * @throws Exception
+     */
+    public void testRetrainingAddsCounts()
+            throws Exception {
+        MARF.NLP.setNgramModel(MARF.ENgramModels.BIGRAM);
+
+        Trainer oTrainer = new Trainer(new Estimator(this.oDirectory, "corpus"));
+        oTrainer.setMemoryBudget(NgramCorpusTrainer.BYTES_PER_NGRAM * 10L);
+        oTrainer.setSpillDirectory(this.oDirectory);
+
+        assertTrue(oTrainer.train(readers()));
+
+        // A new estimator, restoring the table of the first training
+        oTrainer.setEstimator(new Estimator(this.oDirectory, "corpus"));
+
+        assertTrue(oTrainer.train(readers()));
+
+        assertSameTable(trainSequentially("sequential", 2), oTrainer.getEstimator().getProbabilityTable());
+    }
+
+    /**
+     * Invalid settings are rejected.
+     *
+     * @throws Exception
+     */
+    public void testInvalidSettings()
+            throws Exception {
+        NgramCorpusTrainer oTrainer = new NgramCorpusTrainer(new Estimator(this.oDirectory, "invalid"));
+
+        try {
+            oTrainer.setThreads(-1);
+            fail("A negative thread count must be rejected");
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+
+        try {
+            oTrainer.setBlockSize(0);
+            fail("A block size of 0 must be rejected");
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+
+        try {
+            oTrainer.setMemoryBudget(0);
+            fail("A memory budget of 0 must be rejected");
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+    }
+
+    /**
+     * Trains an estimator with <code>train()</code> on the texts
+     * one after another, a number of times over.
+     *
+     * @param pstrName   name of the table file
+     * @param piPasses   number of times to read the texts
+     * @return the table
+     * @throws Exception
+     */
+    private ProbabilityTable trainSequentially(String pstrName, int piPasses)
+            throws Exception {
+        Estimator oEstimator = new Estimator(this.oDirectory, pstrName);
+
+        for (int p = 0; p < piPasses; p++) {
+            for (int t = 0; t < this.astrTexts.length; t++) {
+                oEstimator.setStreamTokenizer(createTokenizer(new StringReader(this.astrTexts[t])));
+                assertTrue(oEstimator.train());
+            }
+        }
+
+        return oEstimator.getProbabilityTable();
+    }
+
+    /**
+     * Asserts that two tables have the same observations in the same
+     * order, and the same occurences of every n-gram of them.
+     *
+     * @param poExpected expected table
+     * @param poActual   actual table
+     */
+    private static void assertSameTable(ProbabilityTable poExpected, ProbabilityTable poActual) {
+        int iSize = poExpected.size();
+
+        assertEquals(iSize, poActual.size());
+        assertEquals(poExpected.getNgramCount(), poActual.getNgramCount());
+        assertTrue(poActual.getNgramCount() > 0);
+
+        for (int i = 0; i < iSize; i++) {
+            assertEquals(poExpected.getOccurence(i), poActual.getOccurence(i), 0.0);
+
+            for (int j = 0; j < iSize; j++) {
+                assertEquals(poExpected.getOccurence(i, j), poActual.getOccurence(i, j), 0.0);
+
+                for (int k = 0; k < iSize; k++) {
+                    assertEquals(poExpected.getOccurence(i, j, k), poActual.getOccurence(i, j, k), 0.0);
+                }
+            }
+        }
+    }
+
+    /**
+     * Opens the texts.
+     *
+     * @return a reader of each text
+     */
+    private Reader[] readers() {
+        Reader[] aoReaders = new Reader[this.astrTexts.length];
+
+        for (int t = 0; t < aoReaders.length; t++) {
+            aoReaders[t] = new StringReader(this.astrTexts[t]);
+        }
+
+        return aoReaders;
+    }
+
+    /**
+     * Counts the spilled runs left in the scratch directory.
+     *
+     * @return the count
+     */
+    private int countRuns() {
+        File[] aoFiles = this.oDirectory.listFiles();
+        int iRuns = 0;
+
+        for (int i = 0; i < aoFiles.length; i++) {
+            if (aoFiles[i].getName().endsWith(".run")) {
+                iRuns++;
+            }
+        }
+
+        return iRuns;
+    }
+
+    /**
+     * Creates a tokenizer making a token of every character.
+     *
+     * @param poText the text
+     * @return the tokenizer
+     */
+    private static NLPStreamTokenizer createTokenizer(Reader poText) {
+        NLPStreamTokenizer oTokenizer = new NLPStreamTokenizer(poText);
+        oTokenizer.resetSyntax();
+        return oTokenizer;
+    }
+
+    /**
+     * Estimator without smoothing, keeping its table in the
+     * scratch directory.
+     */
+    private static class Estimator
+            extends StatisticalEstimator {
+        /**
+         * For serialization versioning.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Constructs an estimator.
+         *
+         * @param poDirectory directory of the table file
+         * @param pstrName    name of the table file
+         */
+        Estimator(File poDirectory, String pstrName) {
+            this.strFilename = new File(poDirectory, pstrName + ".gzbin").getPath();
+        }
+    }
+
+    /**
+     * Trainer tokenizing as the sequential training does.
+     */
+    private static class Trainer
+            extends NgramCorpusTrainer {
+        /**
+         * Constructs a trainer.
+         *
+         * @param poEstimator the estimator
+         */
+        Trainer(StatisticalEstimator poEstimator) {
+            super(poEstimator);
+        }
+
+        protected NLPStreamTokenizer createTokenizer(Reader poText) {
+            return NgramCorpusTrainerTest.createTokenizer(poText);
+        }
+    }
+}
+
+// EOF
@@ -0,0 +1,345 @@
+package marf.junit.Stats;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+import java.util.Vector;
+
+import junit.framework.TestCase;
+
+import marf.Stats.ProbabilityTable;
+
+
+/**
+ * <p>ProbabilityTable unit tests: the sparse table must count n-grams
+ * like a plain map of them, and address them by index and by list
+ * alike.</p>
+ * <p>
+ * $Id$
+ *
+ * @author The MARF Research and Development Group
+ * @since 0.3.0.6
+ */
+public class ProbabilityTableTest
+        extends TestCase {
+    /**
+     * Number of distinct words in the random text.
+     */
+    private static final int WORDS = 30;
+
+    /**
+     * Number of n-grams counted from the random text.
+     */
+    private static final int NGRAMS = 3000;
+
+    /**
+     * Table under test.
+     */
+    private ProbabilityTable oTable;
+
+    /**
+     * Reference counts, by n-gram.
+     */
+    private Map oCounts;
+
+    /**
+     * @param args
+     */
+    public static void main(String[] args) {
+        //junit.textui.TestRunner.run(ProbabilityTableTest.class);
+    }
+
+    /**
+     * @param name
+     */
+    public ProbabilityTableTest(String name) {
+        super(name);
+    }
+
+    protected void setUp()
+            throws Exception {
+        super.setUp();
+
+        this.oTable = new ProbabilityTable("en");
+        this.oCounts = new HashMap();
+    }
+
+    protected void tearDown()
+            throws Exception {
+        super.tearDown();
+    }
+
+    /**
+     * Random uni-, bi-, and trigrams are counted as in a map.
+     *
+     * @throws Exception
+     */
+    public void testIncFrequencyMatchesMap()
+            throws Exception {
+        count(new Random(21));
+
+        assertEquals(this.oCounts.size(), this.oTable.getNgramCount());
+        assertSameCounts(this.oTable);
+    }
+
+    /**
+     * An n-gram is the same by its list and by the indexes of its
+     * observations, which go last to first.
+     *
+     * @throws Exception
+     */
+    public void testIndexesMatchLists()
+            throws Exception {
+        int iA = this.oTable.addObservation("a");
+        int iB = this.oTable.addObservation("b");
+        int iC = this.oTable.addObservation("c");
+
+        assertEquals(iA, this.oTable.addObservation("a"));
+        assertEquals(3, this.oTable.size());
+        assertEquals(0, this.oTable.getNgramCount());
+
+        this.oTable.setOccurence(iB, 2.0);
+        this.oTable.setOccurence(iB, iA, 3.0);
+        this.oTable.setOccurence(iC, iB, iA, 4.0);
+
+        assertEquals(2.0, this.oTable.getOccurence(ngram("b")), 0.0);
+        assertEquals(3.0, this.oTable.getOccurence(ngram("a b")), 0.0);
+        assertEquals(4.0, this.oTable.getOccurence(ngram("a b c")), 0.0);
+
+        // The reverse orders are other n-grams
+        assertEquals(0.0, this.oTable.getOccurence(ngram("b a")), 0.0);
+        assertEquals(0.0, this.oTable.getOccurence(ngram("c b a")), 0.0);
+
+        this.oTable.setOccurence(ngram("c a"), 5.0);
+
+        assertEquals(5.0, this.oTable.getOccurence(iA, iC), 0.0);
+        assertEquals(0.0, this.oTable.getOccurence(iC, iA), 0.0);
+        assertEquals(3.0, this.oTable.getOccurence(iB, iA), 0.0);
+        assertEquals(4.0, this.oTable.getOccurence(iC, iB, iA), 0.0);
+        assertEquals(2.0, this.oTable.getOccurence(iB), 0.0);
+        assertEquals(0.0, this.oTable.getOccurence(iA), 0.0);
+
+        assertEquals(4, this.oTable.getNgramCount());
+    }
+
+    /**
+     * An unseen observation has no occurences and is not added.
+     *
+     * @throws Exception
+     */
+    public void testUnseenObservations()
+            throws Exception {
+        this.oTable.incFrequency(ngram("a b"));
+
+        assertEquals(0.0, this.oTable.getOccurence(ngram("z")), 0.0);
+        assertEquals(0.0, this.oTable.getOccurence(ngram("a z")), 0.0);
+        assertEquals(0.0, this.oTable.p(ngram("z a b")), 0.0);
+        assertEquals(0.0, this.oTable.getOccurence(new Vector()), 0.0);
+        assertEquals(2, this.oTable.size());
+
+        assertEquals(2, this.oTable.incFrequency(ngram("a b")));
+        assertEquals(1, this.oTable.incFrequency(ngram("a b a")));
+        assertEquals(2.0, this.oTable.p(ngram("a b")), 0.0);
+        assertEquals(0.0, this.oTable.p(ngram("a")), 0.0);
+    }
+
+    /**
+     * Indexes outside of the table are rejected.
+     *
+     * @throws Exception
+     */
+    public void testIndexesOutOfBounds()
+            throws Exception {
+        this.oTable.addObservation("a");
+        this.oTable.addObservation("b");
+
+        int[][] aaiBad = {{2}, {-1}, {0, 2}, {-1, 0}, {0, 1, 2}, {3, 0, 0}};
+
+        for (int i = 0; i < aaiBad.length; i++) {
+            int[] aiIndexes = aaiBad[i];
+
+            try {
+                switch (aiIndexes.length) {
+                    case 1:
+                        this.oTable.getOccurence(aiIndexes[0]);
+                        break;
+
+                    case 2:
+                        this.oTable.setOccurence(aiIndexes[0], aiIndexes[1], 1.0);
+                        break;
+
+                    default:
+                        this.oTable.getOccurence(aiIndexes[0], aiIndexes[1], aiIndexes[2]);
+                }
+
+                fail("index set " + i + " must be rejected");
+            } catch (ArrayIndexOutOfBoundsException e) {
+                // Expected
+            }
+
+            try {
+                this.oTable.addOccurence(aiIndexes, aiIndexes.length, 1.0);
+                fail("index set " + i + " must not be added to");
+            } catch (IllegalArgumentException e) {
+                // Expected
+            }
+        }
+
+        try {
+            this.oTable.addOccurence(new int[]{0, 0, 0, 0}, 4, 1.0);
+            fail("A 4-gram must be rejected");
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+
+        assertEquals(0, this.oTable.getNgramCount());
+    }
+
+    /**
+     * Adding counts by indexes, as when merging tables, sums them.
+     *
+     * @throws Exception
+     */
+    public void testAddOccurence()
+            throws Exception {
+        count(new Random(5));
+
+        Map oOtherCounts = new HashMap();
+        count(new Random(7), new ProbabilityTable("en"), oOtherCounts);
+
+        int[] aiIndexes = new int[3];
+
+        for (Iterator oIterator = oOtherCounts.entrySet().iterator(); oIterator.hasNext(); ) {
+            Map.Entry oEntry = (Map.Entry) oIterator.next();
+            Vector oNgram = (Vector) oEntry.getKey();
+            int iOccurence = ((Integer) oEntry.getValue()).intValue();
+
+            for (int i = 0; i < oNgram.size(); i++) {
+                aiIndexes[i] = this.oTable.addObservation(oNgram.elementAt(i));
+            }
+
+            Integer oCount = (Integer) this.oCounts.get(oNgram);
+            int iCount = oCount == null ? iOccurence : oCount.intValue() + iOccurence;
+
+            this.oCounts.put(oNgram, Integer.valueOf(iCount));
+
+            assertEquals(iCount, this.oTable.addOccurence(aiIndexes, oNgram.size(), iOccurence), 0.0);
+        }
+
+        assertEquals(this.oCounts.size(), this.oTable.getNgramCount());
+        assertSameCounts(this.oTable);
+    }
+
+    /**
+     * A table reads back with its counts and keeps counting.
+     *
+     * @throws Exception
+     */
+    public void testSerialization()
+            throws Exception {
+        count(new Random(3));
+
+        ByteArrayOutputStream oBytes = new ByteArrayOutputStream();
+        ObjectOutputStream oOutput = new ObjectOutputStream(oBytes);
+        oOutput.writeObject(this.oTable);
+        oOutput.close();
+
+        ObjectInputStream oInput = new ObjectInputStream(new ByteArrayInputStream(oBytes.toByteArray()));
+        ProbabilityTable oRead = (ProbabilityTable) oInput.readObject();
+        oInput.close();
+
+        assertEquals("en", oRead.getLang());
+        assertEquals(this.oTable.size(), oRead.size());
+        assertEquals(this.oCounts.size(), oRead.getNgramCount());
+        assertSameCounts(oRead);
+
+        // Same observations, same indexes
+        for (int i = 0; i < WORDS; i++) {
+            String strWord = "w" + i;
+            assertEquals(this.oTable.addObservation(strWord), oRead.addObservation(strWord));
+        }
+
+        this.oTable = oRead;
+        count(new Random(4));
+
+        assertSameCounts(oRead);
+    }
+
+    /**
+     * Counts random n-grams into the table and the reference map.
+     *
+     * @param poRandom source of the n-grams
+     */
+    private void count(Random poRandom) {
+        count(poRandom, this.oTable, this.oCounts);
+    }
+
+    /**
+     * Counts random n-grams into a table and a reference map.
+     *
+     * @param poRandom source of the n-grams
+     * @param poTable  the table
+     * @param poCounts the map
+     */
+    private static void count(Random poRandom, ProbabilityTable poTable, Map poCounts) {
+        for (int i = 0; i < NGRAMS; i++) {
+            Vector oNgram = randomNgram(poRandom);
+
+            Integer oCount = (Integer) poCounts.get(oNgram);
+            int iCount = oCount == null ? 1 : oCount.intValue() + 1;
+
+            poCounts.put(oNgram, Integer.valueOf(iCount));
+
+            assertEquals(iCount, poTable.incFrequency(oNgram));
+        }
+    }
+
+    /**
+     * Asserts that a table holds the reference counts.
+     *
+     * @param poTable the table
+     */
+    private void assertSameCounts(ProbabilityTable poTable) {
+        for (Iterator oIterator = this.oCounts.entrySet().iterator(); oIterator.hasNext(); ) {
+            Map.Entry oEntry = (Map.Entry) oIterator.next();
+            Vector oNgram = (Vector) oEntry.getKey();
+
+            assertEquals(oNgram.toString(), ((Integer) oEntry.getValue()).doubleValue(), poTable.getOccurence(oNgram), 0.0);
+        }
+    }
+
+    /**
+     * Makes a random n-gram of 1 to 3 words, skewed to a few of them.
+     *
+     * @param poRandom source of the words
+     * @return the n-gram
+     */
+    private static Vector randomNgram(Random poRandom) {
+        Vector oNgram = new Vector();
+        int iLength = 1 + poRandom.nextInt(3);
+
+        for (int i = 0; i < iLength; i++) {
+            oNgram.add("w" + (int) (WORDS * poRandom.nextDouble() * poRandom.nextDouble()));
+        }
+
+        return oNgram;
+    }
+
+    /**
+     * Makes an n-gram of words.
+     *
+     * @param pstrWords the words, in order, separated by spaces
+     * @return the n-gram
+     */
+    private static Vector ngram(String pstrWords) {
+        return new Vector(Arrays.asList(pstrWords.split(" ")));
+    }
+}
+
+// EOF
@@ -0,0 +1,245 @@
+package marf.junit.Storage;
+
+import java.util.Random;
+import java.util.Vector;
+
+import junit.framework.TestCase;
+
+import marf.Storage.Result;
+import marf.Storage.ResultSet;
+import marf.util.SortComparator;
+
+
+/**
+ * <p>ResultSet unit tests: the bounded (top-K) mode must retain
+ * and order the same results as a full sort of all of them.</p>
+ * <p>
+ * $Id$
+ *
+ * @author The MARF Research and Development Group
+ * @since 0.3.0.6
+ */
+public class ResultSetTest
+        extends TestCase {
+    /**
+     * Limits to test with, including one above the result count.
+     */
+    private static final int[] LIMITS = {1, 2, 5, 37, 500};
+
+    /**
+     * Number of results to add.
+     */
+    private static final int RESULTS = 200;
+
+    /**
+     * @param args
+     */
+    public static void main(String[] args) {
+        //junit.textui.TestRunner.run(ResultSetTest.class);
+    }
+
+    /**
+     * @param name
+     */
+    public ResultSetTest(String name) {
+        super(name);
+    }
+
+    protected void setUp()
+            throws Exception {
+        super.setUp();
+    }
+
+    protected void tearDown()
+            throws Exception {
+        super.tearDown();
+    }
+
+    /**
+     * Smallest outcomes, with plenty of ties.
+     */
+    public void testBoundedAscendingMatchesFullSort() {
+        checkBounded(SortComparator.ASCENDING);
+    }
+
+    /**
+     * Largest outcomes, with plenty of ties.
+     */
+    public void testBoundedDescendingMatchesFullSort() {
+        checkBounded(SortComparator.DESCENDING);
+    }
+
+    /**
+     * Limiting a set already holding results trims it to the best ones.
+     */
+    public void testSetLimitTrims() {
+        ResultSet oFull = fill(new ResultSet(), 5);
+        ResultSet oTrimmed = fill(new ResultSet(), 5);
+
+        oTrimmed.setLimit(10, SortComparator.ASCENDING);
+
+        assertEquals(10, oTrimmed.size());
+        assertSamePrefix(sorted(oFull, SortComparator.ASCENDING), sorted(oTrimmed, SortComparator.ASCENDING), 10);
+
+        oTrimmed.setLimit(ResultSet.UNLIMITED, SortComparator.ASCENDING);
+        oTrimmed.addResult(-1, -1.0);
+
+        assertEquals(11, oTrimmed.size());
+        assertEquals(-1, oTrimmed.getMininumID());
+    }
+
+    /**
+     * The vector of a bounded set holds the retained results in the
+     * order they were added, and results added afterwards still count.
+     */
+    public void testBoundedVectorInOrderAdded() {
+        ResultSet oBounded = new ResultSet(3, SortComparator.ASCENDING);
+
+        oBounded.addResult(1, 5.0);
+        oBounded.addResult(2, 1.0);
+        oBounded.addResult(3, 4.0);
+        oBounded.addResult(4, 9.0);
+        oBounded.addResult(5, 2.0);
+
+        Vector oVector = oBounded.getResultSetVector();
+
+        assertEquals(3, oVector.size());
+        assertEquals(2, ((Result) oVector.get(0)).getID());
+        assertEquals(3, ((Result) oVector.get(1)).getID());
+        assertEquals(5, ((Result) oVector.get(2)).getID());
+
+        oBounded.addResult(6, 0.5);
+
+        assertEquals(6, oBounded.getMininumID());
+        assertEquals(2, oBounded.getSecondMininumID());
+        assertEquals(2, oBounded.getSecondClosestID());
+        assertEquals(5, oBounded.getMaximumID());
+        assertEquals(3, oBounded.size());
+    }
+
+    /**
+     * A copy keeps the limit and is independent of the original.
+     */
+    public void testCloneKeepsLimit() {
+        ResultSet oBounded = fill(new ResultSet(4, SortComparator.DESCENDING), 3);
+        ResultSet oClone = (ResultSet) oBounded.clone();
+
+        assertEquals(4, oClone.getLimit());
+        assertEquals(SortComparator.DESCENDING, oClone.getLimitMode());
+
+        oClone.addResult(-1, 1000.0);
+
+        assertEquals(-1, oClone.getMaximumID());
+        assertTrue(oBounded.getMaximumID() != -1);
+        assertEquals(4, oClone.size());
+    }
+
+    /**
+     * A result added by its ID and outcome is described by them,
+     * in copies too, and a description given or set is kept.
+     */
+    public void testGeneratedDescription() {
+        ResultSet oResults = new ResultSet();
+
+        oResults.addResult(7, 2.5);
+        oResults.addResult(8, 3.5, "eight");
+
+        Result oGenerated = oResults.getMinimumResult();
+        Result oCopy = (Result) oGenerated.clone();
+
+        assertEquals("ID=7, outcome=2.5", oGenerated.getDescription());
+        assertEquals("[7:2.5:ID=7, outcome=2.5]", oGenerated.toString());
+        assertEquals("ID=7, outcome=2.5", oCopy.getDescription());
+        assertEquals("eight", oResults.getMaximumResult().getDescription());
+
+        oCopy.setOutcome(1.0);
+        assertEquals("ID=7, outcome=1.0", oCopy.getDescription());
+
+        oCopy.setDescription("seven");
+        assertEquals("seven", oCopy.getDescription());
+        assertEquals("ID=7, outcome=2.5", oGenerated.getDescription());
+    }
+
+    /**
+     * Invalid limits are rejected.
+     */
+    public void testInvalidLimit() {
+        try {
+            new ResultSet(-1, SortComparator.ASCENDING);
+            fail("A negative limit must be rejected");
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+
+        try {
+            new ResultSet(3, ResultSet.UNSORTED);
+            fail("An unsorted limit mode must be rejected");
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+    }
+
+    /**
+     * Compares bounded sets of each limit to the full sort.
+     *
+     * @param piMode limit and sort mode
+     */
+    private static void checkBounded(int piMode) {
+        for (int l = 0; l < LIMITS.length; l++) {
+            ResultSet oFull = fill(new ResultSet(), l);
+            ResultSet oBounded = fill(new ResultSet(LIMITS[l], piMode), l);
+
+            int iExpectedSize = Math.min(LIMITS[l], RESULTS);
+
+            assertEquals("limit " + LIMITS[l], iExpectedSize, oBounded.size());
+            assertSamePrefix(sorted(oFull, piMode), sorted(oBounded, piMode), iExpectedSize);
+        }
+    }
+
+    /**
+     * Adds pseudo-random results with many equal outcomes.
+     *
+     * @param poResultSet set to add to
+     * @param plSeed      random seed
+     * @return the set
+     */
+    private static ResultSet fill(ResultSet poResultSet, long plSeed) {
+        Random oRandom = new Random(plSeed);
+
+        for (int i = 0; i < RESULTS; i++) {
+            poResultSet.addResult(i, oRandom.nextInt(40) / 4.0);
+        }
+
+        return poResultSet;
+    }
+
+    /**
+     * Sorts a set.
+     *
+     * @param poResultSet the set
+     * @param piMode      sort mode
+     * @return the sorted results
+     */
+    private static Result[] sorted(ResultSet poResultSet, int piMode) {
+        poResultSet.sort(piMode);
+        return poResultSet.getResultSetSorted();
+    }
+
+    /**
+     * Asserts that two sorted result arrays start with the same results.
+     *
+     * @param paoExpected expected results
+     * @param paoActual   actual results
+     * @param piLength    how many to compare
+     */
+    private static void assertSamePrefix(Result[] paoExpected, Result[] paoActual, int piLength) {
+        assertTrue(paoActual.length >= piLength);
+
+        for (int i = 0; i < piLength; i++) {
+            assertEquals("rank " + i, paoExpected[i].getID(), paoActual[i].getID());
+            assertEquals("rank " + i, paoExpected[i].getOutcome(), paoActual[i].getOutcome(), 0.0);
+        }
+    }
+}
+
+// EOF
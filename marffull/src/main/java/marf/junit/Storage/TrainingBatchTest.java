@@ -0,0 +1,206 @@
+package marf.junit.Storage;
+
+import java.io.File;
+
+import junit.framework.TestCase;
+
+import marf.Storage.StorageException;
+import marf.Storage.StorageManager;
+import marf.Storage.TrainingBatch;
+import marf.Storage.TrainingSet;
+import marf.Storage.TrainingSetCache;
+
+
+/**
+ * <p>TrainingBatch unit tests.</p>
+ * <p>
+ * $Id$
+ *
+ * @author The MARF Research and Development Group
+ * @since 0.3.0.6
+ */
+public class TrainingBatchTest
+        extends TestCase {
+    /**
+     * Training set file the tests train on.
+     */
+    private static final String FILENAME = "marf.junit.batch.gzbin";
+
+    /**
+     * Working path in effect before the test.
+     */
+    private String strOldWorkingPath;
+
+    /**
+     * Scratch directory the training sets are dumped to.
+     */
+    private File oDirectory;
+
+    /**
+     * @param args
+     */
+    public static void main(String[] args) {
+        //junit.textui.TestRunner.run(TrainingBatchTest.class);
+    }
+
+    /**
+     * @param name
+     */
+    public TrainingBatchTest(String name) {
+        super(name);
+    }
+
+    protected void setUp()
+            throws Exception {
+        super.setUp();
+
+        this.oDirectory = File.createTempFile("marf", "batch");
+        this.oDirectory.delete();
+        this.oDirectory.mkdir();
+
+        this.strOldWorkingPath = TrainingSet.WORKING_PATH;
+        TrainingSet.WORKING_PATH = this.oDirectory.getPath();
+
+        TrainingSetCache.invalidateAll();
+        TrainingSetCache.setModificationCheckInterval(0);
+    }
+
+    protected void tearDown()
+            throws Exception {
+        TrainingSetCache.invalidateAll();
+        TrainingSetCache.setModificationCheckInterval(TrainingSetCache.DEFAULT_MODIFICATION_CHECK_INTERVAL);
+        TrainingSet.WORKING_PATH = this.strOldWorkingPath;
+
+        File[] aoFiles = this.oDirectory.listFiles();
+
+        for (int i = 0; aoFiles != null && i < aoFiles.length; i++) {
+            aoFiles[i].delete();
+        }
+
+        this.oDirectory.delete();
+
+        super.tearDown();
+    }
+
+    /**
+     * Nothing reaches the disk or the cache before the commit.
+     *
+     * @throws Exception
+     */
+    public void testDumpsOnCommitOnly()
+            throws Exception {
+        TrainingBatch oBatch = new TrainingBatch();
+
+        add(oBatch, 3);
+
+        assertEquals(3, oBatch.getPendingCount());
+        assertEquals(0, restoreFromDisk().size());
+        assertEquals(0, TrainingSetCache.getTrainingSet(FILENAME, StorageManager.DUMP_GZIP_BINARY).size());
+
+        oBatch.commit();
+
+        assertFalse(oBatch.isOpen());
+        assertEquals(3, oBatch.getTotalCount());
+        assertEquals(0, oBatch.getPendingCount());
+        assertEquals(3, restoreFromDisk().size());
+        assertEquals(3, TrainingSetCache.getTrainingSet(FILENAME, StorageManager.DUMP_GZIP_BINARY).size());
+    }
+
+    /**
+     * Checkpoints dump every so many vectors, and training on
+     * after one does not touch the published training set.
+     *
+     * @throws Exception
+     */
+    public void testCheckpoints()
+            throws Exception {
+        TrainingBatch oBatch = new TrainingBatch(2);
+
+        add(oBatch, 3);
+
+        assertEquals(1, oBatch.getPendingCount());
+        assertEquals(2, restoreFromDisk().size());
+
+        TrainingSet oPublished = TrainingSetCache.getTrainingSet(FILENAME, StorageManager.DUMP_GZIP_BINARY);
+
+        assertEquals(2, oPublished.size());
+        assertNotSame(oPublished, oBatch.getTrainingSet(FILENAME, StorageManager.DUMP_GZIP_BINARY));
+
+        oBatch.commit();
+
+        assertEquals(2, oPublished.size());
+        assertEquals(3, restoreFromDisk().size());
+    }
+
+    /**
+     * Aborting discards the vectors added since the last checkpoint
+     * and closes the batch.
+     *
+     * @throws Exception
+     */
+    public void testAbort()
+            throws Exception {
+        TrainingBatch oBatch = new TrainingBatch();
+
+        add(oBatch, 2);
+        oBatch.abort();
+
+        assertFalse(oBatch.isOpen());
+        assertEquals(0, restoreFromDisk().size());
+        assertEquals(0, TrainingSetCache.getTrainingSet(FILENAME, StorageManager.DUMP_GZIP_BINARY).size());
+
+        try {
+            oBatch.getTrainingSet(FILENAME, StorageManager.DUMP_GZIP_BINARY);
+            fail("A closed batch must not hand out training sets");
+        } catch (StorageException e) {
+            // Expected
+        }
+    }
+
+    /**
+     * The same file is not trained on twice within a batch.
+     *
+     * @throws Exception
+     */
+    public void testSameFileOnce()
+            throws Exception {
+        TrainingBatch oBatch = new TrainingBatch();
+        TrainingSet oWorkingSet = oBatch.getTrainingSet(FILENAME, StorageManager.DUMP_GZIP_BINARY);
+
+        assertTrue(oBatch.addFeatureVector(oWorkingSet, new double[]{1, 2}, "a.wav", 1, 0, 0));
+        assertFalse(oBatch.addFeatureVector(oWorkingSet, new double[]{3, 4}, "a.wav", 1, 0, 0));
+        assertEquals(1, oBatch.getTotalCount());
+    }
+
+    /**
+     * Adds feature vectors of distinct subjects to a batch.
+     *
+     * @param poBatch  the batch
+     * @param piCount  how many
+     * @throws StorageException
+     */
+    private static void add(TrainingBatch poBatch, int piCount)
+            throws StorageException {
+        for (int i = 0; i < piCount; i++) {
+            TrainingSet oWorkingSet = poBatch.getTrainingSet(FILENAME, StorageManager.DUMP_GZIP_BINARY);
+            assertTrue(poBatch.addFeatureVector(oWorkingSet, new double[]{i, i + 1, i + 2}, "sample" + i + ".wav", i + 1, 0, 0));
+        }
+    }
+
+    /**
+     * Restores the training set from its file, bypassing the cache.
+     *
+     * @return the training set
+     * @throws StorageException
+     */
+    private static TrainingSet restoreFromDisk()
+            throws StorageException {
+        TrainingSet oTrainingSet = new TrainingSet();
+        oTrainingSet.setDumpMode(StorageManager.DUMP_GZIP_BINARY);
+        oTrainingSet.setFilename(FILENAME);
+        oTrainingSet.restore();
+        return oTrainingSet;
+    }
+}
+
+// EOF
@@ -0,0 +1,459 @@
+package marf.junit.Storage;
+
+import java.io.File;
+import java.util.Random;
+import java.util.Vector;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import junit.framework.TestCase;
+
+import marf.Classification.Distance.EuclideanDistance;
+import marf.FeatureExtraction.FeatureExtraction;
+import marf.Storage.StorageException;
+import marf.Storage.StorageManager;
+import marf.Storage.TrainingSet;
+import marf.Storage.TrainingSetCache;
+
+
+/**
+ * <p>TrainingSetCache unit tests: the resident training sets must be
+ * shared until published anew, invalidated, or changed on disk, and
+ * classifiers used concurrently must find the right subjects meanwhile.</p>
+ * <p>
+ * $Id$
+ *
+ * @author The MARF Research and Development Group
+ * @since 0.3.0.6
+ */
+public class TrainingSetCacheTest
+        extends TestCase {
+    /**
+     * Number of subjects in the training set.
+     */
+    private static final int SUBJECTS = 5;
+
+    /**
+     * Feature vector length.
+     */
+    private static final int DIMENSION = 4;
+
+    /**
+     * Number of concurrent classifying tasks.
+     */
+    private static final int TASKS = 6;
+
+    /**
+     * Classifications per task.
+     */
+    private static final int CLASSIFICATIONS = 200;
+
+    /**
+     * Working path in effect before the test.
+     */
+    private String strOldWorkingPath;
+
+    /**
+     * Scratch directory the training sets are dumped to.
+     */
+    private File oDirectory;
+
+    /**
+     * Training set file of the classifiers.
+     */
+    private String strFilename;
+
+    /**
+     * @param args
+     */
+    public static void main(String[] args) {
+        //junit.textui.TestRunner.run(TrainingSetCacheTest.class);
+    }
+
+    /**
+     * @param name
+     */
+    public TrainingSetCacheTest(String name) {
+        super(name);
+    }
+
+    protected void setUp()
+            throws Exception {
+        super.setUp();
+
+        this.oDirectory = File.createTempFile("marf", "cache");
+        this.oDirectory.delete();
+        this.oDirectory.mkdir();
+
+        this.strOldWorkingPath = TrainingSet.WORKING_PATH;
+        TrainingSet.WORKING_PATH = this.oDirectory.getPath();
+
+        TrainingSetCache.invalidateAll();
+        TrainingSetCache.setModificationCheckInterval(0);
+
+        this.strFilename = new Euclidean(new double[DIMENSION]).getTrainingSetFilename();
+        store(SUBJECTS);
+    }
+
+    protected void tearDown()
+            throws Exception {
+        TrainingSetCache.invalidateAll();
+        TrainingSetCache.setModificationCheckInterval(TrainingSetCache.DEFAULT_MODIFICATION_CHECK_INTERVAL);
+        TrainingSet.WORKING_PATH = this.strOldWorkingPath;
+
+        File[] aoFiles = this.oDirectory.listFiles();
+
+        for (int i = 0; aoFiles != null && i < aoFiles.length; i++) {
+            aoFiles[i].delete();
+        }
+
+        this.oDirectory.delete();
+
+        super.tearDown();
+    }
+
+    /**
+     * The restored set is handed out to all, and a copy for
+     * update leaves it alone until published.
+     *
+     * @throws Exception
+     */
+    public void testSharedUntilUpdated()
+            throws Exception {
+        TrainingSet oShared = getTrainingSet();
+
+        assertEquals(SUBJECTS, oShared.size());
+        assertSame(oShared, getTrainingSet());
+
+        TrainingSet oCopy = TrainingSetCache.getTrainingSetForUpdate(this.strFilename, StorageManager.DUMP_GZIP_BINARY);
+
+        assertNotSame(oShared, oCopy);
+        assertTrue(oCopy.addFeatureVector(mean(SUBJECTS + 1), "new.wav", SUBJECTS + 1, 0, 0));
+        assertEquals(SUBJECTS, getTrainingSet().size());
+
+        oCopy.dump();
+        TrainingSetCache.update(oCopy);
+
+        assertSame(oCopy, getTrainingSet());
+        assertEquals(SUBJECTS, oShared.size());
+    }
+
+    /**
+     * A set stored behind the cache's back is restored anew when
+     * its file is checked, and not in between the checks.
+     *
+     * @throws Exception
+     */
+    public void testStaleFileRestored()
+            throws Exception {
+        TrainingSet oShared = getTrainingSet();
+
+        // No checks, or none due yet
+        long[] alIntervals = {-1, 3600 * 1000};
+
+        for (int i = 0; i < alIntervals.length; i++) {
+            TrainingSetCache.setModificationCheckInterval(alIntervals[i]);
+            storeBehindTheBack(SUBJECTS + i + 1);
+            assertSame("interval " + alIntervals[i], oShared, getTrainingSet());
+        }
+
+        TrainingSetCache.setModificationCheckInterval(0);
+
+        TrainingSet oRestored = getTrainingSet();
+
+        assertNotSame(oShared, oRestored);
+        assertEquals(SUBJECTS + 2, oRestored.size());
+        assertSame(oRestored, getTrainingSet());
+    }
+
+    /**
+     * Invalidation drops the resident sets, and they are
+     * restored anew on next use.
+     *
+     * @throws Exception
+     */
+    public void testInvalidate()
+            throws Exception {
+        TrainingSetCache.setModificationCheckInterval(-1);
+
+        TrainingSet oShared = getTrainingSet();
+        storeBehindTheBack(SUBJECTS + 1);
+
+        TrainingSetCache.invalidate("no.such.gzbin");
+        assertSame(oShared, getTrainingSet());
+
+        TrainingSetCache.invalidate(this.strFilename);
+        TrainingSet oRestored = getTrainingSet();
+
+        assertNotSame(oShared, oRestored);
+        assertEquals(SUBJECTS + 1, oRestored.size());
+
+        storeBehindTheBack(SUBJECTS + 2);
+        TrainingSetCache.invalidateAll();
+
+        assertEquals(SUBJECTS + 2, getTrainingSet().size());
+    }
+
+    /**
+     * Classifiers running at the same time share one resident set,
+     * and find the right subjects while the cache is invalidated
+     * over and over, each miss restoring it.
+     *
+     * @throws Exception
+     */
+    public void testConcurrentClassifiersWithInvalidation()
+            throws Exception {
+        ExecutorService oExecutor = Executors.newFixedThreadPool(TASKS + 1);
+
+        try {
+            Vector oFutures = submitClassifiers(oExecutor);
+
+            Future oInvalidator = oExecutor.submit(new Callable() {
+                public Object call() {
+                    for (int i = 0; i < CLASSIFICATIONS; i++) {
+                        TrainingSetCache.invalidateAll();
+                        Thread.yield();
+                    }
+
+                    return null;
+                }
+            });
+
+            waitFor(oFutures);
+            oInvalidator.get();
+        } finally {
+            oExecutor.shutdown();
+        }
+
+        assertEquals(SUBJECTS, getTrainingSet().size());
+    }
+
+    /**
+     * Classifiers running at the same time find the right subjects
+     * while the training set is published anew over and over, and
+     * the last one published stays resident.
+     *
+     * @throws Exception
+     */
+    public void testConcurrentClassifiersWithUpdates()
+            throws Exception {
+        final int iUpdates = 50;
+        final TrainingSet[] aoLastPublished = new TrainingSet[1];
+
+        ExecutorService oExecutor = Executors.newFixedThreadPool(TASKS + 1);
+
+        try {
+            Vector oFutures = submitClassifiers(oExecutor);
+
+            Future oPublisher = oExecutor.submit(new Callable() {
+                public Object call()
+                        throws Exception {
+                    for (int i = 0; i < iUpdates; i++) {
+                        TrainingSet oCopy = TrainingSetCache.getTrainingSetForUpdate(TrainingSetCacheTest.this.strFilename, StorageManager.DUMP_GZIP_BINARY);
+
+                        // Subjects far off the ones classified
+                        int iSubjectID = SUBJECTS + 1 + i;
+                        assertTrue(oCopy.addFeatureVector(mean(10 * iSubjectID), "new" + i + ".wav", iSubjectID, 0, 0));
+
+                        TrainingSetCache.update(oCopy);
+                        aoLastPublished[0] = oCopy;
+                    }
+
+                    return null;
+                }
+            });
+
+            waitFor(oFutures);
+            oPublisher.get();
+        } finally {
+            oExecutor.shutdown();
+        }
+
+        assertSame(aoLastPublished[0], getTrainingSet());
+        assertEquals(SUBJECTS + iUpdates, getTrainingSet().size());
+    }
+
+    /**
+     * Submits the classifying tasks, each classifying vectors close to
+     * the subjects' means with a new classifier every time.
+     *
+     * @param poExecutor executor to run the tasks on
+     * @return the futures of the tasks
+     */
+    private static Vector submitClassifiers(ExecutorService poExecutor) {
+        Vector oFutures = new Vector();
+
+        for (int t = 0; t < TASKS; t++) {
+            final int iTask = t;
+
+            oFutures.add(poExecutor.submit(new Callable() {
+                public Object call()
+                        throws Exception {
+                    Random oRandom = new Random(iTask);
+
+                    for (int c = 0; c < CLASSIFICATIONS; c++) {
+                        int iSubjectID = 1 + oRandom.nextInt(SUBJECTS);
+                        double[] adFeatures = mean(iSubjectID);
+
+                        for (int f = 0; f < DIMENSION; f++) {
+                            adFeatures[f] += 0.2 * oRandom.nextGaussian();
+                        }
+
+                        Euclidean oEuclidean = new Euclidean(adFeatures);
+
+                        assertTrue(oEuclidean.classify());
+                        assertEquals("task " + iTask, iSubjectID, oEuclidean.getResult().getID());
+                    }
+
+                    return null;
+                }
+            }));
+        }
+
+        return oFutures;
+    }
+
+    /**
+     * Waits for the tasks, failing on the first that failed.
+     *
+     * @param poFutures the futures of the tasks
+     * @throws Exception
+     */
+    private static void waitFor(Vector poFutures)
+            throws Exception {
+        for (int i = 0; i < poFutures.size(); i++) {
+            ((Future) poFutures.get(i)).get();
+        }
+    }
+
+    /**
+     * Retrieves the resident training set of the classifiers.
+     *
+     * @return the training set
+     * @throws StorageException
+     */
+    private TrainingSet getTrainingSet()
+            throws StorageException {
+        return TrainingSetCache.getTrainingSet(this.strFilename, StorageManager.DUMP_GZIP_BINARY);
+    }
+
+    /**
+     * Stores a training set of subjects 1 to a given one, each
+     * at its mean, and publishes it.
+     *
+     * @param piSubjects number of subjects
+     * @throws StorageException
+     */
+    private void store(int piSubjects)
+            throws StorageException {
+        TrainingSetCache.update(dump(piSubjects));
+    }
+
+    /**
+     * Stores a training set as another process would, without the cache
+     * knowing, and makes sure its file doesn't look unchanged.
+     *
+     * @param piSubjects number of subjects
+     * @throws StorageException
+     */
+    private void storeBehindTheBack(int piSubjects)
+            throws StorageException {
+        File oFile = new File(this.oDirectory, this.strFilename);
+        long lLastModified = oFile.lastModified();
+
+        dump(piSubjects);
+
+        assertTrue(oFile.setLastModified(lLastModified + 2000 * piSubjects));
+    }
+
+    /**
+     * Dumps a training set of subjects 1 to a given one.
+     *
+     * @param piSubjects number of subjects
+     * @return the training set
+     * @throws StorageException
+     */
+    private TrainingSet dump(int piSubjects)
+            throws StorageException {
+        TrainingSet oTrainingSet = new TrainingSet();
+        oTrainingSet.setDumpMode(StorageManager.DUMP_GZIP_BINARY);
+        oTrainingSet.setFilename(this.strFilename);
+
+        for (int s = 1; s <= piSubjects; s++) {
+            oTrainingSet.addFeatureVector(mean(s), "s" + s + ".wav", s, 0, 0);
+        }
+
+        oTrainingSet.dump();
+
+        return oTrainingSet;
+    }
+
+    /**
+     * Makes the mean vector of a subject.
+     *
+     * @param piSubjectID the subject
+     * @return the mean vector
+     */
+    private static double[] mean(int piSubjectID) {
+        double[] adMean = new double[DIMENSION];
+
+        for (int f = 0; f < DIMENSION; f++) {
+            adMean[f] = piSubjectID * (f + 1);
+        }
+
+        return adMean;
+    }
+
+    /**
+     * Euclidean distance of fixed features.
+     */
+    private static class Euclidean
+            extends EuclideanDistance {
+        /**
+         * For serialization versioning.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Constructs a classifier.
+         *
+         * @param padFeatures features of the incoming sample
+         */
+        Euclidean(double[] padFeatures) {
+            super(new Features(padFeatures));
+        }
+
+        protected String getTrainingSetFilename() {
+            return super.getTrainingSetFilename();
+        }
+    }
+
+    /**
+     * Feature extraction of fixed features.
+     */
+    private static class Features
+            extends FeatureExtraction {
+        /**
+         * For serialization versioning.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Constructs a module.
+         *
+         * @param padFeatures the features
+         */
+        Features(double[] padFeatures) {
+            super(null);
+            this.adFeatures = padFeatures;
+        }
+
+        public boolean extractFeatures() {
+            return true;
+        }
+    }
+}
+
+// EOF
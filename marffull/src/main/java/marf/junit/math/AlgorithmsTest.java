@@ -0,0 +1,184 @@
+package marf.junit.math;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import marf.math.Algorithms;
+import marf.math.MathException;
+
+
+/**
+ * <p>FFT algorithms unit tests.</p>
+ * <p>
+ * $Id$
+ *
+ * @author The MARF Research and Development Group
+ * @since 0.3.0.6
+ */
+public class AlgorithmsTest
+        extends TestCase {
+    /**
+     * Transform lengths to test with.
+     */
+    private static final int[] LENGTHS = {1, 2, 4, 8, 16, 128, 1024, 4096};
+
+    /**
+     * @param args
+     */
+    public static void main(String[] args) {
+        //junit.textui.TestRunner.run(AlgorithmsTest.class);
+    }
+
+    /**
+     * @param name
+     */
+    public AlgorithmsTest(String name) {
+        super(name);
+    }
+
+    protected void setUp()
+            throws Exception {
+        super.setUp();
+    }
+
+    protected void tearDown()
+            throws Exception {
+        super.tearDown();
+    }
+
+    /**
+     * realFFT() must give the bins 0..N/2 of doFFT() on a zero imaginary part.
+     *
+     * @throws Exception
+     */
+    public void testRealFFTMatchesComplexFFT()
+            throws Exception {
+        for (int l = 0; l < LENGTHS.length; l++) {
+            int iLength = LENGTHS[l];
+            double[] adInput = makeSignal(iLength, l);
+
+            double[] adReal = new double[iLength];
+            double[] adImag = new double[iLength];
+            Algorithms.FFT.doFFT(adInput, new double[iLength], adReal, adImag, 1);
+
+            double[] adRealFFTReal = new double[iLength / 2 + 1];
+            double[] adRealFFTImag = new double[iLength / 2 + 1];
+            Algorithms.FFT.realFFT(adInput, adRealFFTReal, adRealFFTImag);
+
+            for (int k = 0; k <= iLength / 2; k++) {
+                assertEquals("N = " + iLength + ", real bin " + k, adReal[k], adRealFFTReal[k], 1e-9 * iLength);
+                assertEquals("N = " + iLength + ", imaginary bin " + k, adImag[k], adRealFFTImag[k], 1e-9 * iLength);
+            }
+        }
+    }
+
+    /**
+     * realFFT() must agree with a plain DFT.
+     *
+     * @throws Exception
+     */
+    public void testRealFFTMatchesDFT()
+            throws Exception {
+        for (int l = 0; l < LENGTHS.length && LENGTHS[l] <= 1024; l++) {
+            int iLength = LENGTHS[l];
+            double[] adInput = makeSignal(iLength, l);
+
+            double[] adReal = new double[iLength / 2 + 1];
+            double[] adImag = new double[iLength / 2 + 1];
+            Algorithms.FFT.realFFT(adInput, adReal, adImag);
+
+            for (int k = 0; k <= iLength / 2; k++) {
+                double dReal = 0;
+                double dImag = 0;
+
+                for (int n = 0; n < iLength; n++) {
+                    double dAngle = 2 * Math.PI * k * n / iLength;
+                    dReal += adInput[n] * Math.cos(dAngle);
+                    dImag += adInput[n] * Math.sin(dAngle);
+                }
+
+                // Same sign convention as doFFT() with direction 1
+                assertEquals("N = " + iLength + ", bin " + k, Math.hypot(dReal, dImag), Math.hypot(adReal[k], adImag[k]), 1e-9 * iLength);
+            }
+        }
+    }
+
+    /**
+     * inverseRealFFT() of realFFT() must give back the input times N.
+     *
+     * @throws Exception
+     */
+    public void testInverseRealFFTRoundTrip()
+            throws Exception {
+        for (int l = 0; l < LENGTHS.length; l++) {
+            int iLength = LENGTHS[l];
+            double[] adInput = makeSignal(iLength, l);
+
+            double[] adReal = new double[iLength / 2 + 1];
+            double[] adImag = new double[iLength / 2 + 1];
+            double[] adOutput = new double[iLength];
+
+            Algorithms.FFT.realFFT(adInput, adReal, adImag);
+            Algorithms.FFT.inverseRealFFT(adReal, adImag, adOutput);
+
+            for (int n = 0; n < iLength; n++) {
+                assertEquals("N = " + iLength + ", sample " + n, adInput[n], adOutput[n] / iLength, 1e-12);
+            }
+        }
+    }
+
+    /**
+     * normalFFT() magnitudes must be those of the complex FFT.
+     *
+     * @throws Exception
+     */
+    public void testNormalFFTMatchesComplexFFT()
+            throws Exception {
+        int iLength = 512;
+        double[] adInput = makeSignal(iLength, 7);
+
+        double[] adReal = new double[iLength];
+        double[] adImag = new double[iLength];
+        Algorithms.FFT.doFFT(adInput, new double[iLength], adReal, adImag, 1);
+
+        double[] adMagnitude = new double[iLength / 2];
+        Algorithms.FFT.normalFFT(adInput, adMagnitude);
+
+        for (int k = 0; k < iLength / 2; k++) {
+            assertEquals("bin " + k, Math.hypot(adReal[k], adImag[k]), adMagnitude[k], 1e-9 * iLength);
+        }
+    }
+
+    /**
+     * Lengths that are not powers of two are rejected.
+     */
+    public void testRealFFTRejectsBadLength() {
+        try {
+            Algorithms.FFT.realFFT(new double[12], new double[7], new double[7]);
+            fail("Length 12 must be rejected");
+        } catch (MathException e) {
+            // Expected
+        }
+    }
+
+    /**
+     * Makes a noisy test signal.
+     *
+     * @param piLength signal length
+     * @param plSeed   noise seed
+     * @return the signal
+     */
+    private static double[] makeSignal(int piLength, long plSeed) {
+        Random oRandom = new Random(plSeed);
+        double[] adSignal = new double[piLength];
+
+        for (int i = 0; i < piLength; i++) {
+            adSignal[i] = Math.sin(i * 0.7) + 0.5 * Math.cos(i * 0.11) + oRandom.nextGaussian();
+        }
+
+        return adSignal;
+    }
+}
+
+// EOF
@@ -0,0 +1,434 @@
+package marf.junit.nlp;
+
+import java.io.File;
+import java.io.StreamTokenizer;
+import java.io.StringReader;
+import java.util.Random;
+import java.util.Vector;
+
+import junit.framework.TestCase;
+
+import marf.nlp.Parsing.ProbabilisticParser;
+import marf.nlp.Parsing.GrammarCompiler.Grammar;
+import marf.nlp.Parsing.GrammarCompiler.NonTerminal;
+import marf.nlp.Parsing.GrammarCompiler.ProbabilisticRule;
+import marf.nlp.Parsing.GrammarCompiler.Terminal;
+
+
+/**
+ * <p>ProbabilisticParser unit tests: the CYK parse over the indexed rules
+ * must find the probability of the most probable of all the parse trees.</p>
+ * <p>
+ * $Id$
+ *
+ * @author The MARF Research and Development Group
+ * @since 0.3.0.6
+ */
+public class ProbabilisticParserTest
+        extends TestCase {
+    /**
+     * Words of the random grammars.
+     */
+    private static final String[] WORDS = {"x", "y", "z", "w"};
+
+    /**
+     * Number of non-terminals of the random grammars, the first one the start.
+     */
+    private static final int NON_TERMINALS = 4;
+
+    /**
+     * Scratch file of the grammar.
+     */
+    private File oGrammarFile;
+
+    /**
+     * Binary rules of the grammar under test, as the indexes of A, B, and C of A -> BC.
+     */
+    private Vector oBinaryRules;
+
+    /**
+     * Lexical rules of the grammar under test, as the index of A and the word of A -> w.
+     */
+    private Vector oLexicalRules;
+
+    /**
+     * Probabilities of the binary rules.
+     */
+    private Vector oBinaryProbabilities;
+
+    /**
+     * Probabilities of the lexical rules.
+     */
+    private Vector oLexicalProbabilities;
+
+    /**
+     * @param args
+     */
+    public static void main(String[] args) {
+        //junit.textui.TestRunner.run(ProbabilisticParserTest.class);
+    }
+
+    /**
+     * @param name
+     */
+    public ProbabilisticParserTest(String name) {
+        super(name);
+    }
+
+    protected void setUp()
+            throws Exception {
+        super.setUp();
+
+        this.oGrammarFile = File.createTempFile("marf", ".grammar.gzbin");
+
+        this.oBinaryRules = new Vector();
+        this.oLexicalRules = new Vector();
+        this.oBinaryProbabilities = new Vector();
+        this.oLexicalProbabilities = new Vector();
+    }
+
+    protected void tearDown()
+            throws Exception {
+        this.oGrammarFile.delete();
+        super.tearDown();
+    }
+
+    /**
+     * The textbook PCFG of "astronomers saw stars with ears", whose
+     * most probable parse attaches the PP to the NP.
+     *
+     * @throws Exception
+     */
+    public void testTextbookGrammar()
+            throws Exception {
+        String[] astrNonTerminals = {"S", "NP", "VP", "PP", "P", "V"};
+
+        addBinaryRule(0, 1, 2, 1.0);
+        addBinaryRule(3, 4, 1, 1.0);
+        addBinaryRule(2, 5, 1, 0.7);
+        addBinaryRule(2, 2, 3, 0.3);
+        addBinaryRule(1, 1, 3, 0.4);
+
+        addLexicalRule(4, "with", 1.0);
+        addLexicalRule(5, "saw", 1.0);
+        addLexicalRule(1, "astronomers", 0.1);
+        addLexicalRule(1, "ears", 0.18);
+        addLexicalRule(1, "saw", 0.04);
+        addLexicalRule(1, "stars", 0.18);
+        addLexicalRule(1, "telescopes", 0.1);
+
+        storeGrammar(astrNonTerminals);
+
+        String[] astrSentence = {"astronomers", "saw", "stars", "with", "ears"};
+        ProbabilisticParser oParser = parse(astrSentence);
+
+        assertEquals(1.0 * 0.1 * 0.7 * 1.0 * 0.4 * 0.18 * 1.0 * 1.0 * 0.18, oParser.getParseProbability(), 1e-15);
+        assertEquals(bruteForce(0, astrSentence, 0, astrSentence.length - 1), oParser.getParseProbability(), 0.0);
+    }
+
+    /**
+     * Random grammars and sentences, parsed or not.
+     *
+     * @throws Exception
+     */
+    public void testRandomGrammarsMatchBruteForce()
+            throws Exception {
+        String[] astrNonTerminals = new String[NON_TERMINALS];
+
+        for (int i = 0; i < NON_TERMINALS; i++) {
+            astrNonTerminals[i] = "N" + i;
+        }
+
+        int iParsed = 0;
+        int iNotParsed = 0;
+
+        for (int g = 0; g < 8; g++) {
+            Random oRandom = new Random(g);
+
+            this.oBinaryRules.clear();
+            this.oLexicalRules.clear();
+            this.oBinaryProbabilities.clear();
+            this.oLexicalProbabilities.clear();
+
+            for (int a = 0; a < NON_TERMINALS; a++) {
+                for (int b = 0; b < NON_TERMINALS; b++) {
+                    for (int c = 0; c < NON_TERMINALS; c++) {
+                        if (oRandom.nextDouble() < 0.3) {
+                            addBinaryRule(a, b, c, oRandom.nextDouble());
+                        }
+                    }
+                }
+
+                for (int w = 0; w < WORDS.length; w++) {
+                    if (oRandom.nextDouble() < 0.5) {
+                        addLexicalRule(a, WORDS[w], oRandom.nextDouble());
+                    }
+                }
+            }
+
+            storeGrammar(astrNonTerminals);
+
+            for (int s = 0; s < 20; s++) {
+                String[] astrSentence = new String[1 + oRandom.nextInt(5)];
+
+                for (int i = 0; i < astrSentence.length; i++) {
+                    astrSentence[i] = WORDS[oRandom.nextInt(WORDS.length)];
+                }
+
+                double dExpected = bruteForce(0, astrSentence, 0, astrSentence.length - 1);
+                ProbabilisticParser oParser = new ProbabilisticParser(tokenize(astrSentence));
+                oParser.setFilename(this.oGrammarFile.getPath());
+
+                boolean bParsed = oParser.parse();
+
+                assertEquals("grammar " + g + ", sentence " + s, dExpected > 0, bParsed);
+
+                if (bParsed) {
+                    assertEquals("grammar " + g + ", sentence " + s, dExpected, oParser.getParseProbability(), 1e-15 * dExpected);
+                    iParsed++;
+                } else {
+                    iNotParsed++;
+                }
+            }
+        }
+
+        assertTrue(iParsed > 0);
+        assertTrue(iNotParsed > 0);
+    }
+
+    /**
+     * A word the grammar does not know makes the parse fail.
+     *
+     * @throws Exception
+     */
+    public void testUnknownWord()
+            throws Exception {
+        addBinaryRule(0, 1, 1, 0.5);
+        addLexicalRule(1, "x", 0.5);
+
+        storeGrammar(new String[]{"S", "X"});
+
+        assertEquals(0.125, parse(new String[]{"x", "x"}).getParseProbability(), 0.0);
+
+        ProbabilisticParser oParser = new ProbabilisticParser(tokenize(new String[]{"x", "q"}));
+        oParser.setFilename(this.oGrammarFile.getPath());
+
+        assertFalse(oParser.parse());
+        assertEquals(0.0, oParser.getParseProbability(), 0.0);
+    }
+
+    /**
+     * Adds a rule A -> BC to the grammar under test.
+     *
+     * @param piA  index of A
+     * @param piB  index of B
+     * @param piC  index of C
+     * @param pdP  probability of the rule
+     */
+    private void addBinaryRule(int piA, int piB, int piC, double pdP) {
+        this.oBinaryRules.add(new int[]{piA, piB, piC});
+        this.oBinaryProbabilities.add(Double.valueOf(pdP));
+    }
+
+    /**
+     * Adds a rule A -> w to the grammar under test.
+     *
+     * @param piA     index of A
+     * @param pstrWord the word w
+     * @param pdP     probability of the rule
+     */
+    private void addLexicalRule(int piA, String pstrWord, double pdP) {
+        this.oLexicalRules.add(new Object[]{Integer.valueOf(piA), pstrWord});
+        this.oLexicalProbabilities.add(Double.valueOf(pdP));
+    }
+
+    /**
+     * Builds the grammar under test and dumps it to the scratch file
+     * for the parsers to restore.
+     *
+     * @param pastrNonTerminals names of the non-terminals, the start first
+     * @throws Exception
+     */
+    private void storeGrammar(String[] pastrNonTerminals)
+            throws Exception {
+        Grammar oGrammar = new Grammar();
+        NonTerminal[] aoNonTerminals = new NonTerminal[pastrNonTerminals.length];
+
+        for (int i = 0; i < aoNonTerminals.length; i++) {
+            aoNonTerminals[i] = new NonTerminal(pastrNonTerminals[i], i);
+            oGrammar.addNonTeminal(aoNonTerminals[i]);
+        }
+
+        oGrammar.setStartNonTerminal(aoNonTerminals[0]);
+
+        // Binary rules in reverse, so that the rule order is not the index order
+        for (int r = this.oBinaryRules.size() - 1; r >= 0; r--) {
+            int[] aiRule = (int[]) this.oBinaryRules.elementAt(r);
+            ProbabilisticRule oRule = new ProbabilisticRule(aoNonTerminals[aiRule[0]]);
+
+            oRule.addRHSElement(aoNonTerminals[aiRule[1]]);
+            oRule.addRHSElement(aoNonTerminals[aiRule[2]]);
+            oRule.setProbability(((Double) this.oBinaryProbabilities.elementAt(r)).doubleValue());
+
+            oGrammar.addRule(oRule);
+        }
+
+        for (int r = 0; r < this.oLexicalRules.size(); r++) {
+            Object[] aoRule = (Object[]) this.oLexicalRules.elementAt(r);
+            String strWord = (String) aoRule[1];
+
+            int iTerminal = oGrammar.containsTerminal(strWord);
+
+            if (iTerminal < 0) {
+                iTerminal = oGrammar.getTerminalList().size();
+                oGrammar.addTeminal(new Terminal(strWord, iTerminal));
+            }
+
+            Terminal oTerminal = (Terminal) oGrammar.getTerminalList().elementAt(iTerminal);
+
+            ProbabilisticRule oRule = new ProbabilisticRule(aoNonTerminals[((Integer) aoRule[0]).intValue()]);
+
+            oRule.addRHSElement(oTerminal);
+            oRule.setProbability(((Double) this.oLexicalProbabilities.elementAt(r)).doubleValue());
+
+            oGrammar.addRule(oRule);
+        }
+
+        new GrammarStore(oGrammar, this.oGrammarFile.getPath()).dump();
+    }
+
+    /**
+     * Parses a sentence with the stored grammar.
+     *
+     * @param pastrSentence the words
+     * @return the parser, done parsing
+     * @throws Exception
+     */
+    private ProbabilisticParser parse(String[] pastrSentence)
+            throws Exception {
+        ProbabilisticParser oParser = new ProbabilisticParser(tokenize(pastrSentence));
+        oParser.setFilename(this.oGrammarFile.getPath());
+
+        assertTrue(oParser.parse());
+
+        return oParser;
+    }
+
+    /**
+     * Computes the probability of every parse tree of a span of words
+     * from a non-terminal, tree by tree, and returns the highest.
+     *
+     * @param piA           index of the non-terminal
+     * @param pastrSentence the words
+     * @param piBegin       first word of the span
+     * @param piEnd         last word of the span
+     * @return the highest probability; 0 if there is no tree
+     */
+    private double bruteForce(int piA, String[] pastrSentence, int piBegin, int piEnd) {
+        Vector oProbabilities = trees(piA, pastrSentence, piBegin, piEnd);
+        double dMax = 0.0;
+
+        for (int i = 0; i < oProbabilities.size(); i++) {
+            dMax = Math.max(dMax, ((Double) oProbabilities.elementAt(i)).doubleValue());
+        }
+
+        return dMax;
+    }
+
+    /**
+     * Enumerates the parse trees of a span of words from a non-terminal.
+     *
+     * @param piA           index of the non-terminal
+     * @param pastrSentence the words
+     * @param piBegin       first word of the span
+     * @param piEnd         last word of the span
+     * @return the probability of each tree
+     */
+    private Vector trees(int piA, String[] pastrSentence, int piBegin, int piEnd) {
+        Vector oProbabilities = new Vector();
+
+        if (piBegin == piEnd) {
+            for (int r = 0; r < this.oLexicalRules.size(); r++) {
+                Object[] aoRule = (Object[]) this.oLexicalRules.elementAt(r);
+
+                if (((Integer) aoRule[0]).intValue() == piA && aoRule[1].equals(pastrSentence[piBegin])) {
+                    oProbabilities.add(this.oLexicalProbabilities.elementAt(r));
+                }
+            }
+
+            return oProbabilities;
+        }
+
+        for (int r = 0; r < this.oBinaryRules.size(); r++) {
+            int[] aiRule = (int[]) this.oBinaryRules.elementAt(r);
+
+            if (aiRule[0] != piA) {
+                continue;
+            }
+
+            double dP = ((Double) this.oBinaryProbabilities.elementAt(r)).doubleValue();
+
+            for (int m = piBegin; m < piEnd; m++) {
+                Vector oLeft = trees(aiRule[1], pastrSentence, piBegin, m);
+                Vector oRight = trees(aiRule[2], pastrSentence, m + 1, piEnd);
+
+                for (int i = 0; i < oLeft.size(); i++) {
+                    for (int j = 0; j < oRight.size(); j++) {
+                        oProbabilities.add
+                                (
+                                        Double.valueOf
+                                                (
+                                                        ((Double) oLeft.elementAt(i)).doubleValue() *
+                                                                ((Double) oRight.elementAt(j)).doubleValue() *
+                                                                dP
+                                                )
+                                );
+                    }
+                }
+            }
+        }
+
+        return oProbabilities;
+    }
+
+    /**
+     * Makes a tokenizer of the words of a sentence.
+     *
+     * @param pastrSentence the words
+     * @return the tokenizer
+     */
+    private static StreamTokenizer tokenize(String[] pastrSentence) {
+        StringBuffer oSentence = new StringBuffer();
+
+        for (int i = 0; i < pastrSentence.length; i++) {
+            oSentence.append(pastrSentence[i]).append(' ');
+        }
+
+        return new StreamTokenizer(new StringReader(oSentence.toString()));
+    }
+
+    /**
+     * Dumps a grammar where a parser restores it from.
+     */
+    private static class GrammarStore
+            extends ProbabilisticParser {
+        /**
+         * For serialization versioning.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Constructs a store of a grammar.
+         *
+         * @param poGrammar      the grammar
+         * @param pstrFilename   file to dump it to
+         */
+        GrammarStore(Grammar poGrammar, String pstrFilename) {
+            setFilename(pstrFilename);
+            this.oObjectToSerialize = poGrammar;
+            backSynchronizeObject();
+        }
+    }
+}
+
+// EOF
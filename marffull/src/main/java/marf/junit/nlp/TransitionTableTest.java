@@ -0,0 +1,361 @@
+package marf.junit.nlp;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.util.Random;
+import java.util.Vector;
+import java.util.zip.GZIPOutputStream;
+
+import junit.framework.TestCase;
+
+import marf.nlp.Parsing.SyntaxError;
+import marf.nlp.Parsing.Token;
+import marf.nlp.Parsing.TokenType;
+import marf.nlp.Parsing.TransitionTable;
+import marf.nlp.Parsing.GrammarCompiler.GrammarCompiler;
+import marf.nlp.Parsing.GrammarCompiler.GrammarElement;
+import marf.nlp.Parsing.GrammarCompiler.NonTerminal;
+import marf.nlp.Parsing.GrammarCompiler.Rule;
+import marf.nlp.Parsing.GrammarCompiler.SemanticToken;
+import marf.nlp.Parsing.GrammarCompiler.Terminal;
+
+
+/**
+ * <p>TransitionTable unit tests: the compiled lookup must find the entries
+ * the scan of the terminals did, and the binary form must read back
+ * the same table.</p>
+ * <p>
+ * $Id$
+ *
+ * @author The MARF Research and Development Group
+ * @since 0.3.0.6
+ */
+public class TransitionTableTest
+        extends TestCase {
+    /**
+     * Names of the terminals, "ID" and "NUM" standing for
+     * identifiers and numbers, "$" for the end of file.
+     */
+    private static final String[] TERMINALS = {"if", "x", "ID", "NUM", "+", "$", "y"};
+
+    /**
+     * Index of the end of file terminal.
+     */
+    private static final int EOF = 5;
+
+    /**
+     * Number of non-terminals.
+     */
+    private static final int NON_TERMINALS = 3;
+
+    /**
+     * Scratch file of the table.
+     */
+    private File oTableFile;
+
+    /**
+     * Table under test.
+     */
+    private TransitionTable oTable;
+
+    /**
+     * Tokens to look up, matching terminals by name, by type, or not at all.
+     */
+    private Token[] aoTokens;
+
+    /**
+     * @param args
+     */
+    public static void main(String[] args) {
+        //junit.textui.TestRunner.run(TransitionTableTest.class);
+    }
+
+    /**
+     * @param name
+     */
+    public TransitionTableTest(String name) {
+        super(name);
+    }
+
+    protected void setUp()
+            throws Exception {
+        super.setUp();
+
+        this.oTableFile = File.createTempFile("marf", ".tt.dat");
+
+        Vector oTerminals = new Vector();
+        Vector oNonTerminals = new Vector();
+
+        for (int i = 0; i < TERMINALS.length; i++) {
+            oTerminals.add(new Terminal(TERMINALS[i], i));
+        }
+
+        for (int i = 0; i < NON_TERMINALS; i++) {
+            NonTerminal oNonTerminal = new NonTerminal("<n" + i + ">", i);
+            oNonTerminal.setDefined();
+            oNonTerminals.add(oNonTerminal);
+        }
+
+        ((NonTerminal) oNonTerminals.elementAt(0)).addToFollowSet((Terminal) oTerminals.elementAt(EOF));
+        ((NonTerminal) oNonTerminals.elementAt(1)).addToFollowSet((NonTerminal) oNonTerminals.elementAt(2));
+
+        this.oTable = new TransitionTable(this.oTableFile.getPath());
+        this.oTable.init(NON_TERMINALS, TERMINALS.length);
+        this.oTable.setTerminals(oTerminals);
+        this.oTable.setNonTerminals(oNonTerminals);
+        this.oTable.setEOFTerminalID(EOF);
+        this.oTable.setStartNonTerminalID(0);
+
+        Random oRandom = new Random(5);
+        Rule oShared = null;
+        int iRuleID = 0;
+
+        for (int n = 0; n < NON_TERMINALS; n++) {
+            for (int t = 0; t < TERMINALS.length; t++) {
+                NonTerminal oNonTerminal = (NonTerminal) oNonTerminals.elementAt(n);
+                Terminal oTerminal = (Terminal) oTerminals.elementAt(t);
+
+                int iKind = oRandom.nextInt(5);
+
+                // No entry
+                if (iKind == 0) {
+                    continue;
+                }
+
+                if (iKind == 1) {
+                    this.oTable.setEntryAt(oNonTerminal, oTerminal, new SyntaxError(SyntaxError.ERR_GENERAL_SYNTAX_ERROR));
+                } else if (iKind == 2 && oShared != null) {
+                    // The same rule in several cells
+                    this.oTable.setEntryAt(oNonTerminal, oTerminal, oShared);
+                } else {
+                    Rule oRule = new Rule(oNonTerminal);
+                    oRule.setID(iRuleID++);
+                    oRule.addRHSElement((GrammarElement) oTerminals.elementAt(oRandom.nextInt(TERMINALS.length)));
+                    oRule.addRHSElement((GrammarElement) oNonTerminals.elementAt(oRandom.nextInt(NON_TERMINALS)));
+                    oRule.addRHSElement(new SemanticToken("#action" + iRuleID, 100 + iRuleID));
+
+                    this.oTable.setEntryAt(oNonTerminal, oTerminal, oRule);
+
+                    if (oShared == null) {
+                        oShared = oRule;
+                    }
+                }
+            }
+        }
+
+        this.aoTokens = new Token[]
+                {
+                        new Token("if", 1, TokenType.KEYWORD, 0),
+                        new Token("x", 1, TokenType.ID, 0),
+                        new Token("y", 1, TokenType.ID, 0),
+                        new Token("zz", 1, TokenType.ID, 0),
+                        new Token("12", 1, TokenType.NUM, 0),
+                        new Token("+", 1, TokenType.OPERATOR, 0),
+                        new Token("$", 1, TokenType.PUNCT, 0),
+                        new Token("?", 1, TokenType.UNKNOWN, 0)
+                };
+    }
+
+    protected void tearDown()
+            throws Exception {
+        this.oTableFile.delete();
+        super.tearDown();
+    }
+
+    /**
+     * A token finds the entry of the first terminal it matches.
+     *
+     * @throws Exception
+     */
+    public void testLookupMatchesScan()
+            throws Exception {
+        for (int n = 0; n < NON_TERMINALS; n++) {
+            NonTerminal oNonTerminal = (NonTerminal) this.oTable.getNonTerminals().elementAt(n);
+
+            for (int i = 0; i < this.aoTokens.length; i++) {
+                Token oToken = new Token(this.aoTokens[i]);
+
+                assertSame(n + ", " + oToken.getLexeme(), scan(oNonTerminal, oToken), this.oTable.getEntryAt(oNonTerminal, oToken));
+
+                // Again, with the column kept in the token
+                assertSame(scan(oNonTerminal, oToken), this.oTable.getEntryAt(oNonTerminal, oToken));
+            }
+        }
+
+        assertEquals(-1, this.oTable.getTerminalID(new Token(this.aoTokens[this.aoTokens.length - 1])));
+    }
+
+    /**
+     * A changed entry is found after the table was compiled.
+     *
+     * @throws Exception
+     */
+    public void testLookupAfterChange()
+            throws Exception {
+        NonTerminal oNonTerminal = (NonTerminal) this.oTable.getNonTerminals().elementAt(1);
+        Terminal oTerminal = (Terminal) this.oTable.getTerminals().elementAt(4);
+
+        this.oTable.getEntryAt(1, 4);
+
+        SyntaxError oError = new SyntaxError(SyntaxError.ERR_GENERAL_SYNTAX_ERROR);
+        this.oTable.setEntryAt(oNonTerminal, oTerminal, oError);
+
+        assertSame(oError, this.oTable.getEntryAt(1, 4));
+        assertSame(oError, this.oTable.getEntryAt(oNonTerminal, new Token(this.aoTokens[5])));
+    }
+
+    /**
+     * The binary form reads back the same entries, grammar elements,
+     * and sets, through the grammar compiler and the table alike.
+     *
+     * @throws Exception
+     */
+    public void testBinaryRoundTrip()
+            throws Exception {
+        assertTrue(this.oTable.save());
+
+        assertSameTable(GrammarCompiler.loadTT(this.oTableFile.getPath()));
+
+        TransitionTable oLoaded = new TransitionTable(this.oTableFile.getPath());
+
+        assertTrue(oLoaded.serialize(0));
+        assertSameTable(oLoaded);
+    }
+
+    /**
+     * A table serialized as an object by the earlier versions still loads.
+     *
+     * @throws Exception
+     */
+    public void testLegacySerializedTable()
+            throws Exception {
+        ObjectOutputStream oOOS = new ObjectOutputStream(new GZIPOutputStream(new FileOutputStream(this.oTableFile)));
+
+        try {
+            oOOS.writeObject(this.oTable);
+        } finally {
+            oOOS.close();
+        }
+
+        assertSameTable(GrammarCompiler.loadTT(this.oTableFile.getPath()));
+    }
+
+    /**
+     * Anything but the binary form is rejected.
+     *
+     * @throws Exception
+     */
+    public void testRejectsForeignData()
+            throws Exception {
+        try {
+            new TransitionTable().readBinary(new DataInputStream(new ByteArrayInputStream(new byte[]{'M', 'A', 'R', 'X', 0, 0, 0, 1})));
+            fail("Foreign data must be rejected");
+        } catch (IOException e) {
+            // Expected
+        }
+    }
+
+    /**
+     * Asserts that a loaded table is the table under test.
+     *
+     * @param poLoaded the loaded table
+     */
+    private void assertSameTable(TransitionTable poLoaded) {
+        assertEquals(TERMINALS.length, poLoaded.getTerminals().size());
+        assertEquals(NON_TERMINALS, poLoaded.getNonTerminals().size());
+
+        assertEquals(TERMINALS[EOF], poLoaded.getEOFTerminal().getName());
+        assertEquals("<n0>", poLoaded.getStartNonTerminal().getName());
+
+        NonTerminal oFirst = (NonTerminal) poLoaded.getNonTerminals().elementAt(0);
+        NonTerminal oSecond = (NonTerminal) poLoaded.getNonTerminals().elementAt(1);
+
+        assertEquals(1, oFirst.getFollowSet().size());
+        assertSame(poLoaded.getEOFTerminal(), oFirst.getFollowSet().elementAt(0));
+        assertEquals(1, oSecond.getFollowSet().size());
+        assertSame(poLoaded.getNonTerminals().elementAt(2), oSecond.getFollowSet().elementAt(0));
+
+        for (int n = 0; n < NON_TERMINALS; n++) {
+            NonTerminal oNonTerminal = (NonTerminal) this.oTable.getNonTerminals().elementAt(n);
+            NonTerminal oLoadedNonTerminal = (NonTerminal) poLoaded.getNonTerminals().elementAt(n);
+
+            assertEquals(oNonTerminal.getName(), oLoadedNonTerminal.getName());
+            assertTrue(oLoadedNonTerminal.isDefined());
+
+            for (int i = 0; i < this.aoTokens.length; i++) {
+                assertEquals
+                        (
+                                n + ", " + this.aoTokens[i].getLexeme(),
+                                describe(this.oTable.getEntryAt(oNonTerminal, new Token(this.aoTokens[i]))),
+                                describe(poLoaded.getEntryAt(oLoadedNonTerminal, new Token(this.aoTokens[i])))
+                        );
+            }
+
+            // A rule in several cells is still one
+            for (int t = 0; t < TERMINALS.length; t++) {
+                for (int u = 0; u < TERMINALS.length; u++) {
+                    if (this.oTable.getEntryAt(n, t) != null) {
+                        assertEquals
+                                (
+                                        this.oTable.getEntryAt(n, t) == this.oTable.getEntryAt(n, u),
+                                        poLoaded.getEntryAt(n, t) == poLoaded.getEntryAt(n, u)
+                                );
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Finds the entry of a token by going through the terminals in order,
+     * as the lookup did before the table was compiled.
+     *
+     * @param poNonTerminal the row
+     * @param poToken       the token
+     * @return the entry; <code>null</code> if none
+     */
+    private Object scan(NonTerminal poNonTerminal, Token poToken) {
+        Vector oTerminals = this.oTable.getTerminals();
+        int iType = poToken.getTokenType().getType();
+
+        for (int t = 0; t < oTerminals.size(); t++) {
+            Terminal oTerminal = (Terminal) oTerminals.elementAt(t);
+            String strName = oTerminal.getName();
+
+            if
+                    (
+                    poToken.getLexeme().equals(strName)
+                            || (iType == TokenType.ID && strName.equals("ID"))
+                            || (iType == TokenType.NUM && strName.equals("NUM"))
+                    ) {
+                return this.oTable.getEntryAt(poNonTerminal, oTerminal);
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Describes an entry, to compare entries of different tables.
+     *
+     * @param poEntry the entry
+     * @return the description
+     */
+    private static String describe(Object poEntry) {
+        if (poEntry == null) {
+            return "null";
+        }
+
+        if (poEntry instanceof Rule) {
+            return "rule " + ((Rule) poEntry).getID() + ": " + poEntry;
+        }
+
+        return "error: " + ((SyntaxError) poEntry).getMessage();
+    }
+}
+
+// EOF
@@ -0,0 +1,432 @@
+package marf.junit.util;
+
+import java.util.Vector;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+import marf.MARF;
+import marf.MARFPipeline;
+import marf.util.ExecutionService;
+
+
+/**
+ * <p>ExecutionService unit tests: tasks submitted by concurrent pipelines
+ * must run with the submitter's pipeline bound and in bounded numbers, a
+ * full queue must make the submitter run the task itself, and virtual
+ * threads must fall back to a pool where the runtime has none.</p>
+ * <p>
+ * $Id$
+ *
+ * @author The MARF Research and Development Group
+ * @since 0.3.0.6
+ */
+public class ExecutionServiceTest
+        extends TestCase {
+    /**
+     * Queue the tests submit to.
+     */
+    private static final String QUEUE = "test";
+
+    /**
+     * Number of concurrent pipelines.
+     */
+    private static final int PIPELINES = 6;
+
+    /**
+     * Tasks per pipeline.
+     */
+    private static final int TASKS = 40;
+
+    /**
+     * Virtual threads setting in effect before the test.
+     */
+    private boolean bOldVirtualThreads;
+
+    /**
+     * @param args
+     */
+    public static void main(String[] args) {
+        //junit.textui.TestRunner.run(ExecutionServiceTest.class);
+    }
+
+    /**
+     * @param name
+     */
+    public ExecutionServiceTest(String name) {
+        super(name);
+    }
+
+    protected void setUp()
+            throws Exception {
+        super.setUp();
+        this.bOldVirtualThreads = ExecutionService.enableVirtualThreads(false);
+    }
+
+    protected void tearDown()
+            throws Exception {
+        // Back to the executors of the default settings
+        ExecutionService.shutdown();
+        ExecutionService.setPoolSize(0);
+        ExecutionService.setQueueCapacity(ExecutionService.DEFAULT_QUEUE_CAPACITY);
+        ExecutionService.enableVirtualThreads(this.bOldVirtualThreads);
+
+        super.tearDown();
+    }
+
+    /**
+     * Pipelines running at the same time each see their own
+     * configuration in all the tasks they submit, and the pooled
+     * threads are left without a pipeline afterwards.
+     *
+     * @throws Exception
+     */
+    public void testConcurrentPipelines()
+            throws Exception {
+        ExecutionService.setPoolSize(3);
+        ExecutionService.setQueueCapacity(4);
+
+        Thread[] aoPipelines = new Thread[PIPELINES];
+        final Throwable[] aoFailures = new Throwable[PIPELINES];
+
+        for (int p = 0; p < PIPELINES; p++) {
+            final int iSubjectID = p + 1;
+
+            aoPipelines[p] = new Thread("pipeline " + iSubjectID) {
+                public void run() {
+                    MARFPipeline oPipeline = new MARFPipeline();
+                    oPipeline.setCurrentSubject(iSubjectID);
+
+                    MARFPipeline.bind(oPipeline);
+
+                    try {
+                        Object[] aoResults = ExecutionService.invokeAll(QUEUE, createSubjectTasks(TASKS), 4);
+
+                        for (int i = 0; i < aoResults.length; i++) {
+                            assertEquals("task " + i, Integer.valueOf(iSubjectID), aoResults[i]);
+                        }
+
+                        assertEquals(iSubjectID, ((Integer) ExecutionService.submit(QUEUE, new SubjectTask()).get()).intValue());
+                    } catch (Throwable e) {
+                        aoFailures[iSubjectID - 1] = e;
+                    } finally {
+                        MARFPipeline.bind(null);
+                    }
+                }
+            };
+        }
+
+        for (int p = 0; p < PIPELINES; p++) {
+            aoPipelines[p].start();
+        }
+
+        for (int p = 0; p < PIPELINES; p++) {
+            aoPipelines[p].join();
+
+            if (aoFailures[p] != null) {
+                throw new Exception("Pipeline " + (p + 1) + " failed", aoFailures[p]);
+            }
+        }
+
+        // Every pooled thread, now free, is unbound
+        Object[] aoBound = ExecutionService.invokeAll(QUEUE, createBoundTasks(TASKS), TASKS);
+
+        for (int i = 0; i < aoBound.length; i++) {
+            assertNull("task " + i, aoBound[i]);
+        }
+    }
+
+    /**
+     * Results come in order whatever order the tasks finish in, and
+     * no more tasks than asked for run at a time.
+     *
+     * @throws Exception
+     */
+    public void testInvokeAllInOrderAndBounded()
+            throws Exception {
+        ExecutionService.setPoolSize(8);
+
+        final AtomicInteger oRunning = new AtomicInteger();
+        final AtomicInteger oMaxRunning = new AtomicInteger();
+        Vector oTasks = new Vector();
+
+        for (int i = 0; i < TASKS; i++) {
+            final int iTask = i;
+
+            oTasks.add(new Callable() {
+                public Object call()
+                        throws Exception {
+                    int iRunning = oRunning.incrementAndGet();
+
+                    synchronized (oMaxRunning) {
+                        oMaxRunning.set(Math.max(oMaxRunning.get(), iRunning));
+                    }
+
+                    // Later tasks finish sooner
+                    Thread.sleep((TASKS - iTask) % 5);
+
+                    oRunning.decrementAndGet();
+
+                    return Integer.valueOf(iTask);
+                }
+            });
+        }
+
+        Object[] aoResults = ExecutionService.invokeAll(QUEUE, oTasks, 3);
+
+        for (int i = 0; i < TASKS; i++) {
+            assertEquals(Integer.valueOf(i), aoResults[i]);
+        }
+
+        assertTrue("at most 3 at a time, not " + oMaxRunning.get(), oMaxRunning.get() <= 3);
+    }
+
+    /**
+     * The first failure is reported, and the tasks after it
+     * are not started.
+     *
+     * @throws Exception
+     */
+    public void testInvokeAllStopsAtFailure()
+            throws Exception {
+        final AtomicInteger oStarted = new AtomicInteger();
+        Vector oTasks = new Vector();
+
+        for (int i = 0; i < 10; i++) {
+            final int iTask = i;
+
+            oTasks.add(new Callable() {
+                public Object call() {
+                    oStarted.incrementAndGet();
+
+                    if (iTask == 3) {
+                        throw new IllegalStateException("task 3");
+                    }
+
+                    return null;
+                }
+            });
+        }
+
+        try {
+            ExecutionService.invokeAll(QUEUE, oTasks, 1);
+            fail("The failure of task 3 must be reported");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+
+        assertEquals(4, oStarted.get());
+    }
+
+    /**
+     * A task submitted to a full queue runs in the submitting thread,
+     * with the submitter's pipeline, and the queued ones still run.
+     *
+     * @throws Exception
+     */
+    public void testCallerRunsWhenFull()
+            throws Exception {
+        ExecutionService.setPoolSize(1);
+        ExecutionService.setQueueCapacity(1);
+
+        final CountDownLatch oStarted = new CountDownLatch(1);
+        final CountDownLatch oRelease = new CountDownLatch(1);
+
+        // Keeps the only thread busy
+        Future oBlocker = ExecutionService.submit(QUEUE, new Callable() {
+            public Object call()
+                    throws Exception {
+                oStarted.countDown();
+                assertTrue(oRelease.await(10, TimeUnit.SECONDS));
+                return Thread.currentThread();
+            }
+        });
+
+        assertTrue(oStarted.await(10, TimeUnit.SECONDS));
+
+        MARFPipeline oPipeline = new MARFPipeline();
+        oPipeline.setCurrentSubject(42);
+
+        MARFPipeline oPrevious = MARFPipeline.bind(oPipeline);
+
+        try {
+            // Fills the queue
+            Future oQueued = ExecutionService.submit(QUEUE, new SubjectTask());
+
+            // Finds it full
+            Future oCallerRun = ExecutionService.submit(QUEUE, new Callable() {
+                public Object call() {
+                    return new Object[]{Thread.currentThread(), Integer.valueOf(MARF.getCurrentSubject())};
+                }
+            });
+
+            assertTrue(oCallerRun.isDone());
+
+            Object[] aoCallerRun = (Object[]) oCallerRun.get();
+
+            assertSame(Thread.currentThread(), aoCallerRun[0]);
+            assertEquals(Integer.valueOf(42), aoCallerRun[1]);
+
+            // Still bound to the caller afterwards
+            assertSame(oPipeline, MARFPipeline.getBoundPipeline());
+
+            oRelease.countDown();
+
+            assertNotSame(Thread.currentThread(), oBlocker.get());
+            assertEquals(Integer.valueOf(42), oQueued.get());
+        } finally {
+            oRelease.countDown();
+            MARFPipeline.bind(oPrevious);
+        }
+    }
+
+    /**
+     * With virtual threads asked for, every task runs in a virtual thread
+     * of its own where the runtime has them, and on a bounded pool
+     * otherwise; the pipelines are bound either way.
+     *
+     * @throws Exception
+     */
+    public void testVirtualThreadsOrFallback()
+            throws Exception {
+        ExecutionService.enableVirtualThreads(true);
+
+        ExecutorService oExecutor = ExecutionService.getExecutor(QUEUE);
+
+        assertSame(oExecutor, ExecutionService.getExecutor(QUEUE));
+        assertEquals(!ExecutionService.isVirtualThreadsAvailable(), oExecutor instanceof ThreadPoolExecutor);
+
+        MARFPipeline oPipeline = new MARFPipeline();
+        oPipeline.setCurrentSubject(7);
+
+        MARFPipeline oPrevious = MARFPipeline.bind(oPipeline);
+
+        try {
+            Object[] aoResults = ExecutionService.invokeAll(QUEUE, createSubjectTasks(TASKS), TASKS);
+
+            for (int i = 0; i < aoResults.length; i++) {
+                assertEquals(Integer.valueOf(7), aoResults[i]);
+            }
+        } finally {
+            MARFPipeline.bind(oPrevious);
+        }
+
+        Thread oThread = (Thread) ExecutionService.submit(QUEUE, new Callable() {
+            public Object call() {
+                return Thread.currentThread();
+            }
+        }).get();
+
+        assertTrue(oThread.getName().startsWith("MARF " + QUEUE + "-"));
+
+        if (ExecutionService.isVirtualThreadsAvailable()) {
+            assertEquals(Boolean.TRUE, Thread.class.getMethod("isVirtual", new Class[0]).invoke(oThread, new Object[0]));
+        } else {
+            assertTrue(oThread.isDaemon());
+        }
+    }
+
+    /**
+     * The executors are made once per queue, and made anew after
+     * a shutdown.
+     *
+     * @throws Exception
+     */
+    public void testShutdown()
+            throws Exception {
+        ExecutorService oExecutor = ExecutionService.getExecutor(QUEUE);
+
+        assertSame(oExecutor, ExecutionService.getExecutor(QUEUE));
+        assertTrue(java.util.Arrays.asList(ExecutionService.getQueues()).contains(QUEUE));
+
+        ExecutionService.shutdown();
+
+        assertTrue(oExecutor.isShutdown());
+        assertEquals(0, ExecutionService.getQueues().length);
+
+        ExecutorService oNewExecutor = ExecutionService.getExecutor(QUEUE);
+
+        assertNotSame(oExecutor, oNewExecutor);
+        assertFalse(oNewExecutor.isShutdown());
+    }
+
+    /**
+     * Invalid settings are rejected.
+     *
+     * @throws Exception
+     */
+    public void testInvalidSettings()
+            throws Exception {
+        try {
+            ExecutionService.setPoolSize(-1);
+            fail("A negative pool size must be rejected");
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+
+        try {
+            ExecutionService.setQueueCapacity(0);
+            fail("A queue capacity of 0 must be rejected");
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+    }
+
+    /**
+     * Creates tasks reporting the current subject of the pipeline
+     * they run with.
+     *
+     * @param piCount how many
+     * @return the tasks
+     */
+    private static Vector createSubjectTasks(int piCount) {
+        Vector oTasks = new Vector(piCount);
+
+        for (int i = 0; i < piCount; i++) {
+            oTasks.add(new SubjectTask());
+        }
+
+        return oTasks;
+    }
+
+    /**
+     * Creates tasks reporting the pipeline bound to their thread.
+     *
+     * @param piCount how many
+     * @return the tasks
+     */
+    private static Vector createBoundTasks(int piCount) {
+        Vector oTasks = new Vector(piCount);
+
+        for (int i = 0; i < piCount; i++) {
+            oTasks.add(new Callable() {
+                public Object call() {
+                    return MARFPipeline.getBoundPipeline();
+                }
+            });
+        }
+
+        return oTasks;
+    }
+
+    /**
+     * Task reporting the current subject through the static API,
+     * after letting the other tasks in.
+     */
+    private static class SubjectTask
+            implements Callable {
+        public Object call() {
+            Thread.yield();
+            return Integer.valueOf(MARF.getCurrentSubject());
+        }
+    }
+}
+
+// EOF
@@ -45,15 +45,17 @@ public final class Algorithms {
 
         /**
          * Applies hamming window to an array of doubles.
+         * The window coefficients are precomputed once per length.
          *
          * @param padWindow array of doubles to apply windowing to
+         * @see FFTPlan#getWindow(int, int)
          * @since 0.2.0
          */
         public static final void hamming(double[] padWindow) {
+            double[] adCoefficients = FFTPlan.getWindow(padWindow.length, FFTPlan.WINDOW_HAMMING);
+
             for (int i = 0; i < padWindow.length; i++) {
-                padWindow[i] *=
-                        (0.54 - (0.46 * Math.cos((2 * Math.PI * i) /
-                                (padWindow.length - 1))));
+                padWindow[i] *= adCoefficients[i];
             }
         }
 
@@ -83,6 +85,9 @@ public final class Algorithms {
          * implements the Fast Fourier Transform, which performs a discrete Fourier transform
          * in O(n*log(n)).</p>
          *
+         * <p>The bit-reversal permutation and the twiddle factors come
+         * from the shared <code>FFTPlan</code> of the input size.</p>
+         *
          * @param padInputReal  InputReal is real part of input array
          * @param padInputImag  InputImag is imaginary part of input array
          * @param padOutputReal OutputReal is real part of output array
@@ -114,65 +119,197 @@ public final class Algorithms {
                 throw new MathException("Output length (" + padOutputReal.length + ") < Input length (" + padInputReal.length + ")");
             }
 
-            // Determine max number of bits
-            int iMaxBits, n = iLength;
+            FFTPlan.getPlan(iLength, piDirection, FFTPlan.WINDOW_NONE)
+                    .transform(padInputReal, padInputImag, padOutputReal, padOutputImag);
+        }
+
+        /**
+         * <p>FFT of a real input. The <i>N</i> real values are packed into
+         * <i>N/2</i> complex ones (even elements as the real parts, odd ones as the
+         * imaginary parts), transformed with an <i>N/2</i>-point FFT, and the
+         * spectrum is then untangled, which takes about half the work
+         * of <code>doFFT()</code> with a zero imaginary part.</p>
+         *
+         * <p>Only the bins <i>0..N/2</i> are computed, the rest being their complex
+         * conjugates. The sign convention is that of <code>doFFT()</code> with direction 1.</p>
+         *
+         * @param padInput      real input of length <i>N</i> = 2^k
+         * @param padOutputReal real part of output; at least <i>N/2 + 1</i> long
+         * @param padOutputImag imaginary part of output; at least <i>N/2 + 1</i> long
+         * @throws MathException if the sizes are wrong
+         * @see #inverseRealFFT(double[], double[], double[])
+         * @since 0.3.0.6
+         */
+        public static final void realFFT(final double[] padInput, double[] padOutputReal, double[] padOutputImag)
+                throws MathException {
+            realFFT(padInput, padOutputReal, padOutputImag, Workspace.getCurrent());
+        }
+
+        /**
+         * Same as <code>realFFT(double[], double[], double[])</code>, but takes
+         * its scratch arrays from a given workspace, so it does not allocate.
+         *
+         * @param padInput      real input of length <i>N</i> = 2^k
+         * @param padOutputReal real part of output; at least <i>N/2 + 1</i> long
+         * @param padOutputImag imaginary part of output; at least <i>N/2 + 1</i> long
+         * @param poWorkspace   scratch arrays
+         * @throws MathException if the sizes are wrong
+         * @since 0.3.0.6
+         */
+        public static final void realFFT
+        (
+                final double[] padInput,
+                double[] padOutputReal,
+                double[] padOutputImag,
+                Workspace poWorkspace
+        )
+                throws MathException {
+            int iLength = padInput.length;
 
-            for (iMaxBits = 0; iMaxBits < 16; iMaxBits++) {
-                if (n == 0) break;
-                n /= 2;
+            if ((iLength < 1) | ((iLength & (iLength - 1)) != 0)) {
+                throw new MathException("Length of input (" + iLength + ") is not a power of 2.");
             }
 
-            iMaxBits -= 1;
+            if (padOutputReal.length < iLength / 2 + 1 || padOutputImag.length < iLength / 2 + 1) {
+                throw new MathException("Output length (" + padOutputReal.length + ") < " + (iLength / 2 + 1));
+            }
 
-            // Binary reversion & interlace result real/imaginary
-            int i, t, bit;
+            if (iLength == 1) {
+                padOutputReal[0] = padInput[0];
+                padOutputImag[0] = 0.0;
+                return;
+            }
 
-            for (i = 0; i < iLength; i++) {
-                t = 0;
-                n = i;
+            int iHalf = iLength / 2;
 
-                for (bit = 0; bit < iMaxBits; bit++) {
-                    t = (t * 2) | (n & 1);
-                    n /= 2;
-                }
+            double[] adPackedReal = poWorkspace.get(Workspace.PACKED_REAL, iHalf);
+            double[] adPackedImag = poWorkspace.get(Workspace.PACKED_IMAG, iHalf);
 
-                padOutputReal[t] = padInputReal[i];
-                padOutputImag[t] = padInputImag[i];
+            for (int i = 0; i < iHalf; i++) {
+                adPackedReal[i] = padInput[2 * i];
+                adPackedImag[i] = padInput[2 * i + 1];
             }
 
-            // put it all back together (Danielson-Lanczos butterfly)
-            int mmax = 2, istep, j, m;                                // counters
-            double theta, wtemp, wpr, wr, wpi, wi, tempr, tempi;    // trigonometric recurrences
+            FFTPlan.getPlan(iHalf, 1, FFTPlan.WINDOW_NONE)
+                    .transform(adPackedReal, adPackedImag, padOutputReal, padOutputImag);
+
+            FFTPlan oPlan = FFTPlan.getPlan(iLength, 1, FFTPlan.WINDOW_NONE);
 
-            n = iLength * 2;
+            // Untangle: X[k] = E[k] + W^k * O[k], where E[k] = (Z[k] + conj(Z[N/2 - k])) / 2
+            // and O[k] = (Z[k] - conj(Z[N/2 - k])) / 2i; bins k and N/2 - k are done together
+            double dZ0Real = padOutputReal[0];
+            double dZ0Imag = padOutputImag[0];
 
-            while (mmax < n) {
-                istep = mmax * 2;
-                theta = (piDirection * 2 * Math.PI) / mmax;
-                wtemp = Math.sin(0.5 * theta);
-                wpr = -2.0 * wtemp * wtemp;
-                wpi = Math.sin(theta);
-                wr = 1.0;
-                wi = 0.0;
+            padOutputReal[0] = dZ0Real + dZ0Imag;
+            padOutputImag[0] = 0.0;
+            padOutputReal[iHalf] = dZ0Real - dZ0Imag;
+            padOutputImag[iHalf] = 0.0;
 
-                for (m = 0; m < mmax; m += 2) {
-                    for (i = m; i < n; i += istep) {
-                        j = i + mmax;
-                        tempr = wr * padOutputReal[j / 2] - wi * padOutputImag[j / 2];
-                        tempi = wr * padOutputImag[j / 2] + wi * padOutputReal[j / 2];
+            for (int k = 1, j = iHalf - 1; k <= j; k++, j--) {
+                double dAReal = padOutputReal[k], dAImag = padOutputImag[k];
+                double dBReal = padOutputReal[j], dBImag = padOutputImag[j];
 
-                        padOutputReal[j / 2] = padOutputReal[i / 2] - tempr;
-                        padOutputImag[j / 2] = padOutputImag[i / 2] - tempi;
+                double dEReal = (dAReal + dBReal) / 2, dEImag = (dAImag - dBImag) / 2;
+                double dOReal = (dAImag + dBImag) / 2, dOImag = (dBReal - dAReal) / 2;
 
-                        padOutputReal[i / 2] += tempr;
-                        padOutputImag[i / 2] += tempi;
-                    }
+                double dWReal = oPlan.getTwiddleReal(k), dWImag = oPlan.getTwiddleImag(k);
 
-                    wr = (wtemp = wr) * wpr - wi * wpi + wr;
-                    wi = wi * wpr + wtemp * wpi + wi;
+                padOutputReal[k] = dEReal + dWReal * dOReal - dWImag * dOImag;
+                padOutputImag[k] = dEImag + dWReal * dOImag + dWImag * dOReal;
+
+                if (j != k) {
+                    // E[j] = conj(E[k]), O[j] = conj(O[k])
+                    dWReal = oPlan.getTwiddleReal(j);
+                    dWImag = oPlan.getTwiddleImag(j);
+
+                    padOutputReal[j] = dEReal + dWReal * dOReal + dWImag * dOImag;
+                    padOutputImag[j] = -dEImag - dWReal * dOImag + dWImag * dOReal;
                 }
+            }
+        }
+
+        /**
+         * <p>Inverse of <code>realFFT()</code>: takes the bins <i>0..N/2</i> of a
+         * spectrum of a real signal and produces the signal with an
+         * <i>N/2</i>-point FFT. Like <code>doFFT()</code> with direction -1, the result
+         * is not divided by <i>N</i>.</p>
+         *
+         * @param padInputReal real part of the bins <i>0..N/2</i>
+         * @param padInputImag imaginary part of the bins <i>0..N/2</i>
+         * @param padOutput    real output of length <i>N</i> = 2^k
+         * @throws MathException if the sizes are wrong
+         * @see #realFFT(double[], double[], double[])
+         * @since 0.3.0.6
+         */
+        public static final void inverseRealFFT(final double[] padInputReal, final double[] padInputImag, double[] padOutput)
+                throws MathException {
+            inverseRealFFT(padInputReal, padInputImag, padOutput, Workspace.getCurrent());
+        }
+
+        /**
+         * Same as <code>inverseRealFFT(double[], double[], double[])</code>, but takes
+         * its scratch arrays from a given workspace, so it does not allocate.
+         *
+         * @param padInputReal real part of the bins <i>0..N/2</i>
+         * @param padInputImag imaginary part of the bins <i>0..N/2</i>
+         * @param padOutput    real output of length <i>N</i> = 2^k
+         * @param poWorkspace  scratch arrays
+         * @throws MathException if the sizes are wrong
+         * @since 0.3.0.6
+         */
+        public static final void inverseRealFFT
+        (
+                final double[] padInputReal,
+                final double[] padInputImag,
+                double[] padOutput,
+                Workspace poWorkspace
+        )
+                throws MathException {
+            int iLength = padOutput.length;
+
+            if ((iLength < 1) | ((iLength & (iLength - 1)) != 0)) {
+                throw new MathException("Length of output (" + iLength + ") is not a power of 2.");
+            }
+
+            if (padInputReal.length < iLength / 2 + 1 || padInputImag.length < iLength / 2 + 1) {
+                throw new MathException("Input length (" + padInputReal.length + ") < " + (iLength / 2 + 1));
+            }
+
+            if (iLength == 1) {
+                padOutput[0] = padInputReal[0];
+                return;
+            }
 
-                mmax = istep;
+            int iHalf = iLength / 2;
+
+            double[] adPackedReal = poWorkspace.get(Workspace.PACKED_REAL, iHalf);
+            double[] adPackedImag = poWorkspace.get(Workspace.PACKED_IMAG, iHalf);
+            double[] adOutputReal = poWorkspace.get(Workspace.TRANSFORM_REAL, iHalf);
+            double[] adOutputImag = poWorkspace.get(Workspace.TRANSFORM_IMAG, iHalf);
+
+            FFTPlan oPlan = FFTPlan.getPlan(iLength, -1, FFTPlan.WINDOW_NONE);
+
+            // Tangle: Z[k] = (X[k] + conj(X[N/2 - k])) + i * (X[k] - conj(X[N/2 - k])) * W^-k
+            for (int k = 0; k < iHalf; k++) {
+                double dAReal = padInputReal[k], dAImag = padInputImag[k];
+                double dBReal = padInputReal[iHalf - k], dBImag = -padInputImag[iHalf - k];
+
+                double dDReal = dAReal - dBReal, dDImag = dAImag - dBImag;
+                double dWReal = oPlan.getTwiddleReal(k), dWImag = oPlan.getTwiddleImag(k);
+
+                double dOReal = dDReal * dWReal - dDImag * dWImag;
+                double dOImag = dDReal * dWImag + dDImag * dWReal;
+
+                adPackedReal[k] = dAReal + dBReal - dOImag;
+                adPackedImag[k] = dAImag + dBImag + dOReal;
+            }
+
+            FFTPlan.getPlan(iHalf, -1, FFTPlan.WINDOW_NONE)
+                    .transform(adPackedReal, adPackedImag, adOutputReal, adOutputImag);
+
+            for (int i = 0; i < iHalf; i++) {
+                padOutput[2 * i] = adOutputReal[i];
+                padOutput[2 * i + 1] = adOutputImag[i];
             }
         }
 
@@ -184,14 +321,36 @@ public final class Algorithms {
          * @param padMagnitude  must be half the size of "sample"
          * @param padPhaseAngle must be half the size of "sample"
          * @throws MathException
+         * @see #realFFT(double[], double[], double[])
          */
         public static final void normalFFT(final double[] padSample, double[] padMagnitude, double[] padPhaseAngle)
                 throws MathException {
-            double[] adSampleImag = new double[padSample.length];
-            double[] adOutputReal = new double[padSample.length];
-            double[] adOutputImag = new double[padSample.length];
+            normalFFT(padSample, padMagnitude, padPhaseAngle, Workspace.getCurrent());
+        }
+
+        /**
+         * Same as <code>normalFFT(double[], double[], double[])</code>, but takes
+         * its scratch arrays from a given workspace, so it does not allocate.
+         *
+         * @param padSample     must be an array of size (2^k)
+         * @param padMagnitude  must be half the size of "sample"
+         * @param padPhaseAngle must be half the size of "sample"; may be <code>null</code>
+         * @param poWorkspace   scratch arrays
+         * @throws MathException if the sizes are wrong
+         * @since 0.3.0.6
+         */
+        public static final void normalFFT
+        (
+                final double[] padSample,
+                double[] padMagnitude,
+                double[] padPhaseAngle,
+                Workspace poWorkspace
+        )
+                throws MathException {
+            double[] adOutputReal = poWorkspace.get(Workspace.SPECTRUM_REAL, padSample.length / 2 + 1);
+            double[] adOutputImag = poWorkspace.get(Workspace.SPECTRUM_IMAG, padSample.length / 2 + 1);
 
-            doFFT(padSample, adSampleImag, adOutputReal, adOutputImag, 1);
+            realFFT(padSample, adOutputReal, adOutputImag, poWorkspace);
 
             // convert complex output to magnitude and phase angle
             int iLen = padMagnitude.length;
@@ -243,6 +402,32 @@ public final class Algorithms {
          */
         public static final void doLPC(final double[] padInput, double[] padOutput, double[] padError, int piPoles)
                 throws MathException {
+            doLPC(padInput, padOutput, padError, piPoles, Workspace.getCurrent());
+        }
+
+        /**
+         * Same as <code>doLPC(double[], double[], double[], int)</code>, but takes
+         * its scratch arrays from a given workspace, so it does not allocate.
+         * Only the previous and the current row of the predictor coefficient
+         * matrix are kept, as each row only depends on the previous one.
+         *
+         * @param padInput    windowed part of incoming sample
+         * @param padOutput   resulting LPC coefficiencies
+         * @param padError    output LPC error
+         * @param piPoles     number of poles
+         * @param poWorkspace scratch arrays
+         * @throws MathException if the number of poles or the array sizes are wrong
+         * @since 0.3.0.6
+         */
+        public static final void doLPC
+        (
+                final double[] padInput,
+                double[] padOutput,
+                double[] padError,
+                int piPoles,
+                Workspace poWorkspace
+        )
+                throws MathException {
             if (piPoles <= 0) {
                 throw new MathException("Number of poles should be > 0; supplied: " + piPoles);
             }
@@ -255,29 +440,40 @@ public final class Algorithms {
                 throw new MathException("Error array should be of length p (" + piPoles + ")!");
             }
 
-            double[] k = new double[piPoles];
-            double[][] A = new double[piPoles][piPoles];
+            double[] k = poWorkspace.get(Workspace.LPC_REFLECTION, piPoles);
+
+            // Rows A[m - 1] and A[m]; the elements past the diagonal must be 0
+            double[] adPrevious = poWorkspace.get(Workspace.LPC_PREVIOUS, piPoles + 1);
+            double[] adCurrent = poWorkspace.get(Workspace.LPC_CURRENT, piPoles + 1);
+            double[] adSwap;
+
+            java.util.Arrays.fill(adPrevious, 0, piPoles + 1, 0.0);
+            java.util.Arrays.fill(adCurrent, 0, piPoles + 1, 0.0);
 
             padError[0] = autocorrelation(padInput, 0);
 
-            A[0][0] = k[0] = 0.0;
+            adCurrent[0] = k[0] = 0.0;
 
             for (int m = 1; m < piPoles; m++) {
+                adSwap = adPrevious;
+                adPrevious = adCurrent;
+                adCurrent = adSwap;
+
                 // calculate k[m]
                 double dTmp = autocorrelation(padInput, m);
 
                 for (int i = 1; i < m; i++) {
-                    dTmp -= A[m - 1][i] * autocorrelation(padInput, m - i);
+                    dTmp -= adPrevious[i] * autocorrelation(padInput, m - i);
                 }
 
                 k[m] = dTmp / padError[m - 1];
 
                 // update A[m][*]
                 for (int i = 0; i < m; i++) {
-                    A[m][i] = A[m - 1][i] - k[m] * A[m - 1][m - i];
+                    adCurrent[i] = adPrevious[i] - k[m] * adPrevious[m - i];
                 }
 
-                A[m][m] = k[m];
+                adCurrent[m] = k[m];
 
                 // update error[m]
                 padError[m] = (1 - (k[m] * k[m])) * padError[m - 1];
@@ -285,10 +481,10 @@ public final class Algorithms {
 
             // [SM]: kludge?
             for (int i = 0; i < piPoles; i++) {
-                if (Double.isNaN(A[piPoles - 1][i])) {
+                if (Double.isNaN(adCurrent[i])) {
                     padOutput[i] = 0.0;
                 } else {
-                    padOutput[i] = A[piPoles - 1][i];
+                    padOutput[i] = adCurrent[i];
                 }
             }
         }
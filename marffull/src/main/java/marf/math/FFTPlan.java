@@ -0,0 +1,406 @@
+package marf.math;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+
+/**
+ * <p>Precomputed tables for FFTs and windowing of a given size.</p>
+ *
+ * <p>A plan holds the bit-reversal permutation and the twiddle factors
+ * of a radix-2 FFT of a given size and direction, as well as the
+ * coefficients of the window applied to its frames, so that none
+ * of them is recomputed in the per-frame loops. Plans and windows
+ * are immutable once built and are cached process-wide per
+ * (size, direction, window type) and (size, window type) respectively,
+ * so the same instances are shared by all the modules and threads.</p>
+ *
+ * <p>$Id$</p>
+ *
+ * @author The MARF Research and Development Group
+ * @version $Revision$
+ * @see Algorithms.FFT
+ * @see Algorithms.Hamming
+ * @since 0.3.0.6
+ */
+public final class FFTPlan {
+    /**
+     * No windowing (rectangular window).
+     */
+    public static final int WINDOW_NONE = 0;
+
+    /**
+     * Hamming window, as in <code>Algorithms.Hamming.hamming(double[])</code>.
+     */
+    public static final int WINDOW_HAMMING = 1;
+
+    /**
+     * Square root of Hamming window, as in <code>Algorithms.Hamming.sqrtHamming()</code>.
+     */
+    public static final int WINDOW_SQRT_HAMMING = 2;
+
+    /**
+     * Cached plans indexed by log2 of size, direction (0 for -1, 1 for 1),
+     * and window type, so that looking a plan up does not allocate.
+     * Plans only have final fields, so they are safely published
+     * even though the table is written without synchronization.
+     */
+    private static final FFTPlan[][][] soPlans = new FFTPlan[32][2][WINDOW_SQRT_HAMMING + 1];
+
+    /**
+     * Cached window coefficients keyed by size and window type.
+     */
+    private static final Map soWindows = new ConcurrentHashMap();
+
+    /**
+     * The most recently looked up window, checked before the map
+     * to spare the key allocation in per-frame loops.
+     */
+    private static volatile WindowEntry soLastWindow = null;
+
+    /**
+     * Transform size; a power of 2.
+     */
+    private final int iLength;
+
+    /**
+     * 1 for forward, -1 for inverse transform.
+     */
+    private final int iDirection;
+
+    /**
+     * Window type.
+     */
+    private final int iWindow;
+
+    /**
+     * Bit-reversal permutation: input element <code>i</code>
+     * goes to <code>aiBitReversal[i]</code>.
+     */
+    private final int[] aiBitReversal;
+
+    /**
+     * Real parts of the twiddle factors, <code>cos(2 * pi * k / N)</code>.
+     */
+    private final double[] adTwiddleReal;
+
+    /**
+     * Imaginary parts of the twiddle factors, <code>direction * sin(2 * pi * k / N)</code>.
+     */
+    private final double[] adTwiddleImag;
+
+    /**
+     * Window coefficients; <code>null</code> for <code>WINDOW_NONE</code>.
+     */
+    private final double[] adWindow;
+
+    /**
+     * Builds the tables of a plan without a window.
+     *
+     * @param piLength    transform size
+     * @param piDirection transform direction
+     */
+    private FFTPlan(final int piLength, final int piDirection) {
+        this.iLength = piLength;
+        this.iDirection = piDirection;
+        this.iWindow = WINDOW_NONE;
+        this.adWindow = null;
+
+        int iBits = 0;
+
+        while ((1 << iBits) < piLength) {
+            iBits++;
+        }
+
+        this.aiBitReversal = new int[piLength];
+
+        for (int i = 0; i < piLength; i++) {
+            int t = 0;
+            int n = i;
+
+            for (int iBit = 0; iBit < iBits; iBit++) {
+                t = (t << 1) | (n & 1);
+                n >>= 1;
+            }
+
+            this.aiBitReversal[i] = t;
+        }
+
+        this.adTwiddleReal = new double[piLength];
+        this.adTwiddleImag = new double[piLength];
+
+        for (int k = 0; k < piLength; k++) {
+            double dTheta = 2 * Math.PI * k / piLength;
+            this.adTwiddleReal[k] = Math.cos(dTheta);
+            this.adTwiddleImag[k] = piDirection * Math.sin(dTheta);
+        }
+    }
+
+    /**
+     * Makes a windowed plan sharing the FFT tables of another.
+     *
+     * @param poPlan   plan without a window of the same size and direction
+     * @param piWindow window type
+     */
+    private FFTPlan(final FFTPlan poPlan, final int piWindow) {
+        this.iLength = poPlan.iLength;
+        this.iDirection = poPlan.iDirection;
+        this.iWindow = piWindow;
+        this.aiBitReversal = poPlan.aiBitReversal;
+        this.adTwiddleReal = poPlan.adTwiddleReal;
+        this.adTwiddleImag = poPlan.adTwiddleImag;
+        this.adWindow = getWindow(poPlan.iLength, piWindow);
+    }
+
+    /**
+     * Retrieves the shared plan of given parameters, building it on first use.
+     *
+     * @param piLength    transform size; must be a power of 2
+     * @param piDirection 1 for normal FFT, -1 for inverse FFT
+     * @param piWindow    one of the <code>WINDOW_*</code> constants
+     * @return the plan
+     * @throws MathException if any of the parameters is invalid
+     */
+    public static FFTPlan getPlan(final int piLength, final int piDirection, final int piWindow)
+            throws MathException {
+        if ((piLength < 1) | ((piLength & (piLength - 1)) != 0)) {
+            throw new MathException("Length of input (" + piLength + ") is not a power of 2.");
+        }
+
+        if ((piDirection != 1) && (piDirection != -1)) {
+            throw new MathException("Bad direction specified. Should be 1 or -1.");
+        }
+
+        validateWindow(piWindow);
+
+        FFTPlan[] aoPlans = soPlans[Integer.numberOfTrailingZeros(piLength)][(piDirection + 1) / 2];
+        FFTPlan oPlan = aoPlans[piWindow];
+
+        if (oPlan == null) {
+            if (piWindow == WINDOW_NONE) {
+                oPlan = new FFTPlan(piLength, piDirection);
+            } else {
+                oPlan = new FFTPlan(getPlan(piLength, piDirection, WINDOW_NONE), piWindow);
+            }
+
+            // Racing builders produce equal plans; either one will do
+            aoPlans[piWindow] = oPlan;
+        }
+
+        return oPlan;
+    }
+
+    /**
+     * Retrieves the shared coefficients of a window of any size,
+     * computing them on first use. The array must not be modified.
+     *
+     * @param piLength window length
+     * @param piWindow one of the <code>WINDOW_*</code> constants other than <code>WINDOW_NONE</code>
+     * @return window coefficients
+     * @throws IllegalArgumentException if the window type is invalid or <code>WINDOW_NONE</code>
+     */
+    public static double[] getWindow(final int piLength, final int piWindow) {
+        if (piWindow == WINDOW_NONE) {
+            throw new IllegalArgumentException("WINDOW_NONE has no coefficients.");
+        }
+
+        validateWindow(piWindow);
+
+        WindowEntry oLast = soLastWindow;
+
+        if (oLast != null && oLast.iLength == piLength && oLast.iWindow == piWindow) {
+            return oLast.adCoefficients;
+        }
+
+        Long oKey = Long.valueOf(((long) piLength << 8) | piWindow);
+        double[] adWindow = (double[]) soWindows.get(oKey);
+
+        if (adWindow == null) {
+            adWindow = new double[piLength];
+
+            for (int i = 0; i < piLength; i++) {
+                if (piWindow == WINDOW_HAMMING) {
+                    adWindow[i] = 0.54 - (0.46 * Math.cos((2 * Math.PI * i) / (piLength - 1)));
+                } else {
+                    adWindow[i] = Math.sqrt(1 - 0.85185 * Math.cos((2 * i - 1) * Math.PI / piLength));
+                }
+            }
+
+            soWindows.put(oKey, adWindow);
+        }
+
+        soLastWindow = new WindowEntry(piLength, piWindow, adWindow);
+
+        return adWindow;
+    }
+
+    /**
+     * Ensures the window type is known.
+     *
+     * @param piWindow window type
+     * @throws IllegalArgumentException if it is not
+     */
+    private static void validateWindow(final int piWindow) {
+        if (piWindow < WINDOW_NONE || piWindow > WINDOW_SQRT_HAMMING) {
+            throw new IllegalArgumentException("Unknown window type: " + piWindow);
+        }
+    }
+
+    /**
+     * Multiplies the first <code>getLength()</code> elements of
+     * the array by the window coefficients of this plan.
+     *
+     * @param padData data to window in place
+     */
+    public void applyWindow(double[] padData) {
+        if (this.adWindow == null) {
+            return;
+        }
+
+        for (int i = 0; i < this.iLength; i++) {
+            padData[i] *= this.adWindow[i];
+        }
+    }
+
+    /**
+     * Performs the transform with the precomputed tables. Does not window
+     * the input. The input and output arrays must be distinct.
+     *
+     * @param padInputReal  real part of input array
+     * @param padInputImag  imaginary part of input array
+     * @param padOutputReal real part of output array
+     * @param padOutputImag imaginary part of output array
+     * @see Algorithms.FFT#doFFT(double[], double[], double[], double[], int)
+     */
+    public void transform
+    (
+            final double[] padInputReal,
+            final double[] padInputImag,
+            double[] padOutputReal,
+            double[] padOutputImag
+    ) {
+        int n = this.iLength;
+        int i;
+
+        for (i = 0; i < n; i++) {
+            padOutputReal[this.aiBitReversal[i]] = padInputReal[i];
+            padOutputImag[this.aiBitReversal[i]] = padInputImag[i];
+        }
+
+        // Danielson-Lanczos butterflies with tabulated twiddles
+        int iSpan, iStride, m, j;
+        double wr, wi, tempr, tempi;
+
+        for (iSpan = 1, iStride = n / 2; iSpan < n; iSpan *= 2, iStride /= 2) {
+            for (m = 0; m < iSpan; m++) {
+                wr = this.adTwiddleReal[m * iStride];
+                wi = this.adTwiddleImag[m * iStride];
+
+                for (i = m; i < n; i += 2 * iSpan) {
+                    j = i + iSpan;
+
+                    tempr = wr * padOutputReal[j] - wi * padOutputImag[j];
+                    tempi = wr * padOutputImag[j] + wi * padOutputReal[j];
+
+                    padOutputReal[j] = padOutputReal[i] - tempr;
+                    padOutputImag[j] = padOutputImag[i] - tempi;
+
+                    padOutputReal[i] += tempr;
+                    padOutputImag[i] += tempi;
+                }
+            }
+        }
+    }
+
+    /**
+     * Retrieves the real part of the k-th twiddle factor, <code>cos(2 * pi * k / N)</code>.
+     *
+     * @param piIndex k; taken modulo the plan size
+     * @return the value
+     */
+    public double getTwiddleReal(final int piIndex) {
+        return this.adTwiddleReal[piIndex & (this.iLength - 1)];
+    }
+
+    /**
+     * Retrieves the imaginary part of the k-th twiddle factor,
+     * <code>direction * sin(2 * pi * k / N)</code>.
+     *
+     * @param piIndex k; taken modulo the plan size
+     * @return the value
+     */
+    public double getTwiddleImag(final int piIndex) {
+        return this.adTwiddleImag[piIndex & (this.iLength - 1)];
+    }
+
+    /**
+     * Retrieves the transform size.
+     *
+     * @return the size
+     */
+    public int getLength() {
+        return this.iLength;
+    }
+
+    /**
+     * Retrieves the transform direction.
+     *
+     * @return 1 or -1
+     */
+    public int getDirection() {
+        return this.iDirection;
+    }
+
+    /**
+     * Retrieves the window type.
+     *
+     * @return one of the <code>WINDOW_*</code> constants
+     */
+    public int getWindowType() {
+        return this.iWindow;
+    }
+
+    /**
+     * Window coefficients along with what they were computed for.
+     */
+    private static final class WindowEntry {
+        /**
+         * Window length.
+         */
+        final int iLength;
+
+        /**
+         * Window type.
+         */
+        final int iWindow;
+
+        /**
+         * The coefficients.
+         */
+        final double[] adCoefficients;
+
+        /**
+         * Constructs the entry.
+         *
+         * @param piLength       window length
+         * @param piWindow       window type
+         * @param padCoefficients the coefficients
+         */
+        WindowEntry(final int piLength, final int piWindow, final double[] padCoefficients) {
+            this.iLength = piLength;
+            this.iWindow = piWindow;
+            this.adCoefficients = padCoefficients;
+        }
+    }
+
+    /**
+     * Returns source code revision information.
+     *
+     * @return revision string
+     */
+    public static String getMARFSourceCodeRevision() {
+        return "$Revision$";
+    }
+}
+
+// EOF
@@ -0,0 +1,177 @@
+package marf.math;
+
+
+/**
+ * <p>Reusable scratch arrays for the algorithms in <code>Algorithms</code>.</p>
+ *
+ * <p>The FFT and LPC routines need temporary arrays whose size only depends
+ * on the frame size, so allocating them anew for every frame produces a lot
+ * of short-lived garbage on long samples. A workspace keeps them between
+ * calls, growing them as needed. A caller may supply its own workspace to
+ * the overloads taking one, or use the default ones, which take the
+ * workspace of the calling thread. A workspace must not be shared by
+ * threads running at the same time.</p>
+ *
+ * <p>$Id$</p>
+ *
+ * @author The MARF Research and Development Group
+ * @version $Revision$
+ * @see Algorithms
+ * @since 0.3.0.6
+ */
+public class Workspace {
+    /**
+     * Packed real part of the half-size transform of <code>realFFT()</code>.
+     */
+    static final int PACKED_REAL = 0;
+
+    /**
+     * Packed imaginary part of the half-size transform of <code>realFFT()</code>.
+     */
+    static final int PACKED_IMAG = 1;
+
+    /**
+     * Real part of the half-size transform output of <code>inverseRealFFT()</code>.
+     */
+    static final int TRANSFORM_REAL = 2;
+
+    /**
+     * Imaginary part of the half-size transform output of <code>inverseRealFFT()</code>.
+     */
+    static final int TRANSFORM_IMAG = 3;
+
+    /**
+     * Real part of the spectrum in <code>normalFFT()</code>.
+     */
+    static final int SPECTRUM_REAL = 4;
+
+    /**
+     * Imaginary part of the spectrum in <code>normalFFT()</code>.
+     */
+    static final int SPECTRUM_IMAG = 5;
+
+    /**
+     * Reflection coefficients of <code>doLPC()</code>.
+     */
+    static final int LPC_REFLECTION = 6;
+
+    /**
+     * Previous row of predictor coefficients of <code>doLPC()</code>.
+     */
+    static final int LPC_PREVIOUS = 7;
+
+    /**
+     * Current row of predictor coefficients of <code>doLPC()</code>.
+     */
+    static final int LPC_CURRENT = 8;
+
+    /**
+     * Sample chunk of a feature extraction frame loop.
+     */
+    public static final int FRAME_CHUNK = 9;
+
+    /**
+     * Windowed frame of a feature extraction frame loop.
+     */
+    public static final int FRAME_WINDOWED = 10;
+
+    /**
+     * Magnitude spectrum of a feature extraction frame loop.
+     */
+    public static final int FRAME_MAGNITUDE = 11;
+
+    /**
+     * Phase angles of a feature extraction frame loop.
+     */
+    public static final int FRAME_PHASE_ANGLE = 12;
+
+    /**
+     * Number of arrays.
+     */
+    private static final int SLOTS = 13;
+
+    /**
+     * Workspace of each thread for the calls not supplying one.
+     */
+    private static final ThreadLocal soThreadWorkspace = new ThreadLocal() {
+        protected Object initialValue() {
+            return new Workspace();
+        }
+    };
+
+    /**
+     * The scratch arrays.
+     */
+    private final double[][] aadArrays = new double[SLOTS][];
+
+    /**
+     * Constructs an empty workspace; the arrays are allocated on first use.
+     */
+    public Workspace() {
+    }
+
+    /**
+     * Retrieves the workspace of the calling thread.
+     *
+     * @return the thread's workspace
+     */
+    public static Workspace getCurrent() {
+        return (Workspace) soThreadWorkspace.get();
+    }
+
+    /**
+     * Retrieves a scratch array of at least the given length.
+     * The contents are whatever was left from the previous use.
+     *
+     * @param piSlot   which array
+     * @param piLength minimum length
+     * @return the array
+     */
+    final double[] get(final int piSlot, final int piLength) {
+        double[] adArray = this.aadArrays[piSlot];
+
+        if (adArray == null || adArray.length < piLength) {
+            adArray = new double[piLength];
+            this.aadArrays[piSlot] = adArray;
+        }
+
+        return adArray;
+    }
+
+    /**
+     * Retrieves a frame array of exactly the given length for the callers
+     * of <code>Algorithms</code>, which mostly size their transforms by the
+     * arrays they pass. The array is reallocated whenever the length changes.
+     * The contents are whatever was left from the previous use.
+     *
+     * @param piSlot   one of the <code>FRAME_*</code> arrays
+     * @param piLength the length
+     * @return the array
+     * @throws IllegalArgumentException if the slot is not a frame one
+     */
+    public final double[] getFrame(final int piSlot, final int piLength) {
+        if (piSlot < FRAME_CHUNK || piSlot >= SLOTS) {
+            throw new IllegalArgumentException("Not a frame array: " + piSlot);
+        }
+
+        double[] adArray = this.aadArrays[piSlot];
+
+        if (adArray == null || adArray.length != piLength) {
+            adArray = new double[piLength];
+            this.aadArrays[piSlot] = adArray;
+        }
+
+        return adArray;
+    }
+
+    /**
+     * Returns source code revision information.
+     *
+     * @return revision string
+     */
+    public static String getMARFSourceCodeRevision() {
+        return "$Revision$";
+    }
+}
+
+// EOF
@@ -1,9 +1,14 @@
 package marf.nlp.Parsing.GrammarCompiler;
 
 import java.io.Serializable;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
 import java.util.Vector;
 
 import marf.nlp.Parsing.SyntaxError;
+import marf.util.Arrays;
 import marf.util.Debug;
 
 
@@ -14,6 +19,13 @@ import marf.util.Debug;
  * and reloaded on demand.
  * </p>
  * <p>
+ * <p>As of 0.3.0.6, the rules of the forms A -> w and A -> BC, as the
+ * CYK parsing looks them up, are indexed by w and by (B, C) on the first
+ * lookup, so that it takes constant time rather than a scan of the rules.
+ * The index is not serialized, and is rebuilt when elements or rules are
+ * added through this class; it does not notice changes to the rules or
+ * the lists modified directly.</p>
+ * <p>
  * $Id: Grammar.java,v 1.21 2006/01/21 02:35:32 mokhov Exp $
  *
  * @author Serguei Mokhov
@@ -67,6 +79,60 @@ public class Grammar
      */
     protected NonTerminal oStartNonTerminal;
 
+    /**
+     * Indexes of the rules A -> w by the name of w, as <code>int[]</code>,
+     * the first rule for every A only; <code>null</code> until indexed.
+     *
+     * @since 0.3.0.6
+     */
+    private transient Map oTerminalRules = null;
+
+    /**
+     * Indexes of the rules A -> BC, the first rule for every A, B, and C,
+     * ordered by the indexes of A, B, and C.
+     *
+     * @since 0.3.0.6
+     */
+    private transient int[] aiBinaryRules = null;
+
+    /**
+     * Index of the rule A -> BC by the indexes of A, B, and C packed
+     * into a <code>Long</code>.
+     *
+     * @since 0.3.0.6
+     */
+    private transient Map oBinaryRuleIndex = null;
+
+    /**
+     * Index of the LHS non-terminal of every rule.
+     *
+     * @since 0.3.0.6
+     */
+    private transient int[] aiRuleLHS = null;
+
+    /**
+     * Indexes of the non-terminals B and C of every rule A -> BC,
+     * one after the other; -1 for the other rules.
+     *
+     * @since 0.3.0.6
+     */
+    private transient int[] aiRuleRHS = null;
+
+    /**
+     * Probability of every rule, 1.0 for those not probabilistic.
+     *
+     * @since 0.3.0.6
+     */
+    private transient double[] adRuleProbabilities = null;
+
+    /**
+     * First rule with more than two elements on the RHS;
+     * <code>null</code> if there is none.
+     *
+     * @since 0.3.0.6
+     */
+    private transient Rule oNonCNFRule = null;
+
     /**
      * For serialization versioning.
      * When adding new members or make other structural
@@ -315,108 +381,283 @@ public class Grammar
      * @param pstrTerminal       the name of the terminal
      * @param piNonTerminalIndex the index of the non-terminal in the table
      * @return a reference tot he corresponding rule if found; null otherwise
+     * @see #getTerminalRules(String)
      */
     public final Rule getRule(final String pstrTerminal, final int piNonTerminalIndex) {
-        if (pstrTerminal == null || containsTerminal(pstrTerminal) < 0) {
+        if (pstrTerminal == null) {
             return null;
         }
 
-        // TODO: out of bounds handling
-        NonTerminal oLHS = (NonTerminal) this.oNonTerminalList.elementAt(piNonTerminalIndex);
-
-        Rule oRule = null;
-
-        for (int i = 0; i < this.oRules.size(); i++) {
-            Rule oCurrentRule = (Rule) this.oRules.elementAt(i);
-
-            GrammarElement oGrammarElement = (GrammarElement) oCurrentRule.getRHS().elementAt(0);
+        int[] aiRules = getTerminalRules(pstrTerminal);
 
-            // TODO: check whether RHS indeed has only one (terminal) element
-            // and not more
-            if (oGrammarElement.isTerminal()) {
-                // The rule has to have both: LHS -> a
-                if (oGrammarElement.getName().equals(pstrTerminal) && oCurrentRule.getLHS().equals(oLHS)) {
-                    oRule = oCurrentRule;
-                    break;
-                }
+        for (int i = 0; i < aiRules.length; i++) {
+            if (getRuleLHS(aiRules[i]) == piNonTerminalIndex) {
+                return (Rule) this.oRules.elementAt(aiRules[i]);
             }
         }
 
-        return oRule;
+        return null;
     }
 
     /**
      * Retrieves a grammar rule given the indices of the
      * LHS non-terminal and two grammar elements on the RHS.
      * The rule must be in CNF.
-     * <p>
-     * TODO: review in detail for error handling.
      *
-     * @param piA
-     * @param piB
-     * @param piC
+     * @param piA index of the LHS non-terminal
+     * @param piB index of the first RHS non-terminal
+     * @param piC index of the second RHS non-terminal
      * @return a reference to the rule objec given parameters; or null if not found
-     * @throws RuntimeException if the rule found is not in CNF
+     * @throws RuntimeException if the grammar is not in CNF
+     * @see #getBinaryRules()
      */
     public final Rule getRule(int piA, int piB, int piC) {
-        Rule oRule = null;
-
-/*		if
-        (
-			A < 0 || B < 0 || C < 0
-			||
-			A >= this.NonTerminalList.size()
-			||
-			B >= this.NonTerminalList.size()
-			||
-			C >= this.NonTerminalList.size()
-		)
-		{
-			return null;
-		}
-*/
-        try {
-            NonTerminal oNonTerminalLHS = (NonTerminal) this.oNonTerminalList.elementAt(piA);
-            NonTerminal oNonTerminalB = (NonTerminal) this.oNonTerminalList.elementAt(piB);
-            NonTerminal oNonTerminalC = (NonTerminal) this.oNonTerminalList.elementAt(piC);
-
-            Debug.debug("A = " + oNonTerminalLHS + ", B = " + oNonTerminalB + ", C = " + oNonTerminalC);
+        int iNonTerminals = this.oNonTerminalList.size();
 
-            for (int i = 0; i < this.oRules.size(); i++) {
-                Rule oCurrentRule = (Rule) this.oRules.elementAt(i);
+        if (piA < 0 || piB < 0 || piC < 0 || piA >= iNonTerminals || piB >= iNonTerminals || piC >= iNonTerminals) {
+            return null;
+        }
 
-                NonTerminal oNonTerminal = oCurrentRule.getLHS();
+        Integer oRule;
 
-                if (oNonTerminal.equals(oNonTerminalLHS) == false) {
-                    continue;
+        synchronized (this) {
+            getBinaryRules();
+            oRule = (Integer) this.oBinaryRuleIndex.get(Long.valueOf(getBinaryKey(piA, piB, piC, iNonTerminals)));
+        }
+
+        return oRule == null ? null : (Rule) this.oRules.elementAt(oRule.intValue());
+    }
+
+    /**
+     * Retrieves the indexes of the rules A -> w of a terminal w,
+     * the first one for every non-terminal A.
+     *
+     * @param pstrTerminal the name of the terminal
+     * @return the rule indexes, in the order of the rules; empty if there is none
+     * @since 0.3.0.6
+     */
+    public final synchronized int[] getTerminalRules(final String pstrTerminal) {
+        if (this.oTerminalRules == null) {
+            indexRules();
+        }
+
+        int[] aiRules = (int[]) this.oTerminalRules.get(pstrTerminal);
+
+        return aiRules == null ? new int[0] : aiRules;
+    }
+
+    /**
+     * Retrieves the indexes of the rules A -> BC, the first one for every
+     * non-terminals A, B, and C. They are ordered by the indexes of A,
+     * B, and C, the order of the CYK algorithm trying all the triples.
+     *
+     * @return the rule indexes; not to be modified
+     * @throws RuntimeException if the grammar is not in CNF
+     * @since 0.3.0.6
+     */
+    public final synchronized int[] getBinaryRules() {
+        if (this.oTerminalRules == null) {
+            indexRules();
+        }
+
+        if (this.oNonCNFRule != null) {
+            throw new RuntimeException
+                    (
+                            "Grammar.getRule() --- Grammar is not in Chomsky Normal Form: " +
+                                    this.oNonCNFRule
+                    );
+        }
+
+        return this.aiBinaryRules;
+    }
+
+    /**
+     * Retrieves the index of the LHS non-terminal of a rule.
+     *
+     * @param piRule the rule index
+     * @return the non-terminal index
+     * @since 0.3.0.6
+     */
+    public final synchronized int getRuleLHS(final int piRule) {
+        if (this.oTerminalRules == null) {
+            indexRules();
+        }
+
+        return this.aiRuleLHS[piRule];
+    }
+
+    /**
+     * Retrieves the index of a non-terminal on the RHS of a rule A -> BC.
+     *
+     * @param piRule     the rule index
+     * @param piPosition 0 for B, 1 for C
+     * @return the non-terminal index; -1 if the rule is not of that form
+     * @since 0.3.0.6
+     */
+    public final synchronized int getRuleRHS(final int piRule, final int piPosition) {
+        if (this.oTerminalRules == null) {
+            indexRules();
+        }
+
+        return this.aiRuleRHS[2 * piRule + piPosition];
+    }
+
+    /**
+     * Retrieves the probability of a rule.
+     *
+     * @param piRule the rule index
+     * @return the probability; 1.0 if the rule is not a <code>ProbabilisticRule</code>
+     * @since 0.3.0.6
+     */
+    public final synchronized double getRuleProbability(final int piRule) {
+        if (this.oTerminalRules == null) {
+            indexRules();
+        }
+
+        return this.adRuleProbabilities[piRule];
+    }
+
+    /**
+     * Indexes the rules A -> w by w and A -> BC by A, B, and C.
+     * A rule is taken as A -> w if the first element of its RHS is
+     * a terminal, as <code>getRule(String, int)</code> always did.
+     *
+     * @since 0.3.0.6
+     */
+    private void indexRules() {
+        int iRules = this.oRules.size();
+        int iNonTerminals = this.oNonTerminalList.size();
+
+        Map oNonTerminalIndexes = new IdentityHashMap();
+
+        for (int i = 0; i < iNonTerminals; i++) {
+            if (!oNonTerminalIndexes.containsKey(this.oNonTerminalList.elementAt(i))) {
+                oNonTerminalIndexes.put(this.oNonTerminalList.elementAt(i), Integer.valueOf(i));
+            }
+        }
+
+        Map oTerminalRuleLists = new HashMap();
+        Map oBinaryRuleIndex = new HashMap();
+        long[] alBinaryKeys = new long[iRules];
+        int iBinaryRules = 0;
+
+        this.aiRuleLHS = new int[iRules];
+        this.aiRuleRHS = new int[2 * iRules];
+        this.adRuleProbabilities = new double[iRules];
+        this.oNonCNFRule = null;
+
+        Arrays.fill(this.aiRuleRHS, -1);
+
+        for (int i = 0; i < iRules; i++) {
+            Rule oRule = (Rule) this.oRules.elementAt(i);
+            Vector oRHS = oRule.getRHS();
+            Integer oLHS = (Integer) oNonTerminalIndexes.get(oRule.getLHS());
+
+            this.aiRuleLHS[i] = oLHS == null ? -1 : oLHS.intValue();
+
+            this.adRuleProbabilities[i] =
+                    oRule instanceof ProbabilisticRule ? ((ProbabilisticRule) oRule).getProbability() : 1.0;
+
+            if (oRHS.size() > 2 && this.oNonCNFRule == null) {
+                this.oNonCNFRule = oRule;
+            }
+
+            if (oLHS == null || oRHS.size() == 0) {
+                continue;
+            }
+
+            GrammarElement oFirst = (GrammarElement) oRHS.elementAt(0);
+
+            if (oFirst.isTerminal()) {
+                Vector oList = (Vector) oTerminalRuleLists.get(oFirst.getName());
+
+                if (oList == null) {
+                    oList = new Vector();
+                    oTerminalRuleLists.put(oFirst.getName(), oList);
+                }
+
+                boolean bFound = false;
+
+                for (int j = 0; j < oList.size() && !bFound; j++) {
+                    bFound = this.aiRuleLHS[((Integer) oList.elementAt(j)).intValue()] == oLHS.intValue();
                 }
 
-                Vector oRHS = oCurrentRule.getRHS();
+                if (!bFound) {
+                    oList.add(Integer.valueOf(i));
+                }
+            } else if (oRHS.size() == 2) {
+                Integer oB = (Integer) oNonTerminalIndexes.get(oFirst);
+                Integer oC = (Integer) oNonTerminalIndexes.get(oRHS.elementAt(1));
 
-                if (oRHS.size() > 2) {
-                    throw new RuntimeException
-                            (
-                                    "Grammar.getRule() --- Grammar is not in Chomsky Normal Form: " +
-                                            oCurrentRule
-                            );
+                if (oB == null || oC == null) {
+                    continue;
                 }
 
-                if (oRHS.elementAt(0).equals(oNonTerminalB) && oRHS.elementAt(1).equals(oNonTerminalC)) {
-                    oRule = oCurrentRule;
-                    break;
+                this.aiRuleRHS[2 * i] = oB.intValue();
+                this.aiRuleRHS[2 * i + 1] = oC.intValue();
+
+                Long oKey = Long.valueOf(getBinaryKey(oLHS.intValue(), oB.intValue(), oC.intValue(), iNonTerminals));
+
+                if (!oBinaryRuleIndex.containsKey(oKey)) {
+                    oBinaryRuleIndex.put(oKey, Integer.valueOf(i));
+                    alBinaryKeys[iBinaryRules++] = oKey.longValue();
                 }
             }
-        } catch (NullPointerException e) {
-            // Means element in the vector is null
-            System.err.println("Grammar.getRule() --- NullPointerException: element in the vector is null");
-            e.printStackTrace(System.err);
-        } catch (ArrayIndexOutOfBoundsException e) {
-            // Means either A, B, or C are outside bounds
-            System.err.println("Grammar.getRule() --- ArrayIndexOutOfBoundsException: either A, B, or C are outside bounds");
-            e.printStackTrace(System.err);
         }
 
-        return oRule;
+        // In the order of A, B, and C
+        long[] alSortedKeys = new long[iBinaryRules];
+        System.arraycopy(alBinaryKeys, 0, alSortedKeys, 0, iBinaryRules);
+        Arrays.sort(alSortedKeys);
+
+        this.aiBinaryRules = new int[iBinaryRules];
+
+        for (int i = 0; i < iBinaryRules; i++) {
+            this.aiBinaryRules[i] = ((Integer) oBinaryRuleIndex.get(Long.valueOf(alSortedKeys[i]))).intValue();
+        }
+
+        this.oBinaryRuleIndex = oBinaryRuleIndex;
+        this.oTerminalRules = new HashMap();
+
+        Iterator oTerminals = oTerminalRuleLists.keySet().iterator();
+
+        while (oTerminals.hasNext()) {
+            Object oTerminal = oTerminals.next();
+            Vector oList = (Vector) oTerminalRuleLists.get(oTerminal);
+            int[] aiRules = new int[oList.size()];
+
+            for (int j = 0; j < aiRules.length; j++) {
+                aiRules[j] = ((Integer) oList.elementAt(j)).intValue();
+            }
+
+            this.oTerminalRules.put(oTerminal, aiRules);
+        }
+    }
+
+    /**
+     * Drops the rule index, to be rebuilt on the next lookup.
+     *
+     * @since 0.3.0.6
+     */
+    private synchronized void invalidateRuleIndex() {
+        this.oTerminalRules = null;
+        this.aiBinaryRules = null;
+        this.oBinaryRuleIndex = null;
+    }
+
+    /**
+     * Packs the indexes of the non-terminals of a rule A -> BC
+     * into a key ordered by A, B, and C.
+     *
+     * @param piA           index of A
+     * @param piB           index of B
+     * @param piC           index of C
+     * @param piNonTerminals number of non-terminals
+     * @return the key
+     * @since 0.3.0.6
+     */
+    private static long getBinaryKey(final int piA, final int piB, final int piC, final int piNonTerminals) {
+        return ((long) piA * piNonTerminals + piB) * piNonTerminals + piC;
     }
 
     /**
@@ -504,6 +745,7 @@ public class Grammar
     public void addTeminal(Terminal poTerminal) {
         assert poTerminal != null;
         this.oTerminalList.addElement(poTerminal);
+        invalidateRuleIndex();
     }
 
     /**
@@ -514,6 +756,7 @@ public class Grammar
     public void addNonTeminal(NonTerminal poNonTerminal) {
         assert poNonTerminal != null;
         this.oNonTerminalList.addElement(poNonTerminal);
+        invalidateRuleIndex();
     }
 
     /**
@@ -524,6 +767,7 @@ public class Grammar
     public void addRule(Rule poRule) {
         assert poRule != null;
         this.oRules.addElement(poRule);
+        invalidateRuleIndex();
     }
 
     /**
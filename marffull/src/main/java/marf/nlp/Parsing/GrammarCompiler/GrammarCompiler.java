@@ -1,5 +1,7 @@
 package marf.nlp.Parsing.GrammarCompiler;
 
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
 import java.io.FileInputStream;
 import java.io.FileWriter;
 import java.io.IOException;
@@ -894,7 +896,8 @@ public class GrammarCompiler
     /**
      * Loads (previously serialized) state of the TT.
      * Method declared as static and can be called without an
-     * instance of the GrammarCompiler.
+     * instance of the GrammarCompiler. Reads the binary form
+     * of the table as well as a serialized table object.
      *
      * @param pstrTTFileName filename of a file with previously stored transition table
      * @return reference to the newly loaded instance of the TransitionTable data structure
@@ -907,14 +910,31 @@ public class GrammarCompiler
             FileInputStream oFIS = new FileInputStream(pstrTTFileName);
 
             // Compressed
-            GZIPInputStream oGZIS = new GZIPInputStream(oFIS);
+            BufferedInputStream oBIS = new BufferedInputStream(new GZIPInputStream(oFIS));
 
-            // Load objects
-            ObjectInputStream oOIS = new ObjectInputStream(oGZIS);
+            TransitionTable oTT;
 
-            TransitionTable oTT = (TransitionTable) oOIS.readObject();
+            // Binary form or serialized object
+            oBIS.mark(4);
+            DataInputStream oDIS = new DataInputStream(oBIS);
 
-            oOIS.close();
+            if (oDIS.readInt() == TransitionTable.BINARY_FORMAT_MAGIC) {
+                oBIS.reset();
+
+                oTT = new TransitionTable(pstrTTFileName);
+                oTT.readBinary(oDIS);
+
+                oDIS.close();
+            } else {
+                oBIS.reset();
+
+                // Load objects
+                ObjectInputStream oOIS = new ObjectInputStream(oBIS);
+
+                oTT = (TransitionTable) oOIS.readObject();
+
+                oOIS.close();
+            }
 
             soTransitionTable = oTT;
 
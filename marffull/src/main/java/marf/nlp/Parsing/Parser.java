@@ -186,7 +186,7 @@ public class Parser {
 
         stackDump();
 
-        Token oNextToken = this.oLexer.getNextToken();
+        Token oNextToken = getNextToken();
 
         try {
             FileWriter oWriter = new FileWriter(this.oLexer.getOutputFilename() + ".parse.log");
@@ -219,11 +219,7 @@ public class Parser {
 						continue;
 					}
 	//*/
-                    Debug.debug
-                            (
-                                    "Matching [" + ((Terminal) oTopElement).getName() +
-                                            "," + oNextToken.getLexeme() + "]"
-                            );
+                    Debug.debug("Matching [{},{}]", oTopElement.getName(), oNextToken.getLexeme());
 
                     if
                             (
@@ -264,7 +260,7 @@ public class Parser {
                             ) {
                         this.oStack.pop();
                         stackDump();
-                        oNextToken = this.oLexer.getNextToken();
+                        oNextToken = getNextToken();
                     } else {
                         skipErrors();
                         this.bErrorsPresent = true;
@@ -273,10 +269,12 @@ public class Parser {
 
                 // NonTerminal is on the top
                 else {
-                    System.out.println
+                    Debug.debug
                             (
-                                    "Trying to get element TT[" + oTopElement.getName() +
-                                            "(" + oTopElement.getID() + ")," + oNextToken.getLexeme() + "]"
+                                    "Trying to get element TT[{}({}),{}]",
+                                    oTopElement.getName(),
+                                    Integer.valueOf(oTopElement.getID()),
+                                    oNextToken.getLexeme()
                             );
 
                     Object oTTEntry = this.oTT.getEntryAt((NonTerminal) oTopElement, oNextToken);
@@ -291,18 +289,18 @@ public class Parser {
                                 );
                     }
 
-                    System.out.println(oTTEntry.getClass().getName());
+                    Debug.debug("{}", oTTEntry.getClass().getName());
 
                     // It's either a Rule
                     if (oTTEntry instanceof Rule) {
-                        Rule oRule = ((Rule) this.oTT.getEntryAt((NonTerminal) oTopElement, oNextToken));
+                        Rule oRule = (Rule) oTTEntry;
 
                         oWriter.write(oRule.toAbbrString() + ": " + oRule.toString() + "\n");
-                        System.out.println(oRule.toAbbrString() + ": " + oRule.toString());
+                        Debug.debug("{}: {}", oRule.toAbbrString(), oRule);
 
                         this.oStack.pop();
 
-                        inverseMultiplePush((NonTerminal) oTopElement, oNextToken);
+                        inverseMultiplePush(oRule);
                         stackDump();
                     }
 
@@ -314,7 +312,7 @@ public class Parser {
 
                         oBuffer
                                 .append("parse(): ")
-                                .append(((SyntaxError) this.oTT.getEntryAt((NonTerminal) oTopElement, oNextToken)).getMessage())
+                                .append(((SyntaxError) oTTEntry).getMessage())
                                 .append("\n");
 
                         oWriter.write(oBuffer.toString());
@@ -359,7 +357,7 @@ public class Parser {
             throws LexicalError {
         System.out.println("Parser::skipErrors() - errors encountered. Recovering...");
 
-        Token oLookahead = this.oLexer.getNextToken();
+        Token oLookahead = getNextToken();
         GrammarElement oTopElement = (GrammarElement) this.oStack.peek();
 
         if
@@ -376,42 +374,58 @@ public class Parser {
             System.out.println("Parser::skipErrors() - popping " + oTopElement.getName());
             this.oStack.pop();
         } else {
-            oLookahead = this.oLexer.getNextToken();
+            oLookahead = getNextToken();
             this.oStack.pop();
             //this.oStack.push(this.oTT.getGrammarElement(oLookahead.getLexeme()));
             //System.out.println("Parser::skipErrors() - pushing " + oLookahead.getLexeme());
         }
     }
 
+    /**
+     * Gets the next token from the lexer with its terminal
+     * resolved in the transition table.
+     *
+     * @return the token
+     * @throws LexicalError if invalid token is encounterd
+     * @since 0.3.0.6
+     */
+    private Token getNextToken()
+            throws LexicalError {
+        Token oToken = this.oLexer.getNextToken();
+        this.oTT.getTerminalID(oToken);
+        return oToken;
+    }
+
     /**
      * Pushes multiple tokens on a RHS of a rule
      * into the stack in the reverse order.
      *
-     * @param poNonTerminal non-terminal to recover the corresponding rule
-     * @param poToken       token to recover the corresponding rule
+     * @param poRule the rule whose RHS to push
      */
-    private void inverseMultiplePush(NonTerminal poNonTerminal, Token poToken) {
-        Rule oRule = (Rule) this.oTT.getEntryAt(poNonTerminal, poToken);
-
+    private void inverseMultiplePush(final Rule poRule) {
         // Don't push epsilon
         // TODO: fix hardcoding
         if
                 (
-                oRule.getRHS().size() == 1
-                        && (((GrammarElement) oRule.getRHS().elementAt(0)).getName().equals("&"))
+                poRule.getRHS().size() == 1
+                        && (((GrammarElement) poRule.getRHS().elementAt(0)).getName().equals("&"))
                 ) {
             return;
         }
 
-        for (int i = oRule.getRHS().size() - 1; i >= 0; i--) {
-            this.oStack.push(oRule.getRHS().elementAt(i));
+        for (int i = poRule.getRHS().size() - 1; i >= 0; i--) {
+            this.oStack.push(poRule.getRHS().elementAt(i));
         }
     }
 
     /**
-     * Performs textual stack dump.
+     * Performs textual stack dump when debugging.
      */
     private void stackDump() {
+        if (!Debug.isDebugOn()) {
+            return;
+        }
+
         System.out.println("Stack dump (bottom to top):");
         System.out.println("------------8<-------------");
 
@@ -8,7 +8,6 @@ import marf.Storage.StorageManager;
 import marf.nlp.Parsing.GrammarCompiler.Grammar;
 import marf.nlp.Parsing.GrammarCompiler.NonTerminal;
 import marf.nlp.Parsing.GrammarCompiler.ProbabilisticGrammarCompiler;
-import marf.nlp.Parsing.GrammarCompiler.ProbabilisticRule;
 import marf.util.Debug;
 
 
@@ -56,6 +55,11 @@ import marf.util.Debug;
  *     return build_tree(back[1, num_words, 1]), [1, num_words, 1])
  * </pre>
  * <p>
+ * <p>As of 0.3.0.6, the innermost loops run over the rules A --> BC of
+ * the grammar, as indexed by <code>Grammar</code>, rather than over all
+ * the triples of non-terminals, in the same order, and the back-pointers
+ * are kept in an <code>int</code> array.</p>
+ * <p>
  * $Id: ProbabilisticParser.java,v 1.30 2006/01/30 03:43:17 mokhov Exp $
  *
  * @author Serguei Mokhov
@@ -80,9 +84,12 @@ public class ProbabilisticParser
     private double[][][] adParseMatrix = null;
 
     /**
-     * 3-dimensional collection of back-vectors for CYK.
+     * 3-dimensional back-pointers for CYK: for the span from i to j and
+     * the non-terminal A, <code>aiBack[i][j][3 * A]</code> is the split
+     * m plus 1, or 0 if there is no back-pointer, followed by the
+     * indexes of B and C.
      */
-    private Vector[][][] aoBack = null;
+    private int[][][] aiBack = null;
 
     /**
      * A collection of words (dictionary).
@@ -183,21 +190,23 @@ public class ProbabilisticParser
             }
 
             // CYK
-            Vector oNonTerminals = this.oGrammar.getNonTerminalList();
+            int iWords = this.oWords.size();
+            int iNonTerminals = this.oGrammar.getNonTerminalList().size();
 
-            this.adParseMatrix = new double[this.oWords.size()][this.oWords.size()][oNonTerminals.size()];
-            this.aoBack = new Vector[this.oWords.size()][this.oWords.size()][oNonTerminals.size()];
+            this.adParseMatrix = new double[iWords][iWords][iNonTerminals];
+            this.aiBack = new int[iWords][iWords][3 * iNonTerminals];
 
             // Base case
 
-            for (int i = 0; i < this.oWords.size(); i++) {
+            for (int i = 0; i < iWords; i++) {
                 String strTerminal = this.oWords.elementAt(i).toString();
+                int[] aiRules = this.oGrammar.getTerminalRules(strTerminal);
 
 				/*
                  * Fail-fast: if the terminal is not in the grammar (no rule 'A->wd' found ),
 				 * there is no point to compute the parse
 				 */
-                if (this.oGrammar.containsTerminal(strTerminal) == -1) {
+                if (aiRules.length == 0) {
                     if (Debug.isDebugOn()) {
                         System.out.println("Terminal [ " + strTerminal + " ] not found in the grammar.");
                     }
@@ -205,82 +214,93 @@ public class ProbabilisticParser
                     return false;
                 }
 
-                for (int A = 0; A < oNonTerminals.size(); A++) {
-                    ProbabilisticRule oRule = (ProbabilisticRule) this.oGrammar.getRule(strTerminal, A);
-
-                    // Current pair: 'A->wd' does not form a Rule
-                    if (oRule == null) {
-                        continue;
-                    }
+                for (int r = 0; r < aiRules.length; r++) {
+                    int iA = this.oGrammar.getRuleLHS(aiRules[r]);
 
-                    this.adParseMatrix[i][i][A] = oRule.getProbability();
+                    this.adParseMatrix[i][i][iA] = this.oGrammar.getRuleProbability(aiRules[r]);
 
                     if (Debug.isDebugOn()) {
-                        System.out.println("Rule (A->wd): " + oRule + ", P = " + oRule.getProbability());
+                        System.out.println
+                                (
+                                        "Rule (A->wd): " + this.oGrammar.getRules().elementAt(aiRules[r]) +
+                                                ", P = " + this.adParseMatrix[i][i][iA]
+                                );
                     }
                 }
             }
 
+            /*
+             * Only the rules A->BC of the grammar are tried, in the order of
+             * A, B, and C, so the ties go the same way as if all the triples
+             * of non-terminals were.
+             */
+            int[] aiRules = this.oGrammar.getBinaryRules();
+            int[] aiA = new int[aiRules.length];
+            int[] aiB = new int[aiRules.length];
+            int[] aiC = new int[aiRules.length];
+            double[] adP = new double[aiRules.length];
+
+            for (int r = 0; r < aiRules.length; r++) {
+                aiA[r] = this.oGrammar.getRuleLHS(aiRules[r]);
+                aiB[r] = this.oGrammar.getRuleRHS(aiRules[r], 0);
+                aiC[r] = this.oGrammar.getRuleRHS(aiRules[r], 1);
+                adP[r] = this.oGrammar.getRuleProbability(aiRules[r]);
+            }
+
+            boolean bDebug = Debug.isDebugOn();
+
 			/*
              * Recursive case
 			 * ('recursive' as authors call it, but it's implemented iteratively
 			 * and me being just a copy-cat here)
 			 */
-            for (int iSpan = 2; iSpan <= this.oWords.size(); iSpan++) {
-                for (int iBegin = 0; iBegin < this.oWords.size() - iSpan + 1; iBegin++) {
+            for (int iSpan = 2; iSpan <= iWords; iSpan++) {
+                for (int iBegin = 0; iBegin < iWords - iSpan + 1; iBegin++) {
                     int iEnd = iBegin + iSpan - 1;
 
+                    double[] adSpan = this.adParseMatrix[iBegin][iEnd];
+                    int[] aiSpanBack = this.aiBack[iBegin][iEnd];
+
                     // For every split m of the incoming sentence ...
                     for (int m = iBegin; m <= iEnd - 1; m++) {
+                        double[] adLeft = this.adParseMatrix[iBegin][m];
+                        double[] adRight = this.adParseMatrix[m + 1][iEnd];
+
                         // Check how the split divides B and C in A->BC
-                        for (int iA = 0; iA < oNonTerminals.size(); iA++) {
-                            for (int iB = 0; iB < oNonTerminals.size(); iB++) {
-                                for (int iC = 0; iC < oNonTerminals.size(); iC++) {
-                                    ProbabilisticRule oRule = (ProbabilisticRule) this.oGrammar.getRule(iA, iB, iC);
-
-                                    if (oRule == null) {
-                                        continue;
-                                    }
-
-                                    if (Debug.isDebugOn()) {
-                                        System.out.println("Rule (A->BC): " + oRule + ", P = " + oRule.getProbability());
-                                    }
-
-/*									System.out.println
-                                    (
-										"["+begin+"]["+m+"]["+B+"] = " + this.oParseMatrix[begin][m][B] +
-										", ["+(m+1)+"]["+end+"]["+C+"] = " + this.oParseMatrix[m + 1][end][C]
-									);
-*/
-                                    double dProb =
-                                            this.adParseMatrix[iBegin][m][iB] *
-                                                    this.adParseMatrix[m + 1][iEnd][iC] *
-                                                    oRule.getProbability();
-
-                                    if (dProb > this.adParseMatrix[iBegin][iEnd][iA]) {
-                                        this.adParseMatrix[iBegin][iEnd][iA] = dProb;
-
-                                        Vector oBackIndices = new Vector();
-
-                                        oBackIndices.add(new Integer(m));
-                                        oBackIndices.add(new Integer(iB));
-                                        oBackIndices.add(new Integer(iC));
-
-                                        this.aoBack[iBegin][iEnd][iA] = oBackIndices;
-
-                                        if (Debug.isDebugOn()) {
-                                            System.out.println
-                                                    (
-                                                            "[" + iBegin + "][" + iEnd + "][" + iA + "] = " +
-                                                                    this.adParseMatrix[iBegin][iEnd][iA] +
-                                                                    ", [" + m + "][" + iB + "][" + iC + "] = " +
-                                                                    "prob: " + dProb
-                                                    );
-                                        }
-                                    }
-                                } // for C
-                            } // for B
-                        } // for A
+                        for (int r = 0; r < aiRules.length; r++) {
+                            double dLeft = adLeft[aiB[r]];
+
+                            // Nothing to gain from an unparsed half
+                            if (dLeft == 0) {
+                                continue;
+                            }
+
+                            double dRight = adRight[aiC[r]];
+
+                            if (dRight == 0) {
+                                continue;
+                            }
+
+                            double dProb = dLeft * dRight * adP[r];
+
+                            if (dProb > adSpan[aiA[r]]) {
+                                adSpan[aiA[r]] = dProb;
+
+                                aiSpanBack[3 * aiA[r]] = m + 1;
+                                aiSpanBack[3 * aiA[r] + 1] = aiB[r];
+                                aiSpanBack[3 * aiA[r] + 2] = aiC[r];
+
+                                if (bDebug) {
+                                    System.out.println
+                                            (
+                                                    "[" + iBegin + "][" + iEnd + "][" + aiA[r] + "] = " +
+                                                            adSpan[aiA[r]] +
+                                                            ", [" + m + "][" + aiB[r] + "][" + aiC[r] + "] = " +
+                                                            "prob: " + dProb
+                                            );
+                                }
+                            }
+                        } // for A->BC
                     } // split
                 }
             } // "recursive" case
@@ -303,6 +323,21 @@ public class ProbabilisticParser
         return true;
     }
 
+    /**
+     * Retrieves the probability of the most probable parse of the
+     * sentence last parsed from the start non-terminal.
+     *
+     * @return the probability; 0 if there is no parse
+     * @since 0.3.0.6
+     */
+    public double getParseProbability() {
+        if (this.adParseMatrix == null || this.adParseMatrix.length == 0) {
+            return 0.0;
+        }
+
+        return this.adParseMatrix[0][this.adParseMatrix.length - 1][0];
+    }
+
     /**
      * Dumps back-pointers to the STDOUT.
      */
@@ -314,7 +349,7 @@ public class ProbabilisticParser
                 System.out.println();
 
                 for (int k = 0; k < this.oGrammar.getNonTerminalList().size(); k++) {
-                    System.out.print("\t" + (this.aoBack[i][j][k] != null));
+                    System.out.print("\t" + (this.aiBack[i][j][3 * k] != 0));
                 }
             }
         }
@@ -406,15 +441,15 @@ public class ProbabilisticParser
 
             // Termination case
 
-            if (this.aoBack[i][j][piA] == null) {
+            if (this.aiBack[i][j][3 * piA] == 0) {
                 return;
             }
 
             // Recursive case
 
-            int m = ((Integer) this.aoBack[i][j][piA].elementAt(0)).intValue();
-            int iB = ((Integer) this.aoBack[i][j][piA].elementAt(1)).intValue();
-            int iC = ((Integer) this.aoBack[i][j][piA].elementAt(2)).intValue();
+            int m = this.aiBack[i][j][3 * piA] - 1;
+            int iB = this.aiBack[i][j][3 * piA + 1];
+            int iC = this.aiBack[i][j][3 * piA + 2];
 
             dumpParseTree(piLevel + 1, i, m, iB);
             dumpParseTree(piLevel + 1, m + 1, j, iC);
@@ -45,6 +45,15 @@ public class Token
      */
     protected double dNumericalValue = 0;
 
+    /**
+     * Column of the token's terminal in the transition table;
+     * -1 until resolved.
+     *
+     * @see TransitionTable#getTerminalID(Token)
+     * @since 0.3.0.6
+     */
+    protected int iTerminalID = -1;
+
     /**
      * For serialization versioning.
      * When adding new members or make other structural
@@ -101,6 +110,7 @@ public class Token
 
         // TODO: fix cloning
         this.oTokenType = poToken.getTokenType();
+        this.iTerminalID = poToken.iTerminalID;
     }
 
     /**
@@ -220,6 +230,27 @@ public class Token
         this.oTokenType = poTokenType;
     }
 
+    /**
+     * Allows querying for the column of the token's terminal in the
+     * transition table.
+     *
+     * @return the column; -1 if not resolved
+     * @since 0.3.0.6
+     */
+    public int getTerminalID() {
+        return this.iTerminalID;
+    }
+
+    /**
+     * Sets the column of the token's terminal in the transition table.
+     *
+     * @param piTerminalID the column; -1 if not resolved
+     * @since 0.3.0.6
+     */
+    public void setTerminalID(int piTerminalID) {
+        this.iTerminalID = piTerminalID;
+    }
+
     /**
      * Retrieves class' revision.
      *
@@ -1,15 +1,24 @@
 package marf.nlp.Parsing;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.ObjectOutputStream;
 import java.io.Serializable;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
 import java.util.Vector;
+import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
 
 import marf.nlp.Parsing.GrammarCompiler.GrammarElement;
 import marf.nlp.Parsing.GrammarCompiler.NonTerminal;
 import marf.nlp.Parsing.GrammarCompiler.Rule;
+import marf.nlp.Parsing.GrammarCompiler.SemanticToken;
 import marf.nlp.Parsing.GrammarCompiler.Terminal;
 import marf.util.Debug;
 
@@ -19,6 +28,14 @@ import marf.util.Debug;
  * stores transition table for the main parser.
  * Can be serialized and deserialized as a binary
  * gzipped object.</p>
+ *
+ * <p>For parsing, the table is compiled on first lookup into a flat
+ * array of entry numbers, one per (non-terminal, terminal) cell, and
+ * tokens are resolved to their terminal columns through a hash of the
+ * terminal names; a token's column is kept in the token, so that it
+ * is resolved only once. The table is saved in a compact binary form,
+ * the flat array and the grammar elements it refers to, which loads
+ * without Java serialization.</p>
  * <p>
  * $Id: TransitionTable.java,v 1.14 2006/01/19 04:51:41 mokhov Exp $
  *
@@ -67,6 +84,77 @@ public class TransitionTable
      */
     protected transient String strTableFile;
 
+    /**
+     * Magic number the binary form of the table starts with.
+     *
+     * @since 0.3.0.6
+     */
+    public static final int BINARY_FORMAT_MAGIC = 0x4D415254;
+
+    /**
+     * Version of the binary form of the table.
+     *
+     * @since 0.3.0.6
+     */
+    public static final int BINARY_FORMAT_VERSION = 1;
+
+    /**
+     * Terminal grammar element in the binary form.
+     */
+    private static final byte ELEMENT_TERMINAL = 0;
+
+    /**
+     * Non-terminal grammar element in the binary form.
+     */
+    private static final byte ELEMENT_NON_TERMINAL = 1;
+
+    /**
+     * Semantic token grammar element in the binary form.
+     */
+    private static final byte ELEMENT_SEMANTIC_TOKEN = 2;
+
+    /**
+     * Rule table entry in the binary form.
+     */
+    private static final byte ENTRY_RULE = 0;
+
+    /**
+     * Syntax error table entry in the binary form.
+     */
+    private static final byte ENTRY_SYNTAX_ERROR = 1;
+
+    /**
+     * Compiled table: entry number plus one of every cell,
+     * row by row; 0 for an empty cell. <code>null</code>
+     * until compiled.
+     */
+    private transient int[] aiCompiledTable = null;
+
+    /**
+     * Distinct entries of the compiled table.
+     */
+    private transient Object[] aoCompiledEntries = null;
+
+    /**
+     * Number of columns of the compiled table.
+     */
+    private transient int iCompiledColumns = 0;
+
+    /**
+     * Column of the first terminal of every name, as <code>Integer</code>s.
+     */
+    private transient Map oTerminalColumns = null;
+
+    /**
+     * Column of the first "ID" terminal; -1 if none.
+     */
+    private transient int iIDColumn = -1;
+
+    /**
+     * Column of the first "NUM" terminal; -1 if none.
+     */
+    private transient int iNUMColumn = -1;
+
     /**
      * For serialization versioning.
      * When adding new members or make other structural
@@ -106,6 +194,8 @@ public class TransitionTable
      * @see marf.nlp.Parsing.GrammarCompiler.GrammarCompiler
      */
     public boolean init(int piRows, int piCols) {
+        invalidate();
+
         if (this.oTT == null) {
             this.oTT = new Vector(piRows);
             this.oTT.setSize(piRows);
@@ -131,84 +221,403 @@ public class TransitionTable
     }
 
     /**
-     * Saves current state of the TT (itself).
+     * Saves current state of the TT (itself)
+     * in the binary form.
      *
      * @return <code>true</code> if serialization was successful
+     * @see #serialize(int)
      */
     public boolean save() {
-        try {
-            // Save to file
-            FileOutputStream oFOS = new FileOutputStream(this.strTableFile);
-
-            // Compressed
-            GZIPOutputStream oGZOS = new GZIPOutputStream(oFOS);
-
-            // Save objects
-            ObjectOutputStream oOOS = new ObjectOutputStream(oGZOS);
+        return serialize(1);
+    }
 
-            oOOS.writeObject(this);
-            oOOS.flush();
-            oOOS.close();
+    /**
+     * Loads or saves the table in the binary form from or to
+     * the table file.
+     *
+     * @param piOperation - 0 - LOAD, 1 - SAVE
+     * @return <code>true</code> if serialization was successful
+     * @see #readBinary(DataInputStream)
+     * @see #writeBinary(DataOutputStream)
+     */
+    public boolean serialize(int piOperation) {
+        try {
+            if (piOperation == 0) {
+                DataInputStream oDIS = new DataInputStream
+                        (
+                                new BufferedInputStream(new GZIPInputStream(new FileInputStream(this.strTableFile)))
+                        );
+
+                try {
+                    readBinary(oDIS);
+                } finally {
+                    oDIS.close();
+                }
+            } else {
+                DataOutputStream oDOS = new DataOutputStream
+                        (
+                                new BufferedOutputStream(new GZIPOutputStream(new FileOutputStream(this.strTableFile)))
+                        );
+
+                try {
+                    writeBinary(oDOS);
+                } finally {
+                    oDOS.close();
+                }
+            }
 
             return true;
         } catch (IOException e) {
-            System.err.println("TransitionTable::save() - WARNING: " + e.getMessage());
+            System.err.println("TransitionTable::serialize() - WARNING: " + e.getMessage());
             e.printStackTrace(System.err);
             return false;
         }
     }
 
     /**
-     * Serialize in text mode. Loading is not implemented.
-     * TODO: migrate to MARF's dump/store mechanism.
+     * Writes the table in the binary form: the terminals, the non-terminals
+     * with their first and follow sets, the distinct entries, and the
+     * entry number of every cell.
      *
-     * @param piOperation - 0 - LOAD, 1 - SAVE
-     * @return <code>true</code> if serialization was successful
+     * @param poDOS stream to write to
+     * @throws IOException if there was an error writing
+     * @since 0.3.0.6
      */
-    public boolean serialize(int piOperation) {
-        if (piOperation == 0) {
-            System.err.println("TransitionTable::serialize(LOAD) - Not implemented.");
-            return false;
-        } else {
-            // A row of terminals
-            int iTermNum = this.oTerminals.size();
+    public synchronized void writeBinary(final DataOutputStream poDOS)
+            throws IOException {
+        compile();
 
-            System.out.print("   Terminals(" + iTermNum + "): \t");
+        Map oTerminalIndex = new IdentityHashMap();
+        Map oNonTerminalIndex = new IdentityHashMap();
 
-            for (int t = 0; t < iTermNum; t++) {
-                Terminal oTerminal = (Terminal) this.oTerminals.elementAt(t);
-                System.out.print("(" + oTerminal.getID() + ")" + oTerminal.getName() + "\t");
+        poDOS.writeInt(BINARY_FORMAT_MAGIC);
+        poDOS.writeInt(BINARY_FORMAT_VERSION);
+
+        poDOS.writeInt(this.oTerminals.size());
+
+        for (int t = 0; t < this.oTerminals.size(); t++) {
+            Terminal oTerminal = (Terminal) this.oTerminals.elementAt(t);
+            oTerminalIndex.put(oTerminal, Integer.valueOf(t));
+            poDOS.writeUTF(oTerminal.getName());
+            poDOS.writeInt(oTerminal.getID());
+        }
+
+        poDOS.writeInt(this.oNonTerminals.size());
+
+        for (int n = 0; n < this.oNonTerminals.size(); n++) {
+            NonTerminal oNonTerminal = (NonTerminal) this.oNonTerminals.elementAt(n);
+            oNonTerminalIndex.put(oNonTerminal, Integer.valueOf(n));
+            poDOS.writeUTF(oNonTerminal.getName());
+            poDOS.writeInt(oNonTerminal.getID());
+            poDOS.writeBoolean(oNonTerminal.isDefined());
+        }
+
+        for (int n = 0; n < this.oNonTerminals.size(); n++) {
+            NonTerminal oNonTerminal = (NonTerminal) this.oNonTerminals.elementAt(n);
+            writeElements(poDOS, oNonTerminal.getFirstSet(), oTerminalIndex, oNonTerminalIndex);
+            writeElements(poDOS, oNonTerminal.getFollowSet(), oTerminalIndex, oNonTerminalIndex);
+        }
+
+        poDOS.writeInt(this.aoCompiledEntries.length);
+
+        for (int e = 0; e < this.aoCompiledEntries.length; e++) {
+            if (this.aoCompiledEntries[e] instanceof Rule) {
+                Rule oRule = (Rule) this.aoCompiledEntries[e];
+
+                poDOS.writeByte(ENTRY_RULE);
+                poDOS.writeInt(oRule.getID());
+                writeElement(poDOS, oRule.getLHS(), oTerminalIndex, oNonTerminalIndex);
+                writeElements(poDOS, oRule.getRHS(), oTerminalIndex, oNonTerminalIndex);
+            } else {
+                SyntaxError oSyntaxError = (SyntaxError) this.aoCompiledEntries[e];
+
+                poDOS.writeByte(ENTRY_SYNTAX_ERROR);
+                poDOS.writeInt(oSyntaxError.getCurrentErrorCode());
+                poDOS.writeUTF(oSyntaxError.getMessage() == null ? "" : oSyntaxError.getMessage());
             }
+        }
 
-            System.out.println();
+        poDOS.writeInt(this.iEOFTerminalID);
+        poDOS.writeInt(this.iStartNonTerminalID);
+
+        poDOS.writeInt(this.oTT.size());
+        poDOS.writeInt(this.iCompiledColumns);
 
-            // Non terminals and rules...
-            int iNonTemNum = this.oNonTerminals.size();
+        for (int i = 0; i < this.aiCompiledTable.length; i++) {
+            poDOS.writeInt(this.aiCompiledTable[i]);
+        }
+    }
 
-            System.out.println("NonTerminals(" + iNonTemNum + "): \t");
+    /**
+     * Reads the table in the binary form, replacing the
+     * current contents.
+     *
+     * @param poDIS stream to read from
+     * @throws IOException if there was an error reading, or the
+     *                     stream does not hold a table in the binary form
+     * @see #writeBinary(DataOutputStream)
+     * @since 0.3.0.6
+     */
+    public synchronized void readBinary(final DataInputStream poDIS)
+            throws IOException {
+        if (poDIS.readInt() != BINARY_FORMAT_MAGIC) {
+            throw new IOException("Not a transition table in the binary form.");
+        }
 
-            for (int n = 0; n < iNonTemNum; n++) {
-                System.out.print(((NonTerminal) this.oNonTerminals.elementAt(n)).getName() + "\t");
+        int iVersion = poDIS.readInt();
 
-                for (int t = 0; t < iTermNum; t++) {
-                    Vector oRow = (Vector) this.oTT.elementAt(n);
+        if (iVersion != BINARY_FORMAT_VERSION) {
+            throw new IOException("Unsupported transition table version: " + iVersion);
+        }
 
-                    Object oEntry = oRow.elementAt(t);
+        int iTerminals = poDIS.readInt();
+        Vector oTerminalList = new Vector(iTerminals);
+        oTerminalList.setSize(iTerminals);
 
-                    if (oEntry instanceof Rule) {
-                        Rule oRule = (Rule) oRow.elementAt(t);
-                        System.out.print(oRule.toAbbrString() + "\t");
-                    } else {
-                        SyntaxError oSyntaxError = (SyntaxError) oEntry;
-                        System.out.print("e\t");
-                        Debug.debug(oSyntaxError.getMessage() + "\t");
-                    }
+        for (int t = 0; t < oTerminalList.size(); t++) {
+            String strName = poDIS.readUTF();
+            oTerminalList.setElementAt(new Terminal(strName, poDIS.readInt()), t);
+        }
+
+        int iNonTerminals = poDIS.readInt();
+        Vector oNonTerminalList = new Vector(iNonTerminals);
+        oNonTerminalList.setSize(iNonTerminals);
+
+        for (int n = 0; n < oNonTerminalList.size(); n++) {
+            String strName = poDIS.readUTF();
+            NonTerminal oNonTerminal = new NonTerminal(strName, poDIS.readInt());
+
+            if (poDIS.readBoolean()) {
+                oNonTerminal.setDefined();
+            }
+
+            oNonTerminalList.setElementAt(oNonTerminal, n);
+        }
+
+        for (int n = 0; n < oNonTerminalList.size(); n++) {
+            NonTerminal oNonTerminal = (NonTerminal) oNonTerminalList.elementAt(n);
+            oNonTerminal.addToFirstSet(readElements(poDIS, oTerminalList, oNonTerminalList));
+            oNonTerminal.addToFollowSet(readElements(poDIS, oTerminalList, oNonTerminalList));
+        }
+
+        Object[] aoEntries = new Object[poDIS.readInt()];
+
+        for (int e = 0; e < aoEntries.length; e++) {
+            if (poDIS.readByte() == ENTRY_RULE) {
+                int iRuleID = poDIS.readInt();
+                Rule oRule = new Rule((NonTerminal) readElement(poDIS, oTerminalList, oNonTerminalList));
+
+                oRule.setID(iRuleID);
+                oRule.setRHS(readElements(poDIS, oTerminalList, oNonTerminalList));
+
+                aoEntries[e] = oRule;
+            } else {
+                int iErrorCode = poDIS.readInt();
+                String strMessage = poDIS.readUTF();
+
+                if (iErrorCode >= SyntaxError.ERR_GENERAL_SYNTAX_ERROR && iErrorCode < SyntaxError.ERR_CUSTOM) {
+                    aoEntries[e] = new SyntaxError(iErrorCode);
+                } else {
+                    aoEntries[e] = new SyntaxError(strMessage, null);
                 }
+            }
+        }
+
+        int iEOFID = poDIS.readInt();
+        int iStartID = poDIS.readInt();
+
+        int iRows = poDIS.readInt();
+        int iColumns = poDIS.readInt();
+
+        int[] aiTable = new int[iRows * iColumns];
+        Vector oTable = new Vector(iRows);
+
+        for (int r = 0; r < iRows; r++) {
+            Vector oRow = new Vector(iColumns);
+            oRow.setSize(iColumns);
+
+            for (int t = 0; t < iColumns; t++) {
+                int iEntry = poDIS.readInt();
 
-                System.out.println();
+                if (iEntry < 0 || iEntry > aoEntries.length) {
+                    throw new IOException("Transition table entry out of range: " + iEntry);
+                }
+
+                aiTable[r * iColumns + t] = iEntry;
+
+                if (iEntry > 0) {
+                    oRow.setElementAt(aoEntries[iEntry - 1], t);
+                }
             }
 
-            return true;
+            oTable.addElement(oRow);
+        }
+
+        this.oTerminals = oTerminalList;
+        this.oNonTerminals = oNonTerminalList;
+        this.oTT = oTable;
+        this.iEOFTerminalID = iEOFID;
+        this.iStartNonTerminalID = iStartID;
+
+        compileTerminalColumns();
+        this.aiCompiledTable = aiTable;
+        this.aoCompiledEntries = aoEntries;
+        this.iCompiledColumns = iColumns;
+    }
+
+    /**
+     * Writes a list of grammar elements.
+     *
+     * @param poDOS              stream to write to
+     * @param poElements         the elements
+     * @param poTerminalIndex    indices of the terminals by terminal
+     * @param poNonTerminalIndex indices of the non-terminals by non-terminal
+     * @throws IOException if there was an error writing
+     */
+    private static void writeElements(final DataOutputStream poDOS, final Vector poElements, final Map poTerminalIndex, final Map poNonTerminalIndex)
+            throws IOException {
+        poDOS.writeInt(poElements.size());
+
+        for (int i = 0; i < poElements.size(); i++) {
+            writeElement(poDOS, (GrammarElement) poElements.elementAt(i), poTerminalIndex, poNonTerminalIndex);
+        }
+    }
+
+    /**
+     * Writes a grammar element: its kind and its index in the terminal or
+     * non-terminal list, or, if not listed, -1 followed by its name and ID.
+     *
+     * @param poDOS              stream to write to
+     * @param poElement          the element
+     * @param poTerminalIndex    indices of the terminals by terminal
+     * @param poNonTerminalIndex indices of the non-terminals by non-terminal
+     * @throws IOException if there was an error writing
+     */
+    private static void writeElement(final DataOutputStream poDOS, final GrammarElement poElement, final Map poTerminalIndex, final Map poNonTerminalIndex)
+            throws IOException {
+        Integer oIndex;
+
+        if (poElement.isTerminal()) {
+            poDOS.writeByte(ELEMENT_TERMINAL);
+            oIndex = (Integer) poTerminalIndex.get(poElement);
+        } else if (poElement.isNonTerminal()) {
+            poDOS.writeByte(ELEMENT_NON_TERMINAL);
+            oIndex = (Integer) poNonTerminalIndex.get(poElement);
+        } else {
+            poDOS.writeByte(ELEMENT_SEMANTIC_TOKEN);
+            oIndex = null;
+        }
+
+        if (oIndex != null) {
+            poDOS.writeInt(oIndex.intValue());
+        } else {
+            poDOS.writeInt(-1);
+            poDOS.writeUTF(poElement.getName());
+            poDOS.writeInt(poElement.getID());
+        }
+    }
+
+    /**
+     * Reads a list of grammar elements.
+     *
+     * @param poDIS            stream to read from
+     * @param poTerminals      terminals read
+     * @param poNonTerminals   non-terminals read
+     * @return the elements
+     * @throws IOException if there was an error reading
+     */
+    private static Vector readElements(final DataInputStream poDIS, final Vector poTerminals, final Vector poNonTerminals)
+            throws IOException {
+        int iCount = poDIS.readInt();
+        Vector oElements = new Vector(iCount);
+
+        for (int i = 0; i < iCount; i++) {
+            oElements.addElement(readElement(poDIS, poTerminals, poNonTerminals));
+        }
+
+        return oElements;
+    }
+
+    /**
+     * Reads a grammar element.
+     *
+     * @param poDIS            stream to read from
+     * @param poTerminals      terminals read
+     * @param poNonTerminals   non-terminals read
+     * @return the element
+     * @throws IOException if there was an error reading
+     * @see #writeElement(DataOutputStream, GrammarElement, Map, Map)
+     */
+    private static GrammarElement readElement(final DataInputStream poDIS, final Vector poTerminals, final Vector poNonTerminals)
+            throws IOException {
+        byte iKind = poDIS.readByte();
+        int iIndex = poDIS.readInt();
+
+        try {
+            if (iIndex >= 0) {
+                return (GrammarElement) (iKind == ELEMENT_TERMINAL ? poTerminals : poNonTerminals).elementAt(iIndex);
+            }
+        } catch (ArrayIndexOutOfBoundsException e) {
+            throw new IOException("Grammar element index out of range: " + iIndex);
+        }
+
+        String strName = poDIS.readUTF();
+        int iID = poDIS.readInt();
+
+        switch (iKind) {
+            case ELEMENT_TERMINAL:
+                return new Terminal(strName, iID);
+
+            case ELEMENT_NON_TERMINAL:
+                return new NonTerminal(strName, iID);
+
+            default:
+                return new SemanticToken(strName, iID);
+        }
+    }
+
+    /**
+     * Dumps the table in text form to STDOUT.
+     *
+     * @since 0.3.0.6
+     */
+    public void dumpTable() {
+        // A row of terminals
+        int iTermNum = this.oTerminals.size();
+
+        System.out.print("   Terminals(" + iTermNum + "): \t");
+
+        for (int t = 0; t < iTermNum; t++) {
+            Terminal oTerminal = (Terminal) this.oTerminals.elementAt(t);
+            System.out.print("(" + oTerminal.getID() + ")" + oTerminal.getName() + "\t");
+        }
+
+        System.out.println();
+
+        // Non terminals and rules...
+        int iNonTemNum = this.oNonTerminals.size();
+
+        System.out.println("NonTerminals(" + iNonTemNum + "): \t");
+
+        for (int n = 0; n < iNonTemNum; n++) {
+            System.out.print(((NonTerminal) this.oNonTerminals.elementAt(n)).getName() + "\t");
+
+            for (int t = 0; t < iTermNum; t++) {
+                Vector oRow = (Vector) this.oTT.elementAt(n);
+
+                Object oEntry = oRow.elementAt(t);
+
+                if (oEntry instanceof Rule) {
+                    Rule oRule = (Rule) oRow.elementAt(t);
+                    System.out.print(oRule.toAbbrString() + "\t");
+                } else {
+                    SyntaxError oSyntaxError = (SyntaxError) oEntry;
+                    System.out.print("e\t");
+                    Debug.debug(oSyntaxError.getMessage() + "\t");
+                }
+            }
+
+            System.out.println();
         }
     }
 
@@ -236,6 +645,7 @@ public class TransitionTable
      * @param poTerminalList Vector with terminals
      */
     public void setTerminals(Vector poTerminalList) {
+        invalidate();
         this.oTerminals = poTerminalList;
     }
 
@@ -245,6 +655,7 @@ public class TransitionTable
      * @param poNonTerminalList Vector with non-terminals
      */
     public void setNonTerminals(Vector poNonTerminalList) {
+        invalidate();
         this.oNonTerminals = poNonTerminalList;
     }
 
@@ -266,53 +677,151 @@ public class TransitionTable
      * @param poNonTerminal non-terminal as a line number
      * @param poToken       token corresponding to a terminal as a column
      * @return the entry at the specified position
+     * @see #getTerminalID(Token)
      */
     public Object getEntryAt(NonTerminal poNonTerminal, Token poToken) {
-        for (int t = 0; t < this.oTerminals.size(); t++) {
-            if
-                    (
-                // Any other terminal
-                    ((poToken.getLexeme().equals(((Terminal) this.oTerminals.elementAt(t)).getName()))
-
-                            ||
-
-                            // ID
-                            (
-                                    (poToken.getTokenType().getType() == TokenType.ID)
-                                            &&
-                                            ((Terminal) this.oTerminals.elementAt(t)).getName().equals("ID"))
-                    )
-
-                            ||
-
-                            // NUM
-                            (
-                                    (poToken.getTokenType().getType() == TokenType.NUM)
-                                            &&
-                                            (((Terminal) this.oTerminals.elementAt(t)).getName().equals("NUM"))
-                            )
-/*
-                ||
-
-				// INTEGER
-				(
-					(poToken.getTokenType().getSubtype() == GrammarTokenType.INTEGER)
-					&&
-					(((Terminal)this.oTerminals.elementAt(t)).getName().equals("INTEGER"))
-				)
-*/
-                    ) {
-                Vector oRow = (Vector) this.oTT.elementAt(poNonTerminal.getID());
-
-                System.out.println("Now: [" + poNonTerminal.getID() + "," + t + "]");
-
-                return oRow.elementAt(t);
+        int iTerminal = getTerminalID(poToken);
+
+        if (iTerminal == -1) {
+            Debug.debug("TT::getEntryAt() - Was looking for {} and didn't find it!", poToken.getLexeme());
+            return null;
+        }
+
+        return getEntryAt(poNonTerminal.getID(), iTerminal);
+    }
+
+    /**
+     * Gets a table entry of the compiled table, compiling it if needed.
+     *
+     * @param piNonTerminal non-terminal ID as a line number
+     * @param piTerminal    terminal column, as returned by <code>getTerminalID()</code>
+     * @return the entry at the specified position; <code>null</code> if none
+     * or the column is out of range
+     * @throws ArrayIndexOutOfBoundsException if there is no such non-terminal
+     * @since 0.3.0.6
+     */
+    public synchronized Object getEntryAt(final int piNonTerminal, final int piTerminal) {
+        if (this.aiCompiledTable == null) {
+            compile();
+        }
+
+        if (piTerminal < 0 || piTerminal >= this.iCompiledColumns) {
+            return null;
+        }
+
+        int iEntry = this.aiCompiledTable[piNonTerminal * this.iCompiledColumns + piTerminal];
+        return iEntry == 0 ? null : this.aoCompiledEntries[iEntry - 1];
+    }
+
+    /**
+     * Resolves the terminal column of a token: the first terminal named
+     * as the token's lexeme, or "ID" for identifiers, or "NUM" for numbers.
+     * The column found is kept in the token, and not looked up again.
+     *
+     * @param poToken the token
+     * @return the column; -1 if no terminal matches the token
+     * @see Token#getTerminalID()
+     * @since 0.3.0.6
+     */
+    public synchronized int getTerminalID(final Token poToken) {
+        if (poToken.getTerminalID() != -1) {
+            return poToken.getTerminalID();
+        }
+
+        if (this.aiCompiledTable == null) {
+            compile();
+        }
+
+        int iColumn = -1;
+        Integer oColumn = (Integer) this.oTerminalColumns.get(poToken.getLexeme());
+
+        if (oColumn != null) {
+            iColumn = oColumn.intValue();
+        }
+
+        // Whichever comes first in the terminal list
+        int iType = poToken.getTokenType().getType();
+
+        if (iType == TokenType.ID && this.iIDColumn != -1 && (iColumn == -1 || this.iIDColumn < iColumn)) {
+            iColumn = this.iIDColumn;
+        } else if (iType == TokenType.NUM && this.iNUMColumn != -1 && (iColumn == -1 || this.iNUMColumn < iColumn)) {
+            iColumn = this.iNUMColumn;
+        }
+
+        poToken.setTerminalID(iColumn);
+
+        return iColumn;
+    }
+
+    /**
+     * Compiles the table into the flat array of entry numbers and the
+     * terminal columns by name. Done on first lookup; the table is
+     * compiled anew after it is changed.
+     *
+     * @since 0.3.0.6
+     */
+    public synchronized void compile() {
+        int iRows = this.oTT.size();
+        int iColumns = this.oTerminals.size();
+
+        int[] aiTable = new int[iRows * iColumns];
+        Map oEntryNumbers = new IdentityHashMap();
+        Vector oEntries = new Vector();
+
+        for (int r = 0; r < iRows; r++) {
+            Vector oRow = (Vector) this.oTT.elementAt(r);
+            int iLength = Math.min(iColumns, oRow.size());
+
+            for (int t = 0; t < iLength; t++) {
+                Object oEntry = oRow.elementAt(t);
+
+                if (oEntry != null) {
+                    Integer oNumber = (Integer) oEntryNumbers.get(oEntry);
+
+                    if (oNumber == null) {
+                        oEntries.addElement(oEntry);
+                        oNumber = Integer.valueOf(oEntries.size());
+                        oEntryNumbers.put(oEntry, oNumber);
+                    }
+
+                    aiTable[r * iColumns + t] = oNumber.intValue();
+                }
             }
         }
 
-        Debug.debug("TT::getEntryAt() - Was looking for " + poToken.getLexeme() + " and didn't find it!");
+        compileTerminalColumns();
+        this.aiCompiledTable = aiTable;
+        this.aoCompiledEntries = oEntries.toArray();
+        this.iCompiledColumns = iColumns;
+    }
+
+    /**
+     * Maps the terminal names to their first columns.
+     */
+    private void compileTerminalColumns() {
+        this.oTerminalColumns = new HashMap();
+        this.iIDColumn = -1;
+        this.iNUMColumn = -1;
+
+        for (int t = this.oTerminals.size() - 1; t >= 0; t--) {
+            String strName = ((Terminal) this.oTerminals.elementAt(t)).getName();
+            this.oTerminalColumns.put(strName, Integer.valueOf(t));
+
+            if (strName.equals("ID")) {
+                this.iIDColumn = t;
+            } else if (strName.equals("NUM")) {
+                this.iNUMColumn = t;
+            }
+        }
+    }
 
-        return null;
+    /**
+     * Drops the compiled table after a change.
+     */
+    private synchronized void invalidate() {
+        this.aiCompiledTable = null;
+        this.aoCompiledEntries = null;
+        this.oTerminalColumns = null;
     }
 
     /**
@@ -324,6 +833,8 @@ public class TransitionTable
      * @throws ArrayIndexOutOfBoundsException if either index does not exist
      */
     public void setEntryAt(final NonTerminal poNonTerminal, final Terminal poTerminal, Object poEntry) {
+        invalidate();
+
         try {
             Vector oRow = (Vector) this.oTT.elementAt(poNonTerminal.getID());
             oRow.setElementAt(poEntry, poTerminal.getID());
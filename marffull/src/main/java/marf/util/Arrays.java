@@ -1473,6 +1473,10 @@ public class Arrays {
     public static String arrayToDelimitedString(final double[] padData, final String pstrDelimeter) {
         StringBuffer oRetVal = new StringBuffer();
 
+        if (padData.length == 0) {
+            return oRetVal.toString();
+        }
+
         oRetVal.append(padData[0]);
 
         for (int i = 1; i < padData.length; i++) {
@@ -189,8 +189,10 @@ public class BaseThread
      * @param piTID starting TID
      */
     public BaseThread(final int piTID) {
-        siNextTID = piTID;
-        setTID();
+        synchronized (BaseThread.class) {
+            siNextTID = piTID;
+            setTID();
+        }
     }
 
     /**
@@ -205,8 +207,11 @@ public class BaseThread
     /**
      * Sets internal TID and updates next TID on contruction time, so it's private.
      */
-    private synchronized final void setTID() {
-        this.iTID = siNextTID++;
+    private final void setTID() {
+        // siNextTID is shared by all threads; lock on what getNextTID() does
+        synchronized (BaseThread.class) {
+            this.iTID = siNextTID++;
+        }
     }
 
     /**
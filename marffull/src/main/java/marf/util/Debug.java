@@ -4,6 +4,16 @@ package marf.util;
 /**
  * <p>Debugging Facility.</p>
  * <p>
+ * <p>As of 0.3.0.6, the debug flag is volatile and the <code>debug()</code>
+ * methods take no lock: they return at once when debugging is off, and
+ * otherwise leave the serialization of the output to the stream. So that
+ * disabled debugging costs nothing in the hot paths, the messages should
+ * not be built before the call: the <code>{}</code> placeholders of a
+ * format are replaced with the arguments, and an object is converted to
+ * a string, only when the message is issued. Arguments of primitive types
+ * would still be boxed before the call, so such messages are better
+ * guarded with <code>isDebugOn()</code>.</p>
+ * <p>
  * <p>$Id: Debug.java,v 1.16 2006/01/18 19:31:14 mokhov Exp $</p>
  *
  * @author Serguei Mokhov
@@ -21,10 +31,18 @@ public class Debug
 
     /**
      * Public debug flag.
-     * Notice, multithreaded clients must synchronized on this
-     * themselves if they use the flag directly.
+     * As of 0.3.0.6, volatile, so reading it needs no synchronization;
+     * multithreaded clients that test and set it must still synchronize
+     * on the class themselves if they use the flag directly.
      */
-    public static boolean sbDebugOn = false;
+    public static volatile boolean sbDebugOn = false;
+
+    /**
+     * Placeholder of an argument in a message format.
+     *
+     * @since 0.3.0.6
+     */
+    public static final String PLACEHOLDER = "{}";
 
     /**
      * Needed for logger.
@@ -62,23 +80,24 @@ public class Debug
 
     /**
      * Allows to atomically query the debug flag.
+     * As of 0.3.0.6, it takes no lock.
      *
      * @return the current state of the debug flag
      * @since 0.3.0.4
      */
-    public static synchronized final boolean isDebugOn() {
+    public static final boolean isDebugOn() {
         return sbDebugOn;
     }
 
     /**
      * Issues a debug message if the flag is on.
      * The message can have the trailing EOL or not based
-     * on the 2nd argument. This method is properly synchronized.
+     * on the 2nd argument.
      *
      * @param pstrMsgString desired debug message to be issued
      * @param pbEOLNeeded   <code>true</code> if the trailing EOL is desired.
      */
-    public static synchronized final void debug(final String pstrMsgString, final boolean pbEOLNeeded) {
+    public static final void debug(final String pstrMsgString, final boolean pbEOLNeeded) {
         if (sbDebugOn) {
             if (pbEOLNeeded) {
                 System.err.println(pstrMsgString);
@@ -90,51 +109,143 @@ public class Debug
 
     /**
      * Issues a debug message if the flag is on with a trailing EOL.
-     * This method is properly synchronized.
      *
      * @param pstrMsgString desired debug message to be issued
      */
-    public static synchronized final void debug(final String pstrMsgString) {
+    public static final void debug(final String pstrMsgString) {
         debug(pstrMsgString, true);
     }
 
     /**
      * Issues a debug message if the flag is on with a trailing EOL
-     * by calling <code>toString()</code> of the parameter.
-     * This method is properly synchronized.
+     * by calling <code>toString()</code> of the parameter,
+     * only if the flag is on.
      *
      * @param poObject object to dump to the debug output
      * @since 0.3.0.3
      */
-    public static synchronized final void debug(final Object poObject) {
-        debug(poObject.toString(), true);
+    public static final void debug(final Object poObject) {
+        if (sbDebugOn) {
+            debug(String.valueOf(poObject), true);
+        }
+    }
+
+    /**
+     * Issues a debug message of a format with one argument if the
+     * flag is on with a trailing EOL.
+     *
+     * @param pstrFormat message with a <code>{}</code> placeholder for the argument
+     * @param poArg      the argument
+     * @see #format(String, Object[])
+     * @since 0.3.0.6
+     */
+    public static final void debug(final String pstrFormat, final Object poArg) {
+        if (sbDebugOn) {
+            debug(format(pstrFormat, new Object[]{poArg}), true);
+        }
+    }
+
+    /**
+     * Issues a debug message of a format with two arguments if the
+     * flag is on with a trailing EOL.
+     *
+     * @param pstrFormat message with <code>{}</code> placeholders for the arguments
+     * @param poArg1     first argument
+     * @param poArg2     second argument
+     * @see #format(String, Object[])
+     * @since 0.3.0.6
+     */
+    public static final void debug(final String pstrFormat, final Object poArg1, final Object poArg2) {
+        if (sbDebugOn) {
+            debug(format(pstrFormat, new Object[]{poArg1, poArg2}), true);
+        }
+    }
+
+    /**
+     * Issues a debug message of a format with three arguments if the
+     * flag is on with a trailing EOL.
+     *
+     * @param pstrFormat message with <code>{}</code> placeholders for the arguments
+     * @param poArg1     first argument
+     * @param poArg2     second argument
+     * @param poArg3     third argument
+     * @see #format(String, Object[])
+     * @since 0.3.0.6
+     */
+    public static final void debug(final String pstrFormat, final Object poArg1, final Object poArg2, final Object poArg3) {
+        if (sbDebugOn) {
+            debug(format(pstrFormat, new Object[]{poArg1, poArg2, poArg3}), true);
+        }
+    }
+
+    /**
+     * Issues a debug message of a format with any number of arguments
+     * if the flag is on with a trailing EOL.
+     *
+     * @param pstrFormat message with <code>{}</code> placeholders for the arguments
+     * @param paoArgs    the arguments
+     * @see #format(String, Object[])
+     * @since 0.3.0.6
+     */
+    public static final void debug(final String pstrFormat, final Object[] paoArgs) {
+        if (sbDebugOn) {
+            debug(format(pstrFormat, paoArgs), true);
+        }
     }
 
     /**
      * Issues a debug message if the flag is on with a trailing EOL.
-     * This method is properly synchronized.
      *
      * @param poClass       add class to extract the name from as a prefix
      * @param pstrMsgString desired debug message to be issued
      */
-    public static synchronized final void debug(final Class poClass, final String pstrMsgString) {
-        debug
-                (
-                        new StringBuffer()
-                                .append(poClass.getName())
-                                .append(":")
-                                .append(pstrMsgString)
-                );
+    public static final void debug(final Class poClass, final String pstrMsgString) {
+        if (sbDebugOn) {
+            debug
+                    (
+                            new StringBuffer()
+                                    .append(poClass.getName())
+                                    .append(":")
+                                    .append(pstrMsgString)
+                    );
+        }
     }
 
     /**
      * Issues an empty debug message if the flag is on with a trailing EOL.
-     * This method is properly synchronized.
      */
-    public static synchronized final void debug() {
+    public static final void debug() {
         debug("");
     }
 
+    /**
+     * Replaces the <code>{}</code> placeholders of a message format with
+     * the arguments, in order. Placeholders with no argument left are kept
+     * as they are, and the arguments with no placeholder left are ignored.
+     *
+     * @param pstrFormat message with <code>{}</code> placeholders
+     * @param paoArgs    the arguments, <code>null</code>s included
+     * @return the message
+     * @since 0.3.0.6
+     */
+    public static String format(final String pstrFormat, final Object[] paoArgs) {
+        StringBuffer oMessage = new StringBuffer(pstrFormat.length() + 16 * paoArgs.length);
+        int iFrom = 0;
+
+        for (int i = 0; i < paoArgs.length; i++) {
+            int iAt = pstrFormat.indexOf(PLACEHOLDER, iFrom);
+
+            if (iAt < 0) {
+                break;
+            }
+
+            oMessage.append(pstrFormat.substring(iFrom, iAt)).append(paoArgs[i]);
+            iFrom = iAt + PLACEHOLDER.length();
+        }
+
+        return oMessage.append(pstrFormat.substring(iFrom)).toString();
+    }
+
     /**
      * Retrieves class' revision.
      *
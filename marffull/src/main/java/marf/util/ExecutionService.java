@@ -0,0 +1,450 @@
+package marf.util;
+
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import marf.MARFPipeline;
+
+/**
+ * <p>MARF-wide execution service.</p>
+ *
+ * <p>Instead of starting threads of their own for every request, the parts
+ * of MARF that run tasks concurrently submit them to the executor of a named
+ * queue, e.g. <code>QUEUE_AGGREGATOR</code>, created on first use and kept
+ * until <code>shutdown()</code>. Every queue has its own threads, so that a
+ * task of one queue waiting for tasks of another, like a batch pipeline
+ * worker waiting for an aggregator's feature extractors, can not starve
+ * them. The queues are bounded: when a queue is full, the submitting
+ * thread runs the task itself, which slows the producers down rather than
+ * failing them.</p>
+ *
+ * <p>The tasks submitted through <code>submit()</code> and <code>invokeAll()</code>
+ * run with the pipeline bound to the submitting thread, if any, bound to
+ * the worker thread for the duration of the task, so that the modules
+ * reaching the configuration through the static API see the pipeline
+ * they run for, and the pooled threads do not keep it afterwards.</p>
+ *
+ * <p>The pool size and queue capacity apply to the executors created after
+ * they are set. Where the runtime provides virtual threads (Java 21 and
+ * later), the executors may run every task in a virtual thread of its own
+ * instead of a pool; the queue bound does not apply then. The pool
+ * threads are daemons, and a shutdown hook stops the executors when the
+ * VM exits.</p>
+ *
+ * <p>$Id$</p>
+ *
+ * @author The MARF Research and Development Group
+ * @version $Revision$
+ * @since 0.3.0.6
+ */
+public final class ExecutionService {
+    /**
+     * Queue of the feature extraction aggregators.
+     */
+    public static final String QUEUE_AGGREGATOR = "aggregator";
+
+    /**
+     * Queue of the batch pipelines.
+     */
+    public static final String QUEUE_PIPELINE = "pipeline";
+
+    /**
+     * Queue of the classifier training.
+     */
+    public static final String QUEUE_TRAINING = "training";
+
+    /**
+     * Queue of the classification, e.g. of scoring several
+     * language models at once.
+     */
+    public static final String QUEUE_CLASSIFICATION = "classification";
+
+    /**
+     * Default capacity of a queue, 1024 tasks.
+     */
+    public static final int DEFAULT_QUEUE_CAPACITY = 1024;
+
+    /**
+     * Executors created so far, by queue name.
+     */
+    private static final Map soExecutors = new HashMap();
+
+    /**
+     * Number of threads of an executor; 0 for one per processor.
+     */
+    private static int siPoolSize = 0;
+
+    /**
+     * Capacity of the queue of an executor.
+     */
+    private static int siQueueCapacity = DEFAULT_QUEUE_CAPACITY;
+
+    /**
+     * Whether to use virtual threads where available.
+     */
+    private static boolean sbVirtualThreads = false;
+
+    /**
+     * Whether the shutdown hook is registered.
+     */
+    private static boolean sbHookRegistered = false;
+
+    /**
+     * Not to be instantiated.
+     */
+    private ExecutionService() {
+    }
+
+    /**
+     * Retrieves the executor of a queue, creating it on first use.
+     *
+     * @param pstrQueue queue name
+     * @return the executor; not to be shut down by the caller
+     */
+    public static synchronized ExecutorService getExecutor(final String pstrQueue) {
+        ExecutorService oExecutor = (ExecutorService) soExecutors.get(pstrQueue);
+
+        if (oExecutor == null) {
+            oExecutor = sbVirtualThreads ? createVirtualExecutor(pstrQueue) : null;
+
+            if (oExecutor == null) {
+                oExecutor = new ThreadPoolExecutor
+                        (
+                                getPoolSize(),
+                                getPoolSize(),
+                                60L,
+                                TimeUnit.SECONDS,
+                                new ArrayBlockingQueue(siQueueCapacity),
+                                new NamedThreadFactory(pstrQueue),
+                                new ThreadPoolExecutor.CallerRunsPolicy()
+                        );
+
+                // Let the idle threads go
+                ((ThreadPoolExecutor) oExecutor).allowCoreThreadTimeOut(true);
+            }
+
+            soExecutors.put(pstrQueue, oExecutor);
+
+            if (!sbHookRegistered) {
+                Runtime.getRuntime().addShutdownHook(new Thread("MARF ExecutionService shutdown") {
+                    public void run() {
+                        shutdown();
+                    }
+                });
+
+                sbHookRegistered = true;
+            }
+        }
+
+        return oExecutor;
+    }
+
+    /**
+     * Submits a task to the executor of a queue, to run with the pipeline
+     * bound to the calling thread.
+     *
+     * @param pstrQueue queue name
+     * @param poTask    the task
+     * @return the future result of the task
+     * @see MARFPipeline#getBoundPipeline()
+     */
+    public static Future submit(final String pstrQueue, final Callable poTask) {
+        return getExecutor(pstrQueue).submit(new BoundTask(poTask));
+    }
+
+    /**
+     * Runs tasks on the executor of a queue, at most a given number of
+     * them at a time, and collects their results in order. Stops at the
+     * first failure, cancelling the tasks not finished.
+     *
+     * @param pstrQueue     queue name
+     * @param poTasks       list of <code>Callable</code>s
+     * @param piConcurrency maximum number of tasks running at a time
+     * @return array of the tasks' results, in order
+     * @throws ExecutionException   wrapping the first task failure
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public static Object[] invokeAll(final String pstrQueue, final List poTasks, final int piConcurrency)
+            throws ExecutionException, InterruptedException {
+        Object[] aoResults = new Object[poTasks.size()];
+        Future[] aoFutures = new Future[poTasks.size()];
+
+        int iWindow = Math.max(1, Math.min(piConcurrency, aoFutures.length));
+        int iNext = 0;
+
+        try {
+            for (; iNext < iWindow; iNext++) {
+                aoFutures[iNext] = submit(pstrQueue, (Callable) poTasks.get(iNext));
+            }
+
+            for (int i = 0; i < aoFutures.length; i++) {
+                aoResults[i] = aoFutures[i].get();
+                aoFutures[i] = null;
+
+                if (iNext < aoFutures.length) {
+                    aoFutures[iNext] = submit(pstrQueue, (Callable) poTasks.get(iNext));
+                    iNext++;
+                }
+            }
+
+            return aoResults;
+        } finally {
+            for (int i = 0; i < iNext; i++) {
+                if (aoFutures[i] != null) {
+                    aoFutures[i].cancel(true);
+                }
+            }
+        }
+    }
+
+    /**
+     * Shuts all the executors down, letting the running tasks finish for
+     * a few seconds. The executors are created anew if requested later.
+     */
+    public static void shutdown() {
+        ExecutorService[] aoExecutors;
+
+        synchronized (ExecutionService.class) {
+            aoExecutors = (ExecutorService[]) soExecutors.values().toArray(new ExecutorService[soExecutors.size()]);
+            soExecutors.clear();
+        }
+
+        for (int i = 0; i < aoExecutors.length; i++) {
+            aoExecutors[i].shutdown();
+        }
+
+        try {
+            for (int i = 0; i < aoExecutors.length; i++) {
+                if (!aoExecutors[i].awaitTermination(5, TimeUnit.SECONDS)) {
+                    aoExecutors[i].shutdownNow();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Sets the number of threads of the executors created from now on.
+     *
+     * @param piPoolSize number of threads; 0 for one per processor
+     * @throws IllegalArgumentException if the size is negative
+     */
+    public static synchronized void setPoolSize(final int piPoolSize) {
+        if (piPoolSize < 0) {
+            throw new IllegalArgumentException("Pool size (" + piPoolSize + ") is negative.");
+        }
+
+        siPoolSize = piPoolSize;
+    }
+
+    /**
+     * Retrieves the number of threads of a new executor.
+     *
+     * @return the pool size
+     */
+    public static synchronized int getPoolSize() {
+        return siPoolSize == 0 ? Runtime.getRuntime().availableProcessors() : siPoolSize;
+    }
+
+    /**
+     * Sets the queue capacity of the executors created from now on.
+     *
+     * @param piCapacity maximum number of tasks waiting in a queue
+     * @throws IllegalArgumentException if the capacity is less than 1
+     */
+    public static synchronized void setQueueCapacity(final int piCapacity) {
+        if (piCapacity < 1) {
+            throw new IllegalArgumentException("Queue capacity (" + piCapacity + ") is less than 1.");
+        }
+
+        siQueueCapacity = piCapacity;
+    }
+
+    /**
+     * Retrieves the queue capacity of a new executor.
+     *
+     * @return the capacity
+     */
+    public static synchronized int getQueueCapacity() {
+        return siQueueCapacity;
+    }
+
+    /**
+     * Enables or disables virtual threads for the executors created from
+     * now on. Ignored where the runtime does not provide them.
+     *
+     * @param pbEnable <code>true</code> to run every task in a virtual thread
+     * @return the previous setting
+     */
+    public static synchronized boolean enableVirtualThreads(final boolean pbEnable) {
+        boolean bOldValue = sbVirtualThreads;
+        sbVirtualThreads = pbEnable;
+        return bOldValue;
+    }
+
+    /**
+     * Tells whether the runtime provides virtual threads.
+     *
+     * @return <code>true</code> if so
+     */
+    public static boolean isVirtualThreadsAvailable() {
+        try {
+            Thread.class.getMethod("ofVirtual", new Class[0]);
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Creates a virtual-thread-per-task executor, through reflection
+     * so as to run on the older runtimes as well.
+     *
+     * @param pstrQueue queue name for the thread names
+     * @return the executor, or <code>null</code> if not available
+     */
+    private static ExecutorService createVirtualExecutor(final String pstrQueue) {
+        if (!isVirtualThreadsAvailable()) {
+            return null;
+        }
+
+        try {
+            Class oBuilderClass = Class.forName("java.lang.Thread$Builder");
+
+            Object oBuilder = Thread.class.getMethod("ofVirtual", new Class[0]).invoke(null, new Object[0]);
+
+            oBuilder = oBuilderClass.getMethod("name", new Class[]{String.class, Long.TYPE})
+                    .invoke(oBuilder, new Object[]{"MARF " + pstrQueue + "-", Long.valueOf(1)});
+
+            Object oFactory = oBuilderClass.getMethod("factory", new Class[0]).invoke(oBuilder, new Object[0]);
+
+            Method oCreate = java.util.concurrent.Executors.class
+                    .getMethod("newThreadPerTaskExecutor", new Class[]{ThreadFactory.class});
+
+            return (ExecutorService) oCreate.invoke(null, new Object[]{oFactory});
+        } catch (Exception e) {
+            Debug.debug("ExecutionService: virtual threads unavailable: {}", e);
+            return null;
+        }
+    }
+
+    /**
+     * Lists the names of the queues with an executor.
+     *
+     * @return the names
+     */
+    public static synchronized String[] getQueues() {
+        String[] astrQueues = new String[soExecutors.size()];
+        Iterator oNames = soExecutors.keySet().iterator();
+
+        for (int i = 0; oNames.hasNext(); i++) {
+            astrQueues[i] = (String) oNames.next();
+        }
+
+        return astrQueues;
+    }
+
+    /**
+     * Task running with the pipeline bound to the thread that
+     * submitted it, restoring the worker's binding after.
+     */
+    private static final class BoundTask
+            implements Callable {
+        /**
+         * The task.
+         */
+        private final Callable oTask;
+
+        /**
+         * Pipeline bound at submission; <code>null</code> if none.
+         */
+        private final MARFPipeline oPipeline;
+
+        /**
+         * Wraps a task, capturing the calling thread's pipeline.
+         *
+         * @param poTask the task
+         */
+        BoundTask(final Callable poTask) {
+            this.oTask = poTask;
+            this.oPipeline = MARFPipeline.getBoundPipeline();
+        }
+
+        /**
+         * Runs the task with the captured pipeline bound.
+         *
+         * @return the task's result
+         * @throws Exception the task's failure
+         */
+        public Object call()
+                throws Exception {
+            MARFPipeline oPrevious = MARFPipeline.bind(this.oPipeline);
+
+            try {
+                return this.oTask.call();
+            } finally {
+                MARFPipeline.bind(oPrevious);
+            }
+        }
+    }
+
+    /**
+     * Makes daemon threads named after their queue.
+     */
+    private static final class NamedThreadFactory
+            implements ThreadFactory {
+        /**
+         * Thread name prefix.
+         */
+        private final String strPrefix;
+
+        /**
+         * Number of threads made.
+         */
+        private int iCount = 0;
+
+        /**
+         * Constructs the factory.
+         *
+         * @param pstrQueue queue name
+         */
+        NamedThreadFactory(final String pstrQueue) {
+            this.strPrefix = "MARF " + pstrQueue + "-";
+        }
+
+        /**
+         * Makes a thread.
+         *
+         * @param poTask task of the thread
+         * @return the thread
+         */
+        public synchronized Thread newThread(final Runnable poTask) {
+            Thread oThread = new Thread(poTask, this.strPrefix + (++this.iCount));
+            oThread.setDaemon(true);
+            return oThread;
+        }
+    }
+
+    /**
+     * Returns source code revision information.
+     *
+     * @return revision string
+     */
+    public static String getMARFSourceCodeRevision() {
+        return "$Revision$";
+    }
+}
+
+// EOF
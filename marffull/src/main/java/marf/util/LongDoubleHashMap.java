@@ -0,0 +1,298 @@
+package marf.util;
+
+import java.io.Serializable;
+
+
+/**
+ * <p>Hash map from <code>long</code> keys to <code>double</code> values.</p>
+ *
+ * <p>Unlike a <code>Hashtable</code> of <code>Long</code>s and <code>Double</code>s,
+ * the map keeps its keys and values in two primitive arrays, with open
+ * addressing and linear probing, so an entry takes 16 bytes of the
+ * arrays rather than three objects. The capacity is a power of 2, at most
+ * two thirds full; the map grows, and never shrinks, as entries are added.
+ * Entries cannot be removed one by one, only all at once.</p>
+ *
+ * <p>The map is not synchronized.</p>
+ *
+ * <p>$Id$</p>
+ *
+ * @author The MARF Research and Development Group
+ * @version $Revision$
+ * @since 0.3.0.6
+ */
+public class LongDoubleHashMap
+        implements Serializable {
+    /**
+     * Default initial capacity, 16 entries.
+     */
+    public static final int DEFAULT_CAPACITY = 16;
+
+    /**
+     * Key marking a free slot. An entry with this key is
+     * kept out of the arrays.
+     */
+    private static final long FREE_KEY = 0L;
+
+    /**
+     * Keys, <code>FREE_KEY</code> in the free slots.
+     */
+    private long[] alKeys;
+
+    /**
+     * Values of the keys.
+     */
+    private double[] adValues;
+
+    /**
+     * Number of entries in the arrays.
+     */
+    private int iSize = 0;
+
+    /**
+     * Whether there is an entry with the <code>FREE_KEY</code>.
+     */
+    private boolean bHasFreeKey = false;
+
+    /**
+     * Value of the <code>FREE_KEY</code>.
+     */
+    private double dFreeKeyValue = 0.0;
+
+    /**
+     * For serialization versioning.
+     * When adding new members or make other structural
+     * changes regenerate this number with the
+     * <code>serialver</code> tool that comes with JDK.
+     */
+    private static final long serialVersionUID = -2961475325310958317L;
+
+    /**
+     * Constructs an empty map of the default capacity.
+     */
+    public LongDoubleHashMap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructs an empty map to hold a number of entries
+     * without growing.
+     *
+     * @param piExpectedSize expected number of entries
+     * @throws IllegalArgumentException if the number is negative
+     */
+    public LongDoubleHashMap(final int piExpectedSize) {
+        if (piExpectedSize < 0) {
+            throw new IllegalArgumentException("Expected size (" + piExpectedSize + ") is negative.");
+        }
+
+        int iCapacity = 4;
+
+        while (iCapacity * 2 < piExpectedSize * 3) {
+            iCapacity <<= 1;
+        }
+
+        this.alKeys = new long[iCapacity];
+        this.adValues = new double[iCapacity];
+    }
+
+    /**
+     * Retrieves the value of a key.
+     *
+     * @param plKey     the key
+     * @param pdDefault value to return if there is no entry with the key
+     * @return the value
+     */
+    public final double get(final long plKey, final double pdDefault) {
+        if (plKey == FREE_KEY) {
+            return this.bHasFreeKey ? this.dFreeKeyValue : pdDefault;
+        }
+
+        int iSlot = find(plKey);
+        return this.alKeys[iSlot] == plKey ? this.adValues[iSlot] : pdDefault;
+    }
+
+    /**
+     * Tells whether there is an entry with a key.
+     *
+     * @param plKey the key
+     * @return <code>true</code> if there is
+     */
+    public final boolean containsKey(final long plKey) {
+        if (plKey == FREE_KEY) {
+            return this.bHasFreeKey;
+        }
+
+        return this.alKeys[find(plKey)] == plKey;
+    }
+
+    /**
+     * Sets the value of a key.
+     *
+     * @param plKey   the key
+     * @param pdValue the value
+     */
+    public final void put(final long plKey, final double pdValue) {
+        if (plKey == FREE_KEY) {
+            this.bHasFreeKey = true;
+            this.dFreeKeyValue = pdValue;
+            return;
+        }
+
+        int iSlot = find(plKey);
+
+        if (this.alKeys[iSlot] != plKey) {
+            iSlot = insert(iSlot, plKey);
+        }
+
+        this.adValues[iSlot] = pdValue;
+    }
+
+    /**
+     * Adds to the value of a key, the value of a new key being 0.
+     *
+     * @param plKey   the key
+     * @param pdDelta the amount to add
+     * @return the new value
+     */
+    public final double add(final long plKey, final double pdDelta) {
+        if (plKey == FREE_KEY) {
+            if (!this.bHasFreeKey) {
+                this.bHasFreeKey = true;
+                this.dFreeKeyValue = 0.0;
+            }
+
+            return this.dFreeKeyValue += pdDelta;
+        }
+
+        int iSlot = find(plKey);
+
+        if (this.alKeys[iSlot] != plKey) {
+            iSlot = insert(iSlot, plKey);
+            this.adValues[iSlot] = 0.0;
+        }
+
+        return this.adValues[iSlot] += pdDelta;
+    }
+
+    /**
+     * Retrieves the number of entries.
+     *
+     * @return the size
+     */
+    public final int size() {
+        return this.bHasFreeKey ? this.iSize + 1 : this.iSize;
+    }
+
+    /**
+     * Removes all the entries, keeping the capacity.
+     */
+    public void clear() {
+        Arrays.fill(this.alKeys, 0, this.alKeys.length, FREE_KEY);
+        this.iSize = 0;
+        this.bHasFreeKey = false;
+    }
+
+    /**
+     * Retrieves the keys of the entries, in no particular order.
+     *
+     * @return a new array of the keys
+     */
+    public long[] getKeys() {
+        long[] alResult = new long[size()];
+        int iCount = 0;
+
+        if (this.bHasFreeKey) {
+            alResult[iCount++] = FREE_KEY;
+        }
+
+        for (int i = 0; i < this.alKeys.length; i++) {
+            if (this.alKeys[i] != FREE_KEY) {
+                alResult[iCount++] = this.alKeys[i];
+            }
+        }
+
+        return alResult;
+    }
+
+    /**
+     * Finds the slot of a key, or the free slot where it would go.
+     *
+     * @param plKey the key, not <code>FREE_KEY</code>
+     * @return the slot
+     */
+    private int find(final long plKey) {
+        int iMask = this.alKeys.length - 1;
+        int iSlot = hash(plKey) & iMask;
+
+        while (this.alKeys[iSlot] != plKey && this.alKeys[iSlot] != FREE_KEY) {
+            iSlot = (iSlot + 1) & iMask;
+        }
+
+        return iSlot;
+    }
+
+    /**
+     * Puts a new key into a free slot, growing the arrays if they
+     * get too full.
+     *
+     * @param piSlot free slot found for the key
+     * @param plKey  the key
+     * @return the slot of the key, which moves if the arrays grow
+     */
+    private int insert(final int piSlot, final long plKey) {
+        this.alKeys[piSlot] = plKey;
+        this.iSize++;
+
+        if (this.iSize * 3 > this.alKeys.length * 2) {
+            rehash(this.alKeys.length * 2);
+            return find(plKey);
+        }
+
+        return piSlot;
+    }
+
+    /**
+     * Moves the entries to arrays of a new capacity.
+     *
+     * @param piCapacity new capacity, a power of 2
+     */
+    private void rehash(final int piCapacity) {
+        long[] alOldKeys = this.alKeys;
+        double[] adOldValues = this.adValues;
+
+        this.alKeys = new long[piCapacity];
+        this.adValues = new double[piCapacity];
+
+        for (int i = 0; i < alOldKeys.length; i++) {
+            if (alOldKeys[i] != FREE_KEY) {
+                int iSlot = find(alOldKeys[i]);
+                this.alKeys[iSlot] = alOldKeys[i];
+                this.adValues[iSlot] = adOldValues[i];
+            }
+        }
+    }
+
+    /**
+     * Spreads the bits of a key, so that keys differing in
+     * the high bits only do not land in the same slots.
+     *
+     * @param plKey the key
+     * @return the hash
+     */
+    private static int hash(final long plKey) {
+        long lHash = plKey * 0x9E3779B97F4A7C15L;
+        return (int) (lHash ^ (lHash >>> 32));
+    }
+
+    /**
+     * Returns source code revision information.
+     *
+     * @return revision string
+     */
+    public static String getMARFSourceCodeRevision() {
+        return "$Revision$";
+    }
+}
+
+// EOF